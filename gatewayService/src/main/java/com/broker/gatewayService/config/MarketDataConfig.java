@@ -0,0 +1,49 @@
+package com.broker.gatewayService.config;
+
+import org.springframework.amqp.core.AnonymousQueue;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.TopicExchange;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.function.client.WebClient;
+
+@Configuration
+public class MarketDataConfig {
+
+    public static final String MARKET_DATA_EXCHANGE = "marketData"; // book updates published by matchingService
+
+    @Bean
+    public TopicExchange marketDataExchange() {
+        return new TopicExchange(MARKET_DATA_EXCHANGE, false, false);
+    }
+
+    // Each gateway instance receives every update on its own server-named, auto-deleted queue
+    @Bean
+    public Queue marketDataQueue() {
+        return new AnonymousQueue();
+    }
+
+    @Bean
+    public Binding marketDataBinding(TopicExchange marketDataExchange, Queue marketDataQueue) {
+        return BindingBuilder.bind(marketDataQueue).to(marketDataExchange).with("#");
+    }
+
+    // The type headers name the matchingService classes: convert to the listener's parameter type instead
+    @Bean
+    public MessageConverter messageConverter() {
+        Jackson2JsonMessageConverter converter = new Jackson2JsonMessageConverter();
+        converter.setAlwaysConvertToInferredType(true);
+        return converter;
+    }
+
+    @Bean
+    public WebClient matchingWebClient(WebClient.Builder builder,
+                                       @Value("${market-data.matching-url:http://localhost:8085}") String matchingUrl) {
+        return builder.baseUrl(matchingUrl).build();
+    }
+}
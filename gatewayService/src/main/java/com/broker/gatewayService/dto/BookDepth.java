@@ -0,0 +1,11 @@
+package com.broker.gatewayService.dto;
+
+import java.util.List;
+
+/**
+ * Snapshot of a matching book (GET /api/matching/book/{symbol}), best levels first.
+ *
+ * @param sequence sequence of the last update the snapshot includes
+ */
+public record BookDepth(String symbol, long sequence, List<DepthLevel> bids, List<DepthLevel> asks) {
+}
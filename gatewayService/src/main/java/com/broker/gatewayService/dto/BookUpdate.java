@@ -0,0 +1,14 @@
+package com.broker.gatewayService.dto;
+
+import java.util.List;
+
+/**
+ * Incremental update of one matching book, as published by matchingService on the marketData
+ * exchange: the new state of the levels a command touched and the trades it produced.
+ *
+ * @param previousSequence sequence of the previous update of the symbol; an update only applies
+ *                         on top of a book at that sequence
+ */
+public record BookUpdate(String symbol, long sequence, long previousSequence,
+                         List<DepthLevel> bids, List<DepthLevel> asks, List<TradeTick> trades) {
+}
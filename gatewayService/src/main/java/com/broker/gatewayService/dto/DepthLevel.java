@@ -0,0 +1,12 @@
+package com.broker.gatewayService.dto;
+
+/**
+ * Aggregated view of one price level of a matching book.
+ *
+ * @param price limit in ticks of 0.01
+ * @param quantity open quantity of all the orders resting at this price, 0 in an update when the
+ *                 level is gone
+ * @param orders number of orders resting at this price
+ */
+public record DepthLevel(long price, long quantity, int orders) {
+}
@@ -0,0 +1,11 @@
+package com.broker.gatewayService.dto;
+
+import java.util.List;
+
+/**
+ * State of one book as sent to market-data subscribers: the best levels of each side and the
+ * most recent trades, newest first.
+ */
+public record MarketView(String symbol, long sequence, List<DepthLevel> bids, List<DepthLevel> asks,
+                         List<TradeTick> trades) {
+}
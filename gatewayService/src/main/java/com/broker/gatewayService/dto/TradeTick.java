@@ -0,0 +1,11 @@
+package com.broker.gatewayService.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Trade of the market-data stream.
+ *
+ * @param price in ticks of 0.01
+ */
+public record TradeTick(long tradeId, long price, int quantity, LocalDateTime timestamp) {
+}
@@ -0,0 +1,59 @@
+package com.broker.gatewayService.infrastructure;
+
+import com.broker.gatewayService.dto.MarketView;
+import com.broker.gatewayService.service.MarketDataHub;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Market data streamed to the dashboards over Server-Sent Events, served from the gateway's
+ * copies of the books (see {@link MarketDataHub}).
+ */
+@RestController
+@RequestMapping("/api/market")
+public class MarketDataController {
+
+    private static final int MAX_SYMBOLS = 20;
+    private static final int MAX_LEVELS = 20;
+    private static final Pattern SYMBOL = Pattern.compile("[A-Z0-9.]{1,12}");
+    // Below the read timeout of the proxies in front of the gateway (60 s for nginx)
+    private static final Duration HEARTBEAT_INTERVAL = Duration.ofSeconds(15);
+
+    private final MarketDataHub marketDataHub;
+
+    public MarketDataController(MarketDataHub marketDataHub) {
+        this.marketDataHub = marketDataHub;
+    }
+
+    // Flux SSE (événements "book") : état courant puis dernier état de chaque carnet à chaque changement
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<Flux<ServerSentEvent<MarketView>>> stream(@RequestParam("symbols") String symbols,
+                                                                    @RequestParam(value = "levels", defaultValue = "10") int levels) {
+        Set<String> watched = new LinkedHashSet<>();
+        for (String symbol : symbols.split(",")) {
+            watched.add(symbol.trim().toUpperCase());
+        }
+        if (watched.size() > MAX_SYMBOLS || levels <= 0 || levels > MAX_LEVELS
+                || !watched.stream().allMatch(symbol -> SYMBOL.matcher(symbol).matches())) {
+            return ResponseEntity.badRequest().build();
+        }
+        Flux<ServerSentEvent<MarketView>> views = marketDataHub.subscribe(watched, levels)
+            .map(view -> ServerSentEvent.builder(view).event("book").build());
+        Flux<ServerSentEvent<MarketView>> heartbeats = Flux.interval(HEARTBEAT_INTERVAL)
+            .map(tick -> ServerSentEvent.<MarketView>builder().comment("heartbeat").build());
+        return ResponseEntity.ok()
+            .header("X-Accel-Buffering", "no") // Lets nginx pass each event through as it comes
+            .body(Flux.merge(views, heartbeats));
+    }
+}
@@ -0,0 +1,187 @@
+package com.broker.gatewayService.service;
+
+import com.broker.gatewayService.dto.BookDepth;
+import com.broker.gatewayService.dto.BookUpdate;
+import com.broker.gatewayService.dto.DepthLevel;
+import com.broker.gatewayService.dto.MarketView;
+import com.broker.gatewayService.dto.TradeTick;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Copy of one matching book kept by the gateway from the market-data stream, so that any
+ * number of subscribers are served without reading the matching engine.
+ * <p>
+ * An update is applied only on top of the update it follows ({@code previousSequence} equal to
+ * the sequence of the book). On a hole in the chain, or for a book not loaded yet, the book
+ * stops being live: updates are kept aside until a snapshot is loaded, then the ones newer than
+ * the snapshot are applied on top of it. Levels deeper than the snapshot are only known once an
+ * update touches them.
+ * <p>
+ * Thread-safe: updates come from the AMQP listener, snapshots from the HTTP client and views
+ * are read by the subscribers.
+ */
+public class MarketBook {
+
+    public enum Outcome {
+        APPLIED,
+        // Kept aside until the snapshot being loaded arrives
+        BUFFERED,
+        // Kept aside; the caller must load a snapshot
+        SNAPSHOT_NEEDED
+    }
+
+    static final int RECENT_TRADES = 20;
+    // Past that many updates waiting for a snapshot, the oldest are dropped: the snapshot is newer
+    static final int MAX_PENDING = 10_000;
+
+    private final String symbol;
+    private final NavigableMap<Long, DepthLevel> bids = new TreeMap<>(Comparator.reverseOrder());
+    private final NavigableMap<Long, DepthLevel> asks = new TreeMap<>();
+    private final Deque<TradeTick> recentTrades = new ArrayDeque<>(RECENT_TRADES);
+    private final Deque<BookUpdate> pending = new ArrayDeque<>();
+    private long sequence;
+    private boolean live;
+    private boolean loading;
+    // Last view built, shared by the subscribers asking for the same number of levels
+    private MarketView view;
+    private int viewLevels;
+
+    public MarketBook(String symbol) {
+        this.symbol = symbol;
+    }
+
+    public synchronized Outcome apply(BookUpdate update) {
+        if (live && update.previousSequence() == sequence) {
+            merge(update);
+            return Outcome.APPLIED;
+        }
+        live = false;
+        if (pending.size() == MAX_PENDING) {
+            pending.removeFirst();
+        }
+        pending.addLast(update);
+        if (loading) {
+            return Outcome.BUFFERED;
+        }
+        loading = true;
+        return Outcome.SNAPSHOT_NEEDED;
+    }
+
+    /**
+     * Marks the book as loading if it is neither live nor loading yet.
+     *
+     * @return whether the caller must load a snapshot
+     */
+    public synchronized boolean claimLoad() {
+        if (live || loading) {
+            return false;
+        }
+        loading = true;
+        return true;
+    }
+
+    /**
+     * Replaces the levels with {@code snapshot}, then applies the updates kept aside that are
+     * newer than it.
+     *
+     * @return whether the book is live again; {@code false} if the updates kept aside do not
+     *         follow the snapshot, in which case the caller must load another one
+     */
+    public synchronized boolean load(BookDepth snapshot) {
+        bids.clear();
+        asks.clear();
+        snapshot.bids().forEach(level -> bids.put(level.price(), level));
+        snapshot.asks().forEach(level -> asks.put(level.price(), level));
+        sequence = snapshot.sequence();
+        view = null;
+        live = true;
+        for (Iterator<BookUpdate> updates = pending.iterator(); updates.hasNext(); ) {
+            BookUpdate update = updates.next();
+            if (update.sequence() <= sequence) {
+                // Already in the snapshot, which does not carry trades
+                addTrades(update.trades());
+            } else if (update.previousSequence() == sequence) {
+                merge(update);
+            } else {
+                live = false;
+                return false;
+            }
+            updates.remove();
+        }
+        loading = false;
+        return true;
+    }
+
+    /**
+     * The best {@code levels} levels of each side and the recent trades, or {@code null} while
+     * the book is not live.
+     */
+    public synchronized MarketView view(int levels) {
+        if (!live) {
+            return null;
+        }
+        if (view == null || viewLevels != levels) {
+            view = new MarketView(symbol, sequence, top(bids, levels), top(asks, levels), List.copyOf(recentTrades));
+            viewLevels = levels;
+        }
+        return view;
+    }
+
+    public synchronized boolean isLive() {
+        return live;
+    }
+
+    public synchronized long getSequence() {
+        return sequence;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    private void merge(BookUpdate update) {
+        mergeSide(bids, update.bids());
+        mergeSide(asks, update.asks());
+        addTrades(update.trades());
+        sequence = update.sequence();
+        view = null;
+    }
+
+    private static void mergeSide(NavigableMap<Long, DepthLevel> side, List<DepthLevel> changes) {
+        for (DepthLevel level : changes) {
+            if (level.quantity() == 0) {
+                side.remove(level.price());
+            } else {
+                side.put(level.price(), level);
+            }
+        }
+    }
+
+    private void addTrades(List<TradeTick> trades) {
+        for (TradeTick trade : trades) {
+            if (recentTrades.size() == RECENT_TRADES) {
+                recentTrades.removeLast();
+            }
+            recentTrades.addFirst(trade);
+        }
+    }
+
+    private static List<DepthLevel> top(NavigableMap<Long, DepthLevel> side, int levels) {
+        List<DepthLevel> top = new ArrayList<>(Math.min(levels, side.size()));
+        for (DepthLevel level : side.values()) {
+            if (top.size() == levels) {
+                break;
+            }
+            top.add(level);
+        }
+        return top;
+    }
+}
@@ -0,0 +1,161 @@
+package com.broker.gatewayService.service;
+
+import com.broker.gatewayService.dto.BookDepth;
+import com.broker.gatewayService.dto.BookUpdate;
+import com.broker.gatewayService.dto.MarketView;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fans the market-data stream of matchingService out to the gateway's subscribers.
+ * <p>
+ * Every gateway instance receives all the book updates once, on its own queue, and keeps a
+ * {@link MarketBook} per watched symbol. A book is loaded from a matching snapshot on its first
+ * subscription and again whenever its update chain has a hole; the subscribers only ever read
+ * these copies, so their number does not add any load to the matching engine. A book is
+ * dropped when its last subscriber leaves, so only the watched symbols are kept.
+ */
+@Service
+public class MarketDataHub {
+
+    // Deepest snapshot served by GET /api/matching/book
+    private static final int SNAPSHOT_LEVELS = 100;
+    private static final Duration SNAPSHOT_TIMEOUT = Duration.ofSeconds(5);
+    private static final Duration SNAPSHOT_RETRY_DELAY = Duration.ofSeconds(1);
+
+    private final WebClient matchingClient;
+    private final Map<String, MarketBook> books = new ConcurrentHashMap<>();
+    private final Map<String, Set<MarketSubscription>> subscriptions = new ConcurrentHashMap<>();
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final Counter updates;
+    private final Counter resyncs;
+
+    public MarketDataHub(WebClient matchingClient, MeterRegistry meterRegistry) {
+        this.matchingClient = matchingClient;
+        Gauge.builder("gateway.marketdata.subscribers", subscribers, AtomicInteger::get)
+            .description("Open market-data streams")
+            .register(meterRegistry);
+        this.updates = Counter.builder("gateway.marketdata.updates")
+            .description("Book updates received from matchingService")
+            .register(meterRegistry);
+        this.resyncs = Counter.builder("gateway.marketdata.resyncs")
+            .description("Books reloaded from a snapshot after a hole in their update sequence")
+            .register(meterRegistry);
+    }
+
+    // A single consumer, so the updates of a symbol are applied in the order they were published
+    @RabbitListener(queues = "#{marketDataQueue.name}")
+    public void onUpdate(BookUpdate update) {
+        updates.increment();
+        MarketBook book = books.get(update.symbol());
+        if (book == null) {
+            return; // Nobody watched this symbol yet; its book is loaded on the first subscription
+        }
+        switch (book.apply(update)) {
+            case APPLIED -> changed(update.symbol());
+            case SNAPSHOT_NEEDED -> {
+                resyncs.increment();
+                loadSnapshot(book);
+            }
+            case BUFFERED -> {
+            }
+        }
+    }
+
+    /**
+     * Views of {@code symbols}: the current one of each symbol first, then the latest one each
+     * time the book changed, conflated to the pace the subscriber reads at.
+     */
+    public Flux<MarketView> subscribe(Set<String> symbols, int levels) {
+        return Flux.create(sink -> {
+            MarketSubscription subscription = new MarketSubscription(symbols, levels, sink, this::view);
+            for (String symbol : symbols) {
+                MarketBook book = watch(symbol, subscription);
+                if (book.claimLoad()) {
+                    loadSnapshot(book);
+                }
+            }
+            subscribers.incrementAndGet();
+            sink.onRequest(requested -> subscription.drain());
+            sink.onDispose(() -> unsubscribe(subscription));
+            symbols.forEach(subscription::changed);
+        });
+    }
+
+    private MarketView view(String symbol, int levels) {
+        MarketBook book = books.get(symbol);
+        return book != null ? book.view(levels) : null;
+    }
+
+    // Adds the subscription to the watchers of symbol, under the same lock as unsubscribe
+    private MarketBook watch(String symbol, MarketSubscription subscription) {
+        MarketBook[] book = new MarketBook[1];
+        subscriptions.compute(symbol, (s, watching) -> {
+            Set<MarketSubscription> watchers = watching != null ? watching : ConcurrentHashMap.newKeySet();
+            watchers.add(subscription);
+            book[0] = books.computeIfAbsent(s, MarketBook::new);
+            return watchers;
+        });
+        return book[0];
+    }
+
+    private void unsubscribe(MarketSubscription subscription) {
+        for (String symbol : subscription.getSymbols()) {
+            subscriptions.computeIfPresent(symbol, (s, watching) -> {
+                watching.remove(subscription);
+                if (watching.isEmpty()) {
+                    books.remove(s); // Loaded again from a snapshot by the next subscriber
+                    return null;
+                }
+                return watching;
+            });
+        }
+        subscribers.decrementAndGet();
+    }
+
+    private void changed(String symbol) {
+        Set<MarketSubscription> watching = subscriptions.get(symbol);
+        if (watching != null) {
+            for (MarketSubscription subscription : watching) {
+                subscription.changed(symbol);
+            }
+        }
+    }
+
+    /**
+     * Loads a snapshot of {@code book} from matchingService, which serves it from the instance
+     * owning the symbol, until the book is live again.
+     */
+    private void loadSnapshot(MarketBook book) {
+        if (books.get(book.getSymbol()) != book) {
+            return; // Dropped since, nobody watches the symbol any more
+        }
+        matchingClient.get()
+            .uri("/api/matching/book/{symbol}?levels={levels}", book.getSymbol(), SNAPSHOT_LEVELS)
+            .retrieve()
+            .bodyToMono(BookDepth.class)
+            .timeout(SNAPSHOT_TIMEOUT)
+            .subscribe(snapshot -> {
+                if (book.load(snapshot)) {
+                    changed(book.getSymbol());
+                } else {
+                    loadSnapshot(book); // The updates kept aside do not follow this snapshot
+                }
+            }, error -> {
+                System.err.println("Failed to load the " + book.getSymbol() + " book: " + error.getMessage());
+                Mono.delay(SNAPSHOT_RETRY_DELAY).subscribe(ignored -> loadSnapshot(book));
+            });
+    }
+}
@@ -0,0 +1,82 @@
+package com.broker.gatewayService.service;
+
+import com.broker.gatewayService.dto.MarketView;
+import reactor.core.publisher.FluxSink;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+/**
+ * One market-data subscriber.
+ * <p>
+ * A change of one of its books only marks the symbol as dirty; the latest view of a dirty
+ * symbol is built when the subscriber can take more (downstream demand, which follows how fast
+ * its connection is written). A slow subscriber therefore skips the intermediate states of a
+ * book instead of accumulating a backlog, and holds at most one pending entry per symbol.
+ */
+public class MarketSubscription {
+
+    private final Set<String> symbols;
+    private final int levels;
+    private final FluxSink<MarketView> sink;
+    private final BiFunction<String, Integer, MarketView> views;
+    // Guarded by itself; in the order the symbols changed
+    private final Set<String> dirty = new LinkedHashSet<>();
+    private final AtomicInteger wip = new AtomicInteger();
+
+    public MarketSubscription(Set<String> symbols, int levels, FluxSink<MarketView> sink,
+                              BiFunction<String, Integer, MarketView> views) {
+        this.symbols = symbols;
+        this.levels = levels;
+        this.sink = sink;
+        this.views = views;
+    }
+
+    public Set<String> getSymbols() {
+        return symbols;
+    }
+
+    public void changed(String symbol) {
+        synchronized (dirty) {
+            dirty.add(symbol);
+        }
+        drain();
+    }
+
+    /**
+     * Sends the latest view of the dirty symbols while there is demand. Called on every change
+     * and every request; runs on one thread at a time, the others leave their work to it.
+     */
+    public void drain() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+        do {
+            while (sink.requestedFromDownstream() > 0 && !sink.isCancelled()) {
+                String symbol = nextDirty();
+                if (symbol == null) {
+                    break;
+                }
+                MarketView view = views.apply(symbol, levels);
+                if (view != null) { // Book reloading; marked dirty again once live
+                    sink.next(view);
+                }
+            }
+        } while (wip.decrementAndGet() != 0);
+    }
+
+    private String nextDirty() {
+        synchronized (dirty) {
+            Iterator<String> symbol = dirty.iterator();
+            if (!symbol.hasNext()) {
+                return null;
+            }
+            String next = symbol.next();
+            symbol.remove();
+            return next;
+        }
+    }
+}
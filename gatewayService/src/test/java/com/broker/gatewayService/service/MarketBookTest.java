@@ -0,0 +1,61 @@
+package com.broker.gatewayService.service;
+
+import com.broker.gatewayService.dto.BookDepth;
+import com.broker.gatewayService.dto.BookUpdate;
+import com.broker.gatewayService.dto.DepthLevel;
+import com.broker.gatewayService.dto.MarketView;
+import com.broker.gatewayService.dto.TradeTick;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MarketBookTest {
+
+    @Test
+    void load_ShouldApplyOnlyTheUpdatesNewerThanTheSnapshot() {
+        MarketBook book = new MarketBook("SPY");
+        assertTrue(book.claimLoad());
+        assertEquals(MarketBook.Outcome.BUFFERED, book.apply(update(4, 3, List.of(new DepthLevel(10000, 5, 1)), trade(1))));
+        assertEquals(MarketBook.Outcome.BUFFERED, book.apply(update(7, 4, List.of(new DepthLevel(10000, 0, 0)), trade(2))));
+        assertNull(book.view(10));
+
+        assertTrue(book.load(new BookDepth("SPY", 4, List.of(new DepthLevel(10000, 5, 1), new DepthLevel(9900, 2, 1)), List.of())));
+
+        MarketView view = book.view(10);
+        assertEquals(7, view.sequence());
+        assertEquals(List.of(new DepthLevel(9900, 2, 1)), view.bids());
+        // Trades of the updates already in the snapshot are kept, newest first
+        assertEquals(List.of(2L, 1L), view.trades().stream().map(TradeTick::tradeId).toList());
+        assertEquals(MarketBook.Outcome.APPLIED, book.apply(update(9, 7, List.of(new DepthLevel(9800, 1, 1)))));
+        assertEquals(List.of(new DepthLevel(9900, 2, 1), new DepthLevel(9800, 1, 1)), book.view(10).bids());
+        assertEquals(List.of(new DepthLevel(9900, 2, 1)), book.view(1).bids());
+    }
+
+    @Test
+    void holeInTheSequence_ShouldAskForOneSnapshotAndBufferUntilItFollows() {
+        MarketBook book = new MarketBook("QQQ");
+        assertTrue(book.claimLoad());
+        assertTrue(book.load(new BookDepth("QQQ", 10, List.of(), List.of())));
+
+        assertEquals(MarketBook.Outcome.SNAPSHOT_NEEDED, book.apply(update(14, 12, List.of(new DepthLevel(38000, 3, 1)))));
+        assertEquals(MarketBook.Outcome.BUFFERED, book.apply(update(15, 14, List.of(new DepthLevel(38000, 4, 2)))));
+        assertFalse(book.isLive());
+
+        // Older than the hole: the buffered updates still do not follow it
+        assertFalse(book.load(new BookDepth("QQQ", 11, List.of(), List.of())));
+        assertTrue(book.load(new BookDepth("QQQ", 14, List.of(new DepthLevel(38000, 3, 1)), List.of())));
+        assertEquals(15, book.getSequence());
+        assertEquals(List.of(new DepthLevel(38000, 4, 2)), book.view(5).bids());
+    }
+
+    private static BookUpdate update(long sequence, long previousSequence, List<DepthLevel> bids, TradeTick... trades) {
+        return new BookUpdate("SPY", sequence, previousSequence, bids, List.of(), List.of(trades));
+    }
+
+    private static TradeTick trade(long tradeId) {
+        return new TradeTick(tradeId, 10000, 1, LocalDateTime.now());
+    }
+}
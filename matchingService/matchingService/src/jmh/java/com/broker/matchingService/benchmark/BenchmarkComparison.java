@@ -0,0 +1,121 @@
+package com.broker.matchingService.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compares a JMH JSON result with a recorded baseline, run by run (benchmark, mode and
+ * parameters), and exits with status 1 when a metric got worse than the tolerance: lower
+ * throughput, higher average time, higher p50/p99/p99.9 latency or more bytes allocated per
+ * operation.
+ * <p>
+ * Usage: {@code BenchmarkComparison <baseline.json> <result.json> [tolerance in %, default 10]}
+ */
+public final class BenchmarkComparison {
+
+    private static final String ALLOCATION_METRIC = "gc.alloc.rate.norm";
+    // Below this, allocation differences are measurement noise rather than a new allocation
+    private static final double ALLOCATION_NOISE_BYTES = 1.0;
+
+    private BenchmarkComparison() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BenchmarkComparison <baseline.json> <result.json> [tolerance %]");
+            System.exit(2);
+        }
+        double tolerance = (args.length > 2 ? Double.parseDouble(args[2]) : 10) / 100;
+        Map<String, JsonNode> baseline = runsByKey(args[0]);
+        Map<String, JsonNode> result = runsByKey(args[1]);
+
+        int regressions = 0;
+        System.out.printf("%-100s %-12s %14s %14s %9s%n", "run", "metric", "baseline", "current", "change");
+        for (Map.Entry<String, JsonNode> run : result.entrySet()) {
+            JsonNode before = baseline.get(run.getKey());
+            if (before == null) {
+                System.out.printf("%-100s (no baseline)%n", run.getKey());
+                continue;
+            }
+            JsonNode after = run.getValue();
+            String mode = after.path("mode").asText();
+            if ("thrpt".equals(mode)) {
+                regressions += compare(run.getKey(), "ops/s", score(before), score(after), true, tolerance, 0);
+            } else if (!"sample".equals(mode)) {
+                regressions += compare(run.getKey(), after.path("primaryMetric").path("scoreUnit").asText(),
+                    score(before), score(after), false, tolerance, 0);
+            } else {
+                for (String percentile : new String[]{"50.0", "99.0", "99.9"}) {
+                    regressions += compare(run.getKey(), "p" + percentile.replace(".0", ""),
+                        percentile(before, percentile), percentile(after, percentile), false, tolerance, 0);
+                }
+            }
+            double allocatedBefore = allocation(before);
+            double allocatedAfter = allocation(after);
+            if (!Double.isNaN(allocatedBefore) && !Double.isNaN(allocatedAfter)) {
+                regressions += compare(run.getKey(), "B/op", allocatedBefore, allocatedAfter, false, tolerance,
+                    ALLOCATION_NOISE_BYTES);
+            }
+        }
+
+        if (regressions > 0) {
+            System.out.println(regressions + " metric(s) regressed by more than " + Math.round(tolerance * 100) + "%");
+            System.exit(1);
+        }
+        System.out.println("No regression beyond " + Math.round(tolerance * 100) + "% against the baseline");
+    }
+
+    private static int compare(String run, String metric, double before, double after,
+                               boolean higherIsBetter, double tolerance, double noise) {
+        double change = before == 0 ? 0 : (after - before) / before;
+        boolean regressed = Math.abs(after - before) > noise
+            && (higherIsBetter ? after < before * (1 - tolerance) : after > before * (1 + tolerance));
+        System.out.printf("%-100s %-12s %14.2f %14.2f %+8.1f%%%s%n",
+            run, metric, before, after, change * 100, regressed ? "  REGRESSION" : "");
+        return regressed ? 1 : 0;
+    }
+
+    /**
+     * Runs of a JMH JSON result keyed by benchmark, mode and parameter values.
+     */
+    private static Map<String, JsonNode> runsByKey(String file) throws IOException {
+        Map<String, JsonNode> runs = new LinkedHashMap<>();
+        for (JsonNode run : new ObjectMapper().readTree(new File(file))) {
+            StringBuilder key = new StringBuilder(run.path("benchmark").asText())
+                .append(' ').append(run.path("mode").asText());
+            Iterator<Map.Entry<String, JsonNode>> params = run.path("params").fields();
+            while (params.hasNext()) {
+                Map.Entry<String, JsonNode> param = params.next();
+                key.append(' ').append(param.getKey()).append('=').append(param.getValue().asText());
+            }
+            runs.put(key.toString().replace("com.broker.matchingService.benchmark.", ""), run);
+        }
+        return runs;
+    }
+
+    private static double score(JsonNode run) {
+        return run.path("primaryMetric").path("score").asDouble();
+    }
+
+    private static double percentile(JsonNode run, String percentile) {
+        return run.path("primaryMetric").path("scorePercentiles").path(percentile).asDouble();
+    }
+
+    // The secondary metric is named "gc.alloc.rate.norm" or "·gc.alloc.rate.norm" depending on the JMH version
+    private static double allocation(JsonNode run) {
+        Iterator<Map.Entry<String, JsonNode>> metrics = run.path("secondaryMetrics").fields();
+        while (metrics.hasNext()) {
+            Map.Entry<String, JsonNode> metric = metrics.next();
+            if (metric.getKey().endsWith(ALLOCATION_METRIC)) {
+                return metric.getValue().path("score").asDouble();
+            }
+        }
+        return Double.NaN;
+    }
+}
@@ -0,0 +1,98 @@
+package com.broker.matchingService.benchmark;
+
+import com.broker.matchingService.dto.OrderDto;
+
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic synthetic order flow over several symbols, generated once per trial so that
+ * producing it costs nothing during the measurement.
+ * <p>
+ * The flow starts with a seed block that builds {@code depth} passive levels on each side of
+ * every book around {@link #MID_PRICE}, followed by a random mix of passive orders inside that
+ * range, marketable orders sweeping up to {@link #MAX_SWEEP_LEVELS} levels and cancels of
+ * recently placed orders (which may already have traded, as in real flow).
+ */
+final class OrderFlow {
+
+    static final long MID_PRICE = 10_000; // 100.00 in ticks
+    private static final double MARKETABLE_RATIO = 0.2;
+    private static final int MAX_SWEEP_LEVELS = 3;
+    private static final int MAX_QUANTITY = 100;
+    private static final int CANCEL_WINDOW = 256;
+
+    // Step i is either a new order (orders[i] != null) or a cancel of cancelIds[i]
+    private final OrderDto[] orders;
+    private final String[] cancelSymbols;
+    private final String[] cancelIds;
+    private final int seedLength;
+
+    OrderFlow(int symbolCount, int depth, double buyRatio, double cancelRatio, int randomSteps, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        String[] symbols = new String[symbolCount];
+        for (int i = 0; i < symbolCount; i++) {
+            symbols[i] = String.format("S%03d", i);
+        }
+        this.seedLength = symbolCount * depth * 2;
+        int length = seedLength + randomSteps;
+        this.orders = new OrderDto[length];
+        this.cancelSymbols = new String[length];
+        this.cancelIds = new String[length];
+
+        // Ids of the last orders placed on each symbol, the candidates for a cancel
+        String[][] recent = new String[symbolCount][CANCEL_WINDOW];
+        int[] placed = new int[symbolCount];
+
+        int step = 0;
+        for (int s = 0; s < symbolCount; s++) {
+            for (int level = 1; level <= depth; level++) {
+                orders[step] = newOrder(step, symbols[s], "BUY", MID_PRICE - level, random);
+                step++;
+                orders[step] = newOrder(step, symbols[s], "SELL", MID_PRICE + level, random);
+                step++;
+            }
+        }
+        for (; step < length; step++) {
+            int s = random.nextInt(symbolCount);
+            if (placed[s] > 0 && random.nextDouble() < cancelRatio) {
+                cancelSymbols[step] = symbols[s];
+                cancelIds[step] = recent[s][random.nextInt(Math.min(placed[s], CANCEL_WINDOW))];
+                continue;
+            }
+            boolean buy = random.nextDouble() < buyRatio;
+            long offset = random.nextDouble() < MARKETABLE_RATIO
+                ? -(1 + random.nextInt(MAX_SWEEP_LEVELS))  // crosses into the opposite side
+                : 1 + random.nextInt(depth);               // rests on its own side
+            long price = buy ? MID_PRICE - offset : MID_PRICE + offset;
+            orders[step] = newOrder(step, symbols[s], buy ? "BUY" : "SELL", price, random);
+            recent[s][placed[s]++ % CANCEL_WINDOW] = orders[step].getOrderId();
+        }
+    }
+
+    private static OrderDto newOrder(int step, String symbol, String side, long price, SplittableRandom random) {
+        return new OrderDto("o" + step, symbol, 1 + random.nextInt(MAX_QUANTITY), price, side, "GTC");
+    }
+
+    int length() {
+        return orders.length;
+    }
+
+    int seedLength() {
+        return seedLength;
+    }
+
+    /**
+     * The new order placed at {@code step}, or {@code null} if the step is a cancel.
+     */
+    OrderDto order(int step) {
+        return orders[step];
+    }
+
+    String cancelSymbol(int step) {
+        return cancelSymbols[step];
+    }
+
+    String cancelId(int step) {
+        return cancelIds[step];
+    }
+}
@@ -0,0 +1,182 @@
+package com.broker.matchingService.benchmark;
+
+import com.broker.matchingService.book.OrderBooks;
+import com.broker.matchingService.dto.OrderDto;
+import com.broker.matchingService.journal.OrderJournals;
+import com.broker.matchingService.repository.MatchingOrderRepository;
+import com.broker.matchingService.service.MatchingOrderWriter;
+import com.broker.matchingService.service.OrderMatchingService;
+import com.broker.matchingService.service.MarketDataPublisher;
+import com.broker.matchingService.service.TradePublisher;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.amqp.core.MessagePostProcessor;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Drives {@link OrderMatchingService} with a synthetic {@link OrderFlow}, one command per
+ * operation, the way a matching shard thread does: same service, writer, trade and market-data
+ * publishers and (optionally) journal as in production, with RabbitMQ and the database replaced by sinks.
+ * <p>
+ * {@link #throughput} reports commands per second and {@link #latency} the per-command latency
+ * distribution (p50, p99, p99.9...). Run with {@code -prof gc} for the allocation rate; it also
+ * counts what the persistence writer and trade publisher threads allocate.
+ */
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class OrderMatchingBenchmark {
+
+    private static final int RANDOM_STEPS = 1 << 20;
+    private static final int JOURNAL_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    @Param({"1", "16", "256"})
+    int symbols;
+
+    @Param({"10", "100", "1000"})
+    int depth;
+
+    @Param({"0.5", "0.7"})
+    double buyRatio;
+
+    @Param({"0", "0.3"})
+    double cancelRatio;
+
+    @Param({"false"})
+    boolean journal;
+
+    private OrderFlow flow;
+    private MatchingOrderWriter writer;
+    private TradePublisher publisher;
+    private MarketDataPublisher marketDataPublisher;
+    private Path journalDirectory;
+    private OrderJournals journals;
+    private OrderMatchingService service;
+    private int cursor;
+    private int runs;
+
+    // The broker confirms every trade as soon as it is sent
+    private final RabbitTemplate rabbitTemplate = new RabbitTemplate() {
+        @Override
+        public void convertAndSend(String routingKey, Object object, CorrelationData correlationData) {
+            correlationData.getFuture().complete(new CorrelationData.Confirm(true, null));
+        }
+
+        @Override
+        public void convertAndSend(String exchange, String routingKey, Object object,
+                                   MessagePostProcessor messagePostProcessor) {
+            // Book updates are discarded
+        }
+    };
+
+    @Setup(Level.Trial)
+    public void setUpTrial() throws IOException {
+        flow = new OrderFlow(symbols, depth, buyRatio, cancelRatio, RANDOM_STEPS, 42);
+        writer = new MatchingOrderWriter(discardingRepository(), 1 << 16);
+        publisher = new TradePublisher(rabbitTemplate, 1, 256, 2, 5000, new SimpleMeterRegistry());
+        marketDataPublisher = new MarketDataPublisher(rabbitTemplate, true, 1 << 16, new SimpleMeterRegistry());
+        journalDirectory = Files.createTempDirectory("matching-benchmark");
+    }
+
+    /**
+     * Starts every iteration from freshly seeded books, so the flow never re-submits an order
+     * id that may still be resting.
+     */
+    @Setup(Level.Iteration)
+    public void resetBooks() throws IOException {
+        if (journals != null) {
+            journals.close();
+            deleteRecursively(journalDirectory.resolve("run-" + runs));
+        }
+        runs++;
+        journals = new OrderJournals(journal, journalDirectory.resolve("run-" + runs).toString(),
+            JOURNAL_SEGMENT_SIZE, false, 1);
+        journals.open(0);
+        service = new OrderMatchingService(new OrderBooks(), journals, writer, publisher, marketDataPublisher);
+        for (cursor = 0; cursor < flow.seedLength(); cursor++) {
+            apply(cursor);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownTrial() throws Exception {
+        writer.shutdown();
+        publisher.shutdown();
+        marketDataPublisher.shutdown();
+        journals.close();
+        deleteRecursively(journalDirectory);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void throughput() throws IOException {
+        step();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public void latency() throws IOException {
+        step();
+    }
+
+    private void step() throws IOException {
+        if (cursor == flow.length()) {
+            resetBooks(); // Flow exhausted within an iteration: rare, counted in that one operation
+        }
+        apply(cursor++);
+    }
+
+    private void apply(int step) {
+        OrderDto order = flow.order(step);
+        if (order != null) {
+            service.processNewOrder(order);
+        } else {
+            service.cancelOrder(flow.cancelSymbol(step), flow.cancelId(step));
+        }
+    }
+
+    // The writer only needs saveAll and findByOrderId; saving nothing keeps its cache empty
+    private static MatchingOrderRepository discardingRepository() {
+        return (MatchingOrderRepository) Proxy.newProxyInstance(
+            MatchingOrderRepository.class.getClassLoader(),
+            new Class<?>[]{MatchingOrderRepository.class},
+            (proxy, method, args) -> "saveAll".equals(method.getName()) ? List.of() : null
+        );
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.broker.matchingService.benchmark;
+
+import com.broker.matchingService.config.BinaryMessageConverter;
+import com.broker.matchingService.dto.OrderDto;
+import com.broker.matchingService.dto.Trade;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of putting an {@link OrderDto} and a {@link Trade} on the wire and reading them back,
+ * with the Jackson JSON converter and with {@link BinaryMessageConverter}. The message sizes
+ * are printed once per trial; run with {@code -prof gc} for the bytes allocated per call.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WireFormatBenchmark {
+
+    @Param({"json", "binary"})
+    String format;
+
+    private MessageConverter converter;
+    private OrderDto order;
+    private Trade trade;
+    private Message orderMessage;
+    private Message tradeMessage;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Jackson2JsonMessageConverter json = new Jackson2JsonMessageConverter();
+        converter = "binary".equals(format) ? new BinaryMessageConverter(json) : json;
+        order = new OrderDto("1048576", "SPY", 100, 44550, "BUY", "GTC");
+        trade = new Trade(3L << 48 | 123_456, "1048576", "1048577", "SPY", 100, 44550,
+            LocalDateTime.of(2025, 1, 2, 10, 0, 0, 123456789));
+        orderMessage = converter.toMessage(order, new MessageProperties());
+        tradeMessage = converter.toMessage(trade, new MessageProperties());
+        System.out.printf("%n%s message sizes: OrderDto %d bytes, Trade %d bytes%n",
+            format, orderMessage.getBody().length, tradeMessage.getBody().length);
+    }
+
+    @Benchmark
+    public Message encodeOrder() {
+        return converter.toMessage(order, new MessageProperties());
+    }
+
+    @Benchmark
+    public Object decodeOrder() {
+        return converter.fromMessage(orderMessage);
+    }
+
+    @Benchmark
+    public Message encodeTrade() {
+        return converter.toMessage(trade, new MessageProperties());
+    }
+
+    @Benchmark
+    public Object decodeTrade() {
+        return converter.fromMessage(tradeMessage);
+    }
+}
@@ -0,0 +1,158 @@
+package com.broker.matchingService.book;
+
+import com.broker.matchingService.model.MatchingOrder;
+
+/**
+ * Resident representation of an order in the in-memory book.
+ * Only the matching path mutates it; the database copy is a {@link MatchingOrder}
+ * produced by {@link #toEntity()} for the persistence sink.
+ * <p>
+ * Instances are mutable and recycled through a {@link BookOrderPool} once they leave the
+ * book, so nothing may hold on to one after it has been released.
+ */
+public class BookOrder {
+
+    private String orderId;
+    private String stockSymbol;
+    private Side side;
+    private long price; // in ticks, see Prices
+    private int quantity;
+    private int remainingQuantity;
+    private long timestamp; // epoch nanos, see EpochNanos
+    private String status; // PENDING, PARTIALLY_FILLED, FILLED, CANCELLED
+
+    // Position in the book, maintained by PriceLevel while the order rests
+    PriceLevel level;
+    BookOrder prev;
+    BookOrder next;
+
+    BookOrder() {
+    }
+
+    public BookOrder(String orderId, String stockSymbol, Side side, long price, int quantity) {
+        this(orderId, stockSymbol, side, price, quantity, quantity, EpochNanos.now(), "PENDING");
+    }
+
+    public BookOrder(String orderId, String stockSymbol, Side side, long price, int quantity,
+                     int remainingQuantity, long timestamp, String status) {
+        init(orderId, stockSymbol, side, price, quantity, remainingQuantity, timestamp, status);
+    }
+
+    void init(String orderId, String stockSymbol, Side side, long price, int quantity,
+              int remainingQuantity, long timestamp, String status) {
+        this.orderId = orderId;
+        this.stockSymbol = stockSymbol;
+        this.side = side;
+        this.price = price;
+        this.quantity = quantity;
+        this.remainingQuantity = remainingQuantity;
+        this.timestamp = timestamp;
+        this.status = status;
+    }
+
+    public static BookOrder fromEntity(MatchingOrder entity) {
+        return new BookOrder(
+            entity.getOrderId(),
+            entity.getStockSymbol(),
+            Side.of(entity.getOrderType()),
+            entity.getPrice(),
+            entity.getQuantity(),
+            entity.getRemainingQuantity(),
+            EpochNanos.of(entity.getTimestamp()),
+            entity.getStatus()
+        );
+    }
+
+    public MatchingOrder toEntity() {
+        MatchingOrder entity = new MatchingOrder(orderId, stockSymbol, quantity, price, side.name());
+        entity.setRemainingQuantity(remainingQuantity);
+        entity.setTimestamp(EpochNanos.toLocalDateTime(timestamp));
+        entity.setStatus(status);
+        return entity;
+    }
+
+    /**
+     * Reduces the open quantity by {@code fillQuantity} and updates the status accordingly.
+     */
+    public void fill(int fillQuantity) {
+        remainingQuantity -= fillQuantity;
+        status = remainingQuantity <= 0 ? "FILLED" : "PARTIALLY_FILLED";
+    }
+
+    /**
+     * Lowers the open quantity to {@code newRemainingQuantity}; the total quantity shrinks by
+     * the same amount so that the filled quantity is unchanged.
+     */
+    void reduceTo(int newRemainingQuantity) {
+        quantity -= remainingQuantity - newRemainingQuantity;
+        remainingQuantity = newRemainingQuantity;
+    }
+
+    public void cancel() {
+        remainingQuantity = 0;
+        status = "CANCELLED";
+    }
+
+    public boolean isFilled() {
+        return remainingQuantity <= 0;
+    }
+
+    public int getFilledQuantity() {
+        return quantity - remainingQuantity;
+    }
+
+    /**
+     * Whether the order currently rests in a book.
+     */
+    public boolean isResting() {
+        return level != null;
+    }
+
+    public String getOrderId() {
+        return orderId;
+    }
+
+    public String getStockSymbol() {
+        return stockSymbol;
+    }
+
+    public Side getSide() {
+        return side;
+    }
+
+    public long getPrice() {
+        return price;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public int getRemainingQuantity() {
+        return remainingQuantity;
+    }
+
+    /**
+     * Arrival time in epoch nanoseconds (UTC), see {@link EpochNanos}.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    @Override
+    public String toString() {
+        return "BookOrder{" +
+               "orderId='" + orderId + "'" +
+               ", stockSymbol='" + stockSymbol + "'" +
+               ", side=" + side +
+               ", price=" + price +
+               ", quantity=" + quantity +
+               ", remainingQuantity=" + remainingQuantity +
+               ", status='" + status + "'" +
+               '}';
+    }
+}
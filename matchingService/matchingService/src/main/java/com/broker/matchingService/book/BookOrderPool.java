@@ -0,0 +1,46 @@
+package com.broker.matchingService.book;
+
+/**
+ * Free list of {@link BookOrder}s, so that orders which leave the book (filled, cancelled,
+ * killed) are reused for the next incoming orders instead of being garbage collected.
+ * Not thread-safe: each matching thread owns its pool.
+ */
+public final class BookOrderPool {
+
+    private final BookOrder[] free;
+    private int size;
+
+    public BookOrderPool(int capacity) {
+        this.free = new BookOrder[capacity];
+    }
+
+    public BookOrder acquire(String orderId, String stockSymbol, Side side, long price, int quantity) {
+        BookOrder order;
+        if (size > 0) {
+            order = free[--size];
+            free[size] = null;
+        } else {
+            order = new BookOrder();
+        }
+        order.init(orderId, stockSymbol, side, price, quantity, quantity, EpochNanos.now(), "PENDING");
+        return order;
+    }
+
+    /**
+     * Returns an order that nobody references any more. Orders still resting in a book are
+     * refused, and the order is simply dropped once the pool is full.
+     */
+    public void release(BookOrder order) {
+        if (order.isResting()) {
+            throw new IllegalStateException("Order " + order.getOrderId() + " is still resting in the book");
+        }
+        if (size < free.length) {
+            order.init(null, null, null, 0, 0, 0, 0, null);
+            free[size++] = order;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+}
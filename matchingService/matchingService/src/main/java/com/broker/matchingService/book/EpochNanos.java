@@ -0,0 +1,36 @@
+package com.broker.matchingService.book;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Wall-clock timestamps as primitive epoch nanoseconds (UTC), read without allocating.
+ * <p>
+ * The wall clock is sampled once and then advanced with {@link System#nanoTime()}, so the
+ * values are monotonic within a process; {@link LocalDateTime}s are only built at the edges.
+ */
+public final class EpochNanos {
+
+    private static final long OFFSET = System.currentTimeMillis() * 1_000_000L - System.nanoTime();
+
+    private EpochNanos() {
+    }
+
+    public static long now() {
+        return System.nanoTime() + OFFSET;
+    }
+
+    public static LocalDateTime toLocalDateTime(long epochNanos) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(epochNanos, 1_000_000_000L),
+            (int) Math.floorMod(epochNanos, 1_000_000_000L), ZoneOffset.UTC);
+    }
+
+    public static long of(LocalDateTime timestamp) {
+        if (timestamp == null) {
+            return 0L;
+        }
+        Instant instant = timestamp.toInstant(ZoneOffset.UTC);
+        return instant.getEpochSecond() * 1_000_000_000L + instant.getNano();
+    }
+}
@@ -0,0 +1,58 @@
+package com.broker.matchingService.book;
+
+/**
+ * One execution between an incoming order and a resting order, as produced by
+ * {@link MatchingEngine}. Instances are owned by a {@link FillBuffer} and reused from one
+ * match to the next, so they must not be kept once the buffer is cleared.
+ */
+public final class Fill {
+
+    private BookOrder restingOrder;
+    private String buyOrderId;
+    private String sellOrderId;
+    private int quantity;
+    private long price; // in ticks, see Prices
+    private long timestamp; // epoch nanos, see EpochNanos
+
+    void set(BookOrder incoming, BookOrder resting, int quantity, long timestamp) {
+        this.restingOrder = resting;
+        this.buyOrderId = incoming.getSide() == Side.BUY ? incoming.getOrderId() : resting.getOrderId();
+        this.sellOrderId = incoming.getSide() == Side.SELL ? incoming.getOrderId() : resting.getOrderId();
+        this.quantity = quantity;
+        this.price = resting.getPrice(); // Trade price is the price of the existing order
+        this.timestamp = timestamp;
+    }
+
+    void clear() {
+        restingOrder = null;
+        buyOrderId = null;
+        sellOrderId = null;
+    }
+
+    /**
+     * The counter-order, in its state after the whole match (it may have left the book).
+     */
+    public BookOrder getRestingOrder() {
+        return restingOrder;
+    }
+
+    public String getBuyOrderId() {
+        return buyOrderId;
+    }
+
+    public String getSellOrderId() {
+        return sellOrderId;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public long getPrice() {
+        return price;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+}
@@ -0,0 +1,45 @@
+package com.broker.matchingService.book;
+
+import java.util.Arrays;
+
+/**
+ * Reusable list of the {@link Fill}s of one match. It only grows, so once it has seen the
+ * deepest sweep of a run, collecting fills no longer allocates. Not thread-safe: each
+ * matching thread owns its buffer.
+ */
+public final class FillBuffer {
+
+    private Fill[] fills = new Fill[16];
+    private int size;
+
+    public FillBuffer() {
+        for (int i = 0; i < fills.length; i++) {
+            fills[i] = new Fill();
+        }
+    }
+
+    Fill next() {
+        if (size == fills.length) {
+            fills = Arrays.copyOf(fills, size * 2);
+            for (int i = size; i < fills.length; i++) {
+                fills[i] = new Fill();
+            }
+        }
+        return fills[size++];
+    }
+
+    public Fill get(int index) {
+        return fills[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            fills[i].clear();
+        }
+        size = 0;
+    }
+}
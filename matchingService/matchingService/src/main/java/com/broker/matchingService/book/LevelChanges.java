@@ -0,0 +1,47 @@
+package com.broker.matchingService.book;
+
+import java.util.Arrays;
+
+/**
+ * Price levels of a book touched since the last {@link #clear()}, each recorded once, so the
+ * caller can publish the new state of exactly those levels after a command. Backed by
+ * primitive arrays that only grow, so recording allocates nothing in steady state.
+ */
+public final class LevelChanges {
+
+    private long[] prices = new long[16];
+    private Side[] sides = new Side[16];
+    private int size;
+
+    void record(Side side, long price) {
+        // A command touches a handful of levels, a linear scan beats hashing here
+        for (int i = 0; i < size; i++) {
+            if (prices[i] == price && sides[i] == side) {
+                return;
+            }
+        }
+        if (size == prices.length) {
+            prices = Arrays.copyOf(prices, size * 2);
+            sides = Arrays.copyOf(sides, size * 2);
+        }
+        prices[size] = price;
+        sides[size] = side;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Side side(int index) {
+        return sides[index];
+    }
+
+    public long price(int index) {
+        return prices[index];
+    }
+
+    public void clear() {
+        size = 0;
+    }
+}
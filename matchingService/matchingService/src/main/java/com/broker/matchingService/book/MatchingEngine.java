@@ -0,0 +1,58 @@
+package com.broker.matchingService.book;
+
+/**
+ * Price-time priority matching of one incoming limit order against a book.
+ * <p>
+ * The engine only works on resident objects: it mutates the book and the orders, records
+ * each execution in a caller-owned {@link FillBuffer}, and leaves journaling, persistence and
+ * publication to the caller. In steady state a match allocates nothing.
+ */
+public final class MatchingEngine {
+
+    private MatchingEngine() {
+    }
+
+    /**
+     * Sweeps the opposite side of {@code book} from the best price outward, and each level in
+     * arrival order, until {@code incoming} is filled or stops crossing. Afterwards the
+     * incoming order is either FILLED, resting in the book (GTC remainder) or CANCELLED
+     * (IOC remainder, or a FOK order that could not be filled completely, in which case the
+     * book is left untouched).
+     */
+    public static void match(OrderBook book, BookOrder incoming, TimeInForce timeInForce, FillBuffer fills) {
+        Side counterSide = incoming.getSide().opposite();
+
+        if (timeInForce == TimeInForce.FOK
+                && book.availableQuantity(counterSide, incoming.getPrice(), incoming.getQuantity()) < incoming.getQuantity()) {
+            incoming.cancel();
+            return;
+        }
+
+        while (!incoming.isFilled()) {
+            PriceLevel level = book.best(counterSide);
+            if (level == null || !crosses(incoming, level.getPrice())) {
+                break; // Every following level is even further away
+            }
+            BookOrder resting = level.peekFirst();
+            int quantity = Math.min(incoming.getRemainingQuantity(), resting.getRemainingQuantity());
+
+            incoming.fill(quantity);
+            book.fill(level, resting, quantity);
+            fills.next().set(incoming, resting, quantity, EpochNanos.now());
+        }
+
+        if (!incoming.isFilled()) {
+            if (timeInForce == TimeInForce.GTC) {
+                book.add(incoming); // The remainder rests at its limit price
+            } else {
+                incoming.cancel();
+            }
+        }
+    }
+
+    public static boolean crosses(BookOrder incoming, long restingPrice) {
+        return incoming.getSide() == Side.BUY
+            ? incoming.getPrice() >= restingPrice  // Buy order can match sell order at or below its price
+            : incoming.getPrice() <= restingPrice; // Sell order can match buy order at or above its price
+    }
+}
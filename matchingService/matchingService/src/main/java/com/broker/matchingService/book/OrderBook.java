@@ -0,0 +1,194 @@
+package com.broker.matchingService.book;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Resident order book of a single symbol.
+ * <p>
+ * Each side keeps its price levels sorted by priority (highest bid first, lowest ask first)
+ * on primitive {@code long} tick prices, with the best level reachable in O(1). Resting orders
+ * are also indexed by orderId, so cancels and amends reach their order, and unlink it from its
+ * level, in constant time. The book is not thread-safe: callers must confine all mutations of
+ * a given book to one thread at a time.
+ * <p>
+ * The book also records which price levels its mutations touched (see {@link #changes()}) and
+ * the sequence of the last market-data update published for it, so that updates can carry
+ * only the levels a command changed.
+ */
+public class OrderBook {
+
+    private final String symbol;
+    private final PriceLevels bids = new PriceLevels(true);
+    private final PriceLevels asks = new PriceLevels(false);
+    private final OrderIndex ordersById = new OrderIndex();
+    private final LevelChanges changes = new LevelChanges();
+    private long updateSequence;
+
+    public OrderBook(String symbol) {
+        this.symbol = symbol;
+    }
+
+    /**
+     * Appends a resting order to the tail of its price level, creating the level if needed.
+     */
+    public void add(BookOrder order) {
+        sideLevels(order.getSide()).getOrCreate(order.getPrice()).add(order);
+        ordersById.put(order.getOrderId(), order);
+        changes.record(order.getSide(), order.getPrice());
+    }
+
+    /**
+     * The resting order with this id, or {@code null} if it is not (or no longer) in the book.
+     */
+    public BookOrder find(String orderId) {
+        return ordersById.get(orderId);
+    }
+
+    /**
+     * Takes a resting order out of the book, removing its level once empty.
+     */
+    public void remove(BookOrder order) {
+        PriceLevel level = order.level;
+        level.remove(order);
+        ordersById.remove(order.getOrderId());
+        changes.record(order.getSide(), level.getPrice());
+        if (level.isEmpty()) {
+            sideLevels(order.getSide()).remove(level.getPrice());
+        }
+    }
+
+    /**
+     * Lowers the open quantity of a resting order without changing its place in the queue.
+     */
+    public void reduce(BookOrder order, int remainingQuantity) {
+        order.level.reduce(order, remainingQuantity);
+        changes.record(order.getSide(), order.getPrice());
+    }
+
+    /**
+     * Fills {@code quantity} of a resting order and removes its level once empty.
+     */
+    public void fill(PriceLevel level, BookOrder order, int quantity) {
+        level.fill(order, quantity);
+        changes.record(order.getSide(), level.getPrice());
+        if (order.isFilled()) {
+            ordersById.remove(order.getOrderId());
+        }
+        if (level.isEmpty()) {
+            sideLevels(order.getSide()).remove(level.getPrice());
+        }
+    }
+
+    public PriceLevel bestBid() {
+        return bids.best();
+    }
+
+    public PriceLevel bestAsk() {
+        return asks.best();
+    }
+
+    public PriceLevel best(Side side) {
+        return sideLevels(side).best();
+    }
+
+    /**
+     * The level {@code rank} positions away from the best price of {@code side} (0 is the best).
+     */
+    public PriceLevel level(Side side, int rank) {
+        return sideLevels(side).fromBest(rank);
+    }
+
+    public PriceLevel levelAt(Side side, long price) {
+        return sideLevels(side).get(price);
+    }
+
+    /**
+     * Price levels of one side, iterated from the best price outward.
+     */
+    public Iterable<PriceLevel> levels(Side side) {
+        PriceLevels levels = sideLevels(side);
+        return () -> new Iterator<>() {
+            private int rank;
+
+            @Override
+            public boolean hasNext() {
+                return rank < levels.size();
+            }
+
+            @Override
+            public PriceLevel next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return levels.fromBest(rank++);
+            }
+        };
+    }
+
+    /**
+     * Quantity resting on {@code side} at prices that an opposite order limited at
+     * {@code limitPrice} would trade against, counted from the best level outward and capped at
+     * {@code upTo}. Uses the level aggregates only, so it costs one step per level visited.
+     */
+    public int availableQuantity(Side side, long limitPrice, int upTo) {
+        PriceLevels levels = sideLevels(side);
+        long available = 0;
+        for (int rank = 0; rank < levels.size() && available < upTo; rank++) {
+            PriceLevel level = levels.fromBest(rank);
+            boolean crosses = side == Side.SELL ? level.getPrice() <= limitPrice : level.getPrice() >= limitPrice;
+            if (!crosses) {
+                break;
+            }
+            available += level.getTotalQuantity();
+        }
+        return (int) Math.min(available, upTo);
+    }
+
+    public int depth(Side side) {
+        return sideLevels(side).size();
+    }
+
+    public int orderCount() {
+        return ordersById.size();
+    }
+
+    public int orderCount(Side side) {
+        PriceLevels levels = sideLevels(side);
+        int count = 0;
+        for (int rank = 0; rank < levels.size(); rank++) {
+            count += levels.fromBest(rank).getOrderCount();
+        }
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return bids.size() == 0 && asks.size() == 0;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    /**
+     * Levels touched by the mutations since the caller last cleared them.
+     */
+    public LevelChanges changes() {
+        return changes;
+    }
+
+    /**
+     * Sequence of the last market-data update published for this book, 0 before the first one.
+     */
+    public long getUpdateSequence() {
+        return updateSequence;
+    }
+
+    public void setUpdateSequence(long updateSequence) {
+        this.updateSequence = updateSequence;
+    }
+
+    private PriceLevels sideLevels(Side side) {
+        return side == Side.BUY ? bids : asks;
+    }
+}
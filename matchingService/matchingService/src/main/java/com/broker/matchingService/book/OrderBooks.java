@@ -0,0 +1,27 @@
+package com.broker.matchingService.book;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds the resident {@link OrderBook} of every traded symbol.
+ */
+@Component
+public class OrderBooks {
+
+    private final ConcurrentHashMap<String, OrderBook> books = new ConcurrentHashMap<>();
+
+    public OrderBook bookFor(String symbol) {
+        return books.computeIfAbsent(symbol, OrderBook::new);
+    }
+
+    public OrderBook find(String symbol) {
+        return books.get(symbol);
+    }
+
+    public Collection<OrderBook> all() {
+        return books.values();
+    }
+}
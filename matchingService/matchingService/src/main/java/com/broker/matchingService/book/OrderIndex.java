@@ -0,0 +1,89 @@
+package com.broker.matchingService.book;
+
+/**
+ * Open-addressing hash map from orderId to resting {@link BookOrder}.
+ * <p>
+ * Unlike a {@link java.util.HashMap}, puts and removes do not allocate entry nodes: keys and
+ * values live in two parallel arrays probed linearly, and removals shift the following
+ * entries back instead of leaving tombstones. Not thread-safe.
+ */
+class OrderIndex {
+
+    private String[] keys = new String[64];
+    private BookOrder[] values = new BookOrder[64];
+    private int size;
+
+    BookOrder get(String orderId) {
+        int mask = keys.length - 1;
+        for (int i = slot(orderId, mask); keys[i] != null; i = (i + 1) & mask) {
+            if (keys[i].equals(orderId)) {
+                return values[i];
+            }
+        }
+        return null;
+    }
+
+    void put(String orderId, BookOrder order) {
+        if ((size + 1) * 4 > keys.length * 3) {
+            resize();
+        }
+        int mask = keys.length - 1;
+        int i = slot(orderId, mask);
+        while (keys[i] != null) {
+            if (keys[i].equals(orderId)) {
+                values[i] = order;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = orderId;
+        values[i] = order;
+        size++;
+    }
+
+    void remove(String orderId) {
+        int mask = keys.length - 1;
+        int i = slot(orderId, mask);
+        while (keys[i] != null && !keys[i].equals(orderId)) {
+            i = (i + 1) & mask;
+        }
+        if (keys[i] == null) {
+            return;
+        }
+        // Backward-shift deletion: move up every following entry that probed past the hole
+        int hole = i;
+        for (int j = (hole + 1) & mask; keys[j] != null; j = (j + 1) & mask) {
+            int home = slot(keys[j], mask);
+            if (((j - home) & mask) >= ((j - hole) & mask)) {
+                keys[hole] = keys[j];
+                values[hole] = values[j];
+                hole = j;
+            }
+        }
+        keys[hole] = null;
+        values[hole] = null;
+        size--;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void resize() {
+        String[] oldKeys = keys;
+        BookOrder[] oldValues = values;
+        keys = new String[oldKeys.length * 2];
+        values = new BookOrder[oldValues.length * 2];
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private static int slot(String orderId, int mask) {
+        int h = orderId.hashCode();
+        return (h ^ (h >>> 16)) & mask;
+    }
+}
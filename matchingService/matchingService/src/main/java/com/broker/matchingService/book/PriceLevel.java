@@ -0,0 +1,135 @@
+package com.broker.matchingService.book;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * All resting orders at one price on one side of the book, in arrival (FIFO) order.
+ * <p>
+ * The orders are chained through their own {@code prev}/{@code next} links, so that any
+ * order can be unlinked in O(1) when it is filled, cancelled or amended. The open quantity
+ * of the level is maintained incrementally.
+ */
+public class PriceLevel {
+
+    private long price;
+    private BookOrder head;
+    private BookOrder tail;
+    private int orderCount;
+    private long totalQuantity;
+
+    public PriceLevel(long price) {
+        this.price = price;
+    }
+
+    /**
+     * Reuses an emptied level for another price.
+     */
+    void reset(long price) {
+        this.price = price;
+        this.head = null;
+        this.tail = null;
+        this.orderCount = 0;
+        this.totalQuantity = 0;
+    }
+
+    public void add(BookOrder order) {
+        order.level = this;
+        order.prev = tail;
+        order.next = null;
+        if (tail == null) {
+            head = order;
+        } else {
+            tail.next = order;
+        }
+        tail = order;
+        orderCount++;
+        totalQuantity += order.getRemainingQuantity();
+    }
+
+    /**
+     * Records a fill of {@code quantity} against {@code order} and drops the order
+     * from the queue once it has nothing left to trade.
+     */
+    public void fill(BookOrder order, int quantity) {
+        order.fill(quantity);
+        totalQuantity -= quantity;
+        if (order.isFilled()) {
+            unlink(order);
+        }
+    }
+
+    /**
+     * Takes {@code order} out of the level with whatever quantity it has left.
+     */
+    public void remove(BookOrder order) {
+        totalQuantity -= order.getRemainingQuantity();
+        unlink(order);
+    }
+
+    /**
+     * Lowers the open quantity of {@code order} in place; the order keeps its time priority.
+     */
+    public void reduce(BookOrder order, int remainingQuantity) {
+        totalQuantity -= order.getRemainingQuantity() - remainingQuantity;
+        order.reduceTo(remainingQuantity);
+    }
+
+    public BookOrder peekFirst() {
+        return head;
+    }
+
+    public Iterator<BookOrder> iterator() {
+        return new Iterator<>() {
+            private BookOrder cursor = head;
+
+            @Override
+            public boolean hasNext() {
+                return cursor != null;
+            }
+
+            @Override
+            public BookOrder next() {
+                if (cursor == null) {
+                    throw new NoSuchElementException();
+                }
+                BookOrder order = cursor;
+                cursor = order.next;
+                return order;
+            }
+        };
+    }
+
+    public boolean isEmpty() {
+        return head == null;
+    }
+
+    public long getPrice() {
+        return price;
+    }
+
+    public long getTotalQuantity() {
+        return totalQuantity;
+    }
+
+    public int getOrderCount() {
+        return orderCount;
+    }
+
+    private void unlink(BookOrder order) {
+        if (order.prev == null) {
+            head = order.next;
+        } else {
+            order.prev.next = order.next;
+        }
+        if (order.next == null) {
+            tail = order.prev;
+        } else {
+            order.next.prev = order.prev;
+        }
+        order.prev = null;
+        order.next = null;
+        order.level = null;
+        orderCount--;
+    }
+}
@@ -0,0 +1,92 @@
+package com.broker.matchingService.book;
+
+import java.util.Arrays;
+
+/**
+ * The price levels of one side of a book, sorted by priority on primitive {@code long} prices.
+ * <p>
+ * Levels are stored in parallel arrays ordered from the worst to the best price, so the best
+ * level sits at the end: reading or removing it is O(1), lookups are a binary search, and as
+ * most activity happens near the top of the book, inserting or removing a level usually only
+ * shifts a few entries. Prices are never boxed, and removed levels are kept on a small free
+ * list so that levels appearing and disappearing at the top of the book do not allocate.
+ */
+class PriceLevels {
+
+    private final boolean highestFirst;
+    // Priority keys in ascending order (the best level last): the price for bids, its negation for asks
+    private long[] keys = new long[16];
+    private PriceLevel[] levels = new PriceLevel[16];
+    private int size;
+    private final PriceLevel[] spare = new PriceLevel[16];
+    private int spareCount;
+
+    PriceLevels(boolean highestFirst) {
+        this.highestFirst = highestFirst;
+    }
+
+    PriceLevel best() {
+        return size == 0 ? null : levels[size - 1];
+    }
+
+    /**
+     * The level {@code rank} positions away from the best one (0 is the best level).
+     */
+    PriceLevel fromBest(int rank) {
+        return levels[size - 1 - rank];
+    }
+
+    PriceLevel get(long price) {
+        int index = Arrays.binarySearch(keys, 0, size, key(price));
+        return index >= 0 ? levels[index] : null;
+    }
+
+    PriceLevel getOrCreate(long price) {
+        long key = key(price);
+        int index = Arrays.binarySearch(keys, 0, size, key);
+        if (index >= 0) {
+            return levels[index];
+        }
+        int insertAt = -(index + 1);
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            levels = Arrays.copyOf(levels, size * 2);
+        }
+        System.arraycopy(keys, insertAt, keys, insertAt + 1, size - insertAt);
+        System.arraycopy(levels, insertAt, levels, insertAt + 1, size - insertAt);
+        PriceLevel level;
+        if (spareCount > 0) {
+            level = spare[--spareCount];
+            spare[spareCount] = null;
+            level.reset(price);
+        } else {
+            level = new PriceLevel(price);
+        }
+        keys[insertAt] = key;
+        levels[insertAt] = level;
+        size++;
+        return level;
+    }
+
+    void remove(long price) {
+        int index = Arrays.binarySearch(keys, 0, size, key(price));
+        if (index < 0) {
+            return;
+        }
+        PriceLevel removed = levels[index];
+        if (spareCount < spare.length) {
+            spare[spareCount++] = removed;
+        }
+        System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+        System.arraycopy(levels, index + 1, levels, index, size - index - 1);
+        levels[--size] = null;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private long key(long price) {
+        return highestFirst ? price : -price;
+    }
+}
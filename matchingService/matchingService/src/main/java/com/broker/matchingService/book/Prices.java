@@ -0,0 +1,30 @@
+package com.broker.matchingService.book;
+
+/**
+ * Prices and amounts are fixed-point {@code long}s counted in ticks of 0.01 (cents), so they
+ * compare exactly and can key primitive collections. Decimal values only appear at the edges.
+ */
+public final class Prices {
+
+    public static final long TICKS_PER_UNIT = 100;
+
+    private Prices() {
+    }
+
+    public static long toTicks(double price) {
+        return Math.round(price * TICKS_PER_UNIT);
+    }
+
+    public static double toDecimal(long ticks) {
+        return (double) ticks / TICKS_PER_UNIT;
+    }
+
+    /**
+     * Renders {@code ticks} as a decimal string, e.g. {@code 44550 -> "445.50"}.
+     */
+    public static String format(long ticks) {
+        long units = Math.abs(ticks) / TICKS_PER_UNIT;
+        long cents = Math.abs(ticks) % TICKS_PER_UNIT;
+        return (ticks < 0 ? "-" : "") + units + (cents < 10 ? ".0" : ".") + cents;
+    }
+}
@@ -0,0 +1,14 @@
+package com.broker.matchingService.book;
+
+public enum Side {
+    BUY,
+    SELL;
+
+    public Side opposite() {
+        return this == BUY ? SELL : BUY;
+    }
+
+    public static Side of(String orderType) {
+        return "SELL".equalsIgnoreCase(orderType) ? SELL : BUY;
+    }
+}
@@ -0,0 +1,14 @@
+package com.broker.matchingService.book;
+
+public enum TimeInForce {
+    GTC, // Good-till-cancelled: the unfilled remainder rests in the book
+    IOC, // Immediate-or-cancel: fill what crosses now, cancel the remainder
+    FOK; // Fill-or-kill: fill the whole quantity now or nothing at all
+
+    public static TimeInForce of(String timeInForce) {
+        if (timeInForce == null || timeInForce.isBlank()) {
+            return GTC;
+        }
+        return valueOf(timeInForce.trim().toUpperCase());
+    }
+}
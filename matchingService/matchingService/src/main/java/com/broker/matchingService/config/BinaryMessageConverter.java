@@ -0,0 +1,237 @@
+package com.broker.matchingService.config;
+
+import com.broker.matchingService.book.EpochNanos;
+import com.broker.matchingService.dto.OrderDto;
+import com.broker.matchingService.dto.Trade;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+/**
+ * Fixed-layout binary encoding of the {@link OrderDto}s and {@link Trade}s exchanged with
+ * orderService, sent with the {@value #CONTENT_TYPE} content type. Any other payload, or a
+ * message of another content type, goes through {@code fallback} (JSON).
+ * <p>
+ * Layout, big-endian, schema version 1:
+ * <pre>
+ * header   : version (1) | type (1)
+ * OrderDto : quantity (4) | price (8) | side (1) | time in force (1) | stockSymbol | orderId
+ * Trade    : tradeId (8) | quantity (4) | price (8) | timestamp (8) | stockSymbol | buyOrderId | sellOrderId
+ * string   : length (1, 0xFF for null) | ASCII bytes
+ * </pre>
+ * Timestamps are {@link EpochNanos}, as in the journal. Decoded symbols are interned through a
+ * {@link SymbolTable}.
+ */
+public class BinaryMessageConverter implements MessageConverter {
+
+    public static final String CONTENT_TYPE = "application/x-brokerx-binary";
+    static final byte VERSION = 1;
+
+    private static final byte TYPE_ORDER = 1;
+    private static final byte TYPE_TRADE = 2;
+    private static final int HEADER_SIZE = 2;
+    private static final int MAX_STRING_LENGTH = 254;
+    private static final int NULL_STRING = 0xFF;
+    private static final long NULL_TIMESTAMP = Long.MIN_VALUE;
+    // Index is the wire code; 0 means not set (GTC by default)
+    private static final String[] TIME_IN_FORCE = {null, "GTC", "IOC", "FOK"};
+
+    private final MessageConverter fallback;
+    private final SymbolTable symbols = new SymbolTable();
+
+    public BinaryMessageConverter(MessageConverter fallback) {
+        this.fallback = fallback;
+    }
+
+    @Override
+    public Message toMessage(Object object, MessageProperties messageProperties) {
+        byte[] body;
+        if (object instanceof Trade trade) {
+            body = encode(trade);
+        } else if (object instanceof OrderDto order) {
+            body = encode(order);
+        } else {
+            return fallback.toMessage(object, messageProperties);
+        }
+        messageProperties.setContentType(CONTENT_TYPE);
+        messageProperties.setContentLength(body.length);
+        return new Message(body, messageProperties);
+    }
+
+    @Override
+    public Object fromMessage(Message message) {
+        if (!CONTENT_TYPE.equals(message.getMessageProperties().getContentType())) {
+            return fallback.fromMessage(message);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(message.getBody());
+        try {
+            byte version = buffer.get();
+            if (version != VERSION) {
+                throw new MessageConversionException("Unsupported binary schema version " + version);
+            }
+            byte type = buffer.get();
+            return switch (type) {
+                case TYPE_ORDER -> decodeOrder(buffer);
+                case TYPE_TRADE -> decodeTrade(buffer);
+                default -> throw new MessageConversionException("Unknown binary message type " + type);
+            };
+        } catch (BufferUnderflowException e) {
+            throw new MessageConversionException("Truncated binary message", e);
+        }
+    }
+
+    private byte[] encode(OrderDto order) {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + 4 + 8 + 1 + 1
+            + sizeOf(order.getStockSymbol()) + sizeOf(order.getOrderId()));
+        buffer.put(VERSION).put(TYPE_ORDER)
+            .putInt(order.getQuantity())
+            .putLong(order.getPrice())
+            .put(sideCode(order.getOrderType()))
+            .put(timeInForceCode(order.getTimeInForce()));
+        putString(buffer, order.getStockSymbol());
+        putString(buffer, order.getOrderId());
+        return buffer.array();
+    }
+
+    private byte[] encode(Trade trade) {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + 8 + 4 + 8 + 8 + sizeOf(trade.getStockSymbol())
+            + sizeOf(trade.getBuyOrderId()) + sizeOf(trade.getSellOrderId()));
+        buffer.put(VERSION).put(TYPE_TRADE)
+            .putLong(trade.getTradeId())
+            .putInt(trade.getQuantity())
+            .putLong(trade.getPrice())
+            .putLong(epochNanos(trade.getTimestamp()));
+        putString(buffer, trade.getStockSymbol());
+        putString(buffer, trade.getBuyOrderId());
+        putString(buffer, trade.getSellOrderId());
+        return buffer.array();
+    }
+
+    private OrderDto decodeOrder(ByteBuffer buffer) {
+        OrderDto order = new OrderDto();
+        order.setQuantity(buffer.getInt());
+        order.setPrice(buffer.getLong());
+        order.setOrderType(side(buffer.get()));
+        order.setTimeInForce(timeInForce(buffer.get()));
+        order.setStockSymbol(getSymbol(buffer));
+        order.setOrderId(getString(buffer));
+        return order;
+    }
+
+    private Trade decodeTrade(ByteBuffer buffer) {
+        Trade trade = new Trade();
+        trade.setTradeId(buffer.getLong());
+        trade.setQuantity(buffer.getInt());
+        trade.setPrice(buffer.getLong());
+        trade.setTimestamp(timestamp(buffer.getLong()));
+        trade.setStockSymbol(getSymbol(buffer));
+        trade.setBuyOrderId(getString(buffer));
+        trade.setSellOrderId(getString(buffer));
+        return trade;
+    }
+
+    private static int sizeOf(String value) {
+        return 1 + (value == null ? 0 : value.length());
+    }
+
+    private static void putString(ByteBuffer buffer, String value) {
+        if (value == null) {
+            buffer.put((byte) NULL_STRING);
+            return;
+        }
+        if (value.length() > MAX_STRING_LENGTH) {
+            throw new MessageConversionException("String too long for the binary format: " + value);
+        }
+        buffer.put((byte) value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c > 0x7F) {
+                throw new MessageConversionException("Non-ASCII character in " + value);
+            }
+            buffer.put((byte) c);
+        }
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = stringLength(buffer);
+        if (length == NULL_STRING) {
+            return null;
+        }
+        String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.US_ASCII);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    private String getSymbol(ByteBuffer buffer) {
+        int length = stringLength(buffer);
+        if (length == NULL_STRING) {
+            return null;
+        }
+        String symbol = symbols.intern(buffer.array(), buffer.position(), length);
+        buffer.position(buffer.position() + length);
+        return symbol;
+    }
+
+    private static int stringLength(ByteBuffer buffer) {
+        int length = buffer.get() & 0xFF;
+        if (length != NULL_STRING && length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        return length;
+    }
+
+    private static byte sideCode(String orderType) {
+        if (orderType == null) {
+            return 0;
+        }
+        if ("BUY".equalsIgnoreCase(orderType)) {
+            return 'B';
+        }
+        if ("SELL".equalsIgnoreCase(orderType)) {
+            return 'S';
+        }
+        throw new MessageConversionException("Unsupported order type " + orderType);
+    }
+
+    private static String side(byte code) {
+        return switch (code) {
+            case 0 -> null;
+            case 'B' -> "BUY";
+            case 'S' -> "SELL";
+            default -> throw new MessageConversionException("Unknown side code " + code);
+        };
+    }
+
+    private static byte timeInForceCode(String timeInForce) {
+        if (timeInForce == null) {
+            return 0;
+        }
+        for (int code = 1; code < TIME_IN_FORCE.length; code++) {
+            if (TIME_IN_FORCE[code].equalsIgnoreCase(timeInForce)) {
+                return (byte) code;
+            }
+        }
+        throw new MessageConversionException("Unsupported time in force " + timeInForce);
+    }
+
+    private static String timeInForce(byte code) {
+        if (code < 0 || code >= TIME_IN_FORCE.length) {
+            throw new MessageConversionException("Unknown time in force code " + code);
+        }
+        return TIME_IN_FORCE[code];
+    }
+
+    private static long epochNanos(LocalDateTime timestamp) {
+        return timestamp == null ? NULL_TIMESTAMP : EpochNanos.of(timestamp);
+    }
+
+    private static LocalDateTime timestamp(long epochNanos) {
+        return epochNanos == NULL_TIMESTAMP ? null : EpochNanos.toLocalDateTime(epochNanos);
+    }
+}
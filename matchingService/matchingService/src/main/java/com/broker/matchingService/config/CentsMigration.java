@@ -0,0 +1,55 @@
+package com.broker.matchingService.config;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+
+/**
+ * Brings a matching database written before prices were kept in ticks of 0.01 up to date,
+ * before Hibernate updates the schema: {@code ddl-auto=update} never changes the type of an
+ * existing column, so {@code matching_order.price} would stay a decimal read as a whole number.
+ * <p>
+ * The decimal prices are copied to a {@code price_ticks} column as {@code round(price * 100)},
+ * which then replaces {@code price}. Runs at every startup and does nothing on a new or already
+ * migrated database; a migration interrupted halfway is finished at the next start.
+ */
+@Configuration
+public class CentsMigration {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CentsMigration(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @Bean
+    public static EntityManagerFactoryDependsOnPostProcessor centsMigrationBeforeHibernate() {
+        return new EntityManagerFactoryDependsOnPostProcessor("centsMigration");
+    }
+
+    @PostConstruct
+    public void migrate() {
+        String type = columnType("matching_order", "price");
+        if (type != null && !"BIGINT".equalsIgnoreCase(type)) {
+            System.out.println("Migrating matching_order.price from " + type + " to ticks");
+            jdbcTemplate.execute("alter table matching_order add column if not exists price_ticks bigint");
+            int rows = jdbcTemplate.update("update matching_order set price_ticks = round(price * 100)");
+            jdbcTemplate.execute("alter table matching_order drop column price");
+            System.out.println("Migrated " + rows + " rows of matching_order to ticks");
+        }
+        if (columnType("matching_order", "price_ticks") != null) {
+            jdbcTemplate.execute("alter table matching_order alter column price_ticks rename to price");
+        }
+    }
+
+    // Type of the column, or null if it does not exist, e.g. on a new database
+    private String columnType(String table, String column) {
+        return jdbcTemplate.queryForList("select data_type from information_schema.columns"
+            + " where table_schema = current_schema and upper(table_name) = upper(?) and upper(column_name) = upper(?)",
+            String.class, table, column).stream().findFirst().orElse(null);
+    }
+}
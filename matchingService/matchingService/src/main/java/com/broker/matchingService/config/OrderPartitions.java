@@ -0,0 +1,30 @@
+package com.broker.matchingService.config;
+
+/**
+ * Maps stock symbols onto the order partitions of the {@value RabbitMQConfig#ORDER_EXCHANGE}
+ * exchange. orderService routes with the same function, so both sides must be configured with
+ * the same {@code messaging.order-partitions}.
+ * <p>
+ * {@link String#hashCode()} is specified by the JLS, so a symbol lands in the same partition on
+ * every JVM and across restarts.
+ */
+public final class OrderPartitions {
+
+    private static final String QUEUE_PREFIX = "orderQueue.";
+
+    private OrderPartitions() {
+    }
+
+    public static int of(String stockSymbol, int partitionCount) {
+        int h = stockSymbol.hashCode();
+        return Math.floorMod(h ^ (h >>> 16), partitionCount);
+    }
+
+    public static String queueName(int partition) {
+        return QUEUE_PREFIX + partition;
+    }
+
+    public static String routingKey(int partition) {
+        return Integer.toString(partition);
+    }
+}
@@ -1,18 +1,39 @@
 package com.broker.matchingService.config;
 
+import org.springframework.amqp.core.AnonymousQueue;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.Declarable;
+import org.springframework.amqp.core.Declarables;
+import org.springframework.amqp.core.DirectExchange;
+import org.springframework.amqp.core.FanoutExchange;
+import org.springframework.amqp.core.MessageProperties;
 import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.TopicExchange;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.ContentTypeDelegatingMessageConverter;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Configuration
 public class RabbitMQConfig {
 
     public static final String ORDER_QUEUE = "orderQueue";
     public static final String MATCHING_QUEUE = "matchingQueue";
+    public static final String ORDER_COMMAND_QUEUE = "orderCommandQueue"; // cancel / amend of resting orders
+    public static final String ORDER_EXCHANGE = "orderExchange"; // routes orders and commands to their partition queue
+    public static final String MEMBERSHIP_EXCHANGE = "matchingMembership"; // heartbeats between matchingService instances
+    public static final String MARKET_DATA_EXCHANGE = "marketData"; // book updates, routed by symbol
+    public static final String MATCHING_EVENTS_EXCHANGE = "matchingEvents"; // trades and order cancellations
+    public static final String TRADE_ROUTING_KEY = "trade";
+    public static final String CANCELLATION_ROUTING_KEY = "cancel";
 
     @Bean
     public Queue orderQueue() {
@@ -24,15 +45,97 @@ public class RabbitMQConfig {
         return new Queue(MATCHING_QUEUE, false);
     }
 
+    /**
+     * Trades and cancellations are published to {@value #MATCHING_EVENTS_EXCHANGE} so that each
+     * consumer binds its own queue: orderService receives both kinds of events on
+     * {@value #MATCHING_QUEUE} to track the status of its orders, walletService on its
+     * settlement queue.
+     */
+    @Bean
+    public DirectExchange matchingEventsExchange() {
+        return new DirectExchange(MATCHING_EVENTS_EXCHANGE, true, false);
+    }
+
+    @Bean
+    public Binding matchingQueueBinding(Queue matchingQueue, DirectExchange matchingEventsExchange) {
+        return BindingBuilder.bind(matchingQueue).to(matchingEventsExchange).with(TRADE_ROUTING_KEY);
+    }
+
+    @Bean
+    public Binding matchingQueueCancellationBinding(Queue matchingQueue, DirectExchange matchingEventsExchange) {
+        return BindingBuilder.bind(matchingQueue).to(matchingEventsExchange).with(CANCELLATION_ROUTING_KEY);
+    }
+
+    @Bean
+    public Queue orderCommandQueue() {
+        return new Queue(ORDER_COMMAND_QUEUE, false);
+    }
+
+    /**
+     * One durable queue per order partition, bound to {@value #ORDER_EXCHANGE} with the
+     * partition number as routing key (see {@link OrderPartitions}).
+     */
+    @Bean
+    public Declarables orderPartitions(@Value("${messaging.order-partitions:16}") int partitionCount) {
+        if (partitionCount <= 0) {
+            throw new IllegalArgumentException("messaging.order-partitions must be positive");
+        }
+        DirectExchange exchange = new DirectExchange(ORDER_EXCHANGE, true, false);
+        List<Declarable> declarables = new ArrayList<>();
+        declarables.add(exchange);
+        for (int partition = 0; partition < partitionCount; partition++) {
+            Queue queue = new Queue(OrderPartitions.queueName(partition), true);
+            declarables.add(queue);
+            declarables.add(BindingBuilder.bind(queue).to(exchange).with(OrderPartitions.routingKey(partition)));
+        }
+        return new Declarables(declarables);
+    }
+
+    @Bean
+    public FanoutExchange membershipExchange() {
+        return new FanoutExchange(MEMBERSHIP_EXCHANGE, false, false);
+    }
+
+    // Every instance receives every heartbeat on its own server-named, auto-deleted queue
+    @Bean
+    public Queue membershipQueue() {
+        return new AnonymousQueue();
+    }
+
+    @Bean
+    public Binding membershipBinding(FanoutExchange membershipExchange, Queue membershipQueue) {
+        return BindingBuilder.bind(membershipQueue).to(membershipExchange);
+    }
+
+    // Not durable: the updates are transient and consumers reload the books after a broker restart
+    @Bean
+    public TopicExchange marketDataExchange() {
+        return new TopicExchange(MARKET_DATA_EXCHANGE, false, false);
+    }
+
+    /**
+     * Reads JSON and binary messages alike, picking the converter from the message content type,
+     * and writes orders and trades in {@code messaging.wire-format} ({@code json} or
+     * {@code binary}). Consumers are deployed first, then producers switch to binary.
+     */
     @Bean
-    public MessageConverter messageConverter() {
-        return new Jackson2JsonMessageConverter();
+    public MessageConverter messageConverter(@Value("${messaging.wire-format:json}") String wireFormat) {
+        if (!"json".equals(wireFormat) && !"binary".equals(wireFormat)) {
+            throw new IllegalArgumentException("messaging.wire-format must be json or binary, not " + wireFormat);
+        }
+        Jackson2JsonMessageConverter json = new Jackson2JsonMessageConverter();
+        BinaryMessageConverter binary = new BinaryMessageConverter(json);
+        ContentTypeDelegatingMessageConverter converter =
+            new ContentTypeDelegatingMessageConverter("binary".equals(wireFormat) ? binary : json);
+        converter.addDelegate(MessageProperties.CONTENT_TYPE_JSON, json);
+        converter.addDelegate(BinaryMessageConverter.CONTENT_TYPE, binary);
+        return converter;
     }
 
     @Bean
-    public RabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory) {
+    public RabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory, MessageConverter messageConverter) {
         RabbitTemplate rabbitTemplate = new RabbitTemplate(connectionFactory);
-        rabbitTemplate.setMessageConverter(messageConverter());
+        rabbitTemplate.setMessageConverter(messageConverter);
         return rabbitTemplate;
     }
 }
\ No newline at end of file
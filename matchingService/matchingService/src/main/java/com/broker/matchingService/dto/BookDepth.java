@@ -0,0 +1,35 @@
+package com.broker.matchingService.dto;
+
+import com.broker.matchingService.book.OrderBook;
+import com.broker.matchingService.book.Side;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Level-2 view of a book: the best {@code levels} price levels of each side, best first.
+ *
+ * @param sequence sequence of the last {@link BookUpdate} published for the book, which the
+ *                 market-data consumers resynchronize from
+ */
+public record BookDepth(String symbol, long sequence, List<DepthLevel> bids, List<DepthLevel> asks) {
+
+    /**
+     * Reads the level aggregates maintained by the book, so the cost depends on
+     * {@code levels} only, not on the number of resting orders. Must run on the thread
+     * owning the book; {@code book} may be {@code null} when the symbol has no book yet.
+     */
+    public static BookDepth of(String symbol, OrderBook book, int levels) {
+        return new BookDepth(symbol, book == null ? 0 : book.getUpdateSequence(),
+            side(book, Side.BUY, levels), side(book, Side.SELL, levels));
+    }
+
+    private static List<DepthLevel> side(OrderBook book, Side side, int levels) {
+        int count = book == null ? 0 : Math.min(levels, book.depth(side));
+        List<DepthLevel> depth = new ArrayList<>(count);
+        for (int rank = 0; rank < count; rank++) {
+            depth.add(DepthLevel.of(book.level(side, rank)));
+        }
+        return depth;
+    }
+}
@@ -0,0 +1,21 @@
+package com.broker.matchingService.dto;
+
+import java.util.List;
+
+/**
+ * Incremental market-data update of one book, published after each command that changed it.
+ * <p>
+ * Carries the new state of the price levels the command touched, a quantity of 0 meaning the
+ * level is gone, and the trades it produced. Updates of a symbol are chained by sequence: a
+ * consumer applies an update only if its {@code previousSequence} is the sequence it last
+ * applied, and otherwise reloads the book with a {@link BookDepth} snapshot and keeps the
+ * updates that follow its sequence.
+ *
+ * @param sequence increases with every update of the symbol, including across restarts and
+ *                 partition hand-overs when journaling is enabled
+ * @param previousSequence sequence of the previous update of the symbol, 0 for the first update
+ *                         of a book rebuilt by this instance
+ */
+public record BookUpdate(String symbol, long sequence, long previousSequence,
+                         List<DepthLevel> bids, List<DepthLevel> asks, List<TradeTick> trades) {
+}
@@ -0,0 +1,17 @@
+package com.broker.matchingService.dto;
+
+import com.broker.matchingService.book.PriceLevel;
+
+/**
+ * Aggregated view of one price level of a book.
+ *
+ * @param price limit in ticks of 0.01, see Prices
+ * @param quantity open quantity of all the orders resting at this price
+ * @param orders number of orders resting at this price
+ */
+public record DepthLevel(long price, long quantity, int orders) {
+
+    public static DepthLevel of(PriceLevel level) {
+        return new DepthLevel(level.getPrice(), level.getTotalQuantity(), level.getOrderCount());
+    }
+}
@@ -0,0 +1,55 @@
+package com.broker.matchingService.dto;
+
+import java.io.Serializable;
+
+/**
+ * Liveness signal exchanged between matchingService instances to agree on who owns which
+ * order partition. An instance that shuts down sends a last heartbeat with {@code leaving} set.
+ */
+public class MemberHeartbeat implements Serializable {
+    private String instanceId;
+    private String url; // base URL of the instance's REST API, for reads forwarded to the owner of a book
+    private boolean leaving;
+
+    public MemberHeartbeat() {
+    }
+
+    public MemberHeartbeat(String instanceId, String url, boolean leaving) {
+        this.instanceId = instanceId;
+        this.url = url;
+        this.leaving = leaving;
+    }
+
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    public void setInstanceId(String instanceId) {
+        this.instanceId = instanceId;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    public boolean isLeaving() {
+        return leaving;
+    }
+
+    public void setLeaving(boolean leaving) {
+        this.leaving = leaving;
+    }
+
+    @Override
+    public String toString() {
+        return "MemberHeartbeat{" +
+               "instanceId='" + instanceId + "'" +
+               ", url='" + url + "'" +
+               ", leaving=" + leaving +
+               '}';
+    }
+}
@@ -0,0 +1,18 @@
+package com.broker.matchingService.dto;
+
+/**
+ * Published when an order leaves the matching engine without being completely filled: the
+ * remainder of an IOC order, a FOK order that could not be filled, or a cancelled resting order.
+ * Published on the same exchange as the trades, so consumers can release what the order still
+ * had reserved; a trade of the order that had to be published again may arrive after it.
+ *
+ * @param side BUY or SELL
+ * @param filledQuantity quantity filled before the cancellation
+ * @param cancelledQuantity quantity that will not be filled
+ */
+public record OrderCancellation(String orderId,
+                                String stockSymbol,
+                                String side,
+                                int filledQuantity,
+                                int cancelledQuantity) {
+}
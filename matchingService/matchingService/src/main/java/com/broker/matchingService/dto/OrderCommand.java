@@ -0,0 +1,77 @@
+package com.broker.matchingService.dto;
+
+import java.io.Serializable;
+
+/**
+ * Cancel or amend request for a resting order, received on the order command queue or
+ * through the REST API.
+ */
+public class OrderCommand implements Serializable {
+    private String orderId;
+    private String stockSymbol;
+    private String action; // CANCEL or AMEND
+    private int quantity; // AMEND: new open quantity
+    private long price; // AMEND: new limit in ticks of 0.01, 0 keeps the current price
+
+    public OrderCommand() {
+    }
+
+    public OrderCommand(String orderId, String stockSymbol, String action, int quantity, long price) {
+        this.orderId = orderId;
+        this.stockSymbol = stockSymbol;
+        this.action = action;
+        this.quantity = quantity;
+        this.price = price;
+    }
+
+    public String getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(String orderId) {
+        this.orderId = orderId;
+    }
+
+    public String getStockSymbol() {
+        return stockSymbol;
+    }
+
+    public void setStockSymbol(String stockSymbol) {
+        this.stockSymbol = stockSymbol;
+    }
+
+    public String getAction() {
+        return action;
+    }
+
+    public void setAction(String action) {
+        this.action = action;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(int quantity) {
+        this.quantity = quantity;
+    }
+
+    public long getPrice() {
+        return price;
+    }
+
+    public void setPrice(long price) {
+        this.price = price;
+    }
+
+    @Override
+    public String toString() {
+        return "OrderCommand{" +
+               "orderId='" + orderId + "'" +
+               ", stockSymbol='" + stockSymbol + "'" +
+               ", action='" + action + "'" +
+               ", quantity=" + quantity +
+               ", price=" + price +
+               '}';
+    }
+}
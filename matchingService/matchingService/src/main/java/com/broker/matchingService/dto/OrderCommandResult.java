@@ -0,0 +1,34 @@
+package com.broker.matchingService.dto;
+
+import com.broker.matchingService.book.BookOrder;
+
+/**
+ * Outcome of a cancel or amend. On success the fields describe the order after the command.
+ *
+ * @param price limit in ticks of 0.01, see Prices
+ */
+public record OrderCommandResult(String orderId,
+                                 boolean accepted,
+                                 String status,
+                                 int remainingQuantity,
+                                 long price,
+                                 String message) {
+
+    public static OrderCommandResult accepted(BookOrder order) {
+        return new OrderCommandResult(order.getOrderId(), true, order.getStatus(),
+            order.getRemainingQuantity(), order.getPrice(), null);
+    }
+
+    /**
+     * The book is matched by another instance; the command was queued for it and its outcome
+     * is not known here.
+     */
+    public static OrderCommandResult forwarded(String orderId, int partition) {
+        return new OrderCommandResult(orderId, false, "FORWARDED", 0, 0,
+            "Sent to the instance owning order partition " + partition);
+    }
+
+    public static OrderCommandResult rejected(String orderId, String message) {
+        return new OrderCommandResult(orderId, false, null, 0, 0, message);
+    }
+}
@@ -6,18 +6,25 @@ public class OrderDto implements Serializable {
     private String orderId;
     private String stockSymbol;
     private int quantity;
-    private double price;
+    private long price; // in ticks of 0.01, see Prices
     private String orderType; // BUY or SELL
+    private String timeInForce; // GTC (default), IOC or FOK
 
     public OrderDto() {
     }
 
-    public OrderDto(String orderId, String stockSymbol, int quantity, double price, String orderType) {
+    public OrderDto(String orderId, String stockSymbol, int quantity, long price, String orderType) {
+        this(orderId, stockSymbol, quantity, price, orderType, null);
+    }
+
+    public OrderDto(String orderId, String stockSymbol, int quantity, long price, String orderType,
+                    String timeInForce) {
         this.orderId = orderId;
         this.stockSymbol = stockSymbol;
         this.quantity = quantity;
         this.price = price;
         this.orderType = orderType;
+        this.timeInForce = timeInForce;
     }
 
     public String getOrderId() {
@@ -44,11 +51,11 @@ public class OrderDto implements Serializable {
         this.quantity = quantity;
     }
 
-    public double getPrice() {
+    public long getPrice() {
         return price;
     }
 
-    public void setPrice(double price) {
+    public void setPrice(long price) {
         this.price = price;
     }
 
@@ -60,6 +67,14 @@ public class OrderDto implements Serializable {
         this.orderType = orderType;
     }
 
+    public String getTimeInForce() {
+        return timeInForce;
+    }
+
+    public void setTimeInForce(String timeInForce) {
+        this.timeInForce = timeInForce;
+    }
+
     @Override
     public String toString() {
         return "OrderDto{" +
@@ -68,6 +83,7 @@ public class OrderDto implements Serializable {
                ", quantity=" + quantity +
                ", price=" + price +
                ", orderType='" + orderType + "'" +
+               ", timeInForce='" + timeInForce + "'" +
                '}';
     }
 }
@@ -0,0 +1,23 @@
+package com.broker.matchingService.dto;
+
+import com.broker.matchingService.book.OrderBook;
+import com.broker.matchingService.book.PriceLevel;
+
+/**
+ * Best bid and best ask of a book; a side without resting orders is {@code null}.
+ */
+public record TopOfBook(String symbol, DepthLevel bid, DepthLevel ask) {
+
+    /**
+     * Must run on the thread owning the book; {@code book} may be {@code null}.
+     */
+    public static TopOfBook of(String symbol, OrderBook book) {
+        return new TopOfBook(symbol,
+            book == null ? null : level(book.bestBid()),
+            book == null ? null : level(book.bestAsk()));
+    }
+
+    private static DepthLevel level(PriceLevel level) {
+        return level == null ? null : DepthLevel.of(level);
+    }
+}
@@ -0,0 +1,15 @@
+package com.broker.matchingService.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Public view of a trade in the market-data stream, without the order ids of either side.
+ *
+ * @param price in ticks of 0.01, see Prices
+ */
+public record TradeTick(long tradeId, long price, int quantity, LocalDateTime timestamp) {
+
+    public static TradeTick of(Trade trade) {
+        return new TradeTick(trade.getTradeId(), trade.getPrice(), trade.getQuantity(), trade.getTimestamp());
+    }
+}
@@ -0,0 +1,107 @@
+package com.broker.matchingService.infrastructure;
+
+import com.broker.matchingService.book.OrderBooks;
+import com.broker.matchingService.dto.BookDepth;
+import com.broker.matchingService.dto.TopOfBook;
+import com.broker.matchingService.infrastructure.client.MatchingPeerClient;
+import com.broker.matchingService.service.MatchingExecutor;
+import com.broker.matchingService.service.PartitionCoordinator;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.net.URI;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Market view of the live books. Reads run on the shard thread of the symbol, after the
+ * orders already queued for it, and only walk the aggregated price levels.
+ */
+@RestController
+@RequestMapping("/api/matching/book")
+public class BookController {
+
+    private static final long READ_TIMEOUT_MS = 5000;
+    private static final int MAX_LEVELS = 100;
+
+    private final OrderBooks orderBooks;
+    private final MatchingExecutor matchingExecutor;
+    private final PartitionCoordinator partitionCoordinator;
+    private final MatchingPeerClient matchingPeerClient;
+
+    public BookController(OrderBooks orderBooks,
+                          MatchingExecutor matchingExecutor,
+                          PartitionCoordinator partitionCoordinator,
+                          MatchingPeerClient matchingPeerClient) {
+        this.orderBooks = orderBooks;
+        this.matchingExecutor = matchingExecutor;
+        this.partitionCoordinator = partitionCoordinator;
+        this.matchingPeerClient = matchingPeerClient;
+    }
+
+    // Profondeur agrégée (prix, quantité, nombre d'ordres) des meilleurs niveaux de chaque côté
+    @GetMapping("/{symbol}")
+    public ResponseEntity<BookDepth> getDepth(@PathVariable String symbol,
+                                              @RequestParam(value = "levels", defaultValue = "10") int levels,
+                                              @RequestHeader(value = MatchingPeerClient.FORWARDED_HEADER, required = false) String forwardedBy) {
+        if (levels <= 0 || levels > MAX_LEVELS) {
+            return ResponseEntity.badRequest().build();
+        }
+        return read(symbol, forwardedBy,
+            () -> BookDepth.of(symbol, orderBooks.find(symbol), levels),
+            owner -> matchingPeerClient.getDepth(owner, symbol, levels, partitionCoordinator.getInstanceId()));
+    }
+
+    // Meilleur prix acheteur et vendeur
+    @GetMapping("/{symbol}/top")
+    public ResponseEntity<TopOfBook> getTopOfBook(@PathVariable String symbol,
+                                                  @RequestHeader(value = MatchingPeerClient.FORWARDED_HEADER, required = false) String forwardedBy) {
+        return read(symbol, forwardedBy,
+            () -> TopOfBook.of(symbol, orderBooks.find(symbol)),
+            owner -> matchingPeerClient.getTopOfBook(owner, symbol, partitionCoordinator.getInstanceId()));
+    }
+
+    /**
+     * Reads the book here if this instance owns it, otherwise asks the owner once.
+     */
+    private <T> ResponseEntity<T> read(String symbol, String forwardedBy,
+                                       Supplier<T> local, Function<URI, T> remote) {
+        if (partitionCoordinator.isOwned(symbol)) {
+            return await(matchingExecutor.call(symbol, local));
+        }
+        String ownerUrl = partitionCoordinator.ownerUrl(symbol);
+        if (forwardedBy != null || ownerUrl == null) {
+            // Partition being handed over, or the owner is not known yet
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        try {
+            return ResponseEntity.ok(remote.apply(URI.create(ownerUrl)));
+        } catch (RuntimeException e) {
+            System.err.println("Failed to read the " + symbol + " book from " + ownerUrl + ": " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
+    private static <T> ResponseEntity<T> await(CompletableFuture<T> read) {
+        try {
+            return ResponseEntity.ok(read.get(READ_TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        } catch (TimeoutException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ResponseEntity.internalServerError().build();
+        } catch (ExecutionException e) {
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+}
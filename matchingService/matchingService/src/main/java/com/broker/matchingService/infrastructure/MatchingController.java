@@ -0,0 +1,114 @@
+package com.broker.matchingService.infrastructure;
+
+import com.broker.matchingService.dto.OrderCommand;
+import com.broker.matchingService.dto.OrderCommandResult;
+import com.broker.matchingService.service.MatchingExecutor;
+import com.broker.matchingService.service.OrderMatchingService;
+import com.broker.matchingService.service.PartitionCoordinator;
+import com.broker.matchingService.service.RabbitMQConsumer;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+@RestController
+@RequestMapping("/api/matching")
+public class MatchingController {
+
+    private static final long COMMAND_TIMEOUT_MS = 5000;
+
+    private final OrderMatchingService orderMatchingService;
+    private final MatchingExecutor matchingExecutor;
+    private final PartitionCoordinator partitionCoordinator;
+    private final RabbitMQConsumer rabbitMQConsumer;
+
+    public MatchingController(OrderMatchingService orderMatchingService,
+                              MatchingExecutor matchingExecutor,
+                              PartitionCoordinator partitionCoordinator,
+                              RabbitMQConsumer rabbitMQConsumer) {
+        this.orderMatchingService = orderMatchingService;
+        this.matchingExecutor = matchingExecutor;
+        this.partitionCoordinator = partitionCoordinator;
+        this.rabbitMQConsumer = rabbitMQConsumer;
+    }
+
+    // Annuler un ordre au repos dans le carnet ; réservé à orderService, qui vérifie que l'ordre appartient au client
+    @DeleteMapping("/orders/{orderId}")
+    public ResponseEntity<OrderCommandResult> cancelOrder(
+            @RequestHeader(value = "X-Authenticated-User", required = false) String authenticatedUser,
+            @PathVariable String orderId,
+            @RequestParam("symbol") String symbol) {
+        if (!isServiceCall(authenticatedUser)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(OrderCommandResult.rejected(orderId, "Use /api/orders/" + orderId));
+        }
+        if (!partitionCoordinator.isOwned(symbol)) {
+            return forward(orderId, new OrderCommand(orderId, symbol, "CANCEL", 0, 0));
+        }
+        return execute(orderId, matchingExecutor.call(symbol,
+            () -> orderMatchingService.cancelOrder(symbol, orderId)));
+    }
+
+    // Réduire la quantité et/ou modifier le prix limite d'un ordre au repos ; réservé à orderService, comme l'annulation
+    @PatchMapping("/orders/{orderId}")
+    public ResponseEntity<OrderCommandResult> amendOrder(
+            @RequestHeader(value = "X-Authenticated-User", required = false) String authenticatedUser,
+            @PathVariable String orderId,
+            @RequestBody OrderCommand amend) {
+        if (!isServiceCall(authenticatedUser)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(OrderCommandResult.rejected(orderId, "Use /api/orders/" + orderId));
+        }
+        if (amend.getStockSymbol() == null || amend.getStockSymbol().isEmpty()) {
+            return ResponseEntity.badRequest().body(OrderCommandResult.rejected(orderId, "stockSymbol is required"));
+        }
+        if (amend.getQuantity() <= 0 || amend.getPrice() < 0) {
+            return ResponseEntity.badRequest().body(OrderCommandResult.rejected(orderId, "quantity must be positive, use DELETE to cancel"));
+        }
+        String symbol = amend.getStockSymbol();
+        if (!partitionCoordinator.isOwned(symbol)) {
+            return forward(orderId, new OrderCommand(orderId, symbol, "AMEND", amend.getQuantity(), amend.getPrice()));
+        }
+        return execute(orderId, matchingExecutor.call(symbol,
+            () -> orderMatchingService.amendOrder(symbol, orderId, amend.getQuantity(), amend.getPrice())));
+    }
+
+    // Le carnet est sur une autre instance : la commande passe par la file de sa partition
+    private ResponseEntity<OrderCommandResult> forward(String orderId, OrderCommand command) {
+        rabbitMQConsumer.forward(command.getStockSymbol(), command);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(OrderCommandResult.forwarded(orderId,
+            matchingExecutor.partitionOf(command.getStockSymbol())));
+    }
+
+    private ResponseEntity<OrderCommandResult> execute(String orderId, CompletableFuture<OrderCommandResult> command) {
+        try {
+            OrderCommandResult result = command.get(COMMAND_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            if (result.accepted()) {
+                return ResponseEntity.ok(result);
+            }
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(result); // filled, cancelled or unknown
+        } catch (TimeoutException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(OrderCommandResult.rejected(orderId, "Matching shard did not answer in time"));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ResponseEntity.internalServerError().body(OrderCommandResult.rejected(orderId, "Interrupted"));
+        } catch (ExecutionException e) {
+            return ResponseEntity.internalServerError().body(OrderCommandResult.rejected(orderId, e.getCause().getMessage()));
+        }
+    }
+
+    // Orders carry no owner here: clients go through the gateway, which always sets their email
+    private static boolean isServiceCall(String authenticatedUser) {
+        return authenticatedUser == null || authenticatedUser.startsWith("service-");
+    }
+}
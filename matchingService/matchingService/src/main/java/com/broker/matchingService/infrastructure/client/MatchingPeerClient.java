@@ -0,0 +1,33 @@
+package com.broker.matchingService.infrastructure.client;
+
+import com.broker.matchingService.dto.BookDepth;
+import com.broker.matchingService.dto.TopOfBook;
+import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import java.net.URI;
+
+/**
+ * Reads a book from the matchingService instance that owns it. The {@code instance} argument
+ * replaces the placeholder URL with the owner's advertised URL.
+ */
+@FeignClient(name = "matching-peer", url = "http://localhost:8085")
+public interface MatchingPeerClient {
+
+    // Set on forwarded reads; an instance that receives one for a book it does not own answers 503 instead of forwarding again
+    String FORWARDED_HEADER = "X-Matching-Forwarded-By";
+
+    @GetMapping("/api/matching/book/{symbol}")
+    BookDepth getDepth(URI instance,
+                       @PathVariable("symbol") String symbol,
+                       @RequestParam("levels") int levels,
+                       @RequestHeader(FORWARDED_HEADER) String forwardedBy);
+
+    @GetMapping("/api/matching/book/{symbol}/top")
+    TopOfBook getTopOfBook(URI instance,
+                           @PathVariable("symbol") String symbol,
+                           @RequestHeader(FORWARDED_HEADER) String forwardedBy);
+}
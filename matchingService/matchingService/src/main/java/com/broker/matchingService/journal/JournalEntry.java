@@ -0,0 +1,34 @@
+package com.broker.matchingService.journal;
+
+import com.broker.matchingService.dto.OrderDto;
+import com.broker.matchingService.dto.Trade;
+
+/**
+ * One decoded journal record. Exactly one of {@code order} and {@code trade} is set.
+ *
+ * @param sequence position of the record in its partition journal, starting at 1
+ * @param type     {@link OrderJournal#TYPE_ORDER}, {@link OrderJournal#TYPE_RESTING}, {@link OrderJournal#TYPE_TRADE},
+ *                 {@link OrderJournal#TYPE_CANCEL} or {@link OrderJournal#TYPE_AMEND}
+ */
+public record JournalEntry(long sequence, byte type, OrderDto order, Trade trade) {
+
+    public boolean isOrder() {
+        return type == OrderJournal.TYPE_ORDER;
+    }
+
+    public boolean isResting() {
+        return type == OrderJournal.TYPE_RESTING;
+    }
+
+    public boolean isTrade() {
+        return type == OrderJournal.TYPE_TRADE;
+    }
+
+    public boolean isCancel() {
+        return type == OrderJournal.TYPE_CANCEL;
+    }
+
+    public boolean isAmend() {
+        return type == OrderJournal.TYPE_AMEND;
+    }
+}
@@ -0,0 +1,470 @@
+package com.broker.matchingService.journal;
+
+import com.broker.matchingService.book.EpochNanos;
+import com.broker.matchingService.dto.OrderDto;
+import com.broker.matchingService.dto.Trade;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only, sequenced journal of the events of one order partition (see OrderJournals),
+ * stored in memory-mapped segment files.
+ * <p>
+ * Each segment starts with {@code [int magic][int formatVersion]}, followed by records laid
+ * out as {@code [int payloadLength][int crc32][long sequence][byte type][payload]}.
+ * The length is written last so that a record torn by a crash reads as the end of the
+ * journal. Segments are named after the first sequence they contain and a new one is
+ * started when the current one has no room left for the next record.
+ * <p>
+ * A journal has a single writer: the thread of the shard its partition maps to, on the
+ * instance that currently owns the partition. The writer holds a lock on {@value #LOCK_FILE}
+ * until it closes the journal, so that the next owner cannot open it while the previous one,
+ * e.g. cut off from the broker, may still be appending.
+ */
+public class OrderJournal implements Closeable {
+
+    public static final byte TYPE_ORDER = 1;
+    public static final byte TYPE_TRADE = 2;
+    public static final byte TYPE_RESTING = 3;
+    public static final byte TYPE_CANCEL = 4;
+    public static final byte TYPE_AMEND = 5;
+
+    private static final int SEGMENT_MAGIC = 0x42584a4c; // "BXJL"
+    private static final int FORMAT_VERSION = 4; // 2: long tick prices, 3: time in force, 4: long trade ids and epoch-nano timestamps
+    private static final int SEGMENT_HEADER_SIZE = 8;
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 1;
+    private static final int MAX_PAYLOAD = 4096;
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final String LOCK_FILE = "owner.lock";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final boolean fsync;
+    private final CRC32 crc = new CRC32();
+    private final ByteBuffer payload = ByteBuffer.allocate(MAX_PAYLOAD);
+
+    private FileChannel lockChannel;
+    private FileLock lock;
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    private long nextSequence = 1;
+
+    private OrderJournal(Path directory, int segmentSize, boolean fsync) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.fsync = fsync;
+    }
+
+    /**
+     * Opens the journal stored in {@code directory}, positioning the writer right after the
+     * last intact record.
+     *
+     * @throws IllegalStateException if the journal is still open elsewhere
+     */
+    public static OrderJournal open(Path directory, int segmentSize, boolean fsync) {
+        OrderJournal journal = new OrderJournal(directory, segmentSize, fsync);
+        try {
+            Files.createDirectories(directory);
+            journal.lock();
+            journal.openTail();
+        } catch (IOException e) {
+            journal.closeQuietly();
+            throw new UncheckedIOException("Cannot open journal in " + directory, e);
+        } catch (RuntimeException e) {
+            journal.closeQuietly();
+            throw e;
+        }
+        return journal;
+    }
+
+    public long appendOrder(OrderDto order) {
+        return append(TYPE_ORDER, order);
+    }
+
+    /**
+     * Records an order that is already resting in the book and must be restored as is,
+     * without going through matching again.
+     */
+    public long appendResting(OrderDto order) {
+        return append(TYPE_RESTING, order);
+    }
+
+    /**
+     * Records the cancellation of a resting order; only the orderId and symbol are meaningful.
+     */
+    public long appendCancel(OrderDto cancel) {
+        return append(TYPE_CANCEL, cancel);
+    }
+
+    /**
+     * Records an amend of a resting order to a new open quantity and price.
+     */
+    public long appendAmend(OrderDto amend) {
+        return append(TYPE_AMEND, amend);
+    }
+
+    /**
+     * Records an execution. Takes primitives rather than a {@link Trade} so that the matching
+     * path can journal a fill before (or without) materializing the DTO.
+     *
+     * @param timestamp epoch nanos, see EpochNanos
+     */
+    public long appendTrade(long tradeId, String buyOrderId, String sellOrderId, String stockSymbol,
+                            int quantity, long price, long timestamp) {
+        payload.clear();
+        payload.putLong(tradeId);
+        putString(buyOrderId);
+        putString(sellOrderId);
+        putString(stockSymbol);
+        payload.putInt(quantity);
+        payload.putLong(price);
+        payload.putLong(timestamp);
+        return write(TYPE_TRADE);
+    }
+
+    public long appendTrade(Trade trade) {
+        return appendTrade(trade.getTradeId(), trade.getBuyOrderId(), trade.getSellOrderId(), trade.getStockSymbol(),
+            trade.getQuantity(), trade.getPrice(), EpochNanos.of(trade.getTimestamp()));
+    }
+
+    /**
+     * Sequence the next record will be written with.
+     */
+    public long nextSequence() {
+        return nextSequence;
+    }
+
+    /**
+     * Sequence of the last record written, or 0 for an empty journal.
+     */
+    public long lastSequence() {
+        return nextSequence - 1;
+    }
+
+    /**
+     * Sequence of the oldest record still kept, those before it having been deleted once
+     * covered by a snapshot.
+     */
+    public long firstSequence() {
+        try {
+            List<Path> files = segments();
+            return files.isEmpty() ? nextSequence : firstSequence(files.get(0));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot list journal segments in " + directory, e);
+        }
+    }
+
+    /**
+     * Reads every intact record with a sequence greater than {@code afterSequence}, in order.
+     */
+    public void read(long afterSequence, Consumer<JournalEntry> visitor) {
+        try {
+            List<Path> files = segments();
+            for (int i = 0; i < files.size(); i++) {
+                if (i + 1 < files.size() && firstSequence(files.get(i + 1)) <= afterSequence + 1) {
+                    continue; // Every record of this segment is already covered
+                }
+                Path file = files.get(i);
+                try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+                    MappedByteBuffer buffer = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+                    checkHeader(buffer, file);
+                    buffer.position(SEGMENT_HEADER_SIZE);
+                    JournalEntry entry;
+                    while ((entry = readRecord(buffer)) != null) {
+                        if (entry.sequence() > afterSequence) {
+                            visitor.accept(entry);
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read journal in " + directory, e);
+        }
+    }
+
+    /**
+     * Deletes the segments whose records all have a sequence up to {@code sequence}, typically
+     * once a snapshot covers them. The segment being written is never deleted.
+     *
+     * @return the number of deleted segments
+     */
+    public int deleteSegmentsUpTo(long sequence) {
+        int deleted = 0;
+        try {
+            List<Path> files = segments();
+            for (int i = 0; i + 1 < files.size(); i++) {
+                if (firstSequence(files.get(i + 1)) > sequence + 1) {
+                    break;
+                }
+                Files.deleteIfExists(files.get(i));
+                deleted++;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot delete journal segments in " + directory, e);
+        }
+        return deleted;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (segment != null) {
+                segment.force();
+            }
+            if (channel != null) {
+                channel.close();
+            }
+        } finally {
+            // Released last, once every record is written
+            if (lockChannel != null) {
+                lockChannel.close();
+            }
+        }
+    }
+
+    private void lock() throws IOException {
+        lockChannel = FileChannel.open(directory.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            lock = lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            lock = null; // held by this process
+        }
+        if (lock == null) {
+            throw new IllegalStateException("Journal in " + directory + " is still open by its previous owner");
+        }
+    }
+
+    private void closeQuietly() {
+        try {
+            close();
+        } catch (IOException e) {
+            // not opened further
+        }
+    }
+
+    private long append(byte type, OrderDto order) {
+        payload.clear();
+        putString(order.getOrderId());
+        putString(order.getStockSymbol());
+        putString(order.getOrderType());
+        putString(order.getTimeInForce());
+        payload.putInt(order.getQuantity());
+        payload.putLong(order.getPrice());
+        return write(type);
+    }
+
+    private long write(byte type) {
+        payload.flip();
+        int length = payload.remaining();
+        if (segment.remaining() < HEADER_SIZE + length) {
+            roll();
+        }
+        long sequence = nextSequence++;
+        int start = segment.position();
+
+        crc.reset();
+        crc.update(payload.array(), payload.arrayOffset() + payload.position(), length);
+        segment.position(start + 4);
+        segment.putInt((int) crc.getValue());
+        segment.putLong(sequence);
+        segment.put(type);
+        segment.put(payload);
+        // Publish the record by writing its length last
+        segment.putInt(start, length);
+
+        if (fsync) {
+            segment.force();
+        }
+        return sequence;
+    }
+
+    private void roll() {
+        try {
+            segment.force();
+            channel.close();
+            mapSegment(directory.resolve(segmentName(nextSequence)));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot roll journal segment in " + directory, e);
+        }
+    }
+
+    private void openTail() throws IOException {
+        List<Path> files = segments();
+        if (files.isEmpty()) {
+            mapSegment(directory.resolve(segmentName(1)));
+            return;
+        }
+
+        for (int i = 0; i < files.size(); i++) {
+            Path file = files.get(i);
+            mapSegment(file);
+            nextSequence = Math.max(nextSequence, firstSequence(file));
+            boolean intact = true;
+            while (true) {
+                int start = segment.position();
+                JournalEntry entry;
+                try {
+                    entry = readRecord(segment);
+                } catch (IllegalStateException corrupted) {
+                    entry = null;
+                    intact = false;
+                }
+                if (entry == null) {
+                    segment.position(start);
+                    break;
+                }
+                nextSequence = entry.sequence() + 1;
+            }
+
+            if (!intact) {
+                // Torn or corrupted tail: wipe it, and drop any later segment since it can no
+                // longer be reached in sequence.
+                System.err.println("Journal " + file + " is corrupted after sequence " + (nextSequence - 1) + ", truncating");
+                int position = segment.position();
+                while (segment.hasRemaining()) {
+                    segment.put((byte) 0);
+                }
+                segment.position(position);
+                for (Path later : files.subList(i + 1, files.size())) {
+                    Files.delete(later);
+                }
+                return;
+            }
+            if (i < files.size() - 1) {
+                channel.close();
+            }
+        }
+    }
+
+    private void mapSegment(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        if (segment.getInt(0) == 0) {
+            segment.putInt(0, SEGMENT_MAGIC);
+            segment.putInt(4, FORMAT_VERSION);
+        }
+        checkHeader(segment, file);
+        segment.position(SEGMENT_HEADER_SIZE);
+    }
+
+    private static void checkHeader(ByteBuffer buffer, Path file) {
+        if (buffer.getInt(0) != SEGMENT_MAGIC || buffer.getInt(4) != FORMAT_VERSION) {
+            throw new IllegalStateException("Journal segment " + file + " has an unsupported format;"
+                + " move the journal directory away to start from the database");
+        }
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                .sorted()
+                .toList();
+        }
+    }
+
+    /**
+     * Decodes the record at the buffer position and advances past it.
+     *
+     * @return the record, or {@code null} at the end of the segment
+     * @throws IllegalStateException if the record fails its checksum
+     */
+    private static JournalEntry readRecord(ByteBuffer buffer) {
+        if (buffer.remaining() < HEADER_SIZE) {
+            return null;
+        }
+        int start = buffer.position();
+        int length = buffer.getInt(start);
+        if (length == 0) {
+            return null;
+        }
+        if (length < 0 || length > MAX_PAYLOAD || buffer.remaining() < HEADER_SIZE + length) {
+            throw new IllegalStateException("Invalid journal record length " + length + " at " + start);
+        }
+        int checksum = buffer.getInt(start + 4);
+        long sequence = buffer.getLong(start + 8);
+        byte type = buffer.get(start + 16);
+        ByteBuffer body = buffer.slice(start + HEADER_SIZE, length);
+
+        CRC32 crc = new CRC32();
+        crc.update(body.duplicate());
+        if ((int) crc.getValue() != checksum) {
+            throw new IllegalStateException("Journal record " + sequence + " failed its checksum");
+        }
+        buffer.position(start + HEADER_SIZE + length);
+
+        if (type == TYPE_TRADE) {
+            Trade trade = new Trade(
+                body.getLong(),
+                getString(body),
+                getString(body),
+                getString(body),
+                body.getInt(),
+                body.getLong(),
+                EpochNanos.toLocalDateTime(body.getLong())
+            );
+            return new JournalEntry(sequence, type, null, trade);
+        }
+        String orderId = getString(body);
+        String stockSymbol = getString(body);
+        String orderType = getString(body);
+        String timeInForce = getString(body);
+        OrderDto order = new OrderDto(orderId, stockSymbol, body.getInt(), body.getLong(), orderType, timeInForce);
+        return new JournalEntry(sequence, type, order, null);
+    }
+
+    private void putString(String value) {
+        if (value == null) {
+            payload.putShort((short) -1);
+            return;
+        }
+        int length = value.length();
+        int start = payload.position();
+        payload.putShort((short) length);
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                // Not ASCII: fall back to the (allocating) UTF-8 encoder
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                payload.position(start);
+                payload.putShort((short) bytes.length);
+                payload.put(bytes);
+                return;
+            }
+            payload.put((byte) c); // ASCII is its own UTF-8 encoding, written without a byte[] copy
+        }
+    }
+
+    private static String getString(ByteBuffer body) {
+        short length = body.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        body.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long firstSequence(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static String segmentName(long firstSequence) {
+        return String.format("%020d%s", firstSequence, SEGMENT_SUFFIX);
+    }
+}
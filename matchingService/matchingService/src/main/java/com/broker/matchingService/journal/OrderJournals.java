@@ -0,0 +1,91 @@
+package com.broker.matchingService.journal;
+
+import com.broker.matchingService.config.OrderPartitions;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * One {@link OrderJournal} per order partition, so that every journal has a single writer and
+ * can be handed over to another matchingService instance together with its partition.
+ * <p>
+ * A journal is only open while this instance owns the partition: it is opened when the
+ * partition is claimed and closed when it is released, on the thread of the shard the
+ * partition maps to. The directory must therefore be shared by all instances, and the
+ * partition count must stay the same across restarts that replay an existing journal.
+ */
+@Component
+public class OrderJournals {
+
+    private final boolean enabled;
+    private final Path directory;
+    private final int segmentSize;
+    private final boolean fsync;
+    private final OrderJournal[] journals;
+
+    public OrderJournals(@Value("${matching.journal.enabled:true}") boolean enabled,
+                         @Value("${matching.journal.dir:./data/journal}") String directory,
+                         @Value("${matching.journal.segment-size:67108864}") int segmentSize,
+                         @Value("${matching.journal.fsync:false}") boolean fsync,
+                         @Value("${messaging.order-partitions:16}") int partitionCount) {
+        this.enabled = enabled;
+        this.directory = Path.of(directory);
+        this.segmentSize = segmentSize;
+        this.fsync = fsync;
+        this.journals = new OrderJournal[partitionCount];
+        if (enabled) {
+            System.out.println("Order journal enabled in " + this.directory.toAbsolutePath());
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Opens the journal of a partition this instance has just claimed.
+     */
+    public OrderJournal open(int partition) {
+        if (enabled && journals[partition] == null) {
+            journals[partition] = OrderJournal.open(directory.resolve("partition-" + partition), segmentSize, fsync);
+        }
+        return journals[partition];
+    }
+
+    /**
+     * Closes the journal of a partition this instance is releasing.
+     */
+    public void close(int partition) throws IOException {
+        OrderJournal journal = journals[partition];
+        journals[partition] = null;
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    /**
+     * Journal of the partition owning {@code stockSymbol}, or {@code null} when journaling is
+     * disabled or the partition is not open here.
+     */
+    public OrderJournal forSymbol(String stockSymbol) {
+        return journals[OrderPartitions.of(stockSymbol, journals.length)];
+    }
+
+    public OrderJournal forPartition(int partition) {
+        return journals[partition];
+    }
+
+    public int partitionCount() {
+        return journals.length;
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        for (int partition = 0; partition < journals.length; partition++) {
+            close(partition);
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.broker.matchingService.journal;
+
+import com.broker.matchingService.book.BookOrder;
+import com.broker.matchingService.book.OrderBook;
+import com.broker.matchingService.book.PriceLevel;
+import com.broker.matchingService.book.Side;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Compact binary snapshots of the resting orders of one order partition.
+ * <p>
+ * A snapshot records the journal sequence it covers: restoring it and replaying the journal
+ * records after that sequence gives back the exact book. Layout:
+ * {@code [int magic][short version][int partition][long sequence][int symbols]} then, per symbol,
+ * {@code [symbol][int orders]} followed by the orders of each side in priority order, and a
+ * trailing CRC32 of everything before it.
+ */
+public class SnapshotStore {
+
+    private static final int MAGIC = 0x42585350; // "BXSP"
+    private static final short VERSION = 4; // 2: long tick prices, 3: epoch-nano timestamps, 4: per partition
+    private static final String PREFIX = "snapshot-";
+    private static final String SUFFIX = ".bin";
+    private static final int RETAINED = 2;
+
+    private final Path directory;
+
+    public SnapshotStore(Path directory) {
+        this.directory = directory;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create snapshot directory " + directory, e);
+        }
+    }
+
+    /**
+     * Serializes the resting orders of {@code books}. Must run on the thread owning the books.
+     */
+    public static byte[] encode(int partition, long sequence, List<OrderBook> books) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(4096);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeInt(partition);
+            out.writeLong(sequence);
+            out.writeInt(books.size());
+            for (OrderBook book : books) {
+                writeString(out, book.getSymbol());
+                out.writeInt(book.orderCount(Side.BUY) + book.orderCount(Side.SELL));
+                writeSide(out, book, Side.BUY);
+                writeSide(out, book, Side.SELL);
+            }
+            CRC32 crc = new CRC32();
+            crc.update(bytes.toByteArray());
+            out.writeInt((int) crc.getValue());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Atomically writes an encoded snapshot and prunes all but the most recent ones.
+     */
+    public Path write(int partition, long sequence, byte[] snapshot) throws IOException {
+        Path target = directory.resolve(fileName(partition, sequence));
+        Path temp = directory.resolve(target.getFileName() + ".tmp");
+        Files.write(temp, snapshot);
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        List<Path> snapshots = snapshots(partition);
+        for (Path old : snapshots.subList(0, Math.max(0, snapshots.size() - RETAINED))) {
+            Files.deleteIfExists(old);
+        }
+        return target;
+    }
+
+    /**
+     * Journal sequence covered by the oldest snapshot kept for {@code partition}, or 0 if there
+     * is none. {@link #loadLatest} may fall back to that snapshot, so the journal records after
+     * it must be kept.
+     */
+    public long oldestSequence(int partition) throws IOException {
+        List<Path> snapshots = snapshots(partition);
+        if (snapshots.isEmpty()) {
+            return 0;
+        }
+        String name = snapshots.get(0).getFileName().toString();
+        return Long.parseLong(name.substring((PREFIX + partition + "-").length(), name.length() - SUFFIX.length()));
+    }
+
+    /**
+     * Restores the most recent valid snapshot of {@code partition}, handing every resting order
+     * to {@code restorer} in book priority order.
+     *
+     * @return the journal sequence covered by the restored snapshot, or 0 if there is none
+     */
+    public long loadLatest(int partition, Consumer<BookOrder> restorer) {
+        List<Path> snapshots;
+        try {
+            snapshots = snapshots(partition);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        for (int i = snapshots.size() - 1; i >= 0; i--) {
+            Path file = snapshots.get(i);
+            try {
+                List<BookOrder> orders = new ArrayList<>();
+                long sequence = decode(Files.readAllBytes(file), partition, orders);
+                orders.forEach(restorer);
+                return sequence;
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Ignoring unreadable snapshot " + file + ": " + e.getMessage());
+            }
+        }
+        return 0;
+    }
+
+    private static long decode(byte[] snapshot, int expectedPartition, List<BookOrder> orders) {
+        CRC32 crc = new CRC32();
+        crc.update(snapshot, 0, snapshot.length - 4);
+        ByteBuffer in = ByteBuffer.wrap(snapshot);
+        if (in.getInt(snapshot.length - 4) != (int) crc.getValue()) {
+            throw new IllegalStateException("checksum mismatch");
+        }
+        if (in.getInt() != MAGIC || in.getShort() != VERSION) {
+            throw new IllegalStateException("unsupported snapshot format");
+        }
+        if (in.getInt() != expectedPartition) {
+            throw new IllegalStateException("snapshot belongs to another partition");
+        }
+        long sequence = in.getLong();
+        int symbols = in.getInt();
+        for (int s = 0; s < symbols; s++) {
+            String symbol = readString(in);
+            int count = in.getInt();
+            for (int o = 0; o < count; o++) {
+                String orderId = readString(in);
+                Side side = in.get() == 0 ? Side.BUY : Side.SELL;
+                long price = in.getLong();
+                int quantity = in.getInt();
+                int remaining = in.getInt();
+                long timestamp = in.getLong();
+                String status = readString(in);
+                orders.add(new BookOrder(orderId, symbol, side, price, quantity, remaining, timestamp, status));
+            }
+        }
+        return sequence;
+    }
+
+    private static void writeSide(DataOutputStream out, OrderBook book, Side side) throws IOException {
+        for (PriceLevel level : book.levels(side)) {
+            for (Iterator<BookOrder> it = level.iterator(); it.hasNext(); ) {
+                BookOrder order = it.next();
+                writeString(out, order.getOrderId());
+                out.writeByte(side == Side.BUY ? 0 : 1);
+                out.writeLong(order.getPrice());
+                out.writeInt(order.getQuantity());
+                out.writeInt(order.getRemainingQuantity());
+                out.writeLong(order.getTimestamp());
+                writeString(out, order.getStatus());
+            }
+        }
+    }
+
+    private List<Path> snapshots(int partition) throws IOException {
+        String prefix = PREFIX + partition + "-";
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> {
+                    String name = file.getFileName().toString();
+                    return name.startsWith(prefix) && name.endsWith(SUFFIX);
+                })
+                .sorted()
+                .toList();
+        }
+    }
+
+    private static String fileName(int partition, long sequence) {
+        return String.format("%s%d-%020d%s", PREFIX, partition, sequence, SUFFIX);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeShort(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        short length = in.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -16,7 +16,7 @@ public class MatchingOrder {
     private String stockSymbol;
     private int quantity;
     private int remainingQuantity; // Quantity yet to be matched
-    private double price;
+    private long price; // in ticks of 0.01, see Prices
     private String orderType; // BUY or SELL
     private LocalDateTime timestamp;
     private String status; // e.g., PENDING, PARTIALLY_FILLED, FILLED, CANCELLED
@@ -25,7 +25,7 @@ public class MatchingOrder {
     public MatchingOrder() {
     }
 
-    public MatchingOrder(String orderId, String stockSymbol, int quantity, double price, String orderType) {
+    public MatchingOrder(String orderId, String stockSymbol, int quantity, long price, String orderType) {
         this.orderId = orderId;
         this.stockSymbol = stockSymbol;
         this.quantity = quantity;
@@ -77,11 +77,11 @@ public class MatchingOrder {
         this.remainingQuantity = remainingQuantity;
     }
 
-    public double getPrice() {
+    public long getPrice() {
         return price;
     }
 
-    public void setPrice(double price) {
+    public void setPrice(long price) {
         this.price = price;
     }
 
@@ -4,10 +4,11 @@ import com.broker.matchingService.model.MatchingOrder;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface MatchingOrderRepository extends JpaRepository<MatchingOrder, Long> {
-    List<MatchingOrder> findByStockSymbolAndOrderTypeAndStatusOrderByPriceAscTimestampAsc(String stockSymbol, String orderType, String status);
-    List<MatchingOrder> findByStockSymbolAndOrderTypeAndStatusOrderByPriceDescTimestampAsc(String stockSymbol, String orderType, String status);
-}
\ No newline at end of file
+    MatchingOrder findByOrderId(String orderId);
+    List<MatchingOrder> findByStatusInOrderByTimestampAsc(Collection<String> statuses);
+}
@@ -0,0 +1,157 @@
+package com.broker.matchingService.service;
+
+import com.broker.matchingService.book.BookOrder;
+import com.broker.matchingService.book.Side;
+import com.broker.matchingService.dto.OrderDto;
+import com.broker.matchingService.journal.JournalEntry;
+import com.broker.matchingService.journal.OrderJournal;
+import com.broker.matchingService.journal.OrderJournals;
+import com.broker.matchingService.journal.SnapshotStore;
+import com.broker.matchingService.model.MatchingOrder;
+import com.broker.matchingService.repository.MatchingOrderRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Rebuilds the in-memory books of a partition when this instance claims it, before any of the
+ * partition's messages are matched.
+ * <p>
+ * When the partition journal holds history, the latest snapshot of the partition is restored
+ * and only the journal records written after it are replayed; recovery fails if the journal
+ * no longer holds every record after the snapshot. Otherwise the open orders of the
+ * partition found in the database are loaded and, if journaling is enabled, written to the
+ * journal as resting orders so that later claims can rely on the journal alone.
+ */
+@Component
+public class BookRecovery {
+
+    private final OrderMatchingService orderMatchingService;
+    private final OrderJournals orderJournals;
+    private final MatchingOrderRepository matchingOrderRepository;
+    private final BookSnapshotter bookSnapshotter;
+    private final MatchingExecutor matchingExecutor;
+    private final AtomicLong recoveryMillis = new AtomicLong();
+
+    public BookRecovery(OrderMatchingService orderMatchingService,
+                        OrderJournals orderJournals,
+                        MatchingOrderRepository matchingOrderRepository,
+                        BookSnapshotter bookSnapshotter,
+                        MatchingExecutor matchingExecutor,
+                        MeterRegistry meterRegistry) {
+        this.orderMatchingService = orderMatchingService;
+        this.orderJournals = orderJournals;
+        this.matchingOrderRepository = matchingOrderRepository;
+        this.bookSnapshotter = bookSnapshotter;
+        this.matchingExecutor = matchingExecutor;
+        TimeGauge.builder("matching.recovery.time", recoveryMillis, TimeUnit.MILLISECONDS, AtomicLong::get)
+            .description("Time taken to rebuild the order books of the last claimed partition")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Opens the journal of {@code partition} and rebuilds its books. Must run on the shard
+     * thread of the partition.
+     */
+    public void recover(int partition) {
+        long started = System.currentTimeMillis();
+        OrderJournal journal = orderJournals.open(partition);
+        if (journal != null && journal.lastSequence() > 0) {
+            long covered = bookSnapshotter.getSnapshotStore().loadLatest(partition, orderMatchingService::restoreRestingOrder);
+            if (journal.firstSequence() > covered + 1) {
+                throw new IllegalStateException("Journal of partition " + partition + " starts at sequence "
+                    + journal.firstSequence() + " but the restored snapshot only covers up to " + covered
+                    + "; restore the missing snapshot, or move the journal and snapshot directories away to start from the database");
+            }
+            long replayed = replay(journal, covered);
+            System.out.println("Partition " + partition + ": restored snapshot and replayed " + replayed + " journal records in " + (System.currentTimeMillis() - started) + " ms");
+        } else {
+            int loaded = loadFromDatabase(partition);
+            System.out.println("Partition " + partition + ": loaded " + loaded + " resting orders from the database in " + (System.currentTimeMillis() - started) + " ms");
+        }
+        recoveryMillis.set(System.currentTimeMillis() - started);
+    }
+
+    private long replay(OrderJournal journal, long afterSequence) {
+        ReplayCursor cursor = new ReplayCursor();
+        journal.read(afterSequence, cursor);
+        cursor.flush();
+        return cursor.records;
+    }
+
+    private int loadFromDatabase(int partition) {
+        List<MatchingOrder> openOrders = matchingOrderRepository.findByStatusInOrderByTimestampAsc(
+            List.of("PENDING", "PARTIALLY_FILLED"));
+        int loaded = 0;
+        for (MatchingOrder openOrder : openOrders) {
+            if (matchingExecutor.partitionOf(openOrder.getStockSymbol()) != partition) {
+                continue;
+            }
+            loaded++;
+            BookOrder restingOrder = BookOrder.fromEntity(openOrder);
+            orderMatchingService.restoreRestingOrder(restingOrder);
+
+            OrderJournal journal = orderJournals.forSymbol(openOrder.getStockSymbol());
+            if (journal != null) {
+                journal.appendResting(new OrderDto(
+                    openOrder.getOrderId(),
+                    openOrder.getStockSymbol(),
+                    openOrder.getRemainingQuantity(),
+                    openOrder.getPrice(),
+                    openOrder.getOrderType()
+                ));
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Replays journal records in order. An order or amend is only re-run once the trades
+     * journaled after it have been counted, so that those trades are not published a second time.
+     */
+    private class ReplayCursor implements Consumer<JournalEntry> {
+
+        private JournalEntry pending;
+        private int pendingTrades;
+        private long records;
+
+        @Override
+        public void accept(JournalEntry entry) {
+            records++;
+            if (entry.isTrade()) {
+                pendingTrades++;
+                return;
+            }
+            flush();
+            if (entry.isResting()) {
+                OrderDto resting = entry.order();
+                orderMatchingService.restoreRestingOrder(new BookOrder(
+                    resting.getOrderId(),
+                    resting.getStockSymbol(),
+                    Side.of(resting.getOrderType()),
+                    resting.getPrice(),
+                    resting.getQuantity()
+                ));
+            } else if (entry.isCancel()) {
+                orderMatchingService.replayCancel(entry.order());
+            } else {
+                pending = entry;
+            }
+        }
+
+        void flush() {
+            if (pending != null && pending.isAmend()) {
+                orderMatchingService.replayAmend(pending.order(), pendingTrades);
+            } else if (pending != null) {
+                orderMatchingService.replayOrder(pending.order(), pendingTrades);
+            }
+            pending = null;
+            pendingTrades = 0;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.broker.matchingService.service;
+
+import com.broker.matchingService.book.OrderBook;
+import com.broker.matchingService.book.OrderBooks;
+import com.broker.matchingService.journal.OrderJournal;
+import com.broker.matchingService.journal.OrderJournals;
+import com.broker.matchingService.journal.SnapshotStore;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically snapshots the resting orders of every partition this instance owns, so that a
+ * restart or the next owner of a partition only replays the journal written since the last
+ * snapshot.
+ * <p>
+ * The book is serialized on the shard thread, which gives a view consistent with the journal
+ * sequence; the file is then written and the covered journal segments dropped on the
+ * snapshot thread, off the matching path. Only the segments covered by the oldest snapshot
+ * kept are dropped, so that recovery can still fall back to it if the latest is unreadable.
+ */
+@Service
+public class BookSnapshotter {
+
+    private final OrderBooks orderBooks;
+    private final OrderJournals orderJournals;
+    private final MatchingExecutor matchingExecutor;
+    private final SnapshotStore snapshotStore;
+    private final ScheduledExecutorService scheduler;
+    private final Timer snapshotTimer;
+    private final DistributionSummary snapshotSize;
+    private final long intervalMillis;
+
+    public BookSnapshotter(OrderBooks orderBooks,
+                           OrderJournals orderJournals,
+                           MatchingExecutor matchingExecutor,
+                           MeterRegistry meterRegistry,
+                           @Value("${matching.snapshot.dir:./data/snapshots}") String directory,
+                           @Value("${matching.snapshot.interval-ms:60000}") long intervalMillis) {
+        this.orderBooks = orderBooks;
+        this.orderJournals = orderJournals;
+        this.matchingExecutor = matchingExecutor;
+        this.snapshotStore = orderJournals.isEnabled() ? new SnapshotStore(Path.of(directory)) : null;
+        this.snapshotTimer = Timer.builder("matching.snapshot.duration")
+            .description("Time to capture and write the snapshot of one partition")
+            .register(meterRegistry);
+        this.snapshotSize = DistributionSummary.builder("matching.snapshot.size")
+            .description("Size of a partition snapshot")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "matching-snapshotter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.intervalMillis = intervalMillis;
+    }
+
+    /**
+     * Starts the periodic snapshots. Called once this instance has joined the matching group.
+     */
+    public void start() {
+        if (snapshotStore != null && intervalMillis > 0) {
+            scheduler.scheduleWithFixedDelay(this::snapshotAll, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Store the snapshots are read from when a partition is claimed, or {@code null} when
+     * journaling is disabled.
+     */
+    public SnapshotStore getSnapshotStore() {
+        return snapshotStore;
+    }
+
+    /**
+     * Snapshots every open partition in turn. Runs on the snapshot thread, or on the caller at
+     * shutdown.
+     */
+    public void snapshotAll() {
+        for (int partition = 0; partition < orderJournals.partitionCount(); partition++) {
+            try {
+                snapshot(partition);
+            } catch (Exception e) {
+                System.err.println("Failed to snapshot partition " + partition + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Snapshots a partition this instance is releasing, then {@linkplain #close closes} it so
+     * that the next owner starts from the snapshot. Serialized with the periodic snapshots,
+     * which therefore never touch a closed journal.
+     */
+    public synchronized void snapshotAndClose(int partition) throws Exception {
+        try {
+            if (snapshotStore != null) {
+                snapshot(partition);
+            }
+        } finally {
+            close(partition);
+        }
+    }
+
+    /**
+     * Drops the books of a partition and closes its journal, once the work already queued for
+     * it on its shard is done.
+     */
+    public synchronized void close(int partition) throws Exception {
+        CompletableFuture<Void> closed = new CompletableFuture<>();
+        matchingExecutor.submitToPartition(partition, () -> {
+            try {
+                orderBooks.all().removeIf(book -> matchingExecutor.partitionOf(book.getSymbol()) == partition);
+                orderJournals.close(partition);
+                closed.complete(null);
+            } catch (Exception e) {
+                closed.completeExceptionally(e);
+            }
+        });
+        closed.get(30, TimeUnit.SECONDS);
+    }
+
+    private synchronized void snapshot(int partition) throws Exception {
+        long started = System.nanoTime();
+        OrderJournal[] journal = new OrderJournal[1];
+        long[] sequence = new long[1];
+        CompletableFuture<byte[]> captured = new CompletableFuture<>();
+
+        matchingExecutor.submitToPartition(partition, () -> {
+            try {
+                // Read on the shard thread, which is the one opening and closing the journal
+                journal[0] = orderJournals.forPartition(partition);
+                if (journal[0] == null) {
+                    captured.complete(null);
+                    return;
+                }
+                List<OrderBook> books = new ArrayList<>();
+                for (OrderBook book : orderBooks.all()) {
+                    if (matchingExecutor.partitionOf(book.getSymbol()) == partition && !book.isEmpty()) {
+                        books.add(book);
+                    }
+                }
+                sequence[0] = journal[0].lastSequence();
+                captured.complete(SnapshotStore.encode(partition, sequence[0], books));
+            } catch (RuntimeException e) {
+                captured.completeExceptionally(e);
+            }
+        });
+
+        byte[] snapshot = captured.get(30, TimeUnit.SECONDS);
+        if (snapshot == null) {
+            return; // not owned here
+        }
+        snapshotStore.write(partition, sequence[0], snapshot);
+        journal[0].deleteSegmentsUpTo(snapshotStore.oldestSequence(partition));
+        snapshotSize.record(snapshot.length);
+        snapshotTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Takes a last snapshot on graceful shutdown, while the shards are still running.
+     */
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        if (snapshotStore != null) {
+            snapshotAll();
+            System.out.println("Wrote shutdown snapshot of the order books");
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.broker.matchingService.service;
+
+import com.broker.matchingService.config.RabbitMQConfig;
+import com.broker.matchingService.dto.BookUpdate;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.MessageDeliveryMode;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes the {@link BookUpdate}s of the books owned by this instance to the
+ * {@value RabbitMQConfig#MARKET_DATA_EXCHANGE} exchange, routed by symbol, off the matching
+ * threads.
+ * <p>
+ * Unlike trades, market data may be lost: an update that does not fit in the queue, or that
+ * the broker does not take, is dropped rather than ever making a matching thread wait. The
+ * consumers notice the hole in the sequence chain of the symbol and reload its book.
+ */
+@Service
+public class MarketDataPublisher {
+
+    private static final int MAX_BATCH = 256;
+
+    private final RabbitTemplate rabbitTemplate;
+    private final boolean enabled;
+    private final BlockingQueue<BookUpdate> updates;
+    private final Counter dropped;
+    private final Thread publisherThread;
+    private volatile boolean running = true;
+
+    public MarketDataPublisher(RabbitTemplate rabbitTemplate,
+                               @Value("${matching.market-data.enabled:true}") boolean enabled,
+                               @Value("${matching.market-data.queue-capacity:65536}") int queueCapacity,
+                               MeterRegistry meterRegistry) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.enabled = enabled;
+        this.updates = new ArrayBlockingQueue<>(queueCapacity);
+        Gauge.builder("matching.marketdata.pending", updates, BlockingQueue::size)
+            .description("Book updates waiting to be published")
+            .register(meterRegistry);
+        this.dropped = Counter.builder("matching.marketdata.dropped")
+            .description("Book updates dropped because the publisher could not keep up")
+            .register(meterRegistry);
+        this.publisherThread = new Thread(this::run, "market-data-publisher");
+        this.publisherThread.setDaemon(true);
+        if (enabled) {
+            this.publisherThread.start();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queues an update for publication. Never blocks; drops the update if the queue is full.
+     */
+    public void publish(BookUpdate update) {
+        if (!updates.offer(update)) {
+            dropped.increment();
+        }
+    }
+
+    private void run() {
+        List<BookUpdate> batch = new ArrayList<>(MAX_BATCH);
+        while (running || !updates.isEmpty()) {
+            try {
+                BookUpdate first = updates.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                updates.drainTo(batch, MAX_BATCH - 1);
+                for (BookUpdate update : batch) {
+                    send(update);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void send(BookUpdate update) {
+        try {
+            rabbitTemplate.convertAndSend(RabbitMQConfig.MARKET_DATA_EXCHANGE, update.symbol(), update, message -> {
+                message.getMessageProperties().setDeliveryMode(MessageDeliveryMode.NON_PERSISTENT);
+                return message;
+            });
+        } catch (AmqpException e) {
+            dropped.increment();
+            System.err.println("Failed to publish the " + update.symbol() + " book update: " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        if (enabled) {
+            publisherThread.join(1000);
+        }
+    }
+}
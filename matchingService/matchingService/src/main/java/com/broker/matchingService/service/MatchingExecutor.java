@@ -0,0 +1,123 @@
+package com.broker.matchingService.service;
+
+import com.broker.matchingService.config.OrderPartitions;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Routes matching work to a fixed set of single-threaded shards keyed by stock symbol.
+ * <p>
+ * A symbol always hashes to the same order partition, and a partition always runs on the same
+ * shard, so each book is mutated by exactly one thread while different symbols are matched in
+ * parallel. Whole partitions map to a shard so that claiming or releasing one is a single task
+ * ordered with the matching work of its symbols.
+ */
+@Service
+@DependsOn("orderJournals") // shards are stopped before the journals they write to are closed
+public class MatchingExecutor {
+
+    private final MatchingShard[] shards;
+    private final int partitionCount;
+
+    public MatchingExecutor(@Value("${matching.shards:4}") int shardCount,
+                            @Value("${messaging.order-partitions:16}") int partitionCount,
+                            @Value("${matching.shard.queue-capacity:10000}") int queueCapacity,
+                            MeterRegistry meterRegistry) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("matching.shards must be positive");
+        }
+        this.shards = new MatchingShard[shardCount];
+        this.partitionCount = partitionCount;
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new MatchingShard(i, queueCapacity, meterRegistry);
+            shards[i].start();
+        }
+        System.out.println("Matching executor started with " + shardCount + " shards");
+    }
+
+    /**
+     * Runs {@code task} on the shard that owns {@code stockSymbol}.
+     */
+    public void submit(String stockSymbol, Runnable task) {
+        try {
+            shards[shardOf(stockSymbol)].submit(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing matching task for " + stockSymbol, e);
+        }
+    }
+
+    /**
+     * Runs {@code task} on the shard that owns {@code stockSymbol} and completes the returned
+     * future with its result, for callers that need an answer from the book.
+     */
+    public <T> CompletableFuture<T> call(String stockSymbol, Supplier<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        submit(stockSymbol, () -> {
+            try {
+                result.complete(task.get());
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Runs {@code task} on the shard that owns {@code partition}, after the work already queued
+     * for the symbols of that partition.
+     */
+    public void submitToPartition(int partition, Runnable task) {
+        submitToShard(shardOfPartition(partition), task);
+    }
+
+    /**
+     * Runs {@code task} on the thread of a given shard, e.g. to read a consistent view of
+     * every book the shard owns.
+     */
+    public void submitToShard(int shard, Runnable task) {
+        try {
+            shards[shard].submit(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing task for shard " + shard, e);
+        }
+    }
+
+    public int shardOf(String stockSymbol) {
+        return shardOfPartition(partitionOf(stockSymbol));
+    }
+
+    public int shardOfPartition(int partition) {
+        return partition % shards.length;
+    }
+
+    public int partitionOf(String stockSymbol) {
+        return OrderPartitions.of(stockSymbol, partitionCount);
+    }
+
+    public int partitionCount() {
+        return partitionCount;
+    }
+
+    public int shardCount() {
+        return shards.length;
+    }
+
+    public int queueDepth(int shard) {
+        return shards[shard].queueDepth();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        for (MatchingShard shard : shards) {
+            shard.stop(5000);
+        }
+    }
+}
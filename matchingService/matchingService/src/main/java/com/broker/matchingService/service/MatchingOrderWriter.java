@@ -0,0 +1,232 @@
+package com.broker.matchingService.service;
+
+import com.broker.matchingService.book.BookOrder;
+import com.broker.matchingService.book.EpochNanos;
+import com.broker.matchingService.book.Side;
+import com.broker.matchingService.model.MatchingOrder;
+import com.broker.matchingService.repository.MatchingOrderRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchronous persistence sink for the in-memory book.
+ * <p>
+ * The matching path only copies each order state change into a preallocated slot of a ring
+ * owned by the calling thread; a background thread drains the rings in batches and upserts
+ * the {@link MatchingOrder} rows, so the database is never on the matching critical path and
+ * handing a change over allocates nothing. A full ring makes its producer wait for the writer.
+ * A batch that fails to be written is kept and retried, waiting longer each time, before the
+ * writer drains anything else.
+ */
+@Service
+public class MatchingOrderWriter {
+
+    private static final int MAX_BATCH = 500;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long MIN_RETRY_MILLIS = 100;
+    private static final long MAX_RETRY_MILLIS = 5_000;
+
+    private final MatchingOrderRepository matchingOrderRepository;
+    private final int ringCapacity;
+    private final CopyOnWriteArrayList<UpdateRing> rings = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<UpdateRing> localRing;
+    // Managed rows of orders that are still open, keyed by orderId. Only touched by the writer thread.
+    private final Map<String, MatchingOrder> openRows = new HashMap<>();
+    private final Thread writerThread;
+    private volatile boolean running = true;
+
+    public MatchingOrderWriter(MatchingOrderRepository matchingOrderRepository,
+                               @Value("${matching.writer.ring-size:16384}") int ringCapacity) {
+        if (Integer.bitCount(ringCapacity) != 1) {
+            throw new IllegalArgumentException("matching.writer.ring-size must be a power of two");
+        }
+        this.matchingOrderRepository = matchingOrderRepository;
+        this.ringCapacity = ringCapacity;
+        this.localRing = ThreadLocal.withInitial(() -> {
+            UpdateRing ring = new UpdateRing(this.ringCapacity);
+            rings.add(ring);
+            return ring;
+        });
+        this.writerThread = new Thread(this::run, "matching-order-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Queues the current state of {@code order} for persistence. Does not allocate, and only
+     * blocks while the calling thread's ring is full.
+     */
+    public void write(BookOrder order) {
+        localRing.get().offer(order);
+    }
+
+    public int backlog() {
+        long pending = 0;
+        for (UpdateRing ring : rings) {
+            pending += ring.size();
+        }
+        return (int) pending;
+    }
+
+    private void run() {
+        List<MatchingOrder> batch = new ArrayList<>(MAX_BATCH);
+        long retryMillis = 0;
+        while (true) {
+            boolean stopping = !running;
+            if (batch.isEmpty()) {
+                for (UpdateRing ring : rings) {
+                    ring.drainTo(batch, MAX_BATCH - batch.size());
+                    if (batch.size() == MAX_BATCH) {
+                        break;
+                    }
+                }
+            }
+            if (batch.isEmpty()) {
+                if (stopping) {
+                    return; // Everything queued before shutdown has been written
+                }
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+            try {
+                flush(batch);
+                batch.clear();
+                retryMillis = 0;
+            } catch (Exception e) {
+                retryMillis = Math.min(Math.max(retryMillis * 2, MIN_RETRY_MILLIS), MAX_RETRY_MILLIS);
+                System.err.println("Failed to persist " + batch.size() + " matching order updates, retrying in "
+                    + retryMillis + " ms: " + e.getMessage());
+                // The rows inserted by the failed batch were rolled back
+                batch.forEach(update -> update.setId(null));
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(retryMillis));
+            }
+        }
+    }
+
+    private void flush(List<MatchingOrder> batch) {
+        // Several updates of the same order can be in one batch; only the last state is written.
+        Map<String, MatchingOrder> rows = new HashMap<>();
+        for (MatchingOrder update : batch) {
+            MatchingOrder row = rows.get(update.getOrderId());
+            if (row == null) {
+                row = openRows.get(update.getOrderId());
+            }
+            if (row == null) {
+                row = matchingOrderRepository.findByOrderId(update.getOrderId());
+            }
+            if (row == null) {
+                row = update;
+            } else {
+                row.setQuantity(update.getQuantity());
+                row.setRemainingQuantity(update.getRemainingQuantity());
+                row.setPrice(update.getPrice());
+                row.setStatus(update.getStatus());
+            }
+            rows.put(update.getOrderId(), row);
+        }
+
+        for (MatchingOrder saved : matchingOrderRepository.saveAll(rows.values())) {
+            if ("FILLED".equals(saved.getStatus()) || "CANCELLED".equals(saved.getStatus())) {
+                openRows.remove(saved.getOrderId());
+            } else {
+                openRows.put(saved.getOrderId(), saved);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        writerThread.join(TimeUnit.SECONDS.toMillis(10));
+        if (writerThread.isAlive()) {
+            System.err.println("Stopped before persisting every matching order update, " + backlog()
+                + " still queued");
+        }
+    }
+
+    /**
+     * Single-producer/single-consumer ring of reusable order snapshots. The producer publishes
+     * a slot by advancing {@code tail}, the writer thread frees it by advancing {@code head}.
+     */
+    private static final class UpdateRing {
+
+        private final OrderUpdate[] slots;
+        private final int mask;
+        private final AtomicLong head = new AtomicLong();
+        private final AtomicLong tail = new AtomicLong();
+
+        UpdateRing(int capacity) {
+            this.slots = new OrderUpdate[capacity];
+            this.mask = capacity - 1;
+            for (int i = 0; i < capacity; i++) {
+                slots[i] = new OrderUpdate();
+            }
+        }
+
+        void offer(BookOrder order) {
+            long position = tail.get();
+            while (position - head.get() >= slots.length) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS); // Writer is behind: wait for a free slot
+            }
+            slots[(int) (position & mask)].copyOf(order);
+            tail.lazySet(position + 1);
+        }
+
+        void drainTo(List<MatchingOrder> batch, int max) {
+            long position = head.get();
+            long available = Math.min(tail.get() - position, max);
+            for (long i = 0; i < available; i++) {
+                batch.add(slots[(int) ((position + i) & mask)].toEntity());
+            }
+            head.lazySet(position + available);
+        }
+
+        long size() {
+            return tail.get() - head.get();
+        }
+    }
+
+    private static final class OrderUpdate {
+
+        private String orderId;
+        private String stockSymbol;
+        private Side side;
+        private long price;
+        private int quantity;
+        private int remainingQuantity;
+        private long timestamp;
+        private String status;
+
+        void copyOf(BookOrder order) {
+            orderId = order.getOrderId();
+            stockSymbol = order.getStockSymbol();
+            side = order.getSide();
+            price = order.getPrice();
+            quantity = order.getQuantity();
+            remainingQuantity = order.getRemainingQuantity();
+            timestamp = order.getTimestamp();
+            status = order.getStatus();
+        }
+
+        MatchingOrder toEntity() {
+            MatchingOrder entity = new MatchingOrder(orderId, stockSymbol, quantity, price, side.name());
+            entity.setRemainingQuantity(remainingQuantity);
+            entity.setTimestamp(EpochNanos.toLocalDateTime(timestamp));
+            entity.setStatus(status);
+            orderId = null;
+            stockSymbol = null;
+            status = null;
+            return entity;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.broker.matchingService.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One single-threaded matching lane. Every task submitted to a shard runs on the shard's
+ * own thread, in submission order, so the books owned by the shard need no locking.
+ */
+class MatchingShard {
+
+    private final int index;
+    private final BlockingQueue<Task> queue;
+    private final Thread thread;
+    private final Timer waitTimer;
+    private final Timer matchTimer;
+    private volatile boolean running = true;
+
+    MatchingShard(int index, int queueCapacity, MeterRegistry meterRegistry) {
+        this.index = index;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        String shard = String.valueOf(index);
+        Gauge.builder("matching.shard.queue.depth", queue, BlockingQueue::size)
+            .description("Tasks waiting to be processed by a matching shard")
+            .tag("shard", shard)
+            .register(meterRegistry);
+        this.waitTimer = Timer.builder("matching.shard.wait")
+            .description("Time a task spends queued before its shard picks it up")
+            .tag("shard", shard)
+            .publishPercentiles(0.5, 0.99, 0.999)
+            .register(meterRegistry);
+        this.matchTimer = Timer.builder("matching.shard.latency")
+            .description("Time spent matching a task on its shard thread")
+            .tag("shard", shard)
+            .publishPercentiles(0.5, 0.99, 0.999)
+            .register(meterRegistry);
+        this.thread = new Thread(this::run, "matching-shard-" + index);
+        this.thread.setDaemon(true);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * Queues a task for this shard, blocking while the shard is full so that a slow shard
+     * pushes back on the RabbitMQ listener instead of growing without bound.
+     */
+    void submit(Runnable task) throws InterruptedException {
+        queue.put(new Task(task, System.nanoTime()));
+    }
+
+    boolean isShardThread() {
+        return Thread.currentThread() == thread;
+    }
+
+    int queueDepth() {
+        return queue.size();
+    }
+
+    int getIndex() {
+        return index;
+    }
+
+    void stop(long timeoutMillis) throws InterruptedException {
+        running = false;
+        thread.join(timeoutMillis);
+    }
+
+    private void run() {
+        while (running || !queue.isEmpty()) {
+            Task task;
+            try {
+                task = queue.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (task == null) {
+                continue;
+            }
+            long started = System.nanoTime();
+            waitTimer.record(started - task.enqueuedAt(), TimeUnit.NANOSECONDS);
+            try {
+                task.runnable().run();
+            } catch (Exception e) {
+                System.err.println("Matching shard " + index + " failed to process task: " + e.getMessage());
+                e.printStackTrace();
+            } finally {
+                matchTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    private record Task(Runnable runnable, long enqueuedAt) {
+    }
+}
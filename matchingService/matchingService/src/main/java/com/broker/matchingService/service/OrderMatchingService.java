@@ -1,131 +1,435 @@
 package com.broker.matchingService.service;
 
+import com.broker.matchingService.book.BookOrder;
+import com.broker.matchingService.book.BookOrderPool;
+import com.broker.matchingService.book.EpochNanos;
+import com.broker.matchingService.book.Fill;
+import com.broker.matchingService.book.FillBuffer;
+import com.broker.matchingService.book.LevelChanges;
+import com.broker.matchingService.book.MatchingEngine;
+import com.broker.matchingService.book.OrderBook;
+import com.broker.matchingService.book.OrderBooks;
+import com.broker.matchingService.book.PriceLevel;
+import com.broker.matchingService.book.Side;
+import com.broker.matchingService.book.TimeInForce;
+import com.broker.matchingService.config.OrderPartitions;
+import com.broker.matchingService.dto.BookUpdate;
+import com.broker.matchingService.dto.DepthLevel;
 import com.broker.matchingService.dto.Trade;
-import com.broker.matchingService.model.MatchingOrder;
-import com.broker.matchingService.repository.MatchingOrderRepository;
-import com.broker.matchingService.config.RabbitMQConfig;
+import com.broker.matchingService.dto.OrderCancellation;
+import com.broker.matchingService.dto.OrderCommandResult;
 import com.broker.matchingService.dto.OrderDto;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import com.broker.matchingService.dto.TradeTick;
+import com.broker.matchingService.journal.OrderJournal;
+import com.broker.matchingService.journal.OrderJournals;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Edge of the matching path: journals incoming commands, runs them through the
+ * {@link MatchingEngine} on resident objects, then hands the resulting order states to the
+ * persistence sink and materializes a {@link Trade} DTO per fill only to hand it to the
+ * {@link TradePublisher}. After each command that changed a book, a {@link BookUpdate} with the
+ * touched levels and the trades is handed to the {@link MarketDataPublisher}.
+ * <p>
+ * Each matching thread reuses its own fill buffer and pool of orders, so the matching itself
+ * produces no garbage; only the published DTOs and AMQP messages are allocated.
+ */
 @Service
 public class OrderMatchingService {
 
-    private final MatchingOrderRepository matchingOrderRepository;
-    private final RabbitTemplate rabbitTemplate;
+    private static final int ORDER_POOL_SIZE = 4096;
+    private static final int TRADE_ID_PARTITION_SHIFT = 48;
+    // Order ids remembered per partition, well above the messages a partition consumer prefetches
+    private static final int RECENT_ORDER_IDS = 8192;
 
-    public OrderMatchingService(MatchingOrderRepository matchingOrderRepository, RabbitTemplate rabbitTemplate) {
-        this.matchingOrderRepository = matchingOrderRepository;
-        this.rabbitTemplate = rabbitTemplate;
+    private final OrderBooks orderBooks;
+    private final OrderJournals orderJournals;
+    private final MatchingOrderWriter matchingOrderWriter;
+    private final TradePublisher tradePublisher;
+    private final MarketDataPublisher marketDataPublisher;
+    private final ThreadLocal<MatchingContext> contexts = ThreadLocal.withInitial(MatchingContext::new);
+    // Trade ids when journaling is disabled: unique within the process, seeded from the clock
+    private final AtomicLong unjournaledTradeIds = new AtomicLong(System.currentTimeMillis() * 1000);
+    private final AtomicLong unjournaledUpdateSequences = new AtomicLong(System.currentTimeMillis() * 1000);
+    // Per partition, each only touched by the shard thread of its partition
+    private final RecentIds[] recentOrderIds;
+    private final Counter duplicateOrders;
+
+    public OrderMatchingService(OrderBooks orderBooks,
+                                OrderJournals orderJournals,
+                                MatchingOrderWriter matchingOrderWriter,
+                                TradePublisher tradePublisher,
+                                MarketDataPublisher marketDataPublisher,
+                                MeterRegistry meterRegistry) {
+        this.orderBooks = orderBooks;
+        this.orderJournals = orderJournals;
+        this.matchingOrderWriter = matchingOrderWriter;
+        this.tradePublisher = tradePublisher;
+        this.marketDataPublisher = marketDataPublisher;
+        this.recentOrderIds = new RecentIds[orderJournals.partitionCount()];
+        for (int i = 0; i < recentOrderIds.length; i++) {
+            recentOrderIds[i] = new RecentIds(RECENT_ORDER_IDS);
+        }
+        this.duplicateOrders = Counter.builder("matching.orders.duplicates")
+            .description("Orders skipped because their id was already received, e.g. redelivered after a hand-over")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Places a resting order straight into its book, without matching. Used to restore
+     * orders that were already resting before a restart.
+     */
+    public void restoreRestingOrder(BookOrder order) {
+        orderBooks.bookFor(order.getStockSymbol()).add(order);
     }
 
-    @Transactional
     public void processNewOrder(OrderDto newOrderDto) {
-        System.out.println("Processing new order for matching: " + newOrderDto);
-
-        // Convert DTO to Entity and save to order book
-        MatchingOrder newMatchingOrder = new MatchingOrder(
-            newOrderDto.getOrderId(),
-            newOrderDto.getStockSymbol(),
-            newOrderDto.getQuantity(),
-            newOrderDto.getPrice(),
-            newOrderDto.getOrderType()
+        processNewOrder(newOrderDto, () -> {});
+    }
+
+    /**
+     * Journals and matches a new order, running {@code journaled} as soon as the order is
+     * journaled, e.g. to acknowledge its message. An order whose id was already taken, such as a
+     * message delivered again after a hand-over, is skipped, but {@code journaled} still runs.
+     */
+    public void processNewOrder(OrderDto newOrderDto, Runnable journaled) {
+        if (isDuplicate(newOrderDto)) {
+            duplicateOrders.increment(); // Counted rather than logged, a hand-over can redeliver thousands
+            journaled.run();
+            return;
+        }
+        OrderJournal journal = orderJournals.forSymbol(newOrderDto.getStockSymbol());
+        if (journal != null) {
+            journal.appendOrder(newOrderDto);
+        }
+        journaled.run();
+        OrderBook book = orderBooks.bookFor(newOrderDto.getStockSymbol());
+        beginUpdate(book);
+        execute(journal, book, toBookOrder(newOrderDto), TimeInForce.of(newOrderDto.getTimeInForce()), 0, false);
+        publishUpdate(journal, book);
+    }
+
+    /**
+     * Re-runs a journaled order during recovery. Matching is deterministic, so this rebuilds
+     * the book exactly; the first {@code journaledTrades} trades it produces were already
+     * journaled and published before the restart and are not emitted again, while any trade
+     * beyond them (the process stopped mid-order) is journaled and published now.
+     */
+    public void replayOrder(OrderDto journaledOrder, int journaledTrades) {
+        isDuplicate(journaledOrder); // Remembered, in case its message is delivered again
+        OrderJournal journal = orderJournals.forSymbol(journaledOrder.getStockSymbol());
+        matchOrder(journal, toBookOrder(journaledOrder), TimeInForce.of(journaledOrder.getTimeInForce()), journaledTrades);
+    }
+
+    /**
+     * Takes a resting order out of its book. The order is reached through the book's orderId
+     * index, so this costs the same whatever the depth of the book.
+     */
+    public OrderCommandResult cancelOrder(String stockSymbol, String orderId) {
+        OrderBook book = orderBooks.find(stockSymbol);
+        BookOrder order = book != null ? book.find(orderId) : null;
+        if (order == null) {
+            return OrderCommandResult.rejected(orderId, "Order " + orderId + " is not resting in the " + stockSymbol + " book");
+        }
+        OrderJournal journal = orderJournals.forSymbol(stockSymbol);
+        if (journal != null) {
+            journal.appendCancel(new OrderDto(orderId, stockSymbol, 0, 0, order.getSide().name()));
+        }
+        beginUpdate(book);
+        applyCancel(book, order);
+        publishUpdate(journal, book);
+        OrderCommandResult result = OrderCommandResult.accepted(order);
+        contexts.get().orders.release(order);
+        return result;
+    }
+
+    /**
+     * Changes the open quantity and/or limit price of a resting order. Reducing the quantity at
+     * the same price keeps the order's time priority; any other change re-enters the order at
+     * the back of its new level, matching it first if the new price crosses the book.
+     * <p>
+     * The wallet hold was sized at the order's quantity and limit when it was placed, so an
+     * amend never raises the open quantity, nor the limit of a BUY order: the extra fills would
+     * be captured beyond the hold.
+     *
+     * @param price new limit in ticks, or 0 to keep the current one
+     */
+    public OrderCommandResult amendOrder(String stockSymbol, String orderId, int quantity, long price) {
+        if (quantity <= 0 || price < 0) {
+            return OrderCommandResult.rejected(orderId, "Amended quantity must be positive, use a cancel to remove the order");
+        }
+        OrderBook book = orderBooks.find(stockSymbol);
+        BookOrder order = book != null ? book.find(orderId) : null;
+        if (order == null) {
+            return OrderCommandResult.rejected(orderId, "Order " + orderId + " is not resting in the " + stockSymbol + " book");
+        }
+        if (quantity > order.getRemainingQuantity()) {
+            return OrderCommandResult.rejected(orderId, "Amended quantity " + quantity + " exceeds the "
+                + order.getRemainingQuantity() + " still open, place a new order instead");
+        }
+        long newPrice = price == 0 ? order.getPrice() : price;
+        if (order.getSide() == Side.BUY && newPrice > order.getPrice()) {
+            return OrderCommandResult.rejected(orderId, "Amended limit " + newPrice + " is above the current "
+                + order.getPrice() + ", which the wallet hold does not cover");
+        }
+        OrderJournal journal = orderJournals.forSymbol(stockSymbol);
+        if (journal != null) {
+            journal.appendAmend(new OrderDto(orderId, stockSymbol, quantity, newPrice, order.getSide().name()));
+        }
+        beginUpdate(book);
+        BookOrder amended = applyAmend(journal, book, order, quantity, newPrice, 0, true);
+        publishUpdate(journal, book);
+        // Read the outcome before an amended order that got filled goes back to the pool
+        OrderCommandResult result = OrderCommandResult.accepted(amended);
+        if (!amended.isResting()) {
+            contexts.get().orders.release(amended);
+        }
+        return result;
+    }
+
+    /**
+     * Re-applies a journaled cancel during recovery.
+     */
+    public void replayCancel(OrderDto journaledCancel) {
+        OrderBook book = orderBooks.find(journaledCancel.getStockSymbol());
+        BookOrder order = book != null ? book.find(journaledCancel.getOrderId()) : null;
+        if (order != null) {
+            applyCancel(book, order);
+            contexts.get().orders.release(order);
+        }
+    }
+
+    /**
+     * Re-applies a journaled amend during recovery; like {@link #replayOrder}, the trades it
+     * already produced before the restart are not emitted again.
+     */
+    public void replayAmend(OrderDto journaledAmend, int journaledTrades) {
+        OrderBook book = orderBooks.find(journaledAmend.getStockSymbol());
+        BookOrder order = book != null ? book.find(journaledAmend.getOrderId()) : null;
+        if (order != null) {
+            OrderJournal journal = orderJournals.forSymbol(journaledAmend.getStockSymbol());
+            applyAmend(journal, book, order, journaledAmend.getQuantity(), journaledAmend.getPrice(), journaledTrades, false);
+        }
+    }
+
+    // Replayed cancels are published again, consumers ignore a cancellation they already applied
+    private void applyCancel(OrderBook book, BookOrder order) {
+        book.remove(order);
+        tradePublisher.publishCancellation(new OrderCancellation(order.getOrderId(), order.getStockSymbol(),
+            order.getSide().name(), order.getFilledQuantity(), order.getRemainingQuantity()));
+        order.cancel();
+        matchingOrderWriter.write(order);
+    }
+
+    /**
+     * @param keepReplacement whether the caller still reads a replacement order that leaves the
+     *                        book, and therefore releases it itself
+     */
+    private BookOrder applyAmend(OrderJournal journal, OrderBook book, BookOrder order,
+                                 int quantity, long price, int tradesToSkip, boolean keepReplacement) {
+        if (price == order.getPrice() && quantity <= order.getRemainingQuantity()) {
+            book.reduce(order, quantity);
+            matchingOrderWriter.write(order);
+            return order;
+        }
+        // Cancel/replace: same order id and filled quantity, new price, new time priority
+        book.remove(order);
+        BookOrder replacement = new BookOrder(
+            order.getOrderId(),
+            order.getStockSymbol(),
+            order.getSide(),
+            price,
+            order.getFilledQuantity() + quantity,
+            quantity,
+            EpochNanos.now(),
+            order.getFilledQuantity() > 0 ? "PARTIALLY_FILLED" : "PENDING"
+        );
+        contexts.get().orders.release(order);
+        execute(journal, book, replacement, TimeInForce.GTC, tradesToSkip, keepReplacement);
+        return replacement;
+    }
+
+    // Remembers the order id; true if it was already taken or the order rests in its book
+    private boolean isDuplicate(OrderDto orderDto) {
+        String orderId = orderDto.getOrderId();
+        if (orderId == null) {
+            return false;
+        }
+        RecentIds recent = recentOrderIds[OrderPartitions.of(orderDto.getStockSymbol(), recentOrderIds.length)];
+        if (!recent.add(orderId)) {
+            return true;
+        }
+        // Orders restored from a snapshot are not among the recent ids
+        OrderBook book = orderBooks.find(orderDto.getStockSymbol());
+        return book != null && book.find(orderId) != null;
+    }
+
+    private BookOrder toBookOrder(OrderDto orderDto) {
+        return contexts.get().orders.acquire(
+            orderDto.getOrderId(),
+            orderDto.getStockSymbol(),
+            Side.of(orderDto.getOrderType()),
+            orderDto.getPrice(),
+            orderDto.getQuantity()
         );
-        matchingOrderRepository.save(newMatchingOrder);
-
-        // Attempt to match the new order
-        matchOrder(newMatchingOrder);
-    }
-
-    private void matchOrder(MatchingOrder newOrder) {
-        String counterOrderType = newOrder.getOrderType().equals("BUY") ? "SELL" : "BUY";
-
-        List<MatchingOrder> potentialMatches;
-
-        if (newOrder.getOrderType().equals("BUY")) {
-            // For a BUY order, look for SELL orders at or below the BUY price
-            // Ordered by price ascending (cheapest first), then time ascending (FIFO)
-            potentialMatches = matchingOrderRepository.findByStockSymbolAndOrderTypeAndStatusOrderByPriceAscTimestampAsc(
-                newOrder.getStockSymbol(),
-                counterOrderType,
-                "PENDING" // Only match with pending orders
-            );
-        } else { // SELL order
-            // For a SELL order, look for BUY orders at or above the SELL price
-            // Ordered by price descending (highest bid first), then time ascending (FIFO)
-            potentialMatches = matchingOrderRepository.findByStockSymbolAndOrderTypeAndStatusOrderByPriceDescTimestampAsc(
-                newOrder.getStockSymbol(),
-                counterOrderType,
-                "PENDING" // Only match with pending orders
-            );
-        }
-
-        int totalMatchedQuantity = 0;
-        MatchingOrder bestMatch = null;
-
-        // Simple FOK: Find a single counter-order that can fully fill the new order
-        for (MatchingOrder existingOrder : potentialMatches) {
-            boolean priceMatches = false;
-            if (newOrder.getOrderType().equals("BUY") && newOrder.getPrice() >= existingOrder.getPrice()) {
-                priceMatches = true; // Buy order can match sell order at or below its price
-            } else if (newOrder.getOrderType().equals("SELL") && newOrder.getPrice() <= existingOrder.getPrice()) {
-                priceMatches = true; // Sell order can match buy order at or above its price
+    }
+
+    // Runs on the shard thread that owns the symbol (see MatchingExecutor), so no locking
+    private void matchOrder(OrderJournal journal, BookOrder newOrder, TimeInForce timeInForce, int tradesToSkip) {
+        execute(journal, orderBooks.bookFor(newOrder.getStockSymbol()), newOrder, timeInForce, tradesToSkip, false);
+    }
+
+    private void execute(OrderJournal journal, OrderBook book, BookOrder order, TimeInForce timeInForce,
+                         int tradesToSkip, boolean keepOrder) {
+        MatchingContext context = contexts.get();
+        FillBuffer fills = context.fills;
+        fills.clear();
+        MatchingEngine.match(book, order, timeInForce, fills);
+
+        for (int i = 0; i < fills.size(); i++) {
+            Fill fill = fills.get(i);
+            matchingOrderWriter.write(fill.getRestingOrder());
+            if (tradesToSkip > 0) {
+                tradesToSkip--; // Replayed trade, already journaled and published
+                continue;
+            }
+            long tradeId;
+            if (journal != null) {
+                tradeId = journaledTradeId(journal, book.getSymbol());
+                journal.appendTrade(tradeId, fill.getBuyOrderId(), fill.getSellOrderId(), book.getSymbol(),
+                    fill.getQuantity(), fill.getPrice(), fill.getTimestamp());
+            } else {
+                tradeId = unjournaledTradeIds.incrementAndGet();
+            }
+            context.trades.add(publish(tradeId, fill, book.getSymbol()));
+        }
+        if ("CANCELLED".equals(order.getStatus())) {
+            // IOC remainder or unfillable FOK order; cancel() zeroed the remaining quantity
+            int filled = 0;
+            for (int i = 0; i < fills.size(); i++) {
+                filled += fills.get(i).getQuantity();
             }
+            tradePublisher.publishCancellation(new OrderCancellation(order.getOrderId(), order.getStockSymbol(),
+                order.getSide().name(), filled, order.getQuantity() - filled));
+        }
+        matchingOrderWriter.write(order);
 
-            if (priceMatches && existingOrder.getRemainingQuantity() >= newOrder.getQuantity()) {
-                bestMatch = existingOrder;
-                break; // Found a single order that can fill the FOK order
+        // Orders that left the book are no longer referenced and can serve the next orders
+        for (int i = 0; i < fills.size(); i++) {
+            BookOrder resting = fills.get(i).getRestingOrder();
+            if (!resting.isResting()) {
+                context.orders.release(resting);
             }
         }
+        fills.clear();
+        if (!keepOrder && !order.isResting()) {
+            context.orders.release(order);
+        }
+    }
 
-        if (bestMatch != null) {
-            // Execute FOK trade
-            int tradeQuantity = newOrder.getQuantity(); // FOK means full quantity
+    /**
+     * Trade ids are the journal sequence of the trade record prefixed with the partition, so
+     * they are unique, increase monotonically per partition and survive restarts and partition
+     * hand-overs without extra state.
+     */
+    private long journaledTradeId(OrderJournal journal, String stockSymbol) {
+        long partition = OrderPartitions.of(stockSymbol, orderJournals.partitionCount());
+        return (partition << TRADE_ID_PARTITION_SHIFT) | journal.nextSequence();
+    }
 
-            // Update quantities
-            newOrder.setRemainingQuantity(0);
-            bestMatch.setRemainingQuantity(bestMatch.getRemainingQuantity() - tradeQuantity);
+    // The DTO only exists at the publishing edge
+    private Trade publish(long tradeId, Fill fill, String stockSymbol) {
+        Trade trade = new Trade(
+            tradeId,
+            fill.getBuyOrderId(),
+            fill.getSellOrderId(),
+            stockSymbol,
+            fill.getQuantity(),
+            fill.getPrice(),
+            EpochNanos.toLocalDateTime(fill.getTimestamp())
+        );
+        tradePublisher.publish(trade);
+        return trade;
+    }
 
-            // Update statuses
-            newOrder.setStatus("FILLED");
-            if (bestMatch.getRemainingQuantity() <= 0) {
-                bestMatch.setStatus("FILLED");
-            } else {
-                bestMatch.setStatus("PARTIALLY_FILLED"); // Counter order might be partially filled
+    // Replayed commands are not published: consumers reload a recovered book from a snapshot
+    private void beginUpdate(OrderBook book) {
+        book.changes().clear();
+        contexts.get().trades.clear();
+    }
+
+    /**
+     * Publishes the new state of the levels the command touched along with its trades, chained
+     * to the previous update of the book. The sequence is the journal sequence of the command's
+     * last record, so it keeps increasing when another instance takes the partition over.
+     */
+    private void publishUpdate(OrderJournal journal, OrderBook book) {
+        LevelChanges changes = book.changes();
+        List<Trade> trades = contexts.get().trades;
+        if (!marketDataPublisher.isEnabled() || (changes.size() == 0 && trades.isEmpty())) {
+            return;
+        }
+        List<DepthLevel> bids = new ArrayList<>();
+        List<DepthLevel> asks = new ArrayList<>();
+        for (int i = 0; i < changes.size(); i++) {
+            Side side = changes.side(i);
+            PriceLevel level = book.levelAt(side, changes.price(i));
+            DepthLevel state = level != null ? DepthLevel.of(level) : new DepthLevel(changes.price(i), 0, 0);
+            (side == Side.BUY ? bids : asks).add(state);
+        }
+        List<TradeTick> ticks = new ArrayList<>(trades.size());
+        for (Trade trade : trades) {
+            ticks.add(TradeTick.of(trade));
+        }
+        long sequence = journal != null ? journal.lastSequence() : unjournaledUpdateSequences.incrementAndGet();
+        marketDataPublisher.publish(new BookUpdate(book.getSymbol(), sequence, book.getUpdateSequence(), bids, asks, ticks));
+        book.setUpdateSequence(sequence);
+        changes.clear();
+        trades.clear();
+    }
+
+    /**
+     * The last {@code capacity} ids added, the oldest forgotten first.
+     */
+    private static final class RecentIds {
+        private final String[] ring;
+        private final Set<String> ids;
+        private int next;
+
+        RecentIds(int capacity) {
+            this.ring = new String[capacity];
+            this.ids = new HashSet<>(capacity * 2);
+        }
+
+        // false if the id is already there
+        boolean add(String id) {
+            if (!ids.add(id)) {
+                return false;
             }
+            if (ring[next] != null) {
+                ids.remove(ring[next]);
+            }
+            ring[next] = id;
+            next = (next + 1) % ring.length;
+            return true;
+        }
+    }
 
-            // Save updated orders
-            matchingOrderRepository.save(newOrder);
-            matchingOrderRepository.save(bestMatch);
-
-            System.out.println("FOK Matched " + tradeQuantity + " shares of " + newOrder.getStockSymbol() +
-                               " between new order " + newOrder.getOrderId() +
-                               " and existing order " + bestMatch.getOrderId());
-
-            // Publish a Trade event
-            String tradeId = java.util.UUID.randomUUID().toString();
-            Trade trade = new Trade(
-                tradeId,
-                newOrder.getOrderType().equals("BUY") ? newOrder.getOrderId() : bestMatch.getOrderId(),
-                newOrder.getOrderType().equals("SELL") ? newOrder.getOrderId() : bestMatch.getOrderId(),
-                newOrder.getStockSymbol(),
-                tradeQuantity,
-                bestMatch.getPrice(), // Trade price is the price of the existing order
-                java.time.LocalDateTime.now()
-            );
-            rabbitTemplate.convertAndSend(RabbitMQConfig.MATCHING_QUEUE, trade); // Send to matchingQueue for now
-            System.out.println("Published Trade event: " + trade);
-
-        } else {
-            // FOK order cannot be fully filled immediately, so it's cancelled
-            newOrder.setStatus("CANCELLED");
-            newOrder.setRemainingQuantity(0);
-            matchingOrderRepository.save(newOrder);
-            System.out.println("FOK order " + newOrder.getOrderId() + " for " + newOrder.getQuantity() +
-                               " shares of " + newOrder.getStockSymbol() + " cancelled (not fully fillable).");
-        }
-    }
-}
\ No newline at end of file
+    /**
+     * Reusable state of one matching thread.
+     */
+    private static final class MatchingContext {
+        final FillBuffer fills = new FillBuffer();
+        final BookOrderPool orders = new BookOrderPool(ORDER_POOL_SIZE);
+        // Trades of the command being processed, for its market-data update
+        final List<Trade> trades = new ArrayList<>();
+    }
+}
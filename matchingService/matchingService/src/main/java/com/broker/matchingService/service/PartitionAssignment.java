@@ -0,0 +1,59 @@
+package com.broker.matchingService.service;
+
+import java.util.BitSet;
+import java.util.Collection;
+
+/**
+ * Decides which matchingService instance owns each order partition, from the set of live
+ * instances alone, so that every instance computes the same assignment without talking to
+ * the others.
+ * <p>
+ * Uses rendezvous hashing: each partition goes to the instance with the highest hash of
+ * (instance, partition). When an instance joins or leaves, only the partitions it gains or
+ * loses move; the others keep their owner.
+ */
+public final class PartitionAssignment {
+
+    private PartitionAssignment() {
+    }
+
+    /**
+     * Owner of {@code partition} among {@code members}, or {@code null} if there is none.
+     */
+    public static String owner(int partition, Collection<String> members) {
+        String owner = null;
+        long best = 0;
+        for (String member : members) {
+            long score = score(member, partition);
+            if (owner == null || score > best || (score == best && member.compareTo(owner) < 0)) {
+                owner = member;
+                best = score;
+            }
+        }
+        return owner;
+    }
+
+    /**
+     * Partitions owned by {@code instance} among {@code members}.
+     */
+    public static BitSet ownedBy(String instance, Collection<String> members, int partitionCount) {
+        BitSet owned = new BitSet(partitionCount);
+        for (int partition = 0; partition < partitionCount; partition++) {
+            if (instance.equals(owner(partition, members))) {
+                owned.set(partition);
+            }
+        }
+        return owned;
+    }
+
+    // 64-bit finalizer of MurmurHash3, so that close instance ids still spread evenly
+    private static long score(String member, int partition) {
+        long h = member.hashCode() * 0x9E3779B97F4A7C15L + partition;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB93FE1A85B53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,422 @@
+package com.broker.matchingService.service;
+
+import com.broker.matchingService.config.OrderPartitions;
+import com.broker.matchingService.config.RabbitMQConfig;
+import com.broker.matchingService.dto.MemberHeartbeat;
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.DefaultConsumer;
+import com.rabbitmq.client.Envelope;
+import com.rabbitmq.client.ShutdownSignalException;
+import jakarta.annotation.PreDestroy;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.connection.RabbitUtils;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.support.DefaultMessagePropertiesConverter;
+import org.springframework.amqp.rabbit.support.MessagePropertiesConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Shares the order partitions between the running matchingService instances, so that every
+ * symbol is matched on exactly one of them.
+ * <p>
+ * Instances announce themselves with heartbeats on the {@value RabbitMQConfig#MEMBERSHIP_EXCHANGE}
+ * exchange and each one computes the same {@link PartitionAssignment} from the live members.
+ * An instance claims a partition by registering an exclusive consumer on its queue, which the
+ * broker grants to a single instance at a time: a claim is refused until the previous owner
+ * has released the partition. Before consuming, the new owner rebuilds the books of the
+ * partition from its journal; before releasing, the old owner snapshots them and closes the
+ * journal, which is why journals and snapshots live on storage shared by all instances.
+ * <p>
+ * Claims and releases run on the coordinator thread; the books themselves are only touched on
+ * the shard thread of their partition.
+ */
+@Service
+public class PartitionCoordinator implements SmartInitializingSingleton {
+
+    // Heartbeats sent before the first claim, so that the members already running are known
+    private static final int SETTLING_HEARTBEATS = 2;
+
+    private final String instanceId;
+    private final String url;
+    private final int partitionCount;
+    private final int prefetch;
+    private final long heartbeatMillis;
+    private final long memberTimeoutMillis;
+    private final ConnectionFactory connectionFactory;
+    private final RabbitTemplate rabbitTemplate;
+    private final MessageConverter messageConverter;
+    private final MatchingExecutor matchingExecutor;
+    private final BookRecovery bookRecovery;
+    private final BookSnapshotter bookSnapshotter;
+    private final RabbitMQConsumer rabbitMQConsumer;
+    private final MessagePropertiesConverter propertiesConverter = new DefaultMessagePropertiesConverter();
+    private final Map<String, Long> lastHeartbeats = new ConcurrentHashMap<>();
+    private final Map<String, String> memberUrls = new ConcurrentHashMap<>();
+    private final AtomicReferenceArray<PartitionConsumer> consumers;
+    private final BitSet refused = new BitSet(); // coordinator thread only
+    private final ScheduledExecutorService scheduler;
+    private int heartbeatsSent; // coordinator thread only
+
+    public PartitionCoordinator(@Value("${matching.instance-id:}") String instanceId,
+                                @Value("${matching.advertised-url:http://localhost:${server.port:8085}}") String url,
+                                @Value("${messaging.order-partitions:16}") int partitionCount,
+                                @Value("${matching.partition.prefetch:250}") int prefetch,
+                                @Value("${matching.partition.heartbeat-ms:1000}") long heartbeatMillis,
+                                @Value("${matching.partition.member-timeout-ms:5000}") long memberTimeoutMillis,
+                                ConnectionFactory connectionFactory,
+                                RabbitTemplate rabbitTemplate,
+                                MessageConverter messageConverter,
+                                MatchingExecutor matchingExecutor,
+                                BookRecovery bookRecovery,
+                                BookSnapshotter bookSnapshotter,
+                                RabbitMQConsumer rabbitMQConsumer) {
+        this.instanceId = instanceId.isBlank() ? UUID.randomUUID().toString() : instanceId;
+        this.url = url;
+        this.partitionCount = partitionCount;
+        this.prefetch = prefetch;
+        this.heartbeatMillis = heartbeatMillis;
+        this.memberTimeoutMillis = memberTimeoutMillis;
+        this.connectionFactory = connectionFactory;
+        this.rabbitTemplate = rabbitTemplate;
+        this.messageConverter = messageConverter;
+        this.matchingExecutor = matchingExecutor;
+        this.bookRecovery = bookRecovery;
+        this.bookSnapshotter = bookSnapshotter;
+        this.rabbitMQConsumer = rabbitMQConsumer;
+        this.consumers = new AtomicReferenceArray<>(partitionCount);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "partition-coordinator");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        System.out.println("Matching instance " + instanceId + " joining, " + partitionCount + " order partitions");
+        bookSnapshotter.start();
+        scheduler.scheduleWithFixedDelay(this::tick, 0, heartbeatMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @RabbitListener(queues = "#{membershipQueue.name}")
+    public void receiveHeartbeat(MemberHeartbeat heartbeat) {
+        if (instanceId.equals(heartbeat.getInstanceId())) {
+            return;
+        }
+        if (heartbeat.isLeaving()) {
+            // Take over its partitions now rather than after the member timeout
+            memberUrls.remove(heartbeat.getInstanceId());
+            if (lastHeartbeats.remove(heartbeat.getInstanceId()) != null) {
+                System.out.println("Matching instance " + heartbeat.getInstanceId() + " left");
+                rebalanceNow();
+            }
+            return;
+        }
+        if (heartbeat.getUrl() != null) {
+            memberUrls.put(heartbeat.getInstanceId(), heartbeat.getUrl());
+        }
+        if (lastHeartbeats.put(heartbeat.getInstanceId(), System.currentTimeMillis()) == null) {
+            System.out.println("Matching instance " + heartbeat.getInstanceId() + " joined");
+            rebalanceNow();
+        }
+    }
+
+    /**
+     * Whether the partition of {@code stockSymbol} is currently matched by this instance.
+     */
+    public boolean isOwned(String stockSymbol) {
+        return consumers.get(matchingExecutor.partitionOf(stockSymbol)) != null;
+    }
+
+    /**
+     * Base URL of the instance the partition of {@code stockSymbol} is assigned to, or
+     * {@code null} when it is this instance or its URL is not known.
+     */
+    public String ownerUrl(String stockSymbol) {
+        Set<String> members = new HashSet<>(lastHeartbeats.keySet());
+        members.add(instanceId);
+        String owner = PartitionAssignment.owner(matchingExecutor.partitionOf(stockSymbol), members);
+        return instanceId.equals(owner) ? null : memberUrls.get(owner);
+    }
+
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    private void rebalanceNow() {
+        try {
+            scheduler.execute(this::rebalance);
+        } catch (RejectedExecutionException e) {
+            // shutting down
+        }
+    }
+
+    private void tick() {
+        try {
+            rabbitTemplate.convertAndSend(RabbitMQConfig.MEMBERSHIP_EXCHANGE, "", new MemberHeartbeat(instanceId, url, false));
+        } catch (RuntimeException e) {
+            System.err.println("Failed to send matching heartbeat: " + e.getMessage());
+        }
+        if (++heartbeatsSent > SETTLING_HEARTBEATS) {
+            rebalance();
+        }
+    }
+
+    /**
+     * Releases the partitions this instance no longer owns and claims the ones it now owns.
+     * A refused claim is simply retried on the next heartbeat.
+     */
+    private void rebalance() {
+        if (heartbeatsSent <= SETTLING_HEARTBEATS) {
+            return;
+        }
+        long expired = System.currentTimeMillis() - memberTimeoutMillis;
+        lastHeartbeats.entrySet().removeIf(member -> {
+            boolean timedOut = member.getValue() < expired;
+            if (timedOut) {
+                memberUrls.remove(member.getKey());
+                System.out.println("Matching instance " + member.getKey() + " timed out");
+            }
+            return timedOut;
+        });
+        Set<String> members = new HashSet<>(lastHeartbeats.keySet());
+        members.add(instanceId);
+        BitSet assigned = PartitionAssignment.ownedBy(instanceId, members, partitionCount);
+
+        for (int partition = 0; partition < partitionCount; partition++) {
+            PartitionConsumer consumer = consumers.get(partition);
+            try {
+                if (consumer != null && consumer.lost) {
+                    abandon(partition, consumer);
+                    consumer = null;
+                }
+                if (consumer == null && assigned.get(partition)) {
+                    claim(partition);
+                } else if (consumer != null && !assigned.get(partition)) {
+                    release(partition, consumer);
+                }
+            } catch (Exception e) {
+                System.err.println("Failed to rebalance partition " + partition + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void claim(int partition) {
+        Channel channel;
+        try {
+            channel = connectionFactory.createConnection().createChannel(false);
+        } catch (RuntimeException e) {
+            System.err.println("Cannot claim partition " + partition + ": " + e.getMessage());
+            return;
+        }
+        PartitionConsumer consumer = new PartitionConsumer(partition, channel);
+        if (consumer.start()) {
+            consumers.set(partition, consumer);
+            refused.clear(partition);
+            System.out.println("Claimed order partition " + partition);
+        } else {
+            closeQuietly(channel);
+            if (!refused.get(partition)) {
+                refused.set(partition);
+                System.out.println("Order partition " + partition + " is still held by another instance, retrying");
+            }
+        }
+    }
+
+    /**
+     * Hands a partition over: stops taking its messages, lets the shard finish the ones already
+     * queued, snapshots its books and closes its journal, and only then gives up the exclusive
+     * consumer. Messages received but not yet handed to the shard go back to the queue.
+     */
+    private void release(int partition, PartitionConsumer consumer) throws Exception {
+        consumer.stopDelivering();
+        try {
+            bookSnapshotter.snapshotAndClose(partition);
+        } finally {
+            consumers.set(partition, null);
+            closeQuietly(consumer.getChannel());
+        }
+        System.out.println("Released order partition " + partition);
+    }
+
+    /**
+     * Forgets a partition whose consumer was lost with the broker connection. Another instance
+     * may already hold its queue, so its journal is closed without writing a snapshot. The work
+     * already queued on the shard is done first: the new owner cannot open the journal until it
+     * is closed here, so it replays those orders, and recognizes their messages by order id
+     * when the broker delivers them again.
+     */
+    private void abandon(int partition, PartitionConsumer consumer) throws Exception {
+        consumer.stopDelivering();
+        try {
+            bookSnapshotter.close(partition);
+        } finally {
+            consumers.set(partition, null);
+            closeQuietly(consumer.getChannel());
+        }
+        System.out.println("Lost order partition " + partition + ", will claim it again if still assigned");
+    }
+
+    private static void closeQuietly(Channel channel) {
+        try {
+            // Close the channel itself rather than returning it to the cache with its consumer
+            RabbitUtils.setPhysicalCloseRequired(channel, true);
+            channel.close();
+        } catch (Exception e) {
+            // already closed with its connection
+        }
+    }
+
+    /**
+     * Announces the departure of this instance and hands its partitions over, while the
+     * shards and the broker connection are still up.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        scheduler.shutdownNow();
+        scheduler.awaitTermination(30, TimeUnit.SECONDS);
+        try {
+            rabbitTemplate.convertAndSend(RabbitMQConfig.MEMBERSHIP_EXCHANGE, "", new MemberHeartbeat(instanceId, url, true));
+        } catch (RuntimeException e) {
+            System.err.println("Failed to announce leaving: " + e.getMessage());
+        }
+        for (int partition = 0; partition < partitionCount; partition++) {
+            PartitionConsumer consumer = consumers.get(partition);
+            if (consumer != null) {
+                try {
+                    release(partition, consumer);
+                } catch (Exception e) {
+                    System.err.println("Failed to release partition " + partition + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Exclusive consumer of one partition queue, handing each message to the shard of the
+     * partition, which acknowledges it once the order is journaled: a message is only lost to
+     * the broker once it can be replayed from the journal. One taken again after a crash or a
+     * hand-over is recognized by its order id (see OrderMatchingService#processNewOrder).
+     */
+    private final class PartitionConsumer extends DefaultConsumer {
+
+        private final int partition;
+        private final CompletableFuture<Void> recovered = new CompletableFuture<>();
+        private boolean delivering = true; // guarded by this
+        private volatile boolean lost;
+
+        PartitionConsumer(int partition, Channel channel) {
+            super(channel);
+            this.partition = partition;
+        }
+
+        /**
+         * Registers the exclusive consumer, then queues the recovery of the books on the shard
+         * of the partition. Deliveries wait for the recovery, so no message of the partition is
+         * matched against a book that is not rebuilt yet.
+         *
+         * @return false if another instance still holds the partition
+         */
+        boolean start() {
+            try {
+                getChannel().basicQos(prefetch);
+                getChannel().basicConsume(OrderPartitions.queueName(partition), false,
+                    "matching-" + instanceId + "-" + partition, false, true, null, this);
+            } catch (IOException | RuntimeException e) {
+                return false; // ACCESS_REFUSED: exclusive consumer already registered
+            }
+            matchingExecutor.submitToPartition(partition, () -> {
+                try {
+                    bookRecovery.recover(partition);
+                    recovered.complete(null);
+                } catch (RuntimeException e) {
+                    System.err.println("Failed to recover order partition " + partition + ": " + e.getMessage());
+                    recovered.completeExceptionally(e);
+                }
+            });
+            return true;
+        }
+
+        synchronized void stopDelivering() {
+            delivering = false;
+        }
+
+        @Override
+        public synchronized void handleDelivery(String consumerTag, Envelope envelope,
+                                                AMQP.BasicProperties properties, byte[] body) throws IOException {
+            if (!delivering || !awaitRecovery()) {
+                return; // left unacknowledged, requeued when the channel is closed
+            }
+            Message message = new Message(body, propertiesConverter.toMessageProperties(properties, envelope, "UTF-8"));
+            long deliveryTag = envelope.getDeliveryTag();
+            try {
+                rabbitMQConsumer.process(messageConverter.fromMessage(message), () -> acknowledge(deliveryTag));
+            } catch (RuntimeException e) {
+                System.err.println("Dropping unprocessable message on order partition " + partition + ": " + e.getMessage());
+                acknowledge(deliveryTag);
+            }
+        }
+
+        // Runs on the shard thread of the partition, or on this consumer for a dropped message
+        private void acknowledge(long deliveryTag) {
+            Channel channel = getChannel();
+            synchronized (channel) {
+                try {
+                    channel.basicAck(deliveryTag, false);
+                } catch (IOException | RuntimeException e) {
+                    // Channel closed: the message is delivered again and recognized by its order id
+                    System.err.println("Failed to acknowledge a message of order partition " + partition + ": " + e.getMessage());
+                }
+            }
+        }
+
+        private boolean awaitRecovery() {
+            try {
+                recovered.get();
+                return true;
+            } catch (ExecutionException e) {
+                lost = true; // abandoned and claimed again on the next rebalance
+                delivering = false;
+                return false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        @Override
+        public void handleShutdownSignal(String consumerTag, ShutdownSignalException sig) {
+            if (!sig.isInitiatedByApplication()) {
+                lost = true;
+                rebalanceNow(); // Closes the journal the next owner is waiting for
+            }
+        }
+
+        @Override
+        public void handleCancel(String consumerTag) {
+            lost = true; // queue deleted
+            rebalanceNow();
+        }
+    }
+}
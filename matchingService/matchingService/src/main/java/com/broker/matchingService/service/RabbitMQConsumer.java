@@ -1,23 +1,81 @@
 package com.broker.matchingService.service;
 
+import com.broker.matchingService.config.OrderPartitions;
 import com.broker.matchingService.config.RabbitMQConfig;
-import com.broker.matchingService.dto.Trade;
+import com.broker.matchingService.dto.OrderCommand;
+import com.broker.matchingService.dto.OrderCommandResult;
 import com.broker.matchingService.dto.OrderDto;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.stereotype.Service;
 
 @Service
 public class RabbitMQConsumer {
 
     private final OrderMatchingService orderMatchingService;
+    private final MatchingExecutor matchingExecutor;
+    private final RabbitTemplate rabbitTemplate;
 
-    public RabbitMQConsumer(OrderMatchingService orderMatchingService) {
+    public RabbitMQConsumer(OrderMatchingService orderMatchingService,
+                            MatchingExecutor matchingExecutor,
+                            RabbitTemplate rabbitTemplate) {
         this.orderMatchingService = orderMatchingService;
+        this.matchingExecutor = matchingExecutor;
+        this.rabbitTemplate = rabbitTemplate;
     }
 
+    // Orders and commands still sent to the unpartitioned queues are re-routed to their partition
     @RabbitListener(queues = RabbitMQConfig.ORDER_QUEUE)
     public void receiveOrder(OrderDto order) {
-        System.out.println("Received order from RabbitMQ: " + order);
-        orderMatchingService.processNewOrder(order);
+        forward(order.getStockSymbol(), order);
     }
-}
\ No newline at end of file
+
+    @RabbitListener(queues = RabbitMQConfig.ORDER_COMMAND_QUEUE)
+    public void receiveCommand(OrderCommand command) {
+        forward(command.getStockSymbol(), command);
+    }
+
+    /**
+     * Publishes an order or command to the partition queue of its symbol, to be matched by the
+     * instance owning that partition.
+     */
+    public void forward(String stockSymbol, Object payload) {
+        rabbitTemplate.convertAndSend(RabbitMQConfig.ORDER_EXCHANGE,
+            OrderPartitions.routingKey(matchingExecutor.partitionOf(stockSymbol)), payload);
+    }
+
+    /**
+     * Handles a message of a partition queue owned by this instance. {@code acknowledge} runs on
+     * the shard once the message no longer needs to be delivered again: as soon as an order is
+     * journaled, or once a command was applied or rejected.
+     */
+    public void process(Object payload, Runnable acknowledge) {
+        if (payload instanceof OrderDto order) {
+            process(order, acknowledge);
+        } else if (payload instanceof OrderCommand command) {
+            process(command, acknowledge);
+        } else {
+            throw new IllegalArgumentException("Unexpected message on an order partition: " + payload);
+        }
+    }
+
+    private void process(OrderDto order, Runnable acknowledge) {
+        // Hand the order to the shard that owns its symbol; the listener thread never touches a book
+        matchingExecutor.submit(order.getStockSymbol(), () -> orderMatchingService.processNewOrder(order, acknowledge));
+    }
+
+    private void process(OrderCommand command, Runnable acknowledge) {
+        matchingExecutor.submit(command.getStockSymbol(), () -> {
+            try {
+                OrderCommandResult result = "CANCEL".equalsIgnoreCase(command.getAction())
+                    ? orderMatchingService.cancelOrder(command.getStockSymbol(), command.getOrderId())
+                    : orderMatchingService.amendOrder(command.getStockSymbol(), command.getOrderId(), command.getQuantity(), command.getPrice());
+                if (!result.accepted()) {
+                    System.out.println("Order command rejected: " + result.message());
+                }
+            } finally {
+                acknowledge.run();
+            }
+        });
+    }
+}
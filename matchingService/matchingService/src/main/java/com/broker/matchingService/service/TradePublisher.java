@@ -0,0 +1,277 @@
+package com.broker.matchingService.service;
+
+import com.broker.matchingService.config.OrderPartitions;
+import com.broker.matchingService.config.RabbitMQConfig;
+import com.broker.matchingService.dto.OrderCancellation;
+import com.broker.matchingService.dto.Trade;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Publishes trades, and the cancellations of orders that were not completely filled, to RabbitMQ
+ * off the matching threads. Both go through the same buffer, but the order in which they reach
+ * consumers is not guaranteed: a trade that is not confirmed is published again later, possibly
+ * after the cancellation of its order. Consumers rely on {@code filledQuantity} of the
+ * cancellation rather than on its position.
+ * <p>
+ * A matching thread only appends its trades to the buffer of its shard and never waits for
+ * the broker. A publisher thread flushes a buffer once it holds {@code batchSize} trades or its
+ * oldest trade has waited {@code lingerMs}, sending the batch back to back with correlated
+ * publisher confirms rather than paying a round trip per trade. The confirms complete
+ * asynchronously; the trades of a batch that are nacked, not confirmed in time or fail to be
+ * sent are published again after a growing delay until the broker confirms them.
+ * <p>
+ * Delivery is therefore at-least-once and consumers must ignore a tradeId they already applied,
+ * and a cancellation they already applied.
+ * Requires {@code spring.rabbitmq.publisher-confirm-type=correlated}.
+ */
+@Service
+public class TradePublisher {
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long FIRST_RETRY_DELAY_MS = 100;
+    private static final long MAX_RETRY_DELAY_MS = 5000;
+
+    private final RabbitTemplate rabbitTemplate;
+    private final int batchSize;
+    private final long lingerNanos;
+    private final long confirmTimeoutMs;
+    private final ShardBuffer[] buffers;
+    // Batches whose confirms failed; added by the confirm callbacks, resent by the publisher thread
+    private final Queue<Batch> retries = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger unconfirmed = new AtomicInteger();
+    private final Counter retriedTrades;
+    private final Timer confirmTimer;
+    private final Thread publisherThread;
+    private volatile boolean running = true;
+
+    public TradePublisher(RabbitTemplate rabbitTemplate,
+                          @Value("${matching.shards:4}") int shardCount,
+                          @Value("${matching.publisher.batch-size:256}") int batchSize,
+                          @Value("${matching.publisher.linger-ms:2}") long lingerMs,
+                          @Value("${matching.publisher.confirm-timeout-ms:5000}") long confirmTimeoutMs,
+                          MeterRegistry meterRegistry) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("matching.publisher.batch-size must be positive");
+        }
+        this.rabbitTemplate = rabbitTemplate;
+        this.batchSize = batchSize;
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMs);
+        this.confirmTimeoutMs = confirmTimeoutMs;
+        this.buffers = new ShardBuffer[shardCount];
+        for (int shard = 0; shard < shardCount; shard++) {
+            buffers[shard] = new ShardBuffer();
+        }
+        Gauge.builder("matching.publisher.pending", this, TradePublisher::backlog)
+            .description("Trades buffered or awaiting a broker confirm")
+            .register(meterRegistry);
+        this.retriedTrades = Counter.builder("matching.publisher.retried")
+            .description("Trades published again because the broker did not confirm them")
+            .register(meterRegistry);
+        this.confirmTimer = Timer.builder("matching.publisher.confirm")
+            .description("Time between sending a batch of trades and receiving all its confirms")
+            .publishPercentiles(0.5, 0.99, 0.999)
+            .register(meterRegistry);
+        this.publisherThread = new Thread(this::run, "trade-publisher");
+        this.publisherThread.setDaemon(true);
+        this.publisherThread.start();
+    }
+
+    /**
+     * Queues a trade for publication. Never blocks; the trade is sent with the next batch of
+     * its shard.
+     */
+    public void publish(Trade trade) {
+        buffers[OrderPartitions.of(trade.getStockSymbol(), buffers.length)].add(trade);
+    }
+
+    /**
+     * Queues a cancellation; it is first sent after the trades of its symbol queued before it,
+     * but may reach consumers before those of them that have to be published again.
+     */
+    public void publishCancellation(OrderCancellation cancellation) {
+        buffers[OrderPartitions.of(cancellation.stockSymbol(), buffers.length)].add(cancellation);
+    }
+
+    /**
+     * Events not confirmed by the broker yet, whether buffered, in flight or waiting for a retry.
+     */
+    public int backlog() {
+        int pending = unconfirmed.get();
+        for (ShardBuffer buffer : buffers) {
+            pending += buffer.size();
+        }
+        for (Batch batch : retries) {
+            pending += batch.events.size();
+        }
+        return pending;
+    }
+
+    private void run() {
+        while (true) {
+            boolean stopping = !running;
+            boolean sent = false;
+            try {
+                long now = System.nanoTime();
+                for (ShardBuffer buffer : buffers) {
+                    // Drain everything when stopping, full batches otherwise
+                    while (stopping ? buffer.size() > 0 : buffer.isDue(batchSize, lingerNanos, now)) {
+                        send(new Batch(buffer.drain(batchSize), 0, now));
+                        sent = true;
+                    }
+                }
+                sent |= resendDueRetries(now);
+            } catch (Exception e) {
+                System.err.println("Trade publisher failed: " + e.getMessage());
+            }
+            if (!sent) {
+                if (stopping && backlog() == 0) {
+                    return; // Everything published before shutdown has been confirmed
+                }
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    private boolean resendDueRetries(long now) {
+        boolean sent = false;
+        for (int i = retries.size(); i > 0; i--) {
+            Batch batch = retries.poll();
+            if (batch == null) {
+                break;
+            }
+            if (batch.notBefore - now <= 0) {
+                send(batch);
+                sent = true;
+            } else {
+                retries.add(batch);
+            }
+        }
+        return sent;
+    }
+
+    private void send(Batch batch) {
+        List<CompletableFuture<CorrelationData.Confirm>> confirms = new ArrayList<>(batch.events.size());
+        unconfirmed.addAndGet(batch.events.size());
+        long sentAt = System.nanoTime();
+        try {
+            for (Object event : batch.events) {
+                CorrelationData correlation;
+                String routingKey;
+                if (event instanceof Trade trade) {
+                    correlation = new CorrelationData(String.valueOf(trade.getTradeId()));
+                    routingKey = RabbitMQConfig.TRADE_ROUTING_KEY;
+                } else {
+                    correlation = new CorrelationData("cancel-" + ((OrderCancellation) event).orderId());
+                    routingKey = RabbitMQConfig.CANCELLATION_ROUTING_KEY;
+                }
+                rabbitTemplate.convertAndSend(RabbitMQConfig.MATCHING_EVENTS_EXCHANGE, routingKey, event, correlation);
+                confirms.add(correlation.getFuture());
+            }
+        } catch (AmqpException e) {
+            // The events not sent yet are retried along with the unconfirmed ones
+            System.err.println("Failed to publish trades: " + e.getMessage());
+        }
+        CompletableFuture.allOf(confirms.toArray(CompletableFuture[]::new))
+            .orTimeout(confirmTimeoutMs, TimeUnit.MILLISECONDS)
+            .whenComplete((ignored, failure) -> onConfirms(batch, confirms, sentAt));
+    }
+
+    // Runs on the connection thread that delivered the last confirm, or on the timeout thread
+    private void onConfirms(Batch batch, List<CompletableFuture<CorrelationData.Confirm>> confirms, long sentAt) {
+        confirmTimer.record(System.nanoTime() - sentAt, TimeUnit.NANOSECONDS);
+        List<Object> failed = new ArrayList<>();
+        for (int i = 0; i < batch.events.size(); i++) {
+            if (i >= confirms.size() || !isAcked(confirms.get(i))) {
+                failed.add(batch.events.get(i));
+            }
+        }
+        if (!failed.isEmpty()) {
+            int attempt = batch.attempt + 1;
+            long delayMs = Math.min(FIRST_RETRY_DELAY_MS << Math.min(attempt - 1, 16), MAX_RETRY_DELAY_MS);
+            retries.add(new Batch(failed, attempt, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMs)));
+            retriedTrades.increment(failed.size());
+            System.err.println(failed.size() + " event(s) not confirmed by the broker, retry #" + attempt + " in " + delayMs + " ms");
+        }
+        unconfirmed.addAndGet(-batch.events.size());
+    }
+
+    private static boolean isAcked(CompletableFuture<CorrelationData.Confirm> confirm) {
+        return confirm.isDone() && !confirm.isCompletedExceptionally() && confirm.join().isAck();
+    }
+
+    /**
+     * Publishes the buffered trades and waits, up to the confirm timeout, for the broker to
+     * confirm everything that was published.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        publisherThread.join(confirmTimeoutMs + MAX_RETRY_DELAY_MS);
+        int lost = backlog();
+        if (lost > 0) {
+            System.err.println(lost + " event(s) still unconfirmed at shutdown");
+        }
+    }
+
+    // Trades and OrderCancellations
+    private record Batch(List<Object> events, int attempt, long notBefore) {
+    }
+
+    /**
+     * Events of one shard waiting for the next batch. Filled by the shard's matching thread and
+     * drained by the publisher thread.
+     */
+    private static final class ShardBuffer {
+
+        private final Queue<Object> events = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+        // When the oldest buffered event was added; only meaningful while size > 0
+        private volatile long oldestNanos;
+
+        void add(Object event) {
+            events.add(event);
+            if (size.getAndIncrement() == 0) {
+                oldestNanos = System.nanoTime();
+            }
+        }
+
+        boolean isDue(int batchSize, long lingerNanos, long now) {
+            int buffered = size.get();
+            return buffered >= batchSize || (buffered > 0 && now - oldestNanos >= lingerNanos);
+        }
+
+        List<Object> drain(int max) {
+            List<Object> batch = new ArrayList<>(Math.min(max, size.get()));
+            Object event;
+            while (batch.size() < max && (event = events.poll()) != null) {
+                batch.add(event);
+            }
+            if (size.addAndGet(-batch.size()) > 0) {
+                oldestNanos = System.nanoTime(); // Remainder starts a new linger window
+            }
+            return batch;
+        }
+
+        int size() {
+            return size.get();
+        }
+    }
+}
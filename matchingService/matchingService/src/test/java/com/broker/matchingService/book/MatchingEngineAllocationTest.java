@@ -0,0 +1,61 @@
+package com.broker.matchingService.book;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MatchingEngineAllocationTest {
+
+    private static final int WARMUP = 200_000;
+    private static final int MEASURED = 100_000;
+
+    @Test
+    void match_ShouldNotAllocateInSteadyState() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        OrderBook book = new OrderBook("SPY");
+        BookOrderPool pool = new BookOrderPool(64);
+        FillBuffer fills = new FillBuffer();
+        // A deeper resting book that stays in place, so every match also walks real levels
+        for (int i = 0; i < 10; i++) {
+            book.add(new BookOrder("deep-" + i, "SPY", Side.SELL, 10100 + i, 100));
+        }
+
+        for (int i = 0; i < WARMUP; i++) {
+            matchOnce(book, pool, fills);
+        }
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < MEASURED; i++) {
+            matchOnce(book, pool, fills);
+        }
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+        assertEquals(0, allocated, "bytes allocated over " + MEASURED + " matches");
+        assertEquals(10, book.depth(Side.SELL));
+    }
+
+    // Two resting sells at a fresh top level, swept by one buy that rests its remainder, which a
+    // sell then takes out: every iteration creates and removes levels and index entries
+    private static void matchOnce(OrderBook book, BookOrderPool pool, FillBuffer fills) {
+        run(book, pool, fills, pool.acquire("s1", "SPY", Side.SELL, 10000, 5), TimeInForce.GTC);
+        run(book, pool, fills, pool.acquire("s2", "SPY", Side.SELL, 10000, 5), TimeInForce.GTC);
+        run(book, pool, fills, pool.acquire("b1", "SPY", Side.BUY, 10000, 12), TimeInForce.GTC);
+        run(book, pool, fills, pool.acquire("s3", "SPY", Side.SELL, 9900, 2), TimeInForce.IOC);
+    }
+
+    private static void run(OrderBook book, BookOrderPool pool, FillBuffer fills, BookOrder order, TimeInForce timeInForce) {
+        fills.clear();
+        MatchingEngine.match(book, order, timeInForce, fills);
+        for (int i = 0; i < fills.size(); i++) {
+            BookOrder resting = fills.get(i).getRestingOrder();
+            if (!resting.isResting()) {
+                pool.release(resting);
+            }
+        }
+        fills.clear();
+        if (!order.isResting()) {
+            pool.release(order);
+        }
+    }
+}
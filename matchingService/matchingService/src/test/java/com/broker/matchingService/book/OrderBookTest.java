@@ -0,0 +1,108 @@
+package com.broker.matchingService.book;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderBookTest {
+
+    @Test
+    void bestBidAndAsk_ShouldTrackTopOfEachSide() {
+        OrderBook book = new OrderBook("SPY");
+
+        book.add(new BookOrder("1", "SPY", Side.BUY, 44500, 10));
+        book.add(new BookOrder("2", "SPY", Side.BUY, 44550, 10));
+        book.add(new BookOrder("3", "SPY", Side.SELL, 44600, 10));
+        book.add(new BookOrder("4", "SPY", Side.SELL, 44575, 10));
+
+        assertEquals(44550, book.bestBid().getPrice());
+        assertEquals(44575, book.bestAsk().getPrice());
+    }
+
+    @Test
+    void levels_ShouldBeIteratedFromBestPriceOutward() {
+        OrderBook book = new OrderBook("SPY");
+        book.add(new BookOrder("1", "SPY", Side.SELL, 44700, 5));
+        book.add(new BookOrder("2", "SPY", Side.SELL, 44600, 5));
+        book.add(new BookOrder("3", "SPY", Side.SELL, 44800, 5));
+
+        List<Long> prices = new ArrayList<>();
+        for (PriceLevel level : book.levels(Side.SELL)) {
+            prices.add(level.getPrice());
+        }
+
+        assertEquals(List.of(44600L, 44700L, 44800L), prices);
+    }
+
+    @Test
+    void priceLevel_ShouldKeepArrivalOrderAndTotalQuantity() {
+        OrderBook book = new OrderBook("QQQ");
+        BookOrder first = new BookOrder("1", "QQQ", Side.BUY, 38000, 10);
+        BookOrder second = new BookOrder("2", "QQQ", Side.BUY, 38000, 15);
+        book.add(first);
+        book.add(second);
+
+        PriceLevel level = book.bestBid();
+        assertSame(first, level.peekFirst());
+        assertEquals(25, level.getTotalQuantity());
+        assertEquals(2, level.getOrderCount());
+    }
+
+    @Test
+    void fill_ShouldRemoveEmptyLevelAndPromoteNextBest() {
+        OrderBook book = new OrderBook("VTI");
+        BookOrder best = new BookOrder("1", "VTI", Side.SELL, 26500, 10);
+        book.add(best);
+        book.add(new BookOrder("2", "VTI", Side.SELL, 26540, 10));
+
+        book.fill(book.bestAsk(), best, 10);
+
+        assertEquals("FILLED", best.getStatus());
+        assertEquals(26540, book.bestAsk().getPrice());
+        assertEquals(1, book.depth(Side.SELL));
+    }
+
+    @Test
+    void partialFill_ShouldLeaveOrderAtHeadOfLevel() {
+        OrderBook book = new OrderBook("VTI");
+        BookOrder order = new BookOrder("1", "VTI", Side.BUY, 26500, 10);
+        book.add(order);
+
+        book.fill(book.bestBid(), order, 4);
+
+        assertEquals("PARTIALLY_FILLED", order.getStatus());
+        assertSame(order, book.bestBid().peekFirst());
+        assertEquals(6, book.bestBid().getTotalQuantity());
+    }
+
+    @Test
+    void levels_ShouldStaySortedWhenLevelsComeAndGo() {
+        OrderBook book = new OrderBook("IWM");
+        Random random = new Random(7);
+        TreeMap<Long, BookOrder> expected = new TreeMap<>(Comparator.reverseOrder());
+        for (int i = 0; i < 500; i++) {
+            long price = 22000 + random.nextInt(100);
+            if (expected.containsKey(price)) {
+                BookOrder resting = expected.remove(price);
+                book.fill(book.levelAt(Side.BUY, price), resting, resting.getRemainingQuantity());
+            } else {
+                BookOrder order = new BookOrder(String.valueOf(i), "IWM", Side.BUY, price, 1);
+                expected.put(price, order);
+                book.add(order);
+            }
+        }
+
+        List<Long> prices = new ArrayList<>();
+        for (PriceLevel level : book.levels(Side.BUY)) {
+            prices.add(level.getPrice());
+        }
+        assertEquals(new ArrayList<>(expected.keySet()), prices);
+        assertEquals((long) expected.firstKey(), book.bestBid().getPrice());
+    }
+}
@@ -0,0 +1,93 @@
+package com.broker.matchingService.config;
+
+import com.broker.matchingService.dto.OrderCommand;
+import com.broker.matchingService.dto.OrderDto;
+import com.broker.matchingService.dto.Trade;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryMessageConverterTest {
+
+    private static final String FALLBACK_CONTENT_TYPE = "application/x-fallback";
+
+    // Stands in for JSON: records what it was asked to convert
+    private final MessageConverter fallback = new MessageConverter() {
+        @Override
+        public Message toMessage(Object object, MessageProperties messageProperties) {
+            messageProperties.setContentType(FALLBACK_CONTENT_TYPE);
+            return new Message(new byte[0], messageProperties);
+        }
+
+        @Override
+        public Object fromMessage(Message message) {
+            return "from fallback";
+        }
+    };
+    private final BinaryMessageConverter converter = new BinaryMessageConverter(fallback);
+
+    @Test
+    void trade_ShouldRoundTrip() {
+        Trade trade = new Trade(42L << 48 | 7, "b1", "s1", "SPY", 10, 44550,
+            LocalDateTime.of(2025, 1, 2, 10, 0, 0, 123456789));
+
+        Message message = converter.toMessage(trade, new MessageProperties());
+        Trade decoded = (Trade) converter.fromMessage(message);
+
+        assertEquals(BinaryMessageConverter.CONTENT_TYPE, message.getMessageProperties().getContentType());
+        assertEquals(trade.getTradeId(), decoded.getTradeId());
+        assertEquals("b1", decoded.getBuyOrderId());
+        assertEquals("s1", decoded.getSellOrderId());
+        assertEquals("SPY", decoded.getStockSymbol());
+        assertEquals(10, decoded.getQuantity());
+        assertEquals(44550, decoded.getPrice());
+        assertEquals(trade.getTimestamp(), decoded.getTimestamp());
+    }
+
+    @Test
+    void order_ShouldRoundTripAndInternItsSymbol() {
+        OrderDto order = new OrderDto("17", "QQQ", 5, 38075, "SELL", "IOC");
+
+        OrderDto first = (OrderDto) converter.fromMessage(converter.toMessage(order, new MessageProperties()));
+        OrderDto second = (OrderDto) converter.fromMessage(converter.toMessage(order, new MessageProperties()));
+
+        assertEquals("17", first.getOrderId());
+        assertEquals("QQQ", first.getStockSymbol());
+        assertEquals(5, first.getQuantity());
+        assertEquals(38075, first.getPrice());
+        assertEquals("SELL", first.getOrderType());
+        assertEquals("IOC", first.getTimeInForce());
+        assertSame(first.getStockSymbol(), second.getStockSymbol());
+    }
+
+    @Test
+    void otherPayloadsAndContentTypes_ShouldGoThroughTheFallback() {
+        Message command = converter.toMessage(new OrderCommand(), new MessageProperties());
+
+        assertEquals(FALLBACK_CONTENT_TYPE, command.getMessageProperties().getContentType());
+        assertEquals("from fallback", converter.fromMessage(command));
+    }
+
+    @Test
+    void fromMessage_ShouldRejectAnUnknownSchemaVersion() {
+        Message message = converter.toMessage(new OrderDto("1", "SPY", 1, 100, "BUY"), new MessageProperties());
+        message.getBody()[0] = BinaryMessageConverter.VERSION + 1;
+
+        assertThrows(MessageConversionException.class, () -> converter.fromMessage(message));
+    }
+
+    @Test
+    void messageConverter_ShouldReadBinaryWhileWritingJson() {
+        MessageConverter selecting = new RabbitMQConfig().messageConverter("json");
+
+        Object decoded = selecting.fromMessage(converter.toMessage(new OrderDto("1", "SPY", 1, 100, "BUY"), new MessageProperties()));
+
+        assertEquals("1", ((OrderDto) decoded).getOrderId());
+    }
+}
@@ -0,0 +1,43 @@
+package com.broker.matchingService.dto;
+
+import com.broker.matchingService.book.BookOrder;
+import com.broker.matchingService.book.OrderBook;
+import com.broker.matchingService.book.Side;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookDepthTest {
+
+    @Test
+    void depth_ShouldAggregateEachLevelBestFirstUpToTheRequestedLevels() {
+        OrderBook book = new OrderBook("SPY");
+        book.add(new BookOrder("b1", "SPY", Side.BUY, 10000, 10));
+        book.add(new BookOrder("b2", "SPY", Side.BUY, 10000, 5));
+        book.add(new BookOrder("b3", "SPY", Side.BUY, 9900, 7));
+        book.add(new BookOrder("b4", "SPY", Side.BUY, 9800, 1));
+        book.add(new BookOrder("s1", "SPY", Side.SELL, 10200, 3));
+        book.add(new BookOrder("s2", "SPY", Side.SELL, 10100, 4));
+
+        BookDepth depth = BookDepth.of("SPY", book, 2);
+
+        assertEquals(List.of(new DepthLevel(10000, 15, 2), new DepthLevel(9900, 7, 1)), depth.bids());
+        assertEquals(List.of(new DepthLevel(10100, 4, 1), new DepthLevel(10200, 3, 1)), depth.asks());
+    }
+
+    @Test
+    void topOfBook_ShouldFollowFillsAndLeaveAnEmptySideNull() {
+        OrderBook book = new OrderBook("QQQ");
+        BookOrder resting = new BookOrder("s1", "QQQ", Side.SELL, 38075, 10);
+        book.add(resting);
+
+        book.fill(book.bestAsk(), resting, 4);
+        TopOfBook top = TopOfBook.of("QQQ", book);
+
+        assertNull(top.bid());
+        assertEquals(new DepthLevel(38075, 6, 1), top.ask());
+        assertTrue(BookDepth.of("QQQ", null, 10).asks().isEmpty());
+    }
+}
@@ -0,0 +1,134 @@
+package com.broker.matchingService.journal;
+
+import com.broker.matchingService.dto.OrderDto;
+import com.broker.matchingService.dto.Trade;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderJournalTest {
+
+    private static final int SEGMENT_SIZE = 4096;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void read_ShouldReturnRecordsInSequenceOrder() throws Exception {
+        try (OrderJournal journal = OrderJournal.open(directory, SEGMENT_SIZE, false)) {
+            journal.appendOrder(new OrderDto("1", "SPY", 10, 44550, "BUY"));
+            journal.appendTrade(new Trade(7L, "1", "2", "SPY", 10, 44550, LocalDateTime.of(2025, 1, 2, 10, 0, 0, 123456789)));
+            journal.appendResting(new OrderDto("3", "QQQ", 5, 38075, "SELL"));
+        }
+
+        List<JournalEntry> entries;
+        try (OrderJournal journal = OrderJournal.open(directory, SEGMENT_SIZE, false)) {
+            entries = readAll(journal);
+        }
+
+        assertEquals(3, entries.size());
+        assertTrue(entries.get(0).isOrder());
+        assertEquals("1", entries.get(0).order().getOrderId());
+        assertEquals(44550, entries.get(0).order().getPrice());
+        assertTrue(entries.get(1).isTrade());
+        assertEquals(7L, entries.get(1).trade().getTradeId());
+        assertEquals(LocalDateTime.of(2025, 1, 2, 10, 0, 0, 123456789), entries.get(1).trade().getTimestamp());
+        assertTrue(entries.get(2).isResting());
+        assertEquals(3, entries.get(2).sequence());
+    }
+
+    @Test
+    void open_ShouldContinueSequenceAcrossSegments() throws Exception {
+        try (OrderJournal journal = OrderJournal.open(directory, SEGMENT_SIZE, false)) {
+            for (int i = 0; i < 200; i++) {
+                journal.appendOrder(new OrderDto(String.valueOf(i), "SPY", 1, 44550, "BUY"));
+            }
+        }
+        assertTrue(Files.list(directory).count() > 1, "expected the journal to roll over");
+
+        try (OrderJournal journal = OrderJournal.open(directory, SEGMENT_SIZE, false)) {
+            assertEquals(200, journal.lastSequence());
+            assertEquals(201, journal.appendOrder(new OrderDto("200", "SPY", 1, 44550, "BUY")));
+            List<JournalEntry> entries = readAll(journal);
+            assertEquals(201, entries.size());
+            assertEquals("200", entries.get(200).order().getOrderId());
+        }
+    }
+
+    @Test
+    void open_ShouldTruncateCorruptedTail() throws Exception {
+        try (OrderJournal journal = OrderJournal.open(directory, SEGMENT_SIZE, false)) {
+            journal.appendOrder(new OrderDto("1", "SPY", 10, 44550, "BUY"));
+            journal.appendOrder(new OrderDto("2", "SPY", 10, 44550, "BUY"));
+        }
+        // Flip a payload byte of the second record, as a torn write would
+        Path segment = Files.list(directory).filter(file -> file.toString().endsWith(".journal")).findFirst().orElseThrow();
+        int secondRecordPayload = 8 + recordSize() + 17; // after the segment header and the first record
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{42}), secondRecordPayload + 3);
+        }
+
+        try (OrderJournal journal = OrderJournal.open(directory, SEGMENT_SIZE, false)) {
+            assertEquals(1, journal.lastSequence());
+            assertEquals(2, journal.appendOrder(new OrderDto("2bis", "SPY", 10, 44550, "BUY")));
+            List<JournalEntry> entries = readAll(journal);
+            assertEquals(2, entries.size());
+            assertEquals("2bis", entries.get(1).order().getOrderId());
+        }
+    }
+
+    @Test
+    void deleteSegmentsUpTo_ShouldKeepSegmentsWithUncoveredRecords() throws Exception {
+        try (OrderJournal journal = OrderJournal.open(directory, SEGMENT_SIZE, false)) {
+            for (int i = 0; i < 300; i++) {
+                journal.appendOrder(new OrderDto(String.valueOf(i), "SPY", 1, 44550, "BUY"));
+            }
+            long segments = Files.list(directory).count();
+
+            assertTrue(journal.deleteSegmentsUpTo(150) > 0);
+            assertTrue(Files.list(directory).count() < segments);
+
+            List<JournalEntry> tail = new ArrayList<>();
+            journal.read(150, tail::add);
+            assertEquals(150, tail.size());
+            assertEquals(151, tail.get(0).sequence());
+        }
+        try (OrderJournal journal = OrderJournal.open(directory, SEGMENT_SIZE, false)) {
+            assertEquals(300, journal.lastSequence());
+        }
+    }
+
+    @Test
+    void open_ShouldFailWhileThePreviousOwnerHasNotClosedTheJournal() throws Exception {
+        OrderJournal previous = OrderJournal.open(directory, SEGMENT_SIZE, false);
+        previous.appendOrder(new OrderDto("1", "SPY", 10, 44550, "BUY"));
+
+        assertThrows(IllegalStateException.class, () -> OrderJournal.open(directory, SEGMENT_SIZE, false));
+
+        previous.close();
+        try (OrderJournal journal = OrderJournal.open(directory, SEGMENT_SIZE, false)) {
+            assertEquals(1, journal.lastSequence());
+        }
+    }
+
+    private static int recordSize() {
+        // header + "1" + "SPY" + "BUY" + quantity + price
+        return 17 + (2 + 1) + (2 + 3) + (2 + 3) + 4 + 8;
+    }
+
+    private static List<JournalEntry> readAll(OrderJournal journal) {
+        List<JournalEntry> entries = new ArrayList<>();
+        journal.read(0, entries::add);
+        return entries;
+    }
+}
@@ -0,0 +1,71 @@
+package com.broker.matchingService.journal;
+
+import com.broker.matchingService.book.BookOrder;
+import com.broker.matchingService.book.OrderBook;
+import com.broker.matchingService.book.Side;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void loadLatest_ShouldRestoreOrdersInPriorityOrderWithCoveredSequence() throws Exception {
+        OrderBook book = new OrderBook("SPY");
+        book.add(new BookOrder("1", "SPY", Side.BUY, 44500, 10));
+        book.add(new BookOrder("2", "SPY", Side.BUY, 44550, 10));
+        book.add(new BookOrder("3", "SPY", Side.BUY, 44550, 5));
+        book.add(new BookOrder("4", "SPY", Side.SELL, 44600, 7));
+        book.fill(book.bestAsk(), book.bestAsk().peekFirst(), 2);
+
+        SnapshotStore store = new SnapshotStore(directory);
+        store.write(0, 42, SnapshotStore.encode(0, 42, List.of(book)));
+
+        List<BookOrder> restored = new ArrayList<>();
+        long sequence = store.loadLatest(0, restored::add);
+
+        assertEquals(42, sequence);
+        assertEquals(List.of("2", "3", "1", "4"), restored.stream().map(BookOrder::getOrderId).toList());
+        assertEquals(5, restored.get(3).getRemainingQuantity());
+        assertEquals("PARTIALLY_FILLED", restored.get(3).getStatus());
+    }
+
+    @Test
+    void loadLatest_ShouldFallBackToPreviousSnapshotWhenLatestIsCorrupted() throws Exception {
+        OrderBook book = new OrderBook("QQQ");
+        book.add(new BookOrder("1", "QQQ", Side.SELL, 38075, 10));
+        SnapshotStore store = new SnapshotStore(directory);
+        store.write(1, 10, SnapshotStore.encode(1, 10, List.of(book)));
+        Path latest = store.write(1, 20, SnapshotStore.encode(1, 20, List.of(book)));
+
+        byte[] bytes = Files.readAllBytes(latest);
+        bytes[bytes.length / 2] ^= 0x7f;
+        Files.write(latest, bytes);
+
+        assertEquals(10, store.loadLatest(1, order -> { }));
+    }
+
+    @Test
+    void write_ShouldOnlyKeepMostRecentSnapshots() throws Exception {
+        SnapshotStore store = new SnapshotStore(directory);
+        for (long sequence = 1; sequence <= 5; sequence++) {
+            store.write(0, sequence, SnapshotStore.encode(0, sequence, List.of()));
+        }
+
+        try (var files = Files.list(directory)) {
+            assertEquals(2, files.count());
+        }
+        assertEquals(5, store.loadLatest(0, order -> { }));
+        assertEquals(4, store.oldestSequence(0));
+        assertEquals(0, store.loadLatest(3, order -> { }));
+    }
+}
@@ -0,0 +1,46 @@
+package com.broker.matchingService.service;
+
+import com.broker.matchingService.book.BookOrder;
+import com.broker.matchingService.book.Side;
+import com.broker.matchingService.model.MatchingOrder;
+import com.broker.matchingService.repository.MatchingOrderRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MatchingOrderWriterTest {
+
+    @Test
+    void failedBatch_ShouldBeRetriedUntilWritten() throws Exception {
+        MatchingOrderRepository repository = mock(MatchingOrderRepository.class);
+        AtomicInteger attempts = new AtomicInteger();
+        List<String> saved = new CopyOnWriteArrayList<>();
+        when(repository.saveAll(any())).thenAnswer(invocation -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new IllegalStateException("database unavailable");
+            }
+            Iterable<MatchingOrder> rows = invocation.getArgument(0);
+            List<MatchingOrder> written = new ArrayList<>();
+            for (MatchingOrder row : rows) {
+                saved.add(row.getOrderId() + " " + row.getRemainingQuantity());
+                written.add(row);
+            }
+            return written;
+        });
+        MatchingOrderWriter writer = new MatchingOrderWriter(repository, 16);
+
+        writer.write(new BookOrder("1", "SPY", Side.BUY, 10000, 5));
+        writer.shutdown();
+
+        assertEquals(2, attempts.get());
+        assertEquals(List.of("1 5"), saved);
+    }
+}
@@ -0,0 +1,253 @@
+package com.broker.matchingService.service;
+
+import com.broker.matchingService.book.OrderBook;
+import com.broker.matchingService.book.OrderBooks;
+import com.broker.matchingService.book.Side;
+import com.broker.matchingService.dto.BookUpdate;
+import com.broker.matchingService.dto.DepthLevel;
+import com.broker.matchingService.dto.OrderCancellation;
+import com.broker.matchingService.dto.OrderCommandResult;
+import com.broker.matchingService.dto.OrderDto;
+import com.broker.matchingService.dto.Trade;
+import com.broker.matchingService.journal.OrderJournals;
+import com.broker.matchingService.repository.MatchingOrderRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class OrderMatchingServiceTest {
+
+    private final List<Trade> published = new ArrayList<>();
+    private final List<OrderCancellation> cancellations = new ArrayList<>();
+    private final List<BookUpdate> updates = new ArrayList<>();
+    private OrderBooks orderBooks;
+    private MatchingOrderWriter writer;
+    private TradePublisher publisher;
+    private MarketDataPublisher marketDataPublisher;
+    private OrderMatchingService service;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        publisher = new TradePublisher(new RabbitTemplate(), 1, 1, 0, 1000, new SimpleMeterRegistry()) {
+            @Override
+            public void publish(Trade trade) {
+                published.add(trade);
+            }
+
+            @Override
+            public void publishCancellation(OrderCancellation cancellation) {
+                cancellations.add(cancellation);
+            }
+        };
+        marketDataPublisher = new MarketDataPublisher(new RabbitTemplate(), true, 16, new SimpleMeterRegistry()) {
+            @Override
+            public void publish(BookUpdate update) {
+                updates.add(update);
+            }
+        };
+        orderBooks = new OrderBooks();
+        writer = new MatchingOrderWriter(mock(MatchingOrderRepository.class), 1024);
+        OrderJournals journals = new OrderJournals(false, "unused", 0, false, 1);
+        meterRegistry = new SimpleMeterRegistry();
+        service = new OrderMatchingService(orderBooks, journals, writer, publisher, marketDataPublisher, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        writer.shutdown();
+        publisher.shutdown();
+        marketDataPublisher.shutdown();
+    }
+
+    @Test
+    void gtcOrder_ShouldSweepSeveralLevelsAndRestTheRemainder() {
+        service.processNewOrder(order("s1", "SELL", 10, 10000, "GTC"));
+        service.processNewOrder(order("s2", "SELL", 5, 10100, "GTC"));
+        service.processNewOrder(order("s3", "SELL", 5, 10200, "GTC"));
+
+        service.processNewOrder(order("b1", "BUY", 18, 10100, "GTC"));
+
+        assertEquals(2, published.size());
+        assertTrade(published.get(0), "b1", "s1", 10, 10000);
+        assertTrade(published.get(1), "b1", "s2", 5, 10100);
+
+        OrderBook book = orderBooks.bookFor("SPY");
+        assertEquals(10100, book.bestBid().getPrice());
+        assertEquals(3, book.bestBid().getTotalQuantity());
+        assertEquals(10200, book.bestAsk().getPrice());
+        assertEquals(1, book.depth(Side.SELL));
+    }
+
+    @Test
+    void restingOrders_ShouldFillInArrivalOrderWithinALevel() {
+        service.processNewOrder(order("b1", "BUY", 4, 10000, "GTC"));
+        service.processNewOrder(order("b2", "BUY", 4, 10000, "GTC"));
+
+        service.processNewOrder(order("s1", "SELL", 6, 9900, "GTC"));
+
+        assertEquals(2, published.size());
+        assertTrade(published.get(0), "b1", "s1", 4, 10000);
+        assertTrade(published.get(1), "b2", "s1", 2, 10000);
+        assertEquals(2, orderBooks.bookFor("SPY").bestBid().getTotalQuantity());
+        assertNull(orderBooks.bookFor("SPY").bestAsk());
+    }
+
+    @Test
+    void iocOrder_ShouldCancelTheUnfilledRemainder() {
+        service.processNewOrder(order("s1", "SELL", 5, 10000, "GTC"));
+
+        service.processNewOrder(order("b1", "BUY", 8, 10000, "IOC"));
+
+        assertEquals(1, published.size());
+        assertTrade(published.get(0), "b1", "s1", 5, 10000);
+        assertTrue(orderBooks.bookFor("SPY").isEmpty());
+        assertEquals(List.of(new OrderCancellation("b1", "SPY", "BUY", 5, 3)), cancellations);
+    }
+
+    @Test
+    void redeliveredOrder_ShouldBeAcknowledgedButMatchedOnce() {
+        List<String> acknowledged = new ArrayList<>();
+        service.processNewOrder(order("s1", "SELL", 5, 10000, "GTC"), () -> acknowledged.add("s1"));
+        service.processNewOrder(order("b1", "BUY", 3, 10000, "GTC"), () -> acknowledged.add("b1"));
+
+        // Delivered again after a hand-over, once resting and once already filled
+        service.processNewOrder(order("s1", "SELL", 5, 10000, "GTC"), () -> acknowledged.add("s1"));
+        service.processNewOrder(order("b1", "BUY", 3, 10000, "GTC"), () -> acknowledged.add("b1"));
+
+        assertEquals(List.of("s1", "b1", "s1", "b1"), acknowledged);
+        assertEquals(2, meterRegistry.counter("matching.orders.duplicates").count());
+        assertEquals(1, published.size());
+        assertEquals(2, orderBooks.bookFor("SPY").bestAsk().getTotalQuantity());
+    }
+
+    @Test
+    void fokOrder_ShouldLeaveTheBookUntouchedWhenNotFullyFillable() {
+        service.processNewOrder(order("s1", "SELL", 5, 10000, "GTC"));
+        service.processNewOrder(order("s2", "SELL", 5, 10200, "GTC"));
+
+        service.processNewOrder(order("b1", "BUY", 8, 10100, "FOK"));
+
+        assertTrue(published.isEmpty());
+        assertEquals(List.of(new OrderCancellation("b1", "SPY", "BUY", 0, 8)), cancellations);
+        OrderBook book = orderBooks.bookFor("SPY");
+        assertEquals(5, book.bestAsk().getTotalQuantity());
+        assertNull(book.bestBid());
+    }
+
+    @Test
+    void fokOrder_ShouldFillAcrossSeveralCounterOrders() {
+        service.processNewOrder(order("s1", "SELL", 5, 10000, "GTC"));
+        service.processNewOrder(order("s2", "SELL", 5, 10100, "GTC"));
+
+        service.processNewOrder(order("b1", "BUY", 8, 10100, "FOK"));
+
+        assertEquals(2, published.size());
+        assertTrade(published.get(0), "b1", "s1", 5, 10000);
+        assertTrade(published.get(1), "b1", "s2", 3, 10100);
+        assertEquals(2, orderBooks.bookFor("SPY").bestAsk().getTotalQuantity());
+        assertTrue(cancellations.isEmpty());
+    }
+
+    @Test
+    void cancelOrder_ShouldRemoveTheOrderFromTheMiddleOfItsLevel() {
+        service.processNewOrder(order("s1", "SELL", 5, 10000, "GTC"));
+        service.processNewOrder(order("s2", "SELL", 5, 10000, "GTC"));
+        service.processNewOrder(order("s3", "SELL", 5, 10000, "GTC"));
+
+        OrderCommandResult result = service.cancelOrder("SPY", "s2");
+
+        assertTrue(result.accepted());
+        assertEquals("CANCELLED", result.status());
+        assertEquals(List.of(new OrderCancellation("s2", "SPY", "SELL", 0, 5)), cancellations);
+        OrderBook book = orderBooks.bookFor("SPY");
+        assertNull(book.find("s2"));
+        assertEquals(10, book.bestAsk().getTotalQuantity());
+        assertEquals(2, book.bestAsk().getOrderCount());
+
+        service.processNewOrder(order("b1", "BUY", 10, 10000, "GTC"));
+        assertTrade(published.get(0), "b1", "s1", 5, 10000);
+        assertTrade(published.get(1), "b1", "s3", 5, 10000);
+        assertFalse(service.cancelOrder("SPY", "s1").accepted());
+    }
+
+    @Test
+    void amendOrder_ShouldKeepPriorityWhenOnlyReducingQuantity() {
+        service.processNewOrder(order("s1", "SELL", 10, 10000, "GTC"));
+        service.processNewOrder(order("s2", "SELL", 10, 10000, "GTC"));
+
+        OrderCommandResult result = service.amendOrder("SPY", "s1", 4, 0);
+
+        assertTrue(result.accepted());
+        assertEquals(4, result.remainingQuantity());
+        assertEquals(14, orderBooks.bookFor("SPY").bestAsk().getTotalQuantity());
+        assertSame(orderBooks.bookFor("SPY").find("s1"), orderBooks.bookFor("SPY").bestAsk().peekFirst());
+    }
+
+    @Test
+    void amendOrder_ShouldMatchWhenTheNewPriceCrosses() {
+        service.processNewOrder(order("b1", "BUY", 5, 9900, "GTC"));
+        service.processNewOrder(order("s1", "SELL", 8, 10000, "GTC"));
+
+        OrderCommandResult result = service.amendOrder("SPY", "s1", 8, 9900);
+
+        assertTrue(result.accepted());
+        assertEquals(1, published.size());
+        assertTrade(published.get(0), "b1", "s1", 5, 9900);
+        assertEquals("PARTIALLY_FILLED", result.status());
+        assertEquals(3, result.remainingQuantity());
+        assertEquals(9900, orderBooks.bookFor("SPY").bestAsk().getPrice());
+    }
+
+    @Test
+    void amendOrder_ShouldRejectWhatTheHoldDoesNotCover() {
+        service.processNewOrder(order("b1", "BUY", 5, 9900, "GTC"));
+
+        assertFalse(service.amendOrder("SPY", "b1", 6, 0).accepted());
+        assertFalse(service.amendOrder("SPY", "b1", 5, 10000).accepted());
+        assertTrue(service.amendOrder("SPY", "b1", 5, 9800).accepted());
+        assertEquals(5, orderBooks.bookFor("SPY").find("b1").getRemainingQuantity());
+    }
+
+    @Test
+    void bookUpdates_ShouldCarryTheTouchedLevelsAndChainTheirSequences() {
+        service.processNewOrder(order("s1", "SELL", 10, 10000, "GTC"));
+        service.processNewOrder(order("s2", "SELL", 5, 10100, "GTC"));
+        service.processNewOrder(order("b1", "BUY", 12, 10100, "GTC"));
+        service.processNewOrder(order("b2", "BUY", 1, 9000, "FOK")); // Not fillable, changes nothing
+        service.cancelOrder("SPY", "s2");
+
+        assertEquals(4, updates.size());
+        BookUpdate sweep = updates.get(2);
+        assertEquals(List.of(new DepthLevel(10000, 0, 0), new DepthLevel(10100, 3, 1)), sweep.asks());
+        assertTrue(sweep.bids().isEmpty());
+        assertEquals(2, sweep.trades().size());
+        assertEquals(List.of(new DepthLevel(10100, 0, 0)), updates.get(3).asks());
+
+        assertEquals(0, updates.get(0).previousSequence());
+        for (int i = 1; i < updates.size(); i++) {
+            assertEquals(updates.get(i - 1).sequence(), updates.get(i).previousSequence());
+            assertTrue(updates.get(i).sequence() > updates.get(i - 1).sequence());
+        }
+        assertEquals(updates.get(3).sequence(), orderBooks.bookFor("SPY").getUpdateSequence());
+    }
+
+    private static OrderDto order(String orderId, String orderType, int quantity, long price, String timeInForce) {
+        return new OrderDto(orderId, "SPY", quantity, price, orderType, timeInForce);
+    }
+
+    private static void assertTrade(Trade trade, String buyOrderId, String sellOrderId, int quantity, long price) {
+        assertEquals(buyOrderId, trade.getBuyOrderId());
+        assertEquals(sellOrderId, trade.getSellOrderId());
+        assertEquals(quantity, trade.getQuantity());
+        assertEquals(price, trade.getPrice());
+    }
+}
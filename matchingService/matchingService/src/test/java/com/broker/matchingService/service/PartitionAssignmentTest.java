@@ -0,0 +1,53 @@
+package com.broker.matchingService.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PartitionAssignmentTest {
+
+    private static final int PARTITIONS = 64;
+
+    @Test
+    void everyPartition_ShouldHaveExactlyOneOwner() {
+        List<String> members = List.of("matching-1", "matching-2", "matching-3");
+
+        BitSet all = new BitSet();
+        int owned = 0;
+        for (String member : members) {
+            BitSet partitions = PartitionAssignment.ownedBy(member, members, PARTITIONS);
+            assertFalse(partitions.isEmpty(), member + " owns no partition");
+            assertFalse(all.intersects(partitions));
+            all.or(partitions);
+            owned += partitions.cardinality();
+        }
+
+        assertEquals(PARTITIONS, owned);
+        assertEquals(PARTITIONS, all.cardinality());
+    }
+
+    @Test
+    void assignment_ShouldNotDependOnTheOrderMembersAreSeenIn() {
+        for (int partition = 0; partition < PARTITIONS; partition++) {
+            assertEquals(PartitionAssignment.owner(partition, List.of("a", "b", "c")),
+                PartitionAssignment.owner(partition, List.of("c", "a", "b")));
+        }
+    }
+
+    @Test
+    void joiningInstance_ShouldOnlyTakePartitionsFromOthers() {
+        List<String> before = List.of("matching-1", "matching-2");
+        List<String> after = List.of("matching-1", "matching-2", "matching-3");
+
+        for (int partition = 0; partition < PARTITIONS; partition++) {
+            String owner = PartitionAssignment.owner(partition, after);
+            if (!"matching-3".equals(owner)) {
+                assertEquals(PartitionAssignment.owner(partition, before), owner, "partition " + partition + " moved");
+            }
+        }
+        assertFalse(PartitionAssignment.ownedBy("matching-3", after, PARTITIONS).isEmpty());
+    }
+}
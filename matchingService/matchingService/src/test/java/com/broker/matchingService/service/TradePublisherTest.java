@@ -0,0 +1,106 @@
+package com.broker.matchingService.service;
+
+import com.broker.matchingService.dto.OrderCancellation;
+import com.broker.matchingService.dto.Trade;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TradePublisherTest {
+
+    private final List<Long> sent = new CopyOnWriteArrayList<>();
+    private final List<String> routingKeys = new CopyOnWriteArrayList<>();
+    private final Set<Long> nackOnce = ConcurrentHashMap.newKeySet();
+    private TradePublisher publisher;
+
+    // Confirms every message right away, except a first nack for the trade ids in nackOnce
+    private final RabbitTemplate rabbitTemplate = new RabbitTemplate() {
+        @Override
+        public void convertAndSend(String exchange, String routingKey, Object object, CorrelationData correlationData) {
+            routingKeys.add(routingKey);
+            if (!(object instanceof Trade)) {
+                correlationData.getFuture().complete(new CorrelationData.Confirm(true, null));
+                return;
+            }
+            long tradeId = ((Trade) object).getTradeId();
+            sent.add(tradeId);
+            correlationData.getFuture().complete(new CorrelationData.Confirm(!nackOnce.remove(tradeId), null));
+        }
+    };
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        publisher.shutdown();
+    }
+
+    @Test
+    void publish_ShouldSendFullBatchesAndTheRemainderAfterTheLinger() {
+        publisher = new TradePublisher(rabbitTemplate, 2, 2, 20, 1000, new SimpleMeterRegistry());
+
+        publisher.publish(trade(1, "SPY"));
+        publisher.publish(trade(2, "SPY"));
+        publisher.publish(trade(3, "SPY"));
+
+        await(() -> sent.size() == 3);
+        assertEquals(List.of(1L, 2L, 3L), sent);
+        await(() -> publisher.backlog() == 0);
+    }
+
+    @Test
+    void publish_ShouldRepublishTradesTheBrokerDidNotConfirm() {
+        publisher = new TradePublisher(rabbitTemplate, 1, 10, 0, 1000, new SimpleMeterRegistry());
+        nackOnce.add(2L);
+
+        publisher.publish(trade(1, "SPY"));
+        publisher.publish(trade(2, "SPY"));
+
+        await(() -> sent.size() == 3 && publisher.backlog() == 0);
+        assertEquals(List.of(1L, 2L, 2L), sent);
+    }
+
+    @Test
+    void shutdown_ShouldFlushBufferedTrades() throws InterruptedException {
+        publisher = new TradePublisher(rabbitTemplate, 1, 100, 60_000, 1000, new SimpleMeterRegistry());
+        publisher.publish(trade(1, "SPY"));
+
+        publisher.shutdown();
+
+        assertEquals(List.of(1L), sent);
+        assertEquals(0, publisher.backlog());
+    }
+
+    @Test
+    void publishCancellation_ShouldFollowTheTradesOfItsSymbol() throws InterruptedException {
+        publisher = new TradePublisher(rabbitTemplate, 1, 100, 60_000, 1000, new SimpleMeterRegistry());
+        publisher.publish(trade(1, "SPY"));
+        publisher.publishCancellation(new OrderCancellation("b1", "SPY", "BUY", 1, 4));
+
+        publisher.shutdown();
+
+        assertEquals(List.of("trade", "cancel"), routingKeys);
+        assertEquals(0, publisher.backlog());
+    }
+
+    private static Trade trade(long tradeId, String stockSymbol) {
+        return new Trade(tradeId, "b" + tradeId, "s" + tradeId, stockSymbol, 1, 10000, LocalDateTime.now());
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "condition not met within 5 s");
+            Thread.onSpinWait();
+        }
+    }
+}
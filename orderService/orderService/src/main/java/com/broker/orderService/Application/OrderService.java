@@ -4,6 +4,8 @@ import com.broker.orderService.infrastructure.client.ClientServiceClient;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import com.broker.orderService.domain.Money;
 import com.broker.orderService.domain.Order;
 import java.util.Optional;
 import java.util.List;
@@ -15,13 +17,20 @@ import com.broker.orderService.domain.TransactionType;
 import com.broker.orderService.infrastructure.repo.OrderRepository;
 import com.broker.orderService.infrastructure.repo.TransactionRepository;
 import com.broker.orderService.infrastructure.client.WalletServiceClient;
+import com.broker.orderService.infrastructure.client.MatchingServiceClient;
+import com.broker.orderService.dto.OrderAmend;
+import java.util.function.Supplier;
 import org.springframework.http.ResponseEntity;
+import com.broker.orderService.service.DownstreamCalls;
 import com.broker.orderService.service.OrderMessageProducer; // Import the producer
 import com.broker.orderService.dto.OrderDto; // Import the DTO
+import com.broker.orderService.dto.HoldReceipt;
+import feign.FeignException;
+import org.springframework.beans.factory.annotation.Value;
 
 
+// Pas de transaction autour des appels au wallet et au client : seules les écritures de statut en ouvrent une
 @Service
-@Transactional
 public class OrderService {
 
     @Autowired
@@ -36,80 +45,207 @@ public class OrderService {
     @Autowired
     private ClientServiceClient clientServiceClient;
 
+    @Autowired
+    private MatchingServiceClient matchingServiceClient;
+
+    @Autowired
+    private DownstreamCalls downstreamCalls;
+
     @Autowired // Inject the producer
     private OrderMessageProducer orderMessageProducer;
 
+    @Autowired
+    private TransactionTemplate transactionTemplate;
 
-    // Acheter des actions
-    
-    @Transactional
-    public boolean acheterAction(String clientEmail, String symbol, double price, int quantity) {
+    // Sent with the hold; walletService keeps the holds of orders until they fill or are cancelled (see application.properties)
+    @Value("${orders.hold-ttl-seconds:86400}")
+    private long holdTtlSeconds;
+
+
+    // Acheter des actions, de façon synchrone : l'ordre est financé et envoyé avant de répondre
+    public boolean acheterAction(String clientEmail, String symbol, long price, int quantity, String timeInForce) {
+        return traiterAchat(accepterAchat(clientEmail, symbol, price, quantity, timeInForce).getOrderId());
+    }
+
+    // Enregistrer un ordre d'achat validé, à financer ensuite par traiterAchat (voir OrderPipeline)
+    public Order accepterAchat(String clientEmail, String symbol, long price, int quantity, String timeInForce) {
+        Order order = new Order(); // This is your domain.Order
+        order.setClientEmail(clientEmail);
+        order.setSymbol(symbol);
+        order.setPrice(price);
+        order.setQuantity(quantity);
+        order.setStatus(OrderStatus.ACCEPTED);
+        order.setOrderType("BUY");
+        order.setTimeInForce(timeInForce);
+        return orderRepository.save(order);
+    }
+
+    // Financer un ordre accepté puis l'envoyer au matching ; sans effet si l'ordre a déjà été pris en charge
+    public boolean traiterAchat(int orderId) {
+        // Pris en charge (FUNDING) en une seule mise à jour : la reprise au démarrage peut soumettre un ordre
+        // que le pipeline traite déjà, il ne doit être financé qu'une fois
+        if (orderRepository.updateStatus(orderId, OrderStatus.ACCEPTED, OrderStatus.FUNDING) == 0) {
+            return false;
+        }
+        Order order = orderRepository.findById(orderId).orElse(null);
+        if (order == null) {
+            return false;
+        }
+        String clientEmail = order.getClientEmail();
+        String symbol = order.getSymbol();
+        long price = order.getPrice();
+        int quantity = order.getQuantity();
         try {
-            double total = price * quantity;
+            long total = price * quantity; // in cents
 
-            // 1. Vérifier le solde du wallet avant de créer l'ordre
-            ResponseEntity<Double> balanceResponse = walletServiceClient.getBalance(clientEmail);
-            if (balanceResponse == null || !balanceResponse.getStatusCode().is2xxSuccessful() || balanceResponse.getBody() == null) {
-                System.err.println("Impossible de récupérer le solde du wallet pour " + clientEmail);
-                return false;
-            }
-            
-            double currentBalance = balanceResponse.getBody();
-            if (currentBalance < total) {
-                System.err.println("Solde insuffisant pour " + clientEmail + ". Solde: " + currentBalance + ", Requis: " + total);
-                return false;
-            }
-            
-            // 2. Débiter le wallet
-            ResponseEntity<String> debitResponse = walletServiceClient.walletTransaction(clientEmail, total, "DEBIT");
-            if (debitResponse == null || !debitResponse.getStatusCode().is2xxSuccessful()) {
-                System.err.println("Échec du débit du wallet pour " + clientEmail);
-                return false;
-            }
+            // 1. Réserver les fonds et récupérer le clientId : indépendants, les deux appels partent en parallèle
+            ResponseEntity<Integer> clientResponse;
+            try (DownstreamCalls.Scope scope = downstreamCalls.open()) {
+                DownstreamCalls.Call<ResponseEntity<HoldReceipt>> holdCall = scope.fork("wallet-reserve",
+                    () -> walletServiceClient.reserve(clientEmail, total, holdTtlSeconds, holdReference(orderId), quantity));
+                DownstreamCalls.Call<ResponseEntity<Integer>> clientCall =
+                    scope.fork("client-lookup", () -> clientServiceClient.getByEmail(clientEmail));
 
-            // 3. Get clientId from clientService
-            ResponseEntity<Integer> clientResponse = clientServiceClient.getByEmail(clientEmail);
-            if (clientResponse == null || !clientResponse.getStatusCode().is2xxSuccessful() || clientResponse.getBody() == null) {
-                System.err.println("Impossible de récupérer le clientID pour " + clientEmail);
-                return false;
+                // The wallet checks and sets the funds aside atomically: concurrent orders cannot overspend
+                ResponseEntity<HoldReceipt> holdResponse;
+                try {
+                    holdResponse = holdCall.join();
+                } catch (FeignException.Conflict e) {
+                    System.err.println("Solde insuffisant pour " + clientEmail + ". Requis: " + Money.format(total));
+                    return rejeter(order);
+                }
+                if (holdResponse == null || !holdResponse.getStatusCode().is2xxSuccessful() || holdResponse.getBody() == null) {
+                    System.err.println("Impossible de réserver les fonds pour " + clientEmail);
+                    return rejeter(order);
+                }
+                // Set right away: the catch below releases the hold if anything fails from here on
+                order.setHoldId(holdResponse.getBody().holdId());
+
+                // 2. Get clientId from clientService
+                clientResponse = clientCall.join();
+                if (clientResponse == null || !clientResponse.getStatusCode().is2xxSuccessful() || clientResponse.getBody() == null) {
+                    System.err.println("Impossible de récupérer le clientID pour " + clientEmail);
+                    libererFonds(order);
+                    return rejeter(order);
+                }
             }
-            int clientId = clientResponse.getBody();
-            
-            // 4. Créer l'ordre après débit réussi
-            Order order = new Order(); // This is your domain.Order
-            order.setClientId(clientId);
-            order.setSymbol(symbol);
-            order.setPrice(price);
-            order.setQuantity(quantity);
-            order.setStatus(OrderStatus.FILLED); // exécuté - This status might need review for pending matching
-            order.setOrderType("BUY");
-            Order savedOrder = orderRepository.save(order);
-
-            // 5. Créer la transaction pour l'audit trail
-            Transaction transaction = new Transaction(
-                savedOrder.getOrderId(),
-                TransactionType.ORDER,
-                total,
-                String.format("Achat %d actions %s à %.2f$ par %s", quantity, symbol, price, clientEmail)
-            );
-            transactionRepository.save(transaction);
             
-            // 6. Send order to matching service via RabbitMQ
+            // 3. Passer l'ordre en attente d'exécution, les fonds sont capturés à chaque exécution (walletService),
+            // et 4. créer la transaction pour l'audit trail, ensemble
+            order.setClientId(clientResponse.getBody());
+            order.setStatus(OrderStatus.PENDING); // FILLED / PARTIALLY_FILLED when the trades come back (MatchingConsumer)
+            Order savedOrder = transactionTemplate.execute(status -> {
+                Order saved = orderRepository.save(order);
+                transactionRepository.save(new Transaction(
+                    saved.getOrderId(),
+                    TransactionType.ORDER,
+                    total,
+                    String.format("Achat %d actions %s à %s$ par %s", quantity, symbol, Money.format(price), clientEmail)
+                ));
+                return saved;
+            });
+
+            // 5. Send order to matching service via RabbitMQ, once the order is committed as PENDING
             OrderDto orderDto = new OrderDto(); // This is the DTO for RabbitMQ
-            orderDto.setOrderDtoId(String.valueOf(savedOrder.getOrderId())); // Assuming getOrderId returns int
+            orderDto.setOrderId(String.valueOf(savedOrder.getOrderId())); // Assuming getOrderId returns int
             orderDto.setStockSymbol(savedOrder.getSymbol());
             orderDto.setQuantity(savedOrder.getQuantity());
             orderDto.setPrice(savedOrder.getPrice());
             orderDto.setOrderType(savedOrder.getOrderType());
+            orderDto.setTimeInForce(savedOrder.getTimeInForce());
             orderMessageProducer.sendNewOrderToMatchingService(orderDto);
 
-            System.out.println("Achat réussi pour " + clientEmail + ": " + quantity + " " + symbol + " à " + price + "$ (Total: " + total + "$)");
+            System.out.println("Achat réussi pour " + clientEmail + ": " + quantity + " " + symbol + " à " + Money.format(price) + "$ (Total: " + Money.format(total) + "$)");
             return true;
             
         } catch (Exception e) {
-            System.err.println("Erreur acheterAction: " + e.getMessage());
+            System.err.println("Erreur traiterAchat: " + e.getMessage());
             e.printStackTrace();
+            libererFonds(order);
+            return rejeter(order);
+        }
+    }
+
+    // Reprendre un ordre dont le financement a été interrompu par un arrêt (resté FUNDING) : sa réservation a pu
+    // être posée, elle est libérée par sa référence avant de financer l'ordre à nouveau
+    public boolean reprendreAchat(int orderId) {
+        try {
+            walletServiceClient.releaseByReference(holdReference(orderId));
+        } catch (Exception e) {
+            System.err.println("Ordre " + orderId + " laissé en FUNDING, réservation non libérée: " + e.getMessage());
+            return false;
+        }
+        if (orderRepository.updateStatus(orderId, OrderStatus.FUNDING, OrderStatus.ACCEPTED) == 0) {
             return false;
         }
+        return traiterAchat(orderId);
+    }
+
+    // Ordre d'un client, null s'il n'existe pas ou appartient à un autre client
+    @Transactional(readOnly = true)
+    public Order getOrder(int orderId, String clientEmail) {
+        return orderRepository.findById(orderId)
+            .filter(order -> clientEmail.equals(order.getClientEmail()))
+            .orElse(null);
+    }
+
+    // Annuler un ordre du client ; null si l'ordre n'existe pas ou appartient à un autre client.
+    // L'ordre passe à CANCELLED quand matchingService publie l'annulation (MatchingConsumer)
+    public ResponseEntity<String> annulerOrdre(int orderId, String clientEmail) {
+        Order order = getOrder(orderId, clientEmail);
+        if (order == null) {
+            return null;
+        }
+        return versMatching(() -> matchingServiceClient.cancel(String.valueOf(orderId), order.getSymbol()));
+    }
+
+    // Modifier un ordre du client au repos (prix en cents, 0 le garde) ; null si l'ordre n'existe pas ou
+    // appartient à un autre client. matchingService refuse d'augmenter la quantité ou le prix d'un achat
+    public ResponseEntity<String> modifierOrdre(int orderId, String clientEmail, int quantity, long price) {
+        Order order = getOrder(orderId, clientEmail);
+        if (order == null) {
+            return null;
+        }
+        return versMatching(() -> matchingServiceClient.amend(String.valueOf(orderId), new OrderAmend(order.getSymbol(), quantity, price)));
+    }
+
+    // La réponse de matchingService telle quelle, y compris ses refus (404 si l'ordre n'est plus au repos)
+    private static ResponseEntity<String> versMatching(Supplier<ResponseEntity<String>> call) {
+        try {
+            return call.get();
+        } catch (FeignException e) {
+            return ResponseEntity.status(e.status() > 0 ? e.status() : 502).body(e.contentUTF8());
+        }
+    }
+
+    // Sans id (réservation en erreur ou expirée côté appelant), la réservation a pu aboutir quand même :
+    // elle est retrouvée par sa référence. Une réservation qui n'a pas pu être libérée reste à libérer à la
+    // main (POST /api/wallet/holds/{holdId}/release), voir RUNBOOK
+    private void libererFonds(Order order) {
+        try {
+            if (order.getHoldId() != null) {
+                walletServiceClient.release(order.getHoldId());
+            } else {
+                walletServiceClient.releaseByReference(holdReference(order.getOrderId()));
+            }
+        } catch (Exception e) {
+            System.err.println("Impossible de libérer la réservation de l'ordre " + order.getOrderId() + ": " + e.getMessage());
+        }
+    }
+
+    // Référence de la réservation d'un ordre, utilisée aussi par walletService pour régler ses exécutions
+    private static String holdReference(int orderId) {
+        return "order-" + orderId;
+    }
+
+    // Refuser un ordre accepté que le pipeline n'a pas pu prendre en charge ; false s'il l'a été entre-temps
+    public boolean refuserAchat(int orderId) {
+        return orderRepository.updateStatus(orderId, OrderStatus.ACCEPTED, OrderStatus.REJECTED) > 0;
+    }
+
+    private boolean rejeter(Order order) {
+        order.setStatus(OrderStatus.REJECTED);
+        orderRepository.save(order);
+        return false;
     }
 }
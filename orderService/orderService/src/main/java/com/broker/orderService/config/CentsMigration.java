@@ -0,0 +1,99 @@
+package com.broker.orderService.config;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+
+/**
+ * Brings an order database written before prices and amounts were kept in cents up to date,
+ * before Hibernate updates the schema: {@code ddl-auto=update} only adds the new columns, it
+ * neither fills them from the old ones nor drops those.
+ * <p>
+ * The decimal {@code order.price} and {@code transaction.amount} are copied to
+ * {@code price_cents} and {@code amount_cents} as {@code round(value * 100)}, then dropped
+ * since they are NOT NULL and no longer written. The NOT NULL {@code filled_quantity} added
+ * since starts at 0 on the existing orders. The {@code order.status} column is widened to a
+ * plain varchar, see {@link #widenStatus}. Runs at every startup and does nothing on a new or
+ * already migrated database.
+ */
+@Configuration
+public class CentsMigration {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CentsMigration(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @Bean
+    public static EntityManagerFactoryDependsOnPostProcessor centsMigrationBeforeHibernate() {
+        return new EntityManagerFactoryDependsOnPostProcessor("centsMigration");
+    }
+
+    @PostConstruct
+    public void migrate() {
+        // Tables not there yet are created by Hibernate
+        if (hasTable("order")) {
+            toCents("\"order\"", "price", "price_cents");
+            jdbcTemplate.execute("alter table \"order\" add column if not exists filled_quantity integer default 0 not null");
+            widenStatus();
+        }
+        if (hasTable("transaction")) {
+            toCents("transaction", "amount", "amount_cents");
+        }
+    }
+
+    // Each row is converted and its decimal value cleared in one statement, so that a migration
+    // interrupted before the drop can run again. Added to what the cents column may already hold,
+    // if Hibernate created it before this migration existed
+    private void toCents(String table, String decimalColumn, String centsColumn) {
+        if (!hasColumn(table, decimalColumn)) {
+            return;
+        }
+        System.out.println("Migrating " + table + "." + decimalColumn + " to " + centsColumn);
+        jdbcTemplate.execute("alter table " + table + " add column if not exists " + centsColumn + " bigint");
+        jdbcTemplate.execute("alter table " + table + " alter column " + decimalColumn + " set null");
+        int rows = jdbcTemplate.update("update " + table + " set " + centsColumn + " = coalesce(" + centsColumn + ", 0) + round("
+            + decimalColumn + " * 100), " + decimalColumn + " = null where " + decimalColumn + " is not null");
+        jdbcTemplate.execute("alter table " + table + " drop column " + decimalColumn);
+        System.out.println("Migrated " + rows + " rows of " + table + " to " + centsColumn);
+    }
+
+    // Hibernate declares the status column with the statuses known when it creates it, as an enum type
+    // or a check constraint, and never updates it: later statuses such as FUNDING would not fit
+    private void widenStatus() {
+        if ("ENUM".equalsIgnoreCase(dataType("order", "status"))) {
+            jdbcTemplate.execute("alter table \"order\" alter column status set data type varchar(255)");
+        }
+        for (String constraint : jdbcTemplate.queryForList("select tc.constraint_name from information_schema.table_constraints tc"
+                + " join information_schema.check_constraints cc on cc.constraint_schema = tc.constraint_schema"
+                + " and cc.constraint_name = tc.constraint_name where tc.table_schema = current_schema"
+                + " and upper(tc.table_name) = 'ORDER' and tc.constraint_type = 'CHECK' and upper(cc.check_clause) like '%STATUS%'",
+                String.class)) {
+            jdbcTemplate.execute("alter table \"order\" drop constraint \"" + constraint + "\"");
+        }
+    }
+
+    private String dataType(String table, String column) {
+        return jdbcTemplate.queryForList("select data_type from information_schema.columns"
+            + " where table_schema = current_schema and upper(table_name) = upper(?) and upper(column_name) = upper(?)",
+            String.class, table, column).stream().findFirst().orElse(null);
+    }
+
+    private boolean hasTable(String table) {
+        Integer count = jdbcTemplate.queryForObject("select count(*) from information_schema.tables"
+            + " where table_schema = current_schema and upper(table_name) = upper(?)", Integer.class, table);
+        return count != null && count > 0;
+    }
+
+    private boolean hasColumn(String table, String column) {
+        Integer count = jdbcTemplate.queryForObject("select count(*) from information_schema.columns"
+            + " where table_schema = current_schema and upper(table_name) = upper(?) and upper(column_name) = upper(?)",
+            Integer.class, table.replace("\"", ""), column);
+        return count != null && count > 0;
+    }
+}
@@ -1,17 +1,33 @@
 package com.broker.orderService.config;
 
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.Declarable;
+import org.springframework.amqp.core.Declarables;
+import org.springframework.amqp.core.DirectExchange;
+import org.springframework.amqp.core.MessageProperties;
 import org.springframework.amqp.core.Queue;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.ContentTypeDelegatingMessageConverter;
+import org.springframework.amqp.support.converter.DefaultClassMapper;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import com.broker.orderService.dto.OrderCancellation;
+import com.broker.orderService.dto.Trade;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 @Configuration
 public class RabbitMQConfig {
     //sent to matching service for new orders
     public static final String ORDER_QUEUE = "orderQueue"; // Must match the queue name in matchingService
+    //new orders are routed by symbol to one queue per partition, see OrderPartitions
+    public static final String ORDER_EXCHANGE = "orderExchange"; // Must match the exchange name in matchingService
     //sent back from the matching service after matching 
     public static final String MATCHING_QUEUE = "matchingQueue"; // Must match the queue name in matchingService
 
@@ -25,15 +41,57 @@ public class RabbitMQConfig {
         return new Queue(MATCHING_QUEUE, false);
     }
 
+    /**
+     * One durable queue per order partition, bound to {@value #ORDER_EXCHANGE} with the
+     * partition number as routing key. Declared here too so that no order is dropped when
+     * orderService starts before matchingService.
+     */
+    @Bean
+    public Declarables orderPartitions(@Value("${messaging.order-partitions:16}") int partitionCount) {
+        if (partitionCount <= 0) {
+            throw new IllegalArgumentException("messaging.order-partitions must be positive");
+        }
+        DirectExchange exchange = new DirectExchange(ORDER_EXCHANGE, true, false);
+        List<Declarable> declarables = new ArrayList<>();
+        declarables.add(exchange);
+        for (int partition = 0; partition < partitionCount; partition++) {
+            Queue queue = new Queue(OrderPartitions.queueName(partition), true);
+            declarables.add(queue);
+            declarables.add(BindingBuilder.bind(queue).to(exchange).with(OrderPartitions.routingKey(partition)));
+        }
+        return new Declarables(declarables);
+    }
+
+    /**
+     * Reads JSON and binary messages alike, picking the converter from the message content type,
+     * and writes orders and trades in {@code messaging.wire-format} ({@code json} or
+     * {@code binary}). Consumers are deployed first, then producers switch to binary. The type ids
+     * matchingService writes in JSON messages (its own class names) are mapped to the classes of
+     * orderService, since MatchingConsumer handles several message types.
+     */
     @Bean
-    public MessageConverter messageConverter() {
-        return new Jackson2JsonMessageConverter();
+    public MessageConverter messageConverter(@Value("${messaging.wire-format:json}") String wireFormat) {
+        if (!"json".equals(wireFormat) && !"binary".equals(wireFormat)) {
+            throw new IllegalArgumentException("messaging.wire-format must be json or binary, not " + wireFormat);
+        }
+        DefaultClassMapper classMapper = new DefaultClassMapper();
+        classMapper.setIdClassMapping(Map.of(
+            "com.broker.matchingService.dto.Trade", Trade.class,
+            "com.broker.matchingService.dto.OrderCancellation", OrderCancellation.class));
+        Jackson2JsonMessageConverter json = new Jackson2JsonMessageConverter();
+        json.setClassMapper(classMapper);
+        BinaryMessageConverter binary = new BinaryMessageConverter(json);
+        ContentTypeDelegatingMessageConverter converter =
+            new ContentTypeDelegatingMessageConverter("binary".equals(wireFormat) ? binary : json);
+        converter.addDelegate(MessageProperties.CONTENT_TYPE_JSON, json);
+        converter.addDelegate(BinaryMessageConverter.CONTENT_TYPE, binary);
+        return converter;
     }
 
     @Bean
-    public RabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory) {
+    public RabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory, MessageConverter messageConverter) {
         RabbitTemplate rabbitTemplate = new RabbitTemplate(connectionFactory);
-        rabbitTemplate.setMessageConverter(messageConverter());
+        rabbitTemplate.setMessageConverter(messageConverter);
         return rabbitTemplate;
     }
 }
\ No newline at end of file
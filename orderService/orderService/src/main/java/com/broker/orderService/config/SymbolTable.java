@@ -0,0 +1,44 @@
+package com.broker.orderService.config;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Decodes ASCII stock symbols to shared {@link String} instances. The same few symbols come
+ * back in every message, so a symbol seen before is returned without allocating.
+ * <p>
+ * Direct-mapped: a symbol whose slot is taken by another one replaces it. Slots are read and
+ * written without locking, which is safe since a slot only ever holds an immutable String.
+ */
+final class SymbolTable {
+
+    private static final int SIZE = 1024; // power of two
+
+    private final String[] slots = new String[SIZE];
+
+    String intern(byte[] bytes, int offset, int length) {
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + bytes[offset + i];
+        }
+        int index = (hash ^ (hash >>> 16)) & (SIZE - 1);
+        String cached = slots[index];
+        if (cached != null && matches(cached, bytes, offset, length)) {
+            return cached;
+        }
+        String symbol = new String(bytes, offset, length, StandardCharsets.US_ASCII);
+        slots[index] = symbol;
+        return symbol;
+    }
+
+    private static boolean matches(String symbol, byte[] bytes, int offset, int length) {
+        if (symbol.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (symbol.charAt(i) != bytes[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
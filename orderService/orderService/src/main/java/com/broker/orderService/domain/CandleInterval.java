@@ -0,0 +1,49 @@
+package com.broker.orderService.domain;
+
+/**
+ * Bar sizes of the OHLCV candles, each with how many bars are kept in memory.
+ */
+public enum CandleInterval {
+
+    ONE_SECOND("1s", 1_000L, 3_600),      // last hour
+    ONE_MINUTE("1m", 60_000L, 1_440),     // last day
+    FIVE_MINUTES("5m", 300_000L, 2_016),  // last week
+    ONE_HOUR("1h", 3_600_000L, 720);      // last 30 days
+
+    private final String label;
+    private final long millis;
+    private final int capacity;
+
+    CandleInterval(String label, long millis, int capacity) {
+        this.label = label;
+        this.millis = millis;
+        this.capacity = capacity;
+    }
+
+    /**
+     * The interval labelled {@code label} ("1s", "1m", "5m", "1h"), or {@code null}.
+     */
+    public static CandleInterval of(String label) {
+        for (CandleInterval interval : values()) {
+            if (interval.label.equals(label)) {
+                return interval;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Start, in epoch milliseconds (UTC), of the bar {@code epochMillis} falls in.
+     */
+    public long startOf(long epochMillis) {
+        return Math.floorDiv(epochMillis, millis) * millis;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+}
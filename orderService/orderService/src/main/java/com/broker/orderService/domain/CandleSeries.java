@@ -0,0 +1,212 @@
+package com.broker.orderService.domain;
+
+import com.broker.orderService.dto.Candle;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * OHLCV bars of one symbol at one {@link CandleInterval}, kept in a ring buffer of primitive
+ * arrays: a trade updates the latest bar or opens the next one in O(1), and once the ring is
+ * full each new bar overwrites the oldest one. Intervals without any trade have no bar.
+ * <p>
+ * Trades of different order partitions may arrive slightly out of order; a late trade still
+ * lands in its own bar, as long as that bar is not older than the ring. Not thread-safe.
+ */
+public class CandleSeries {
+
+    private final CandleInterval interval;
+    private final int capacity;
+    private final long[] starts;
+    private final long[] opens;
+    private final long[] highs;
+    private final long[] lows;
+    private final long[] closes;
+    private final long[] volumes;
+    private final int[] trades;
+    // Times of the trades that set the open and the close, to place late trades correctly
+    private final long[] openTimes;
+    private final long[] closeTimes;
+    private int head = -1; // Physical index of the latest bar
+    private int size;
+
+    public CandleSeries(CandleInterval interval) {
+        this.interval = interval;
+        this.capacity = interval.getCapacity();
+        this.starts = new long[capacity];
+        this.opens = new long[capacity];
+        this.highs = new long[capacity];
+        this.lows = new long[capacity];
+        this.closes = new long[capacity];
+        this.volumes = new long[capacity];
+        this.trades = new int[capacity];
+        this.openTimes = new long[capacity];
+        this.closeTimes = new long[capacity];
+    }
+
+    /**
+     * One empty series per interval, indexed by interval ordinal.
+     */
+    public static CandleSeries[] forAllIntervals() {
+        CandleInterval[] intervals = CandleInterval.values();
+        CandleSeries[] series = new CandleSeries[intervals.length];
+        for (CandleInterval interval : intervals) {
+            series[interval.ordinal()] = new CandleSeries(interval);
+        }
+        return series;
+    }
+
+    public void add(long epochMillis, long price, long quantity) {
+        long start = interval.startOf(epochMillis);
+        if (size == 0 || start > starts[head]) {
+            insert(size, start, epochMillis, price, quantity);
+            return;
+        }
+        // Late trade: walk back from the latest bar, usually a step or two
+        for (int position = size - 1; position >= 0; position--) {
+            int index = index(position);
+            if (starts[index] == start) {
+                update(index, epochMillis, price, quantity);
+                return;
+            }
+            if (starts[index] < start) {
+                insert(position + 1, start, epochMillis, price, quantity);
+                return;
+            }
+        }
+        insert(0, start, epochMillis, price, quantity);
+    }
+
+    /**
+     * The last {@code limit} bars, oldest first.
+     */
+    public List<Candle> latest(int limit) {
+        int count = Math.min(limit, size);
+        List<Candle> candles = new ArrayList<>(count);
+        for (int position = size - count; position < size; position++) {
+            int index = index(position);
+            candles.add(new Candle(starts[index], opens[index], highs[index], lows[index], closes[index],
+                volumes[index], trades[index]));
+        }
+        return candles;
+    }
+
+    /**
+     * Close of the latest bar, i.e. the price of the latest trade, or 0 before the first trade.
+     */
+    public long lastClose() {
+        return size == 0 ? 0 : closes[head];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public CandleInterval getInterval() {
+        return interval;
+    }
+
+    /**
+     * Writes the bars, oldest first: {@code [int count]} then per bar
+     * {@code [start][open][high][low][close][volume][int trades][openTime][closeTime]}.
+     */
+    public void write(DataOutputStream out) throws IOException {
+        out.writeInt(size);
+        for (int position = 0; position < size; position++) {
+            int index = index(position);
+            out.writeLong(starts[index]);
+            out.writeLong(opens[index]);
+            out.writeLong(highs[index]);
+            out.writeLong(lows[index]);
+            out.writeLong(closes[index]);
+            out.writeLong(volumes[index]);
+            out.writeInt(trades[index]);
+            out.writeLong(openTimes[index]);
+            out.writeLong(closeTimes[index]);
+        }
+    }
+
+    /**
+     * Appends the bars written by {@link #write}; bars beyond the capacity push the oldest out.
+     */
+    public void read(ByteBuffer in) {
+        int count = in.getInt();
+        for (int i = 0; i < count; i++) {
+            insert(size, in.getLong(), 0, 0, 0);
+            int index = head;
+            opens[index] = in.getLong();
+            highs[index] = in.getLong();
+            lows[index] = in.getLong();
+            closes[index] = in.getLong();
+            volumes[index] = in.getLong();
+            trades[index] = in.getInt();
+            openTimes[index] = in.getLong();
+            closeTimes[index] = in.getLong();
+        }
+    }
+
+    /**
+     * Opens a bar at logical {@code position} (0 is the oldest bar), shifting the newer bars up
+     * by one. When the ring is full the oldest bar is dropped, and a bar that would be older than
+     * all the others is not opened at all.
+     */
+    private void insert(int position, long start, long epochMillis, long price, long quantity) {
+        if (size == capacity) {
+            if (position == 0) {
+                return;
+            }
+            size--; // The slot of the oldest bar becomes the next head
+            position--;
+        }
+        head = (head + 1) % capacity;
+        size++;
+        for (int shifted = size - 1; shifted > position; shifted--) {
+            copy(index(shifted - 1), index(shifted));
+        }
+        int index = index(position);
+        starts[index] = start;
+        opens[index] = price;
+        highs[index] = price;
+        lows[index] = price;
+        closes[index] = price;
+        volumes[index] = quantity;
+        trades[index] = 1;
+        openTimes[index] = epochMillis;
+        closeTimes[index] = epochMillis;
+    }
+
+    private void update(int index, long epochMillis, long price, long quantity) {
+        if (epochMillis < openTimes[index]) {
+            opens[index] = price;
+            openTimes[index] = epochMillis;
+        }
+        if (epochMillis >= closeTimes[index]) {
+            closes[index] = price;
+            closeTimes[index] = epochMillis;
+        }
+        highs[index] = Math.max(highs[index], price);
+        lows[index] = Math.min(lows[index], price);
+        volumes[index] += quantity;
+        trades[index]++;
+    }
+
+    private void copy(int from, int to) {
+        starts[to] = starts[from];
+        opens[to] = opens[from];
+        highs[to] = highs[from];
+        lows[to] = lows[from];
+        closes[to] = closes[from];
+        volumes[to] = volumes[from];
+        trades[to] = trades[from];
+        openTimes[to] = openTimes[from];
+        closeTimes[to] = closeTimes[from];
+    }
+
+    // Physical index of the bar at logical position (0 is the oldest)
+    private int index(int position) {
+        return Math.floorMod(head - (size - 1 - position), capacity);
+    }
+}
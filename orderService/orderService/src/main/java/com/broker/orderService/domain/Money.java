@@ -0,0 +1,30 @@
+package com.broker.orderService.domain;
+
+/**
+ * Prices and amounts are {@code long}s in minor units (cents). Decimal values only appear at
+ * the HTTP edges, where they are converted with {@link #toCents(double)} and {@link #toDecimal(long)}.
+ */
+public final class Money {
+
+    public static final long CENTS_PER_UNIT = 100;
+
+    private Money() {
+    }
+
+    public static long toCents(double amount) {
+        return Math.round(amount * CENTS_PER_UNIT);
+    }
+
+    public static double toDecimal(long cents) {
+        return (double) cents / CENTS_PER_UNIT;
+    }
+
+    /**
+     * Renders {@code cents} as a decimal string, e.g. {@code 44550 -> "445.50"}.
+     */
+    public static String format(long cents) {
+        long units = Math.abs(cents) / CENTS_PER_UNIT;
+        long rest = Math.abs(cents) % CENTS_PER_UNIT;
+        return (cents < 0 ? "-" : "") + units + (rest < 10 ? ".0" : ".") + rest;
+    }
+}
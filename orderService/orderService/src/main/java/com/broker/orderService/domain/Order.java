@@ -11,18 +11,23 @@ public class Order {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     int orderId;
     int clientId;
+    String clientEmail;
     String symbol;
-    double price;
+    @Column(name = "price_cents")
+    long price; // in cents, see Money
     int quantity;
+    int filledQuantity;
     @Enumerated(EnumType.STRING)
     private OrderStatus status;
     private String orderType;
+    private String timeInForce; // GTC, IOC or FOK
+    private String holdId; // walletService hold funding the order, captured by walletService as it fills
 
     public Order() {
         this.status = OrderStatus.PENDING;
     }
 
-    public Order(int orderId, String symbol, double price, int quantity, OrderStatus status) {
+    public Order(int orderId, String symbol, long price, int quantity, OrderStatus status) {
         this.orderId = orderId;
         this.symbol = symbol;
         this.price = price;
@@ -55,11 +60,11 @@ public class Order {
         this.symbol = symbol;
     }
 
-    public double getPrice() {
+    public long getPrice() {
         return price;
     }
 
-    public void setPrice(double price) {
+    public void setPrice(long price) {
         this.price = price;
     }
 
@@ -71,6 +76,34 @@ public class Order {
         this.quantity = quantity;
     }
 
+    public int getFilledQuantity() {
+        return filledQuantity;
+    }
+
+    /**
+     * Records a fill reported by the matching service and updates the status accordingly.
+     */
+    public void addFill(int tradeQuantity) {
+        filledQuantity += tradeQuantity;
+        if (status != OrderStatus.CANCELLED) {
+            // A trade republished after the cancellation still counts, the order stays cancelled
+            status = filledQuantity >= quantity ? OrderStatus.FILLED : OrderStatus.PARTIALLY_FILLED;
+        }
+    }
+
+    // No longer in the book of matchingService; what it filled before stays filled
+    public void cancel() {
+        status = OrderStatus.CANCELLED;
+    }
+
+    public String getTimeInForce() {
+        return timeInForce;
+    }
+
+    public void setTimeInForce(String timeInForce) {
+        this.timeInForce = timeInForce;
+    }
+
     public OrderStatus getStatus() {
         return status;
     }
@@ -85,5 +118,21 @@ public class Order {
     public int getClientId() {
         return clientId;
     }
+
+    public String getHoldId() {
+        return holdId;
+    }
+
+    public void setHoldId(String holdId) {
+        this.holdId = holdId;
+    }
+
+    public String getClientEmail() {
+        return clientEmail;
+    }
+
+    public void setClientEmail(String clientEmail) {
+        this.clientEmail = clientEmail;
+    }
     
 }
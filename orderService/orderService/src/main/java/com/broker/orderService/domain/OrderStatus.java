@@ -1,6 +1,9 @@
 package com.broker.orderService.domain;
 
 public enum OrderStatus {
+    ACCEPTED, // Persisted, funding and dispatch to matchingService still to do (OrderPipeline)
+    FUNDING, // Claimed by traiterAchat, whose hold may already be placed
+    REJECTED, // Funding failed, never sent to matchingService
     PENDING,
     FILLED,
     PARTIALLY_FILLED,
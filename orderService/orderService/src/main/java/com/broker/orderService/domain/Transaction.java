@@ -17,8 +17,8 @@ public class Transaction {
     @Column(nullable = false)
     private TransactionType type;
     
-    @Column(nullable = false)
-    private double amount;
+    @Column(name = "amount_cents", nullable = false)
+    private long amount; // in cents, see Money
     
     @Column(nullable = false)
     private java.time.LocalDateTime dateTransaction = java.time.LocalDateTime.now();
@@ -30,7 +30,7 @@ public class Transaction {
     public Transaction() {}
 
     // Constructeur pour les ordres
-    public Transaction(int orderId, TransactionType type, double amount, String description) {
+    public Transaction(int orderId, TransactionType type, long amount, String description) {
         this.orderId = orderId;
         this.type = type;
         this.amount = amount;
@@ -38,7 +38,7 @@ public class Transaction {
     }
     
     // Constructeur pour dépôts/retraits (sans orderId)
-    public Transaction(TransactionType type, double amount, String description) {
+    public Transaction(TransactionType type, long amount, String description) {
         this.orderId = null;  // Pas d'ordre pour dépôts/retraits
         this.type = type;
         this.amount = amount;
@@ -66,11 +66,11 @@ public class Transaction {
         this.type = type;
     }
 
-    public double getAmount() {
+    public long getAmount() {
         return amount;
     }
 
-    public void setAmount(double amount) {
+    public void setAmount(long amount) {
         this.amount = amount;
     }
 
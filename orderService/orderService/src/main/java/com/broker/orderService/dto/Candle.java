@@ -0,0 +1,12 @@
+package com.broker.orderService.dto;
+
+/**
+ * One OHLCV bar.
+ *
+ * @param start start of the bar, epoch milliseconds (UTC)
+ * @param open price of the first trade of the bar, in cents (see Money), like the other prices
+ * @param volume quantity traded during the bar
+ * @param trades number of trades during the bar
+ */
+public record Candle(long start, long open, long high, long low, long close, long volume, int trades) {
+}
@@ -0,0 +1,11 @@
+package com.broker.orderService.dto;
+
+import java.time.Instant;
+
+/**
+ * Fund hold placed by walletService for an order (see {@code POST /api/wallet/holds}).
+ *
+ * @param amountCents amount set aside, in cents (see Money)
+ */
+public record HoldReceipt(String holdId, long amountCents, Instant expiresAt) {
+}
@@ -0,0 +1,10 @@
+package com.broker.orderService.dto;
+
+/**
+ * Amend sent to matchingService ({@code PATCH /api/matching/orders/{orderId}}).
+ *
+ * @param quantity new open quantity, at most the one still open
+ * @param price new limit in cents (see Money), 0 keeps the current one
+ */
+public record OrderAmend(String stockSymbol, int quantity, long price) {
+}
@@ -6,15 +6,16 @@ public class OrderDto implements Serializable {
     private String orderId;
     private String stockSymbol;
     private int quantity;
-    private double price;
+    private long price; // in cents, see Money
     private String orderType; // e.g., "BUY" or "SELL"
+    private String timeInForce; // GTC (default), IOC or FOK
 
     // Getters and Setters
-    public String getOrderDtoId() {
+    public String getOrderId() {
         return orderId;
     }
 
-    public void setOrderDtoId(String orderId) {
+    public void setOrderId(String orderId) {
         this.orderId = orderId;
     }
 
@@ -34,11 +35,11 @@ public class OrderDto implements Serializable {
         this.quantity = quantity;
     }
 
-    public double getPrice() {
+    public long getPrice() {
         return price;
     }
 
-    public void setPrice(double price) {
+    public void setPrice(long price) {
         this.price = price;
     }
 
@@ -50,6 +51,14 @@ public class OrderDto implements Serializable {
         this.orderType = orderType;
     }
 
+    public String getTimeInForce() {
+        return timeInForce;
+    }
+
+    public void setTimeInForce(String timeInForce) {
+        this.timeInForce = timeInForce;
+    }
+
     @Override
     public String toString() {
         return "Order{" +
@@ -58,6 +67,7 @@ public class OrderDto implements Serializable {
                ", quantity=" + quantity +
                ", price=" + price +
                ", orderType='" + orderType + "'" +
+               ", timeInForce='" + timeInForce + "'" +
                '}';
     }
 }
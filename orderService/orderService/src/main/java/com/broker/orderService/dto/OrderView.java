@@ -0,0 +1,19 @@
+package com.broker.orderService.dto;
+
+import com.broker.orderService.domain.Order;
+import com.broker.orderService.domain.OrderStatus;
+
+/**
+ * Progress of an order, as returned by {@code GET /api/orders/{orderId}}.
+ *
+ * @param price limit price in cents (see Money)
+ * @param filledQuantity quantity already executed by matchingService
+ */
+public record OrderView(int orderId, String symbol, long price, int quantity, int filledQuantity,
+                        OrderStatus status, String timeInForce) {
+
+    public static OrderView of(Order order) {
+        return new OrderView(order.getOrderId(), order.getSymbol(), order.getPrice(), order.getQuantity(),
+            order.getFilledQuantity(), order.getStatus(), order.getTimeInForce());
+    }
+}
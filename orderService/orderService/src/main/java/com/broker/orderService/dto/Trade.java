@@ -4,19 +4,19 @@ import java.io.Serializable;
 import java.time.LocalDateTime;
 
 public class Trade implements Serializable {
-    private String tradeId;
+    private long tradeId; // unique sequence assigned by the matching service
     private String buyOrderId;
     private String sellOrderId;
     private String stockSymbol;
     private int quantity;
-    private double price;
+    private long price; // in cents, see Money
     private LocalDateTime timestamp;
 
     // Constructors
     public Trade() {
     }
 
-    public Trade(String tradeId, String buyOrderId, String sellOrderId, String stockSymbol, int quantity, double price, LocalDateTime timestamp) {
+    public Trade(long tradeId, String buyOrderId, String sellOrderId, String stockSymbol, int quantity, long price, LocalDateTime timestamp) {
         this.tradeId = tradeId;
         this.buyOrderId = buyOrderId;
         this.sellOrderId = sellOrderId;
@@ -27,11 +27,11 @@ public class Trade implements Serializable {
     }
 
     // Getters and Setters
-    public String getTradeId() {
+    public long getTradeId() {
         return tradeId;
     }
 
-    public void setTradeId(String tradeId) {
+    public void setTradeId(long tradeId) {
         this.tradeId = tradeId;
     }
 
@@ -67,11 +67,11 @@ public class Trade implements Serializable {
         this.quantity = quantity;
     }
 
-    public double getPrice() {
+    public long getPrice() {
         return price;
     }
 
-    public void setPrice(double price) {
+    public void setPrice(long price) {
         this.price = price;
     }
 
@@ -86,7 +86,7 @@ public class Trade implements Serializable {
     @Override
     public String toString() {
         return "Trade{"
-               + "tradeId='" + tradeId + "'"
+               + "tradeId=" + tradeId
                + ", buyOrderId='" + buyOrderId + "'"
                + ", sellOrderId='" + sellOrderId + "'"
                + ", stockSymbol='" + stockSymbol + "'"
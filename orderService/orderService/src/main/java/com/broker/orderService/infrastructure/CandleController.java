@@ -0,0 +1,36 @@
+package com.broker.orderService.infrastructure;
+
+import com.broker.orderService.domain.CandleInterval;
+import com.broker.orderService.dto.Candle;
+import com.broker.orderService.service.CandleAggregator;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/orders/candles")
+public class CandleController {
+
+    private final CandleAggregator candleAggregator;
+
+    public CandleController(CandleAggregator candleAggregator) {
+        this.candleAggregator = candleAggregator;
+    }
+
+    // Bougies OHLCV d'un symbole (interval = 1s, 1m, 5m ou 1h), de la plus ancienne à la plus récente
+    @GetMapping("/{symbol}")
+    public ResponseEntity<List<Candle>> getCandles(@PathVariable String symbol,
+                                                   @RequestParam(value = "interval", defaultValue = "1m") String interval,
+                                                   @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        CandleInterval candleInterval = CandleInterval.of(interval);
+        if (candleInterval == null || limit <= 0 || limit > candleInterval.getCapacity()) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(candleAggregator.candles(symbol, candleInterval, limit));
+    }
+}
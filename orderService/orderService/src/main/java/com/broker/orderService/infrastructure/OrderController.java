@@ -1,9 +1,14 @@
 package com.broker.orderService.infrastructure;
 
-import java.util.HashMap;
+import java.net.URI;
+import java.util.List;
 import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
@@ -11,50 +16,74 @@ import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import com.broker.orderService.Application.OrderService;
+import com.broker.orderService.domain.Order;
+import com.broker.orderService.dto.OrderView;
+import com.broker.orderService.service.OrderPipeline;
+import com.broker.orderService.service.PriceCache;
 
 @RestController
 @RequestMapping("/api/orders")
 public class OrderController {
 
-    private static final Map<String, Double> ETF_PRICES = new HashMap<>();
-    static{
-
-        ETF_PRICES.put("SPY", 445.50);   // S&P 500 ETF
-        ETF_PRICES.put("IVV", 445.20);   // iShares S&P 500 ETF
-        ETF_PRICES.put("VOO", 445.80);   // Vanguard S&P 500 ETF
-        ETF_PRICES.put("VTI", 265.40);   // Vanguard Total Stock Market ETF
-        ETF_PRICES.put("QQQ", 380.75);   // Invesco QQQ Trust
-        ETF_PRICES.put("VEA", 51.20);    // Vanguard FTSE Developed Markets ETF
-        ETF_PRICES.put("VWO", 42.85);    // Vanguard FTSE Emerging Markets ETF
-        ETF_PRICES.put("AGG", 101.50);   // iShares Core U.S. Aggregate Bond ETF
-        ETF_PRICES.put("BND", 73.25);    // Vanguard Total Bond Market ETF
-        ETF_PRICES.put("IWM", 220.30);   // iShares Russell 2000 ETF
-        ETF_PRICES.put("EFA", 79.90);    // iShares MSCI EAFE ETF
+    @Autowired
+    private OrderService orderService;
 
-    }
+    @Autowired
+    private PriceCache priceCache;
 
     @Autowired
-    private OrderService orderService;
+    private OrderPipeline orderPipeline;
+
+    private static final int RETRY_AFTER_SECONDS = 1;
+
+    // true: 202 dès que l'ordre est enregistré, financé ensuite par OrderPipeline ; false: 200 une fois l'ordre envoyé
+    @Value("${orders.accept-async:true}")
+    private boolean acceptAsync;
 
     @PostMapping("/placeOrder")
     public ResponseEntity<String> placeOrder(
             @RequestHeader(value = "X-Authenticated-User", required = true) String clientEmail,
             @RequestParam String symbol,
             @RequestParam int quantity,
-            @RequestParam String orderType) {
+            @RequestParam String orderType,
+            @RequestParam(defaultValue = "GTC") String timeInForce) {
         
         if (clientEmail == null || clientEmail.isEmpty()) {
             return ResponseEntity.badRequest().body("Request must go through Gateway - Missing authentication header");
         }
-        
-        if (!ETF_PRICES.containsKey(symbol)) {
+
+        if (quantity <= 0) {
+            return ResponseEntity.badRequest().body("quantity must be positive");
+        }
+
+        // Last traded price, never blocks on the trade consumer
+        Long price = priceCache.price(symbol);
+        if (price == null) {
             return ResponseEntity.badRequest().body("Symbol " + symbol + " not found");
         }
         
-        double price = ETF_PRICES.get(symbol);
-        boolean success = orderService.acheterAction(clientEmail, symbol, price, quantity);
+        if (!List.of("GTC", "IOC", "FOK").contains(timeInForce.toUpperCase())) {
+            return ResponseEntity.badRequest().body("timeInForce must be GTC, IOC or FOK");
+        }
+
+        if (acceptAsync) {
+            Order order = orderService.accepterAchat(clientEmail, symbol, price, quantity, timeInForce.toUpperCase());
+            // Pipeline full: the order is refused rather than funded on this thread, the client tries again later
+            if (!orderPipeline.submit(order.getOrderId()) && orderService.refuserAchat(order.getOrderId())) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(RETRY_AFTER_SECONDS))
+                    .body("Order " + order.getOrderId() + " rejected, too many orders in progress");
+            }
+            return ResponseEntity.accepted()
+                .location(URI.create("/api/orders/" + order.getOrderId()))
+                .body("Order " + order.getOrderId() + " accepted");
+        }
+
+        boolean success = orderService.acheterAction(clientEmail, symbol, price, quantity, timeInForce.toUpperCase());
         
         if (success) {
             return ResponseEntity.ok("Order processed by OrderController");
@@ -63,6 +92,44 @@ public class OrderController {
         }
     }
 
+    // Dernier prix de chaque symbole, en centimes
+    @GetMapping("/prices")
+    public ResponseEntity<Map<String, Long>> getPrices() {
+        return ResponseEntity.ok(priceCache.prices());
+    }
+
+    // Suivi d'un ordre : ACCEPTED puis FUNDING tant qu'il n'est pas financé, puis PENDING, FILLED... ou REJECTED
+    @GetMapping("/{orderId:\\d+}")
+    public ResponseEntity<OrderView> getOrder(
+            @RequestHeader(value = "X-Authenticated-User", required = true) String clientEmail,
+            @PathVariable int orderId) {
+        Order order = orderService.getOrder(orderId, clientEmail);
+        return order != null ? ResponseEntity.ok(OrderView.of(order)) : ResponseEntity.notFound().build();
+    }
+
+    // Annuler un ordre au repos : réponse de matchingService, 404 si l'ordre n'est pas celui du client
+    @DeleteMapping("/{orderId:\\d+}")
+    public ResponseEntity<String> cancelOrder(
+            @RequestHeader(value = "X-Authenticated-User", required = true) String clientEmail,
+            @PathVariable int orderId) {
+        ResponseEntity<String> result = orderService.annulerOrdre(orderId, clientEmail);
+        return result != null ? result : ResponseEntity.notFound().build();
+    }
+
+    // Réduire la quantité et/ou baisser le prix limite (en centimes, 0 le garde) d'un ordre au repos
+    @PatchMapping("/{orderId:\\d+}")
+    public ResponseEntity<String> amendOrder(
+            @RequestHeader(value = "X-Authenticated-User", required = true) String clientEmail,
+            @PathVariable int orderId,
+            @RequestParam int quantity,
+            @RequestParam(defaultValue = "0") long price) {
+        if (quantity <= 0 || price < 0) {
+            return ResponseEntity.badRequest().body("quantity must be positive and price not negative, use DELETE to cancel");
+        }
+        ResponseEntity<String> result = orderService.modifierOrdre(orderId, clientEmail, quantity, price);
+        return result != null ? result : ResponseEntity.notFound().build();
+    }
+
     @GetMapping("/holdings")
     public ResponseEntity<String> getHoldings(@RequestHeader(value = "X-Authenticated-User", required = true) String clientEmail) {
         return ResponseEntity.ok("Holdings retrieval not implemented yet for " + clientEmail);
@@ -0,0 +1,23 @@
+package com.broker.orderService.infrastructure.client;
+
+import com.broker.orderService.dto.OrderAmend;
+import com.broker.orderService.infrastructure.config.OrderServiceFeignConfig;
+import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+
+@FeignClient(name = "matching-service", url = "http://localhost:8080", configuration = OrderServiceFeignConfig.class)
+public interface MatchingServiceClient {
+
+    // Annuler un ordre au repos dans le carnet
+    @DeleteMapping("/api/matching/orders/{orderId}")
+    ResponseEntity<String> cancel(@PathVariable("orderId") String orderId, @RequestParam("symbol") String symbol);
+
+    // Réduire la quantité et/ou baisser le prix limite d'un ordre au repos
+    @PatchMapping("/api/matching/orders/{orderId}")
+    ResponseEntity<String> amend(@PathVariable("orderId") String orderId, @RequestBody OrderAmend amend);
+}
@@ -3,20 +3,39 @@ package com.broker.orderService.infrastructure.client;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import com.broker.orderService.dto.HoldReceipt;
 import com.broker.orderService.infrastructure.config.OrderServiceFeignConfig;
 
 @FeignClient(name = "wallet-service", url = "http://localhost:8080", configuration = OrderServiceFeignConfig.class)
 public interface WalletServiceClient {
     
-    // Effectuer une transaction sur le wallet (débit ou crédit)
+    // Effectuer une transaction sur le wallet (débit ou crédit), montant en cents
     @PostMapping("/api/wallet/transaction")
     ResponseEntity<String> walletTransaction(
         @RequestParam("ownerEmail") String ownerEmail,
-        @RequestParam("amount") double amount,
+        @RequestParam("amountCents") long amountCents,
         @RequestParam("type") String type
     );
     
     // Vérifier le solde du wallet
     @GetMapping("/api/wallet/balance")
     ResponseEntity<Double> getBalance(@RequestParam("ownerEmail") String ownerEmail);
-}
\ No newline at end of file
+
+    // Réserver des fonds pour un ordre (409 si solde insuffisant), montant en cents
+    @PostMapping("/api/wallet/holds")
+    ResponseEntity<HoldReceipt> reserve(
+        @RequestParam("ownerEmail") String ownerEmail,
+        @RequestParam("amountCents") long amountCents,
+        @RequestParam("ttlSeconds") long ttlSeconds,
+        @RequestParam("reference") String reference,
+        @RequestParam("quantity") int quantity
+    );
+
+    // Rendre au solde ce qui n'a pas été capturé
+    @PostMapping("/api/wallet/holds/{holdId}/release")
+    ResponseEntity<String> release(@PathVariable("holdId") String holdId);
+
+    // Libérer les réservations d'une référence, quand la réponse de la réservation n'est pas arrivée
+    @PostMapping("/api/wallet/holds/release")
+    ResponseEntity<String> releaseByReference(@RequestParam("reference") String reference);
+}
@@ -0,0 +1,111 @@
+package com.broker.orderService.infrastructure.repo;
+
+import com.broker.orderService.domain.CandleInterval;
+import com.broker.orderService.domain.CandleSeries;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Single file holding the candle ring buffers of every symbol, rewritten as a whole each time
+ * so that it never grows beyond the rings themselves. Layout:
+ * {@code [int magic][short version][int series]} then, per series,
+ * {@code [symbol][byte interval]} followed by its bars (see {@link CandleSeries#write}), and a
+ * trailing CRC32 of everything before it.
+ */
+public class CandleStore {
+
+    private static final int MAGIC = 0x4258434E; // "BXCN"
+    private static final short VERSION = 1;
+    private static final String FILE_NAME = "candles.bin";
+
+    private final Path file;
+
+    public CandleStore(Path directory) {
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create candle directory " + directory, e);
+        }
+        this.file = directory.resolve(FILE_NAME);
+    }
+
+    /**
+     * Atomically replaces the file with {@code series}. Each series is read under its own lock.
+     */
+    public void write(Map<String, CandleSeries[]> series) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * 1024);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            // Symbols may be added meanwhile: count the ones actually written
+            List<Map.Entry<String, CandleSeries[]>> symbols = new ArrayList<>(series.entrySet());
+            out.writeInt(symbols.size() * CandleInterval.values().length);
+            for (Map.Entry<String, CandleSeries[]> symbol : symbols) {
+                for (CandleSeries bars : symbol.getValue()) {
+                    byte[] name = symbol.getKey().getBytes(StandardCharsets.US_ASCII);
+                    out.writeByte(name.length);
+                    out.write(name);
+                    out.writeByte(bars.getInterval().ordinal());
+                    synchronized (bars) {
+                        bars.write(out);
+                    }
+                }
+            }
+            CRC32 crc = new CRC32();
+            crc.update(bytes.toByteArray());
+            out.writeInt((int) crc.getValue());
+        }
+        Path temp = file.resolveSibling(FILE_NAME + ".tmp");
+        Files.write(temp, bytes.toByteArray());
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Series of the last file written, by symbol and indexed by interval ordinal; empty if there
+     * is no readable file.
+     */
+    public Map<String, CandleSeries[]> load() {
+        Map<String, CandleSeries[]> series = new HashMap<>();
+        if (!Files.exists(file)) {
+            return series;
+        }
+        try {
+            byte[] content = Files.readAllBytes(file);
+            CRC32 crc = new CRC32();
+            crc.update(content, 0, content.length - 4);
+            ByteBuffer in = ByteBuffer.wrap(content);
+            if (in.getInt(content.length - 4) != (int) crc.getValue()) {
+                throw new IllegalStateException("checksum mismatch");
+            }
+            if (in.getInt() != MAGIC || in.getShort() != VERSION) {
+                throw new IllegalStateException("unsupported candle file format");
+            }
+            int count = in.getInt();
+            for (int i = 0; i < count; i++) {
+                byte[] name = new byte[in.get() & 0xFF];
+                in.get(name);
+                CandleInterval interval = CandleInterval.values()[in.get()];
+                CandleSeries[] bars = series.computeIfAbsent(new String(name, StandardCharsets.US_ASCII),
+                    symbol -> CandleSeries.forAllIntervals());
+                bars[interval.ordinal()].read(in);
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Ignoring unreadable candle file " + file + ": " + e.getMessage());
+            series.clear();
+        }
+        return series;
+    }
+}
@@ -1,10 +1,24 @@
 package com.broker.orderService.infrastructure.repo;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.stereotype.Repository;
 import com.broker.orderService.domain.Order;
+import com.broker.orderService.domain.OrderStatus;
+
+import java.util.List;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Integer>{
 
-    
+    List<Order> findByStatus(OrderStatus status);
+
+    // Moves the order from one status to another in one guarded UPDATE; 0 if it was no longer in
+    // status "from", e.g. an accepted order already claimed for funding by another thread
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query("update Order o set o.status = :to where o.orderId = :orderId and o.status = :from")
+    int updateStatus(@Param("orderId") int orderId, @Param("from") OrderStatus from, @Param("to") OrderStatus to);
 }
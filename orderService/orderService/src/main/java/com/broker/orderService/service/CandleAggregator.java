@@ -0,0 +1,111 @@
+package com.broker.orderService.service;
+
+import com.broker.orderService.domain.CandleInterval;
+import com.broker.orderService.domain.CandleSeries;
+import com.broker.orderService.dto.Candle;
+import com.broker.orderService.dto.Trade;
+import com.broker.orderService.infrastructure.repo.CandleStore;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Path;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Maintains the 1s/1m/5m/1h OHLCV candles of every symbol incrementally from the trades
+ * received from matchingService, so that charts and last prices are read from the bars
+ * instead of being recomputed from raw trades.
+ * <p>
+ * The candles are written to disk every {@code candles.compaction-interval-ms} and at shutdown,
+ * as one file replaced as a whole (see {@link CandleStore}), and reloaded at startup. Trades
+ * received between the last write and a crash are lost from the candles only.
+ */
+@Service
+public class CandleAggregator {
+
+    private final Map<String, CandleSeries[]> series = new ConcurrentHashMap<>();
+    private final CandleStore candleStore;
+    private final ScheduledExecutorService scheduler;
+
+    public CandleAggregator(@Value("${candles.dir:./data/candles}") String directory,
+                            @Value("${candles.compaction-interval-ms:60000}") long intervalMillis) {
+        this.candleStore = new CandleStore(Path.of(directory));
+        this.series.putAll(candleStore.load());
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "candle-compaction");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (intervalMillis > 0) {
+            scheduler.scheduleWithFixedDelay(this::compact, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Adds a trade to the current bar of each interval. Trades must be deduplicated by the caller.
+     */
+    public void onTrade(Trade trade) {
+        long epochMillis = trade.getTimestamp() != null
+            ? trade.getTimestamp().toInstant(ZoneOffset.UTC).toEpochMilli() // matchingService timestamps are UTC
+            : System.currentTimeMillis();
+        for (CandleSeries bars : series.computeIfAbsent(trade.getStockSymbol(), symbol -> CandleSeries.forAllIntervals())) {
+            synchronized (bars) {
+                bars.add(epochMillis, trade.getPrice(), trade.getQuantity());
+            }
+        }
+    }
+
+    /**
+     * The last {@code limit} candles of {@code symbol}, oldest first; empty for a symbol that never traded.
+     */
+    public List<Candle> candles(String symbol, CandleInterval interval, int limit) {
+        CandleSeries[] symbolSeries = series.get(symbol);
+        if (symbolSeries == null) {
+            return List.of();
+        }
+        CandleSeries bars = symbolSeries[interval.ordinal()];
+        synchronized (bars) {
+            return bars.latest(limit);
+        }
+    }
+
+    /**
+     * Price of the last trade of {@code symbol}, in cents, or 0 if it never traded.
+     */
+    public long lastPrice(String symbol) {
+        CandleSeries[] symbolSeries = series.get(symbol);
+        if (symbolSeries == null) {
+            return 0;
+        }
+        CandleSeries bars = symbolSeries[CandleInterval.ONE_SECOND.ordinal()];
+        synchronized (bars) {
+            return bars.lastClose();
+        }
+    }
+
+    /**
+     * Writes the candles of every symbol to disk. Runs on the compaction thread, or on the
+     * caller at shutdown.
+     */
+    public synchronized void compact() {
+        try {
+            candleStore.write(series);
+        } catch (Exception e) {
+            System.err.println("Failed to write the candles: " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        scheduler.shutdown();
+        scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        compact();
+    }
+}
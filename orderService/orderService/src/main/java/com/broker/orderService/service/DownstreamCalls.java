@@ -0,0 +1,96 @@
+package com.broker.orderService.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs the Feign calls of an order on virtual threads, so that independent calls overlap, and
+ * records the latency of each call in the {@code orders.downstream.latency} histogram, tagged by
+ * call name.
+ * <p>
+ * Calls are forked inside a {@link Scope}: none of them outlives it, and joining a call waits at
+ * most {@code orders.downstream.timeout-ms}.
+ */
+@Service
+public class DownstreamCalls {
+
+    private final MeterRegistry meterRegistry;
+    private final long timeoutMillis;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    public DownstreamCalls(MeterRegistry meterRegistry,
+                           @Value("${orders.downstream.timeout-ms:2000}") long timeoutMillis) {
+        this.meterRegistry = meterRegistry;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public Scope open() {
+        return new Scope();
+    }
+
+    private Timer timer(String name) {
+        return timers.computeIfAbsent(name, call -> Timer.builder("orders.downstream.latency")
+            .description("Latency of the calls made by orderService to the other services")
+            .tag("call", call)
+            .publishPercentileHistogram()
+            .register(meterRegistry));
+    }
+
+    /**
+     * Calls forked for one order. Closing the scope cancels the calls that were not joined.
+     */
+    public class Scope implements AutoCloseable {
+
+        private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+        public <T> Call<T> fork(String name, Callable<T> call) {
+            Timer timer = timer(name);
+            return new Call<>(name, executor.submit(() -> timer.recordCallable(call)));
+        }
+
+        @Override
+        public void close() {
+            executor.shutdownNow();
+        }
+    }
+
+    public class Call<T> {
+
+        private final String name;
+        private final Future<T> future;
+        private final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+
+        private Call(String name, Future<T> future) {
+            this.name = name;
+            this.future = future;
+        }
+
+        /**
+         * Result of the call, or its exception; a call still running when its timeout, counted from
+         * the fork, expires is cancelled.
+         */
+        public T join() throws Exception {
+            try {
+                return future.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                throw new TimeoutException(name + " did not answer within " + Duration.ofMillis(timeoutMillis));
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof Exception cause ? cause : e;
+            }
+        }
+    }
+}
@@ -1,40 +1,85 @@
 package com.broker.orderService.service;
 
 import com.broker.orderService.config.RabbitMQConfig;
+import com.broker.orderService.domain.OrderStatus;
+import com.broker.orderService.dto.OrderCancellation;
 import com.broker.orderService.dto.Trade;
+import org.springframework.amqp.rabbit.annotation.RabbitHandler;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import com.broker.orderService.domain.Order;
-import com.broker.orderService.domain.OrderStatus;
 import com.broker.orderService.infrastructure.repo.OrderRepository;
 import org.springframework.stereotype.Service;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
 @Service
+@RabbitListener(queues = RabbitMQConfig.MATCHING_QUEUE)
 public class MatchingConsumer {
 
+    // matchingService publishes trades at least once: the last trades applied are remembered
+    // so that a trade republished after a missing broker confirm is not counted twice
+    private static final int RECENT_TRADES = 100_000;
+
     private final OrderRepository orderRepository;
+    private final CandleAggregator candleAggregator;
+    private final PriceCache priceCache;
+    private final Set<Long> recentTradeIds = Collections.newSetFromMap(new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+            return size() > RECENT_TRADES;
+        }
+    });
 
-    public MatchingConsumer(OrderRepository orderRepository) {
+    public MatchingConsumer(OrderRepository orderRepository, CandleAggregator candleAggregator, PriceCache priceCache) {
         this.orderRepository = orderRepository;
+        this.candleAggregator = candleAggregator;
+        this.priceCache = priceCache;
     }
 
-    @RabbitListener(queues = RabbitMQConfig.MATCHING_QUEUE)
-    public void receiveTrade(Trade trade) {
+    @RabbitHandler
+    public synchronized void receiveTrade(Trade trade) {
         System.out.println("Received trade from RabbitMQ: " + trade);
+        if (recentTradeIds.contains(trade.getTradeId())) {
+            System.out.println("Ignoring trade " + trade.getTradeId() + ", already applied");
+            return;
+        }
 
         // Find the buy and sell orders
         Order buyOrder = orderRepository.findById(Integer.parseInt(trade.getBuyOrderId())).orElse(null);
         Order sellOrder = orderRepository.findById(Integer.parseInt(trade.getSellOrderId())).orElse(null);
 
+        // An order can be filled by several trades, one per counter-order it matched; the funds are
+        // settled by walletService, which consumes the same trades
         if (buyOrder != null) {
-            buyOrder.setStatus(OrderStatus.FILLED);
+            buyOrder.addFill(trade.getQuantity());
             orderRepository.save(buyOrder);
-            System.out.println("Updated buy order status to FILLED: " + buyOrder.getOrderId());
+            System.out.println("Updated buy order status to " + buyOrder.getStatus() + ": " + buyOrder.getOrderId());
         }
 
         if (sellOrder != null) {
-            sellOrder.setStatus(OrderStatus.FILLED);
+            sellOrder.addFill(trade.getQuantity());
             orderRepository.save(sellOrder);
-            System.out.println("Updated sell order status to FILLED: " + sellOrder.getOrderId());
+            System.out.println("Updated sell order status to " + sellOrder.getStatus() + ": " + sellOrder.getOrderId());
+        }
+        recentTradeIds.add(trade.getTradeId());
+        candleAggregator.onTrade(trade);
+        priceCache.onTrade(trade);
+    }
+
+    // IOC remainder, unfillable FOK order, or resting order cancelled on matchingService; delivered
+    // again after a missing broker confirm, which leaves it cancelled
+    @RabbitHandler
+    public synchronized void receiveCancellation(OrderCancellation cancellation) {
+        Order order = orderRepository.findById(Integer.parseInt(cancellation.orderId())).orElse(null);
+        if (order == null || order.getStatus() == OrderStatus.CANCELLED) {
+            return;
         }
+        order.cancel();
+        orderRepository.save(order);
+        System.out.println("Order " + order.getOrderId() + " cancelled, " + cancellation.filledQuantity() + " filled and "
+            + cancellation.cancelledQuantity() + " cancelled");
     }
 }
@@ -1,21 +1,28 @@
 package com.broker.orderService.service;
 
+import com.broker.orderService.config.OrderPartitions;
 import com.broker.orderService.config.RabbitMQConfig;
 import com.broker.orderService.dto.OrderDto;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 @Service
 public class OrderMessageProducer {
 
     private final RabbitTemplate rabbitTemplate;
+    private final int partitionCount;
 
-    public OrderMessageProducer(RabbitTemplate rabbitTemplate) {
+    public OrderMessageProducer(RabbitTemplate rabbitTemplate,
+                                @Value("${messaging.order-partitions:16}") int partitionCount) {
         this.rabbitTemplate = rabbitTemplate;
+        this.partitionCount = partitionCount;
     }
 
     public void sendNewOrderToMatchingService(OrderDto order) {
-        rabbitTemplate.convertAndSend(RabbitMQConfig.ORDER_QUEUE, order);
-        System.out.println("OrderService sent new order to matchingService: " + order);
+        // All orders of a symbol go to the same partition queue, consumed by a single matchingService instance
+        int partition = OrderPartitions.of(order.getStockSymbol(), partitionCount);
+        rabbitTemplate.convertAndSend(RabbitMQConfig.ORDER_EXCHANGE, OrderPartitions.routingKey(partition), order);
+        System.out.println("OrderService sent new order to matchingService partition " + partition + ": " + order);
     }
-}
\ No newline at end of file
+}
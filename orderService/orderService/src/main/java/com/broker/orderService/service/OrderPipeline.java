@@ -0,0 +1,118 @@
+package com.broker.orderService.service;
+
+import com.broker.orderService.Application.OrderService;
+import com.broker.orderService.domain.Order;
+import com.broker.orderService.domain.OrderStatus;
+import com.broker.orderService.infrastructure.repo.OrderRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Funds and dispatches the orders accepted by {@code POST /api/orders/placeOrder}, off the HTTP
+ * threads: the wallet and client calls of {@link OrderService#traiterAchat} run on a fixed pool
+ * of {@code orders.pipeline.workers} threads fed by a queue of at most
+ * {@code orders.pipeline.capacity} orders, so a slow downstream service delays the orders instead
+ * of holding the requests open.
+ * <p>
+ * An order still {@link OrderStatus#ACCEPTED} at startup was not funded before the previous
+ * shutdown and is queued again. One left {@link OrderStatus#FUNDING} was being funded when the
+ * service stopped: it is read before HTTP requests are served, so that it cannot be one of this
+ * run, and resumed with {@link OrderService#reprendreAchat}.
+ */
+@Service
+public class OrderPipeline {
+
+    private final OrderService orderService;
+    private final OrderRepository orderRepository;
+    private final ThreadPoolExecutor executor;
+    private final Counter rejected;
+    private final List<Integer> interrupted = new ArrayList<>();
+
+    public OrderPipeline(OrderService orderService,
+                         OrderRepository orderRepository,
+                         @Value("${orders.pipeline.workers:8}") int workers,
+                         @Value("${orders.pipeline.capacity:1000}") int capacity,
+                         MeterRegistry meterRegistry) {
+        this.orderService = orderService;
+        this.orderRepository = orderRepository;
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(capacity), r -> {
+                Thread thread = new Thread(r, "order-pipeline-" + threads.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        executor.prestartAllCoreThreads(); // resumeAcceptedOrders feeds the queue directly
+        Gauge.builder("orders.pipeline.pending", executor, e -> e.getQueue().size() + e.getActiveCount())
+            .description("Accepted orders waiting for funding and dispatch")
+            .register(meterRegistry);
+        this.rejected = Counter.builder("orders.pipeline.rejected")
+            .description("Orders refused because the pipeline was full")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Queues an accepted order; {@code false} if the pipeline is full.
+     */
+    public boolean submit(int orderId) {
+        try {
+            executor.execute(() -> orderService.traiterAchat(orderId));
+            return true;
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            return false;
+        }
+    }
+
+    // Runs before the web server starts
+    @PostConstruct
+    void findInterruptedOrders() {
+        for (Order order : orderRepository.findByStatus(OrderStatus.FUNDING)) {
+            interrupted.add(order.getOrderId());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeAcceptedOrders() {
+        List<Runnable> backlog = new ArrayList<>();
+        for (int orderId : interrupted) {
+            backlog.add(() -> orderService.reprendreAchat(orderId));
+        }
+        // Orders placed since startup may be among them, traiterAchat funds each order once
+        for (Order order : orderRepository.findByStatus(OrderStatus.ACCEPTED)) {
+            backlog.add(() -> orderService.traiterAchat(order.getOrderId()));
+        }
+        for (Runnable task : backlog) {
+            // Blocks rather than refusing, the queue drains while the backlog is resubmitted
+            try {
+                executor.getQueue().put(task);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        // Queued orders stay ACCEPTED, and those being funded FUNDING: both are resumed at the next startup
+        executor.shutdown();
+        executor.getQueue().clear();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,79 @@
+package com.broker.orderService.service;
+
+import com.broker.orderService.dto.Trade;
+import org.springframework.stereotype.Service;
+
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Last traded price of each symbol, used to price new orders. Fed by the trades received from
+ * matchingService; reading a price is a single lock-free {@link ConcurrentHashMap} lookup and
+ * never waits for the trade consumer.
+ * <p>
+ * Until a symbol trades, its price is the last one of its persisted candles, or else the
+ * reference price of the seed table, which also defines the symbols that can be ordered.
+ */
+@Service
+public class PriceCache {
+
+    // Reference prices in cents (see Money), used on a cold start
+    private static final Map<String, Long> SEED_PRICES = Map.ofEntries(
+        Map.entry("SPY", 44550L),   // S&P 500 ETF
+        Map.entry("IVV", 44520L),   // iShares S&P 500 ETF
+        Map.entry("VOO", 44580L),   // Vanguard S&P 500 ETF
+        Map.entry("VTI", 26540L),   // Vanguard Total Stock Market ETF
+        Map.entry("QQQ", 38075L),   // Invesco QQQ Trust
+        Map.entry("VEA", 5120L),    // Vanguard FTSE Developed Markets ETF
+        Map.entry("VWO", 4285L),    // Vanguard FTSE Emerging Markets ETF
+        Map.entry("AGG", 10150L),   // iShares Core U.S. Aggregate Bond ETF
+        Map.entry("BND", 7325L),    // Vanguard Total Bond Market ETF
+        Map.entry("IWM", 22030L),   // iShares Russell 2000 ETF
+        Map.entry("EFA", 7990L)     // iShares MSCI EAFE ETF
+    );
+
+    private final Map<String, LastPrice> prices = new ConcurrentHashMap<>();
+
+    public PriceCache(CandleAggregator candleAggregator) {
+        SEED_PRICES.forEach((symbol, seedPrice) -> {
+            long lastTraded = candleAggregator.lastPrice(symbol);
+            prices.put(symbol, new LastPrice(lastTraded > 0 ? lastTraded : seedPrice, Long.MIN_VALUE));
+        });
+    }
+
+    /**
+     * Records the price of a trade, unless a later trade of the same symbol was already seen.
+     */
+    public void onTrade(Trade trade) {
+        if (!prices.containsKey(trade.getStockSymbol())) {
+            return; // Not a symbol orders are priced for
+        }
+        long epochMillis = trade.getTimestamp() != null
+            ? trade.getTimestamp().toInstant(ZoneOffset.UTC).toEpochMilli()
+            : System.currentTimeMillis();
+        prices.merge(trade.getStockSymbol(), new LastPrice(trade.getPrice(), epochMillis),
+            (current, traded) -> traded.epochMillis() >= current.epochMillis() ? traded : current);
+    }
+
+    /**
+     * Last price of {@code symbol} in cents, or {@code null} if the symbol cannot be ordered.
+     */
+    public Long price(String symbol) {
+        LastPrice last = prices.get(symbol);
+        return last != null ? last.price() : null;
+    }
+
+    /**
+     * Current price of every symbol, in cents, sorted by symbol.
+     */
+    public Map<String, Long> prices() {
+        Map<String, Long> current = new TreeMap<>();
+        prices.forEach((symbol, last) -> current.put(symbol, last.price()));
+        return current;
+    }
+
+    private record LastPrice(long price, long epochMillis) {
+    }
+}
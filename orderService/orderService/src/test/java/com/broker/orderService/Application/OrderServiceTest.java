@@ -0,0 +1,90 @@
+package com.broker.orderService.Application;
+
+import com.broker.orderService.domain.Order;
+import com.broker.orderService.domain.OrderStatus;
+import com.broker.orderService.dto.HoldReceipt;
+import com.broker.orderService.infrastructure.client.ClientServiceClient;
+import com.broker.orderService.infrastructure.client.WalletServiceClient;
+import com.broker.orderService.infrastructure.repo.OrderRepository;
+import com.broker.orderService.infrastructure.repo.TransactionRepository;
+import com.broker.orderService.service.DownstreamCalls;
+import com.broker.orderService.service.OrderMessageProducer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.*;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class OrderServiceTest {
+
+    @Mock
+    private OrderRepository orderRepository;
+    @Mock
+    private TransactionRepository transactionRepository;
+    @Mock
+    private WalletServiceClient walletServiceClient;
+    @Mock
+    private ClientServiceClient clientServiceClient;
+    @Mock
+    private OrderMessageProducer orderMessageProducer;
+    @Spy
+    private DownstreamCalls downstreamCalls = new DownstreamCalls(new SimpleMeterRegistry(), 300);
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate();
+
+    @InjectMocks
+    private OrderService orderService;
+
+    private Order order;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        order = new Order(42, "SPY", 10_000, 5, OrderStatus.ACCEPTED);
+        order.setClientEmail("john@brokerx.com");
+        order.setOrderType("BUY");
+        when(orderRepository.findById(42)).thenReturn(Optional.of(order));
+        when(orderRepository.updateStatus(42, OrderStatus.ACCEPTED, OrderStatus.FUNDING)).thenReturn(1);
+    }
+
+    @Test
+    void traiterAchat_ShouldReleaseTheHold_WhenTheClientLookupFails() {
+        when(walletServiceClient.reserve(anyString(), anyLong(), anyLong(), anyString(), anyInt()))
+            .thenReturn(ResponseEntity.ok(new HoldReceipt("h1", 50_000, Instant.now())));
+        when(clientServiceClient.getByEmail("john@brokerx.com")).thenThrow(new IllegalStateException("client-service unavailable"));
+
+        assertFalse(orderService.traiterAchat(42));
+
+        assertEquals(OrderStatus.REJECTED, order.getStatus());
+        verify(walletServiceClient).release("h1");
+    }
+
+    @Test
+    void traiterAchat_ShouldNotFundAnOrderClaimedByAnotherThread() {
+        when(orderRepository.updateStatus(42, OrderStatus.ACCEPTED, OrderStatus.FUNDING)).thenReturn(0);
+
+        assertFalse(orderService.traiterAchat(42));
+
+        verifyNoInteractions(walletServiceClient);
+    }
+
+    @Test
+    void traiterAchat_ShouldReleaseByReference_WhenTheReservationTimesOut() {
+        when(walletServiceClient.reserve(anyString(), anyLong(), anyLong(), anyString(), anyInt())).thenAnswer(invocation -> {
+            Thread.sleep(1_000); // The hold may still be placed after orderService gave up on it
+            return ResponseEntity.ok(new HoldReceipt("h2", 50_000, Instant.now()));
+        });
+
+        assertFalse(orderService.traiterAchat(42));
+
+        assertEquals(OrderStatus.REJECTED, order.getStatus());
+        verify(walletServiceClient).releaseByReference("order-42");
+    }
+}
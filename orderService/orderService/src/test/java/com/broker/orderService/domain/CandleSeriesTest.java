@@ -0,0 +1,63 @@
+package com.broker.orderService.domain;
+
+import com.broker.orderService.dto.Candle;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CandleSeriesTest {
+
+    @Test
+    void trades_ShouldBuildOhlcvBarsAlignedOnTheInterval() {
+        CandleSeries series = new CandleSeries(CandleInterval.ONE_MINUTE);
+        series.add(60_500, 10000, 5);
+        series.add(61_000, 10200, 1);
+        series.add(119_999, 9900, 2);
+        series.add(180_000, 10100, 3); // Next bar after a minute without trades
+
+        assertEquals(List.of(
+            new Candle(60_000, 10000, 10200, 9900, 9900, 8, 3),
+            new Candle(180_000, 10100, 10100, 10100, 10100, 3, 1)), series.latest(10));
+        assertEquals(10100, series.lastClose());
+        assertEquals(1, series.latest(1).size());
+    }
+
+    @Test
+    void lateTrade_ShouldLandInItsOwnBarWithoutMovingTheClose() {
+        CandleSeries series = new CandleSeries(CandleInterval.ONE_SECOND);
+        series.add(1_100, 100, 1);
+        series.add(3_500, 300, 1);
+        series.add(1_050, 90, 1);  // Earlier than the open of its bar
+        series.add(2_200, 200, 1); // Bar that did not exist yet
+
+        List<Candle> candles = series.latest(10);
+        assertEquals(List.of(1_000L, 2_000L, 3_000L), candles.stream().map(Candle::start).toList());
+        assertEquals(new Candle(1_000, 90, 100, 90, 100, 2, 2), candles.get(0));
+        assertEquals(300, series.lastClose());
+    }
+
+    @Test
+    void fullRing_ShouldDropTheOldestBarsAndSurviveAWriteAndRead() throws IOException {
+        CandleSeries series = new CandleSeries(CandleInterval.ONE_HOUR);
+        int capacity = CandleInterval.ONE_HOUR.getCapacity();
+        for (int hour = 0; hour < capacity + 5; hour++) {
+            series.add(hour * 3_600_000L, 1000 + hour, 1);
+        }
+        series.add(0, 1, 1); // Older than the ring: ignored
+
+        assertEquals(capacity, series.size());
+        assertEquals(5 * 3_600_000L, series.latest(capacity).get(0).start());
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        series.write(new DataOutputStream(bytes));
+        CandleSeries restored = new CandleSeries(CandleInterval.ONE_HOUR);
+        restored.read(ByteBuffer.wrap(bytes.toByteArray()));
+        assertEquals(series.latest(capacity), restored.latest(capacity));
+    }
+}
@@ -0,0 +1,34 @@
+package com.broker.orderService.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DownstreamCallsTest {
+
+    @Test
+    void forkedCalls_ShouldOverlapAndTimeOutIndividually() throws Exception {
+        DownstreamCalls downstreamCalls = new DownstreamCalls(new SimpleMeterRegistry(), 1_000);
+        long start = System.nanoTime();
+        try (DownstreamCalls.Scope scope = downstreamCalls.open()) {
+            DownstreamCalls.Call<String> first = scope.fork("first", () -> slow("a", 400));
+            DownstreamCalls.Call<String> second = scope.fork("second", () -> slow("b", 400));
+            DownstreamCalls.Call<String> stuck = scope.fork("stuck", () -> slow("c", 10_000));
+
+            assertEquals("a", first.join());
+            assertEquals("b", second.join());
+            // One after the other they would take 800ms; the margin absorbs a loaded test machine
+            assertTrue(System.nanoTime() - start < 800_000_000L, "the two calls should run concurrently");
+            assertThrows(TimeoutException.class, stuck::join);
+        }
+        assertTrue(System.nanoTime() - start < 3_000_000_000L);
+    }
+
+    private static String slow(String result, long millis) throws InterruptedException {
+        Thread.sleep(millis);
+        return result;
+    }
+}
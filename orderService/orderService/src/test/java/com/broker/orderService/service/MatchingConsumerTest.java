@@ -0,0 +1,40 @@
+package com.broker.orderService.service;
+
+import com.broker.orderService.domain.Order;
+import com.broker.orderService.domain.OrderStatus;
+import com.broker.orderService.dto.OrderCancellation;
+import com.broker.orderService.dto.Trade;
+import com.broker.orderService.infrastructure.repo.OrderRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MatchingConsumerTest {
+
+    private final OrderRepository orderRepository = mock(OrderRepository.class);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void cancellation_ShouldLeaveTheOrderCancelledWithItsFills() {
+        CandleAggregator candleAggregator = new CandleAggregator(directory.toString(), 60_000);
+        MatchingConsumer consumer = new MatchingConsumer(orderRepository, candleAggregator, new PriceCache(candleAggregator));
+        Order order = new Order(42, "SPY", 10_000, 5, OrderStatus.PENDING);
+        when(orderRepository.findById(42)).thenReturn(Optional.of(order));
+
+        consumer.receiveCancellation(new OrderCancellation("42", "SPY", "BUY", 2, 3));
+        // A trade of the order republished after the cancellation
+        consumer.receiveTrade(new Trade(7, "42", "43", "SPY", 2, 10_000, LocalDateTime.now()));
+
+        assertEquals(OrderStatus.CANCELLED, order.getStatus());
+        assertEquals(2, order.getFilledQuantity());
+    }
+}
@@ -0,0 +1,37 @@
+package com.broker.orderService.service;
+
+import com.broker.orderService.dto.Trade;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PriceCacheTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void price_ShouldFollowTheLatestTradeAndIgnoreOlderOnes() throws InterruptedException {
+        CandleAggregator candleAggregator = new CandleAggregator(directory.toString(), 60_000);
+        LocalDateTime now = LocalDateTime.now();
+        candleAggregator.onTrade(new Trade(1, "b1", "s1", "QQQ", 10, 38100, now));
+        PriceCache priceCache = new PriceCache(candleAggregator);
+
+        assertEquals(Long.valueOf(44550L), priceCache.price("SPY")); // Seed price
+        assertEquals(Long.valueOf(38100L), priceCache.price("QQQ")); // Latest candle
+        assertNull(priceCache.price("XYZ"));
+
+        priceCache.onTrade(new Trade(2, "b2", "s2", "SPY", 10, 44600, now));
+        priceCache.onTrade(new Trade(3, "b3", "s3", "SPY", 5, 44400, now.minusSeconds(1)));
+        priceCache.onTrade(new Trade(4, "b4", "s4", "XYZ", 5, 100, now));
+
+        assertEquals(Long.valueOf(44600L), priceCache.price("SPY"));
+        assertNull(priceCache.price("XYZ"));
+        assertEquals(Long.valueOf(44600L), priceCache.prices().get("SPY"));
+        candleAggregator.shutdown();
+    }
+}
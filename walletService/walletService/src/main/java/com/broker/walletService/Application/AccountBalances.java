@@ -0,0 +1,110 @@
+package com.broker.walletService.Application;
+
+import com.broker.walletService.domain.MovementType;
+import com.broker.walletService.domain.Wallet;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Where the balances of the wallets are kept and changed, amounts in cents. Each change is
+ * atomic: it is either applied whole or, when the funds do not cover it, not at all.
+ * <p>
+ * {@link AccountLedger} (the default) keeps them in memory with write-behind to the database;
+ * {@link DatabaseBalances} ({@code wallet.ledger.enabled=false}) changes the {@code Wallet}
+ * rows directly, which allows several walletService instances.
+ * <p>
+ * Every change applied is also appended to the {@code Movement} table, through the
+ * {@link MovementBatcher} or from the ledger journal; {@code reference} is stored with it, e.g.
+ * the hold it belongs to.
+ */
+public interface AccountBalances {
+
+    // Returned instead of a balance by a change that was not applied
+    long REJECTED = -1;
+
+    /**
+     * Available balance of the wallet; 0 if it does not exist.
+     */
+    long balance(String ownerEmail);
+
+    /**
+     * Available balances of the wallets among {@code ownerEmails} that exist, read at once.
+     */
+    Map<String, Long> balances(Collection<String> ownerEmails);
+
+    boolean exists(String ownerEmail);
+
+    /**
+     * Adds a wallet that was just inserted in the database.
+     */
+    void register(Wallet wallet);
+
+    /**
+     * @return the balance right after the credit, or {@link #REJECTED} if the wallet does not exist
+     */
+    long credit(String ownerEmail, long amount, String reference);
+
+    /**
+     * @return the balance right after the debit, or {@link #REJECTED} if the balance does not cover it
+     */
+    long debit(String ownerEmail, long amount, String reference);
+
+    /**
+     * Applies the instructions in order, each on its own like the method of its type:
+     * {@link #credit} for {@link MovementType#DEPOSIT}, {@link #debit}, {@link #reserve} for
+     * {@link MovementType#HOLD}, {@link #capture} and {@link #release}.
+     *
+     * @return per instruction, the balance right after it or {@link #REJECTED}
+     */
+    default long[] apply(List<Instruction> instructions) {
+        long[] balances = new long[instructions.size()];
+        for (int i = 0; i < balances.length; i++) {
+            Instruction instruction = instructions.get(i);
+            String ownerEmail = instruction.ownerEmail();
+            long amount = instruction.amount();
+            String reference = instruction.reference();
+            balances[i] = switch (instruction.type()) {
+                case DEPOSIT -> credit(ownerEmail, amount, reference);
+                case DEBIT -> debit(ownerEmail, amount, reference);
+                case HOLD -> reserve(ownerEmail, amount, reference) ? balance(ownerEmail) : REJECTED;
+                case CAPTURE -> capture(ownerEmail, amount, reference) ? balance(ownerEmail) : REJECTED;
+                case RELEASE -> release(ownerEmail, amount, reference) ? balance(ownerEmail) : REJECTED;
+            };
+        }
+        return balances;
+    }
+
+    /**
+     * Applies the instructions in order as part of the caller's database transaction: they take
+     * effect, once, if and only if it commits. If one of them is not covered, nothing is applied
+     * and an {@link IllegalStateException} is thrown, which rolls the transaction back.
+     */
+    void applyInTransaction(List<Instruction> instructions);
+
+    /**
+     * Moves {@code amount} from the balance to the reserved funds, if the balance covers it.
+     */
+    boolean reserve(String ownerEmail, long amount, String reference);
+
+    /**
+     * Spends {@code amount} of the reserved funds.
+     */
+    boolean capture(String ownerEmail, long amount, String reference);
+
+    /**
+     * Moves {@code amount} of the reserved funds back to the balance.
+     */
+    boolean release(String ownerEmail, long amount, String reference);
+
+    /**
+     * A change to apply; {@code id}, when given, identifies it uniquely, e.g. the trade it settles.
+     */
+    record Instruction(String ownerEmail, MovementType type, long amount, String reference, String id) {
+
+        public Instruction(String ownerEmail, MovementType type, long amount, String reference) {
+            this(ownerEmail, type, amount, reference, null);
+        }
+    }
+}
@@ -0,0 +1,508 @@
+package com.broker.walletService.Application;
+
+import com.broker.walletService.domain.LedgerCheckpoint;
+import com.broker.walletService.domain.MovementType;
+import com.broker.walletService.domain.PendingInstruction;
+import com.broker.walletService.domain.Wallet;
+import com.broker.walletService.infrastructure.repo.LedgerCheckpointRepository;
+import com.broker.walletService.infrastructure.repo.LedgerJournal;
+import com.broker.walletService.infrastructure.repo.PendingInstructionRepository;
+import com.broker.walletService.infrastructure.repo.WalletRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resident balances of every wallet. A money movement locks one of {@code wallet.ledger.stripes}
+ * stripes, checks and applies the change in memory, and journals the resulting balance in the
+ * stripe's {@link LedgerJournal} before returning: no database round trip, and accounts of
+ * different stripes never wait on each other.
+ * <p>
+ * Every {@code wallet.ledger.flush-interval-ms} the balances changed since the last flush are
+ * written to the {@code Wallet} table in one transaction, together with the {@code Movement}
+ * rows of the changes read back from the journal generations closed since the previous flush
+ * and the last generation of each stripe written ({@link LedgerCheckpoint}); the generations are
+ * deleted afterwards. A change thus never waits on the database, and its movement is written
+ * even if the database was down when it was made: the generations stay on disk until a flush
+ * succeeds. At startup the balances are loaded from the table and the journals left by the
+ * previous run are replayed over them; their movements not yet in the table are written by the
+ * first flush.
+ * <p>
+ * Changes decided by a database transaction ({@link #applyInTransaction}) are recorded as
+ * {@link PendingInstruction} rows in it and applied once it committed; the flush that writes
+ * their movements deletes the rows, and rows left by a crash in between are applied at startup,
+ * unless the replayed journals already hold them.
+ * <p>
+ * The ledger owns the balances: it assumes a single walletService instance, and the balance
+ * columns must not be updated by anything else while it runs.
+ */
+@Service
+@ConditionalOnProperty(name = "wallet.ledger.enabled", havingValue = "true", matchIfMissing = true)
+public class AccountLedger implements AccountBalances {
+
+    private static final String UPDATE_CHECKPOINT = "update ledger_checkpoint set generation = ? where stripe = ?";
+    private static final String INSERT_PENDING = "insert into pending_instruction"
+        + " (instruction_id, owner_email, type, amount_cents, reference, created_at) values (?, ?, ?, ?, ?, ?)";
+    private static final String DELETE_PENDING = "delete from pending_instruction where instruction_id = ?";
+
+    private final WalletRepository walletRepository;
+    private final LedgerCheckpointRepository checkpointRepository;
+    private final PendingInstructionRepository pendingInstructionRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Stripe[] stripes;
+    // Per stripe, the last generation whose movements are in the database; used by the flusher only
+    private final long[] flushed;
+    private final Map<String, Account> accounts = new ConcurrentHashMap<>();
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+    // Committed instructions the funds did not cover once applied, retried at each flush
+    private final Queue<Instruction> uncovered = new ConcurrentLinkedQueue<>();
+    private final ScheduledExecutorService flusher;
+    private final Timer flushTimer;
+
+    public AccountLedger(WalletRepository walletRepository,
+                         LedgerCheckpointRepository checkpointRepository,
+                         PendingInstructionRepository pendingInstructionRepository,
+                         JdbcTemplate jdbcTemplate,
+                         TransactionTemplate transactionTemplate,
+                         MeterRegistry meterRegistry,
+                         @Value("${wallet.ledger.dir:./data/ledger}") String directory,
+                         @Value("${wallet.ledger.stripes:64}") int stripeCount,
+                         @Value("${wallet.ledger.fsync:false}") boolean fsync,
+                         @Value("${wallet.ledger.flush-interval-ms:200}") long flushIntervalMillis) {
+        if (Integer.bitCount(stripeCount) != 1) {
+            throw new IllegalArgumentException("wallet.ledger.stripes must be a power of two: " + stripeCount);
+        }
+        this.walletRepository = walletRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.pendingInstructionRepository = pendingInstructionRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.flushed = checkpoints(stripeCount);
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            // New generations must come after the checkpoint even if its files were all deleted
+            stripes[i] = new Stripe(LedgerJournal.open(Path.of(directory), i, fsync, flushed[i]));
+        }
+
+        Gauge.builder("wallet.ledger.dirty", dirty, Set::size)
+            .description("Accounts changed since the last write to the database")
+            .register(meterRegistry);
+        this.flushTimer = Timer.builder("wallet.ledger.flush")
+            .description("Duration of a write-behind flush of the ledger to the database")
+            .register(meterRegistry);
+        recover();
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "ledger-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override // Does not lock
+    public long balance(String ownerEmail) {
+        Account account = account(ownerEmail);
+        return account != null ? account.balance : 0;
+    }
+
+    @Override
+    public Map<String, Long> balances(Collection<String> ownerEmails) {
+        Map<String, Long> balances = new HashMap<>();
+        List<String> unknown = new ArrayList<>();
+        for (String ownerEmail : ownerEmails) {
+            Account account = accounts.get(ownerEmail);
+            if (account != null) {
+                balances.put(ownerEmail, account.balance);
+            } else {
+                unknown.add(ownerEmail);
+            }
+        }
+        if (!unknown.isEmpty()) {
+            // Wallets inserted while the ledger was loading, see account
+            for (Wallet wallet : walletRepository.findByOwnerEmailIn(unknown)) {
+                register(wallet);
+                balances.put(wallet.getOwnerEmail(), accounts.get(wallet.getOwnerEmail()).balance);
+            }
+        }
+        return balances;
+    }
+
+    @Override
+    public boolean exists(String ownerEmail) {
+        return account(ownerEmail) != null;
+    }
+
+    @Override
+    public void register(Wallet wallet) {
+        accounts.putIfAbsent(wallet.getOwnerEmail(), new Account(wallet.getBalance(), wallet.getReserved()));
+    }
+
+    @Override
+    public long credit(String ownerEmail, long amount, String reference) {
+        return apply(ownerEmail, MovementType.DEPOSIT, amount, reference, null);
+    }
+
+    @Override
+    public long debit(String ownerEmail, long amount, String reference) {
+        return apply(ownerEmail, MovementType.DEBIT, amount, reference, null);
+    }
+
+    @Override
+    public boolean reserve(String ownerEmail, long amount, String reference) {
+        return apply(ownerEmail, MovementType.HOLD, amount, reference, null) != REJECTED;
+    }
+
+    @Override
+    public boolean capture(String ownerEmail, long amount, String reference) {
+        return apply(ownerEmail, MovementType.CAPTURE, amount, reference, null) != REJECTED;
+    }
+
+    @Override
+    public boolean release(String ownerEmail, long amount, String reference) {
+        return apply(ownerEmail, MovementType.RELEASE, amount, reference, null) != REJECTED;
+    }
+
+    /**
+     * Checks that the current balances cover the instructions, records them as pending in the
+     * caller's transaction, and applies them once it committed. Instructions without an id are
+     * given one.
+     */
+    @Override
+    public void applyInTransaction(List<Instruction> instructions) {
+        if (instructions.isEmpty()) {
+            return;
+        }
+        check(instructions);
+        Timestamp now = Timestamp.from(Instant.now());
+        List<Instruction> identified = new ArrayList<>(instructions.size());
+        List<Object[]> rows = new ArrayList<>(instructions.size());
+        for (Instruction instruction : instructions) {
+            String id = instruction.id() != null ? instruction.id() : UUID.randomUUID().toString();
+            identified.add(new Instruction(instruction.ownerEmail(), instruction.type(), instruction.amount(),
+                instruction.reference(), id));
+            rows.add(new Object[] {id, instruction.ownerEmail(), instruction.type().name(), instruction.amount(),
+                instruction.reference(), now});
+        }
+        jdbcTemplate.batchUpdate(INSERT_PENDING, rows);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                for (Instruction instruction : identified) {
+                    applyCommitted(instruction, true);
+                }
+            }
+        });
+    }
+
+    /**
+     * Writes the balances changed since the last flush and the movements of the journal
+     * generations closed since then to the database, then deletes those generations.
+     */
+    public void flush() {
+        for (int i = uncovered.size(); i > 0; i--) {
+            applyCommitted(uncovered.poll(), false);
+        }
+        // Changes made from now on go to new generations, which stay until a later flush
+        long[] closed = new long[stripes.length];
+        for (int i = 0; i < stripes.length; i++) {
+            synchronized (stripes[i]) {
+                closed[i] = stripes[i].journal.rotate();
+            }
+        }
+        // Read outside the stripe locks: closed generations are no longer written
+        List<Object[]> movements = new ArrayList<>();
+        List<Object[]> checkpoints = new ArrayList<>();
+        List<Object[]> applied = new ArrayList<>();
+        for (int i = 0; i < stripes.length; i++) {
+            int count = movements.size();
+            stripes[i].journal.replay(flushed[i], closed[i], entry -> {
+                if (entry.type() != null) { // Journaled before records held their change
+                    movements.add(new Object[] {entry.ownerEmail(), entry.type().name(), entry.amount(),
+                        entry.balance(), entry.reserved(), entry.reference(), Timestamp.from(entry.createdAt())});
+                }
+                if (entry.instructionId() != null) {
+                    applied.add(new Object[] {entry.instructionId()});
+                }
+            });
+            if (movements.size() > count) {
+                checkpoints.add(new Object[] {closed[i], i});
+            }
+        }
+        Map<String, long[]> changed = new HashMap<>();
+        for (String ownerEmail : new ArrayList<>(dirty)) {
+            dirty.remove(ownerEmail); // A change after this read marks the account again
+            Stripe stripe = stripe(ownerEmail);
+            synchronized (stripe) {
+                Account account = accounts.get(ownerEmail);
+                changed.put(ownerEmail, new long[] {account.balance, account.reserved});
+            }
+        }
+        if (!changed.isEmpty() || !movements.isEmpty()) {
+            try {
+                flushTimer.record(() -> write(changed, movements, checkpoints, applied));
+            } catch (RuntimeException e) {
+                dirty.addAll(changed.keySet());
+                throw e; // The generations stay, their movements are written by a later flush
+            }
+        }
+        for (int i = 0; i < stripes.length; i++) {
+            flushed[i] = closed[i];
+            synchronized (stripes[i]) {
+                stripes[i].journal.deleteUpTo(closed[i]);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException, IOException {
+        flusher.shutdown();
+        flusher.awaitTermination(5, TimeUnit.SECONDS);
+        flush();
+        for (Stripe stripe : stripes) {
+            stripe.journal.close();
+        }
+    }
+
+    private void write(Map<String, long[]> changed, List<Object[]> movements, List<Object[]> checkpoints,
+                       List<Object[]> applied) {
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!changed.isEmpty()) {
+                List<Wallet> wallets = walletRepository.findByOwnerEmailIn(changed.keySet());
+                for (Wallet wallet : wallets) {
+                    long[] state = changed.get(wallet.getOwnerEmail());
+                    wallet.setBalance(state[0]);
+                    wallet.setReserved(state[1]);
+                }
+                walletRepository.saveAll(wallets);
+            }
+            if (!movements.isEmpty()) {
+                jdbcTemplate.batchUpdate(MovementBatcher.INSERT, movements);
+                jdbcTemplate.batchUpdate(UPDATE_CHECKPOINT, checkpoints);
+            }
+            if (!applied.isEmpty()) {
+                jdbcTemplate.batchUpdate(DELETE_PENDING, applied);
+            }
+        });
+    }
+
+    // Last generation written per stripe, with a row for every stripe so that flushes only update
+    private long[] checkpoints(int stripeCount) {
+        long[] generations = new long[stripeCount];
+        boolean[] found = new boolean[stripeCount];
+        for (LedgerCheckpoint checkpoint : checkpointRepository.findAll()) {
+            if (checkpoint.getStripe() < stripeCount) {
+                generations[checkpoint.getStripe()] = checkpoint.getGeneration();
+                found[checkpoint.getStripe()] = true;
+            }
+        }
+        List<LedgerCheckpoint> missing = new ArrayList<>();
+        for (int i = 0; i < stripeCount; i++) {
+            if (!found[i]) {
+                missing.add(new LedgerCheckpoint(i, 0));
+            }
+        }
+        if (!missing.isEmpty()) {
+            checkpointRepository.saveAll(missing);
+        }
+        return generations;
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            System.err.println("Ledger flush failed, retrying at the next interval: " + e.getMessage());
+        }
+    }
+
+    // Balance after the change, or REJECTED; its movement is written from the journal by the flush
+    private long apply(String ownerEmail, MovementType type, long amount, String reference, String instructionId) {
+        Stripe stripe = stripe(ownerEmail);
+        synchronized (stripe) {
+            Account account = account(ownerEmail);
+            if (account == null || !change(account, type, amount)) {
+                return REJECTED;
+            }
+            stripe.journal.append(new LedgerJournal.Entry(ownerEmail, account.balance, account.reserved, type, amount,
+                reference, instructionId, Instant.now()));
+            dirty.add(ownerEmail);
+            return account.balance;
+        }
+    }
+
+    // Applies the change to the account if its funds cover it
+    private static boolean change(Account account, MovementType type, long amount) {
+        switch (type) {
+            case DEPOSIT -> account.balance += amount;
+            case DEBIT -> {
+                if (account.balance < amount) {
+                    return false;
+                }
+                account.balance -= amount;
+            }
+            case HOLD -> {
+                if (account.balance < amount) {
+                    return false;
+                }
+                account.balance -= amount;
+                account.reserved += amount;
+            }
+            case CAPTURE -> {
+                if (account.reserved < amount) {
+                    return false;
+                }
+                account.reserved -= amount;
+            }
+            case RELEASE -> {
+                if (account.reserved < amount) {
+                    return false;
+                }
+                account.reserved -= amount;
+                account.balance += amount;
+            }
+        }
+        return true;
+    }
+
+    // Throws if the instructions, applied in order, are not covered by the current balances
+    private void check(List<Instruction> instructions) {
+        Map<String, Account> after = new HashMap<>();
+        for (Instruction instruction : instructions) {
+            String ownerEmail = instruction.ownerEmail();
+            Account state = after.get(ownerEmail);
+            if (state == null) {
+                Account account = account(ownerEmail);
+                if (account == null) {
+                    throw new IllegalStateException("No wallet for " + ownerEmail);
+                }
+                synchronized (stripe(ownerEmail)) {
+                    state = new Account(account.balance, account.reserved);
+                }
+                after.put(ownerEmail, state);
+            }
+            if (!change(state, instruction.type(), instruction.amount())) {
+                throw new IllegalStateException("The wallet of " + ownerEmail + " does not cover the "
+                    + instruction.type() + " of " + instruction.amount() + " cents for " + instruction.reference());
+            }
+        }
+    }
+
+    // Its pending row stays until the flush that writes its movement, or until the next start
+    private void applyCommitted(Instruction instruction, boolean firstAttempt) {
+        long balance;
+        try {
+            balance = apply(instruction.ownerEmail(), instruction.type(), instruction.amount(), instruction.reference(),
+                instruction.id());
+        } catch (RuntimeException e) {
+            balance = REJECTED;
+        }
+        if (balance == REJECTED) {
+            if (firstAttempt) {
+                System.err.println("Committed " + instruction.type() + " " + instruction.id() + " of "
+                    + instruction.ownerEmail() + " is no longer covered, retrying it at each flush");
+            }
+            uncovered.add(instruction);
+        }
+    }
+
+    // Instructions committed before the last stop that the replayed journals do not hold
+    private void applyPending() {
+        List<PendingInstruction> pending = pendingInstructionRepository.findAllByOrderBySequenceAsc();
+        for (PendingInstruction instruction : pending) {
+            applyCommitted(new Instruction(instruction.getOwnerEmail(), instruction.getType(), instruction.getAmount(),
+                instruction.getReference(), instruction.getInstructionId()), true);
+        }
+        if (!pending.isEmpty()) {
+            System.out.println("Ledger applied " + pending.size() + " instructions committed before the last stop");
+            flush();
+        }
+    }
+
+    // Loads a wallet the ledger does not know yet, e.g. inserted while the ledger was loading
+    private Account account(String ownerEmail) {
+        Account account = accounts.get(ownerEmail);
+        if (account != null) {
+            return account;
+        }
+        Wallet wallet = walletRepository.findByOwnerEmail(ownerEmail);
+        if (wallet == null) {
+            return null;
+        }
+        register(wallet);
+        return accounts.get(ownerEmail);
+    }
+
+    private void recover() {
+        for (Wallet wallet : walletRepository.findAll()) {
+            register(wallet);
+        }
+        int replayed = 0;
+        for (Stripe stripe : stripes) {
+            int[] count = {0};
+            stripe.journal.replay(entry -> {
+                Account account = accounts.get(entry.ownerEmail());
+                if (account != null) {
+                    account.balance = entry.balance();
+                    account.reserved = entry.reserved();
+                    dirty.add(entry.ownerEmail());
+                    count[0]++;
+                }
+            });
+            replayed += count[0];
+        }
+        System.out.println("Ledger loaded " + accounts.size() + " wallets, replayed " + replayed + " journaled changes");
+        flush(); // Deletes the pending instructions the journals hold
+        applyPending();
+    }
+
+    private Stripe stripe(String ownerEmail) {
+        int hash = ownerEmail.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
+    }
+
+    private static final class Stripe {
+        final LedgerJournal journal;
+
+        Stripe(LedgerJournal journal) {
+            this.journal = journal;
+        }
+    }
+
+    // Written under the stripe lock; balance is volatile so that it can be read without it
+    private static final class Account {
+        volatile long balance;
+        long reserved;
+
+        Account(long balance, long reserved) {
+            this.balance = balance;
+            this.reserved = reserved;
+        }
+    }
+}
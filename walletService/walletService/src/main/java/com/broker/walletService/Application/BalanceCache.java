@@ -0,0 +1,121 @@
+package com.broker.walletService.Application;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+
+/**
+ * Recently read or changed balances, in cents, so that repeated reads of a wallet do not query
+ * the database. An entry is dropped {@code ttl} after it was written, which bounds how stale it
+ * can be when another walletService instance changes the wallet; beyond {@code maxSize} entries
+ * the expired ones are dropped first, then arbitrary ones.
+ * <p>
+ * Each entry carries the version of the {@code Wallet} row it was read from, and is only
+ * replaced by a newer or equal version: a read that raced with a change, or two changes written
+ * out of order, cannot bring back an older balance.
+ */
+public class BalanceCache {
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter expired;
+    private final Counter evicted;
+
+    public BalanceCache(int maxSize, Duration ttl, MeterRegistry meterRegistry) {
+        this(maxSize, ttl, meterRegistry, System::nanoTime);
+    }
+
+    BalanceCache(int maxSize, Duration ttl, MeterRegistry meterRegistry, LongSupplier clock) {
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.clock = clock;
+        Gauge.builder("wallet.balance.cache.size", entries, Map::size)
+            .description("Balances held in the cache")
+            .register(meterRegistry);
+        this.hits = Counter.builder("wallet.balance.cache.requests").tag("result", "hit")
+            .description("Balance reads served by the cache")
+            .register(meterRegistry);
+        this.misses = Counter.builder("wallet.balance.cache.requests").tag("result", "miss")
+            .description("Balance reads that went to the database")
+            .register(meterRegistry);
+        this.expired = Counter.builder("wallet.balance.cache.evictions").tag("cause", "expired")
+            .description("Balances dropped from the cache")
+            .register(meterRegistry);
+        this.evicted = Counter.builder("wallet.balance.cache.evictions").tag("cause", "size")
+            .description("Balances dropped from the cache")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Cached balance of the wallet, or {@code null} if it must be read from the database.
+     */
+    public Long get(String ownerEmail) {
+        Entry entry = entries.get(ownerEmail);
+        if (entry != null) {
+            if (!isExpired(entry, clock.getAsLong())) {
+                hits.increment();
+                return entry.balance();
+            }
+            if (entries.remove(ownerEmail, entry)) {
+                expired.increment();
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Caches the balance of version {@code version} of the wallet row, unless a newer one is cached.
+     */
+    public void put(String ownerEmail, long balance, long version) {
+        entries.merge(ownerEmail, new Entry(balance, version, clock.getAsLong()),
+            (current, latest) -> latest.version() >= current.version() ? latest : current);
+        if (entries.size() > maxSize && evicting.compareAndSet(false, true)) {
+            try {
+                evict();
+            } finally {
+                evicting.set(false);
+            }
+        }
+    }
+
+    public void invalidate(String ownerEmail) {
+        entries.remove(ownerEmail);
+    }
+
+    // Down to 90% of maxSize, so that the next puts do not each scan the map again
+    private void evict() {
+        int target = maxSize - maxSize / 10;
+        long now = clock.getAsLong();
+        for (Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator(); it.hasNext(); ) {
+            if (isExpired(it.next().getValue(), now)) {
+                it.remove();
+                expired.increment();
+            }
+        }
+        for (Iterator<String> it = entries.keySet().iterator(); it.hasNext() && entries.size() > target; ) {
+            it.next();
+            it.remove();
+            evicted.increment();
+        }
+    }
+
+    private boolean isExpired(Entry entry, long now) {
+        return now - entry.loadedAt() >= ttlNanos;
+    }
+
+    private record Entry(long balance, long version, long loadedAt) {
+    }
+}
@@ -0,0 +1,217 @@
+package com.broker.walletService.Application;
+
+import com.broker.walletService.domain.MovementType;
+import com.broker.walletService.domain.Wallet;
+import com.broker.walletService.infrastructure.repo.WalletRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Balances changed directly in the {@code Wallet} table, one guarded UPDATE per change (see
+ * {@link WalletRepository}): the database checks the funds and applies the change atomically,
+ * so several walletService instances can share the table without locking wallets in Java.
+ * <p>
+ * The updates are run by the {@link MovementBatcher}, together with the insert of their
+ * movements: the changes requested concurrently share one commit instead of one each. Those of
+ * {@link #applyInTransaction} are run in the caller's transaction instead.
+ * <p>
+ * Balances are read through a {@link BalanceCache} that every committed change updates with
+ * the balance it left; changes made by other instances show up once the entry expires, after
+ * {@code wallet.balance-cache.ttl-ms} at most.
+ */
+@Service
+@ConditionalOnProperty(name = "wallet.ledger.enabled", havingValue = "false")
+public class DatabaseBalances implements AccountBalances {
+
+    private final WalletRepository walletRepository;
+    private final MovementBatcher movementBatcher;
+    private final JdbcTemplate jdbcTemplate;
+    private final BalanceCache cache;
+
+    public DatabaseBalances(WalletRepository walletRepository,
+                            MovementBatcher movementBatcher,
+                            JdbcTemplate jdbcTemplate,
+                            MeterRegistry meterRegistry,
+                            @Value("${wallet.balance-cache.max-size:10000}") int cacheSize,
+                            @Value("${wallet.balance-cache.ttl-ms:2000}") long cacheTtlMillis) {
+        this.walletRepository = walletRepository;
+        this.movementBatcher = movementBatcher;
+        this.jdbcTemplate = jdbcTemplate;
+        this.cache = new BalanceCache(cacheSize, Duration.ofMillis(cacheTtlMillis), meterRegistry);
+    }
+
+    @Override
+    public long balance(String ownerEmail) {
+        Long cached = cache.get(ownerEmail);
+        if (cached != null) {
+            return cached;
+        }
+        Wallet wallet = walletRepository.findByOwnerEmail(ownerEmail);
+        if (wallet == null) {
+            return 0;
+        }
+        cache.put(ownerEmail, wallet.getBalance(), wallet.getVersion());
+        return wallet.getBalance();
+    }
+
+    @Override
+    public Map<String, Long> balances(Collection<String> ownerEmails) {
+        Map<String, Long> balances = new HashMap<>();
+        List<String> missed = new ArrayList<>();
+        for (String ownerEmail : ownerEmails) {
+            Long cached = cache.get(ownerEmail);
+            if (cached != null) {
+                balances.put(ownerEmail, cached);
+            } else {
+                missed.add(ownerEmail);
+            }
+        }
+        if (!missed.isEmpty()) {
+            for (Wallet wallet : walletRepository.findByOwnerEmailIn(missed)) {
+                cache.put(wallet.getOwnerEmail(), wallet.getBalance(), wallet.getVersion());
+                balances.put(wallet.getOwnerEmail(), wallet.getBalance());
+            }
+        }
+        return balances;
+    }
+
+    @Override
+    public boolean exists(String ownerEmail) {
+        return cache.get(ownerEmail) != null || walletRepository.existsByOwnerEmail(ownerEmail);
+    }
+
+    @Override
+    public void register(Wallet wallet) {
+        cache.put(wallet.getOwnerEmail(), wallet.getBalance(), wallet.getVersion());
+    }
+
+    @Override
+    public long credit(String ownerEmail, long amount, String reference) {
+        long[] balances = change(MovementType.DEPOSIT, ownerEmail, amount, reference,
+            () -> walletRepository.credit(ownerEmail, amount));
+        return balances != null ? balances[0] : REJECTED;
+    }
+
+    @Override
+    public long debit(String ownerEmail, long amount, String reference) {
+        long[] balances = change(MovementType.DEBIT, ownerEmail, amount, reference,
+            () -> walletRepository.debit(ownerEmail, amount));
+        return balances != null ? balances[0] : REJECTED;
+    }
+
+    // All queued before waiting for the first one, so that they share the commits of the batcher
+    @Override
+    public long[] apply(List<Instruction> instructions) {
+        List<CompletableFuture<long[]>> pending = new ArrayList<>(instructions.size());
+        for (Instruction instruction : instructions) {
+            pending.add(submit(instruction.type(), instruction.ownerEmail(), instruction.amount(),
+                instruction.reference(), update(instruction)));
+        }
+        long[] balances = new long[pending.size()];
+        for (int i = 0; i < balances.length; i++) {
+            long[] applied = pending.get(i).join();
+            balances[i] = applied != null ? applied[0] : REJECTED;
+        }
+        return balances;
+    }
+
+    // The guarded updates join the caller's transaction; the cache is updated once it committed
+    @Override
+    public void applyInTransaction(List<Instruction> instructions) {
+        Timestamp now = Timestamp.from(Instant.now());
+        List<Object[]> movements = new ArrayList<>(instructions.size());
+        Map<String, long[]> left = new HashMap<>();
+        for (Instruction instruction : instructions) {
+            if (update(instruction).apply() == 0) {
+                throw new IllegalStateException("The wallet of " + instruction.ownerEmail() + " does not cover the "
+                    + instruction.type() + " of " + instruction.amount() + " cents for " + instruction.reference());
+            }
+            Wallet wallet = walletRepository.findByOwnerEmail(instruction.ownerEmail());
+            movements.add(new Object[] {instruction.ownerEmail(), instruction.type().name(), instruction.amount(),
+                wallet.getBalance(), wallet.getReserved(), instruction.reference(), now});
+            left.put(instruction.ownerEmail(), new long[] {wallet.getBalance(), wallet.getVersion()});
+        }
+        if (movements.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(MovementBatcher.INSERT, movements);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                left.forEach((ownerEmail, balances) -> cache.put(ownerEmail, balances[0], balances[1]));
+            }
+        });
+    }
+
+    @Override
+    public boolean reserve(String ownerEmail, long amount, String reference) {
+        return change(MovementType.HOLD, ownerEmail, amount, reference,
+            () -> walletRepository.reserve(ownerEmail, amount)) != null;
+    }
+
+    @Override
+    public boolean capture(String ownerEmail, long amount, String reference) {
+        return change(MovementType.CAPTURE, ownerEmail, amount, reference,
+            () -> walletRepository.capture(ownerEmail, amount)) != null;
+    }
+
+    @Override
+    public boolean release(String ownerEmail, long amount, String reference) {
+        return change(MovementType.RELEASE, ownerEmail, amount, reference,
+            () -> walletRepository.release(ownerEmail, amount)) != null;
+    }
+
+    // Balances left by the update once committed, or null if it changed no row; cached write-through
+    private long[] change(MovementType type, String ownerEmail, long amount, String reference, Update update) {
+        return submit(type, ownerEmail, amount, reference, update).join();
+    }
+
+    private CompletableFuture<long[]> submit(MovementType type, String ownerEmail, long amount, String reference,
+                                             Update update) {
+        return movementBatcher.submit(type, ownerEmail, amount, reference, () -> {
+            if (update.apply() == 0) {
+                return null;
+            }
+            // The row stays locked by the update until the commit, so this is the state it produced
+            Wallet wallet = walletRepository.findByOwnerEmail(ownerEmail);
+            return new long[] {wallet.getBalance(), wallet.getReserved(), wallet.getVersion()};
+        }).thenApply(balances -> {
+            if (balances != null) {
+                cache.put(ownerEmail, balances[0], balances[2]);
+            }
+            return balances;
+        });
+    }
+
+    private Update update(Instruction instruction) {
+        String ownerEmail = instruction.ownerEmail();
+        long amount = instruction.amount();
+        return switch (instruction.type()) {
+            case DEPOSIT -> () -> walletRepository.credit(ownerEmail, amount);
+            case DEBIT -> () -> walletRepository.debit(ownerEmail, amount);
+            case HOLD -> () -> walletRepository.reserve(ownerEmail, amount);
+            case CAPTURE -> () -> walletRepository.capture(ownerEmail, amount);
+            case RELEASE -> () -> walletRepository.release(ownerEmail, amount);
+        };
+    }
+
+    @FunctionalInterface
+    private interface Update {
+        int apply(); // Rows changed
+    }
+}
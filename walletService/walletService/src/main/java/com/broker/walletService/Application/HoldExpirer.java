@@ -0,0 +1,53 @@
+package com.broker.walletService.Application;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Releases the expired holds every {@code wallet.holds.expiry-interval-ms}, so funds set aside
+ * for something that never happened return to the balance without a compensating credit. Holds
+ * of orders are not expired, see {@link WalletService#expiredHolds}.
+ */
+@Service
+public class HoldExpirer {
+
+    private final WalletService walletService;
+    private final ScheduledExecutorService scheduler;
+
+    public HoldExpirer(WalletService walletService,
+                       @Value("${wallet.holds.expiry-interval-ms:10000}") long intervalMillis) {
+        this.walletService = walletService;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "hold-expirer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::expire, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void expire() {
+        try {
+            int expired = 0;
+            for (String holdId : walletService.expiredHolds()) {
+                if (walletService.expire(holdId)) {
+                    expired++;
+                }
+            }
+            if (expired > 0) {
+                System.out.println(expired + " réservation(s) expirée(s) libérée(s)");
+            }
+        } catch (Exception e) {
+            System.err.println("Failed to expire holds: " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,182 @@
+package com.broker.walletService.Application;
+
+import com.broker.walletService.domain.MovementType;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Group commit of the wallet movements. Changes submitted concurrently queue up while the
+ * previous batch commits; a single writer thread then takes up to {@code wallet.movements.batch-size}
+ * of them, applies them in order and inserts their {@code Movement} rows as one JDBC batch, all
+ * in one transaction. The cost of a commit is thus shared by every change that arrived during
+ * the previous one, and the rows of a wallet are inserted in the order its changes were applied.
+ * <p>
+ * If a batch fails, its changes are retried one transaction each so that a single bad change
+ * only fails its own caller.
+ */
+@Service
+public class MovementBatcher {
+
+    static final String INSERT = "insert into movement"
+        + " (owner_email, type, amount_cents, balance_after_cents, reserved_after_cents, reference, created_at)"
+        + " values (?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<Pending> queue;
+    private final int batchSize;
+    private final Thread writer;
+    private final DistributionSummary batchSizes;
+    private final Timer commitTimer;
+    private volatile boolean running = true;
+
+    public MovementBatcher(JdbcTemplate jdbcTemplate,
+                           TransactionTemplate transactionTemplate,
+                           MeterRegistry meterRegistry,
+                           @Value("${wallet.movements.batch-size:500}") int batchSize,
+                           @Value("${wallet.movements.capacity:10000}") int capacity) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        Gauge.builder("wallet.movements.pending", queue, BlockingQueue::size)
+            .description("Wallet movements waiting for the next group commit")
+            .register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("wallet.movements.batch.size")
+            .description("Wallet movements written per commit")
+            .register(meterRegistry);
+        this.commitTimer = Timer.builder("wallet.movements.commit")
+            .description("Duration of a group commit of wallet movements")
+            .register(meterRegistry);
+        this.writer = new Thread(this::run, "movement-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queues {@code change}, to be applied by the writer thread inside the transaction of its
+     * batch, and its movement; the returned future completes once that transaction committed,
+     * with the balances the change left, or {@code null} if the change was not applied.
+     * Blocks while the queue is full.
+     */
+    public CompletableFuture<long[]> submit(MovementType type, String ownerEmail, long amount, String reference,
+                                            BalanceChange change) {
+        Pending pending = new Pending(type, ownerEmail, amount, reference, change, Instant.now());
+        try {
+            queue.put(pending);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pending.result.completeExceptionally(e);
+        }
+        return pending.result;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false; // The writer drains the queue before it stops
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                commit(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void commit(List<Pending> batch) {
+        long[][] balances;
+        try {
+            balances = commitTimer.record(() -> transactionTemplate.execute(status -> write(batch)));
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                batch.get(0).result.completeExceptionally(e);
+                return;
+            }
+            for (Pending pending : batch) {
+                commit(List.of(pending));
+            }
+            return;
+        }
+        batchSizes.record(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).result.complete(balances[i]);
+        }
+    }
+
+    // Runs in the transaction of the batch
+    private long[][] write(List<Pending> batch) {
+        long[][] balances = new long[batch.size()][];
+        List<Object[]> rows = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            Pending pending = batch.get(i);
+            balances[i] = pending.change.apply();
+            if (balances[i] != null) {
+                rows.add(new Object[] {pending.ownerEmail, pending.type.name(), pending.amount, balances[i][0],
+                    balances[i][1], pending.reference, Timestamp.from(pending.createdAt)});
+            }
+        }
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT, rows);
+        }
+        return balances;
+    }
+
+    @FunctionalInterface
+    public interface BalanceChange {
+        /**
+         * Balance and reserved funds the change left, in cents, or {@code null} if it was not applied;
+         * the caller may append more items, which are returned as is, e.g. the row version.
+         */
+        long[] apply();
+    }
+
+    private static final class Pending {
+        final MovementType type;
+        final String ownerEmail;
+        final long amount;
+        final String reference;
+        final BalanceChange change;
+        final Instant createdAt;
+        final CompletableFuture<long[]> result = new CompletableFuture<>();
+
+        Pending(MovementType type, String ownerEmail, long amount, String reference, BalanceChange change,
+                Instant createdAt) {
+            this.type = type;
+            this.ownerEmail = ownerEmail;
+            this.amount = amount;
+            this.reference = reference;
+            this.change = change;
+            this.createdAt = createdAt;
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.broker.walletService.Application;
+
+import com.broker.walletService.domain.Hold;
+import com.broker.walletService.domain.HoldStatus;
+import com.broker.walletService.domain.MovementType;
+import com.broker.walletService.dto.OrderCancellation;
+import com.broker.walletService.dto.Trade;
+import com.broker.walletService.infrastructure.repo.HoldRepository;
+import com.broker.walletService.infrastructure.repo.SettledTradeRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Settles the trades and order cancellations of matchingService on the holds funding the
+ * orders, a batch of events at a time (see SettlementConsumer).
+ * <p>
+ * A trade captures its cost on the hold of its buy order and counts its quantity as filled; once
+ * the order is filled, what is left of the hold (the price improvement) is released. If the hold
+ * was closed meanwhile, e.g. released by hand, the cost is debited from the buyer's balance
+ * instead. A cancellation releases what the order still holds. Each batch is one transaction:
+ * the already settled trades are found with one query, the holds of the batch locked with
+ * another, the ids of the new trades inserted as one JDBC batch, and the balance changes handed
+ * together to {@link AccountBalances#applyInTransaction} last, so that they commit with the rest.
+ * A trade delivered again is recognized by its id and skipped; a balance change the funds do not
+ * cover fails the whole batch.
+ */
+@Service
+public class TradeSettlement {
+
+    // Reference orderService gives the hold of an order
+    static final String ORDER_REFERENCE = "order-";
+    // Ids of the balance changes, see AccountBalances.Instruction
+    private static final String TRADE_INSTRUCTION = "trade-";
+    private static final String RELEASE_INSTRUCTION = "release-";
+
+    private static final String INSERT = "insert into settled_trade (trade_id, settled_at) values (?, ?)";
+
+    private final HoldRepository holdRepository;
+    private final SettledTradeRepository settledTradeRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final AccountBalances accountBalances;
+    private final Counter settled;
+    private final Counter duplicates;
+    private final Counter unmatched;
+    private final Counter debited;
+    private final Counter cancellations;
+    private final Timer batchTimer;
+
+    public TradeSettlement(HoldRepository holdRepository,
+                           SettledTradeRepository settledTradeRepository,
+                           JdbcTemplate jdbcTemplate,
+                           TransactionTemplate transactionTemplate,
+                           AccountBalances accountBalances,
+                           MeterRegistry meterRegistry) {
+        this.holdRepository = holdRepository;
+        this.settledTradeRepository = settledTradeRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.accountBalances = accountBalances;
+        this.settled = Counter.builder("wallet.settlement.trades").tag("result", "settled")
+            .description("Trades received for settlement")
+            .register(meterRegistry);
+        this.duplicates = Counter.builder("wallet.settlement.trades").tag("result", "duplicate")
+            .description("Trades received for settlement")
+            .register(meterRegistry);
+        this.unmatched = Counter.builder("wallet.settlement.trades").tag("result", "unmatched")
+            .description("Trades received for settlement")
+            .register(meterRegistry);
+        this.debited = Counter.builder("wallet.settlement.trades").tag("result", "debited")
+            .description("Trades received for settlement")
+            .register(meterRegistry);
+        this.cancellations = Counter.builder("wallet.settlement.cancellations")
+            .description("Order cancellations that released or closed a hold")
+            .register(meterRegistry);
+        this.batchTimer = Timer.builder("wallet.settlement.batch")
+            .description("Duration of the settlement of a batch of matching events")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Settles {@code events} ({@link Trade}s and {@link OrderCancellation}s) in order, in one
+     * transaction; if it fails, none of them is settled and the whole batch can be retried.
+     *
+     * @throws IllegalStateException if the funds do not cover one of the balance changes
+     */
+    public void settle(List<Object> events) {
+        batchTimer.record(() -> transactionTemplate.executeWithoutResult(status -> settleAll(events)));
+    }
+
+    private void settleAll(List<Object> events) {
+        Set<Long> tradeIds = new HashSet<>();
+        Set<String> references = new HashSet<>();
+        for (Object event : events) {
+            if (event instanceof Trade trade) {
+                tradeIds.add(trade.getTradeId());
+                references.add(ORDER_REFERENCE + trade.getBuyOrderId());
+            } else if (event instanceof OrderCancellation cancellation) {
+                references.add(ORDER_REFERENCE + cancellation.orderId());
+            }
+        }
+        Set<Long> settledIds = tradeIds.isEmpty() ? new HashSet<>()
+            : new HashSet<>(settledTradeRepository.findSettledIds(tradeIds));
+        Map<String, Hold> holds = new HashMap<>();
+        if (!references.isEmpty()) {
+            for (Hold hold : holdRepository.findByReferenceInForUpdate(references)) {
+                // A retried reservation may have left a closed hold with the same reference
+                holds.merge(hold.getReference(), hold, (current, other) ->
+                    current.getStatus() == HoldStatus.HELD ? current : other);
+            }
+        }
+
+        Timestamp now = Timestamp.from(Instant.now());
+        List<Object[]> settledRows = new ArrayList<>();
+        Set<Hold> changed = new LinkedHashSet<>();
+        List<AccountBalances.Instruction> instructions = new ArrayList<>();
+        int settledCount = 0;
+        int duplicateCount = 0;
+        int unmatchedCount = 0;
+        int debitedCount = 0;
+        for (Object event : events) {
+            if (event instanceof Trade trade) {
+                if (!settledIds.add(trade.getTradeId())) {
+                    duplicateCount++;
+                    continue;
+                }
+                settledRows.add(new Object[] {trade.getTradeId(), now});
+                Hold hold = holds.get(ORDER_REFERENCE + trade.getBuyOrderId());
+                if (hold == null) {
+                    // Sell side only, or a buy order funded by a debit before holds existed
+                    unmatchedCount++;
+                    continue;
+                }
+                if (hold.getStatus() != HoldStatus.HELD) {
+                    System.err.println("Hold " + hold.getHoldId() + " of order " + trade.getBuyOrderId()
+                        + " is closed, debiting trade " + trade.getTradeId() + " from the balance");
+                    instructions.add(new AccountBalances.Instruction(hold.getOwnerEmail(), MovementType.DEBIT,
+                        trade.getPrice() * trade.getQuantity(), hold.getHoldId(), TRADE_INSTRUCTION + trade.getTradeId()));
+                    debitedCount++;
+                    continue;
+                }
+                capture(hold, trade, instructions);
+                changed.add(hold);
+                settledCount++;
+            } else if (event instanceof OrderCancellation cancellation) {
+                Hold hold = holds.get(ORDER_REFERENCE + cancellation.orderId());
+                if (hold == null || hold.getStatus() != HoldStatus.HELD) {
+                    continue; // Sell order, order funded before holds existed, or already closed
+                }
+                // Trades of the order republished after the cancellation still find the hold open,
+                // it is released once they are all settled
+                hold.setQuantity(cancellation.filledQuantity());
+                if (hold.getFilledQuantity() >= cancellation.filledQuantity()) {
+                    release(hold, instructions);
+                }
+                changed.add(hold);
+                cancellations.increment();
+            }
+        }
+
+        if (!changed.isEmpty()) {
+            holdRepository.saveAll(changed);
+            holdRepository.flush();
+        }
+        if (!settledRows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT, settledRows);
+        }
+        // The balances change last, once the holds and settled trades are written; throws if not covered
+        accountBalances.applyInTransaction(instructions);
+
+        settled.increment(settledCount);
+        duplicates.increment(duplicateCount);
+        unmatched.increment(unmatchedCount);
+        debited.increment(debitedCount);
+        System.out.println("Règlement de " + events.size() + " événements: " + settledCount + " transactions réglées, "
+            + duplicateCount + " doublons, " + debitedCount + " débitées du solde, " + unmatchedCount + " sans réservation");
+    }
+
+    // Cost of the fill, at the trade price; the hold was sized at the order's limit price
+    private static void capture(Hold hold, Trade trade, List<AccountBalances.Instruction> instructions) {
+        long cost = trade.getPrice() * trade.getQuantity();
+        long amount = Math.min(cost, hold.getRemaining());
+        if (amount < cost) {
+            System.err.println("Hold " + hold.getHoldId() + " covers only " + amount + " of the " + cost + " cents of trade " + trade.getTradeId());
+        }
+        hold.setCaptured(hold.getCaptured() + amount);
+        hold.setFilledQuantity(hold.getFilledQuantity() + trade.getQuantity());
+        if (amount > 0) {
+            instructions.add(new AccountBalances.Instruction(hold.getOwnerEmail(), MovementType.CAPTURE, amount,
+                hold.getHoldId(), TRADE_INSTRUCTION + trade.getTradeId()));
+        }
+        if (hold.getRemaining() == 0) {
+            hold.setStatus(HoldStatus.CAPTURED);
+        } else if (hold.getQuantity() > 0 && hold.getFilledQuantity() >= hold.getQuantity()) {
+            release(hold, instructions);
+        }
+    }
+
+    private static void release(Hold hold, List<AccountBalances.Instruction> instructions) {
+        long remaining = hold.getRemaining();
+        hold.setStatus(HoldStatus.RELEASED);
+        if (remaining > 0) {
+            instructions.add(new AccountBalances.Instruction(hold.getOwnerEmail(), MovementType.RELEASE, remaining,
+                hold.getHoldId(), RELEASE_INSTRUCTION + hold.getHoldId()));
+        }
+    }
+}
@@ -2,8 +2,25 @@ package com.broker.walletService.Application;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import com.broker.walletService.infrastructure.repo.HoldRepository;
 import com.broker.walletService.infrastructure.repo.WalletRepository;
+import com.broker.walletService.domain.Hold;
+import com.broker.walletService.domain.HoldStatus;
+import com.broker.walletService.domain.Money;
+import com.broker.walletService.domain.MovementType;
 import com.broker.walletService.domain.Wallet;
+import com.broker.walletService.dto.TransactionInstruction;
+import com.broker.walletService.dto.TransactionResult;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 public class WalletService {
@@ -11,65 +28,263 @@ public class WalletService {
     @Autowired
     private WalletRepository walletRepository;
 
+    @Autowired
+    private HoldRepository holdRepository;
+
+    @Autowired
+    private AccountBalances accountBalances;
+
     public Wallet createWallet(String ownerEmail) {
         Wallet existingWallet = walletRepository.findByOwnerEmail(ownerEmail);
         if (existingWallet != null) {
             return existingWallet; // Wallet already exists
         }
         
-        Wallet newWallet = new Wallet(ownerEmail);
-        return walletRepository.save(newWallet);
+        Wallet newWallet = walletRepository.save(new Wallet(ownerEmail));
+        accountBalances.register(newWallet);
+        return newWallet;
     }
 
+    // Balances of the returned entity may lag behind the resident ledger, see getBalance
     public Wallet getWalletByEmail(String ownerEmail) {
         return walletRepository.findByOwnerEmail(ownerEmail);
     }
 
-    @Transactional
-    public boolean deposit(String ownerEmail, Double amount) {
+    public boolean deposit(String ownerEmail, long amount) { // amount in cents
         if (amount <= 0) {
             return false;
         }
 
-        Wallet wallet = walletRepository.findByOwnerEmail(ownerEmail);
-        if (wallet == null) {
+        if (!accountBalances.exists(ownerEmail)) {
             // Create wallet if it doesn't exist
-            wallet = createWallet(ownerEmail);
+            createWallet(ownerEmail);
         }
 
-        wallet.setBalance(wallet.getBalance() + amount);
-        walletRepository.save(wallet);
+        long balance = accountBalances.credit(ownerEmail, amount, null);
+        if (balance == AccountBalances.REJECTED) {
+            return false;
+        }
 
-        System.out.println("Dépôt de " + amount + "$ effectué pour " + ownerEmail);
+        System.out.println("Dépôt de " + Money.format(amount) + "$ effectué pour " + ownerEmail + ". Nouveau solde: " + Money.format(balance));
         return true;
     }
 
-    public Double getBalance(String ownerEmail) {
-        Wallet wallet = walletRepository.findByOwnerEmail(ownerEmail);
-        return wallet != null ? wallet.getBalance() : 0.0;
+    public long getBalance(String ownerEmail) { // in cents, see AccountBalances
+        return accountBalances.balance(ownerEmail);
     }
 
-    @Transactional
-    public boolean debit(String ownerEmail, double amount) {
+    // Balances in cents of the wallets that exist, read at once
+    public Map<String, Long> getBalances(Collection<String> ownerEmails) {
+        return accountBalances.balances(ownerEmails);
+    }
+
+    public boolean debit(String ownerEmail, long amount) { // amount in cents
         if (amount <= 0) {
             return false;
         }
 
-        Wallet wallet = walletRepository.findByOwnerEmail(ownerEmail);
-        if (wallet == null) {
+        if (!accountBalances.exists(ownerEmail)) {
             System.out.println("Wallet not found for " + ownerEmail);
             return false; // Wallet doesn't exist
         }
 
-        if (wallet.getBalance() < amount) {
-            System.out.println("Insufficient funds for " + ownerEmail + ". Balance: " + wallet.getBalance() + ", Required: " + amount);
+        long balance = accountBalances.debit(ownerEmail, amount, null);
+        if (balance == AccountBalances.REJECTED) {
+            System.out.println("Insufficient funds for " + ownerEmail + ". Balance: " + Money.format(accountBalances.balance(ownerEmail)) + ", Required: " + Money.format(amount));
             return false; // Insufficient funds
         }
-
-        wallet.setBalance(wallet.getBalance() - amount);
-        walletRepository.save(wallet);
         
-        System.out.println("Débit de " + amount + "$ effectué pour " + ownerEmail + ". Nouveau solde: " + wallet.getBalance());
+        System.out.println("Débit de " + Money.format(amount) + "$ effectué pour " + ownerEmail + ". Nouveau solde: " + Money.format(balance));
+        return true;
+    }
+
+    /**
+     * Applies many credits and debits in one go, in order; a credit creates the wallet if needed,
+     * like {@link #deposit}. The instructions are checked and their wallets read at once, then
+     * handed together to {@link AccountBalances#apply}.
+     *
+     * @return one result per instruction, in the same order
+     */
+    public List<TransactionResult> applyAll(List<TransactionInstruction> instructions) {
+        Set<String> owners = new HashSet<>();
+        for (TransactionInstruction instruction : instructions) {
+            if (instruction.ownerEmail() != null) {
+                owners.add(instruction.ownerEmail());
+            }
+        }
+        Set<String> existing = new HashSet<>(accountBalances.balances(owners).keySet());
+
+        TransactionResult[] results = new TransactionResult[instructions.size()];
+        List<AccountBalances.Instruction> accepted = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        for (int i = 0; i < results.length; i++) {
+            TransactionInstruction instruction = instructions.get(i);
+            MovementType type = "DEBIT".equalsIgnoreCase(instruction.type()) ? MovementType.DEBIT
+                : "CREDIT".equalsIgnoreCase(instruction.type()) ? MovementType.DEPOSIT : null;
+            if (instruction.ownerEmail() == null || instruction.ownerEmail().isEmpty()
+                    || instruction.amountCents() <= 0 || type == null) {
+                results[i] = TransactionResult.of(instruction, TransactionResult.Status.INVALID, null);
+                continue;
+            }
+            if (!existing.contains(instruction.ownerEmail())) {
+                if (type == MovementType.DEBIT) {
+                    results[i] = TransactionResult.of(instruction, TransactionResult.Status.NOT_FOUND, null);
+                    continue;
+                }
+                createWallet(instruction.ownerEmail());
+                existing.add(instruction.ownerEmail());
+            }
+            accepted.add(new AccountBalances.Instruction(instruction.ownerEmail(), type, instruction.amountCents(),
+                instruction.reference()));
+            positions.add(i);
+        }
+
+        long[] balances = accountBalances.apply(accepted);
+        int applied = 0;
+        for (int j = 0; j < balances.length; j++) {
+            TransactionInstruction instruction = instructions.get(positions.get(j));
+            if (balances[j] == AccountBalances.REJECTED) {
+                results[positions.get(j)] = TransactionResult.of(instruction, TransactionResult.Status.INSUFFICIENT_FUNDS, null);
+            } else {
+                results[positions.get(j)] = TransactionResult.of(instruction, TransactionResult.Status.APPLIED, balances[j]);
+                applied++;
+            }
+        }
+
+        System.out.println("Lot de " + results.length + " transactions: " + applied + " appliquées, " + (results.length - applied) + " refusées");
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Atomically sets {@code amount} aside on the wallet for {@code ttl}; {@code null} if the
+     * wallet does not exist or its balance is insufficient. {@code quantity} is that of the order
+     * the hold funds (0 if unknown), see TradeSettlement.
+     */
+    public Hold reserve(String ownerEmail, long amount, Duration ttl, String reference, int quantity) { // amount in cents
+        if (amount <= 0) {
+            return null;
+        }
+
+        if (!accountBalances.exists(ownerEmail)) {
+            System.out.println("Wallet not found for " + ownerEmail);
+            return null;
+        }
+
+        Hold hold = new Hold(ownerEmail, amount, Instant.now().plus(ttl), reference, quantity);
+        // Checked and moved atomically (see AccountBalances): concurrent holds cannot overspend
+        if (!accountBalances.reserve(ownerEmail, amount, hold.getHoldId())) {
+            System.out.println("Insufficient funds for " + ownerEmail + ". Balance: " + Money.format(accountBalances.balance(ownerEmail)) + ", Required: " + Money.format(amount));
+            return null;
+        }
+        try {
+            hold = holdRepository.save(hold);
+        } catch (RuntimeException e) {
+            accountBalances.release(ownerEmail, amount, hold.getHoldId());
+            throw e;
+        }
+
+        System.out.println("Réservation " + hold.getHoldId() + " de " + Money.format(amount) + "$ pour " + ownerEmail + ". Solde disponible: " + Money.format(accountBalances.balance(ownerEmail)));
+        return hold;
+    }
+
+    /**
+     * Spends {@code amount} of a hold, e.g. for one fill of the order; the hold stays open for
+     * the rest until it is fully captured, released or expired. Fails if the hold is not open or
+     * holds less than {@code amount}. The reserved funds are spent with the transaction (see
+     * {@link AccountBalances#applyInTransaction}), which an uncovered capture rolls back.
+     */
+    @Transactional
+    public boolean capture(String holdId, long amount) { // amount in cents
+        if (amount <= 0) {
+            return false;
+        }
+
+        Hold hold = holdRepository.findByIdForUpdate(holdId);
+        if (hold == null || hold.getStatus() != HoldStatus.HELD || hold.getRemaining() < amount) {
+            System.out.println("Cannot capture " + Money.format(amount) + "$ on hold " + holdId);
+            return false;
+        }
+
+        hold.setCaptured(hold.getCaptured() + amount);
+        if (hold.getRemaining() == 0) {
+            hold.setStatus(HoldStatus.CAPTURED);
+        }
+        holdRepository.saveAndFlush(hold);
+        accountBalances.applyInTransaction(List.of(
+            new AccountBalances.Instruction(hold.getOwnerEmail(), MovementType.CAPTURE, amount, holdId)));
+
+        System.out.println("Capture de " + Money.format(amount) + "$ sur la réservation " + holdId);
         return true;
     }
+
+    /**
+     * Puts the part of a hold that was not captured back on the balance. Releasing a hold that is
+     * no longer open does nothing and succeeds, so that a retried release is harmless.
+     */
+    @Transactional
+    public boolean release(String holdId) {
+        Hold hold = holdRepository.findByIdForUpdate(holdId);
+        if (hold == null) {
+            return false;
+        }
+        if (hold.getStatus() == HoldStatus.HELD) {
+            close(hold, HoldStatus.RELEASED);
+        }
+        return true;
+    }
+
+    /**
+     * Releases the open holds placed with {@code reference}, e.g. when the caller gave up on a
+     * reservation whose answer it never received. Like {@link #release}, succeeds if there is none.
+     */
+    @Transactional
+    public int releaseByReference(String reference) {
+        int released = 0;
+        for (Hold hold : holdRepository.findByReferenceInForUpdate(List.of(reference))) {
+            if (hold.getStatus() == HoldStatus.HELD) {
+                close(hold, HoldStatus.RELEASED);
+                released++;
+            }
+        }
+        return released;
+    }
+
+    /**
+     * Holds whose TTL ran out, see {@link #expire}. Only those placed without an order quantity:
+     * a hold that records its order's quantity funds an order that may still be resting in the
+     * book and fill at any time, so it stays open until TradeSettlement closes it, once the order
+     * is filled or matchingService cancels it.
+     */
+    public List<String> expiredHolds() {
+        return holdRepository.findByStatusAndExpiresAtBeforeAndQuantity(HoldStatus.HELD, Instant.now(), 0).stream()
+            .map(Hold::getHoldId)
+            .toList();
+    }
+
+    /**
+     * Releases an expired hold, in its own transaction.
+     */
+    @Transactional
+    public boolean expire(String holdId) {
+        Hold hold = holdRepository.findByIdForUpdate(holdId);
+        if (hold == null || hold.getStatus() != HoldStatus.HELD) {
+            return false; // Captured or released meanwhile
+        }
+        close(hold, HoldStatus.EXPIRED);
+        return true;
+    }
+
+    // Called within the caller's transaction: the funds go back to the balance if and only if it commits.
+    // Same instruction id as TradeSettlement, a hold is released only once
+    private void close(Hold hold, HoldStatus status) {
+        long remaining = hold.getRemaining();
+        hold.setStatus(status);
+        holdRepository.saveAndFlush(hold);
+        if (remaining > 0) {
+            accountBalances.applyInTransaction(List.of(new AccountBalances.Instruction(hold.getOwnerEmail(),
+                MovementType.RELEASE, remaining, hold.getHoldId(), "release-" + hold.getHoldId())));
+        }
+
+        System.out.println("Libération de " + Money.format(remaining) + "$ de la réservation " + hold.getHoldId() + " (" + status + ")");
+    }
 }
@@ -0,0 +1,101 @@
+package com.broker.walletService.config;
+
+import com.broker.walletService.dto.Trade;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Reads the {@link Trade}s matchingService sends in its fixed-layout binary encoding
+ * ({@value #CONTENT_TYPE}, see the converter of the same name in matchingService and
+ * orderService). walletService only consumes: messages of another content type, and anything it
+ * writes, go through {@code fallback} (JSON).
+ * <p>
+ * Layout, big-endian, schema version 1:
+ * <pre>
+ * header : version (1) | type (1)
+ * Trade  : tradeId (8) | quantity (4) | price (8) | timestamp (8) | stockSymbol | buyOrderId | sellOrderId
+ * string : length (1, 0xFF for null) | ASCII bytes
+ * </pre>
+ */
+public class BinaryMessageConverter implements MessageConverter {
+
+    public static final String CONTENT_TYPE = "application/x-brokerx-binary";
+    static final byte VERSION = 1;
+
+    private static final byte TYPE_TRADE = 2;
+    private static final int NULL_STRING = 0xFF;
+    private static final long NULL_TIMESTAMP = Long.MIN_VALUE;
+
+    private final MessageConverter fallback;
+
+    public BinaryMessageConverter(MessageConverter fallback) {
+        this.fallback = fallback;
+    }
+
+    @Override
+    public Message toMessage(Object object, MessageProperties messageProperties) {
+        return fallback.toMessage(object, messageProperties);
+    }
+
+    @Override
+    public Object fromMessage(Message message) {
+        if (!CONTENT_TYPE.equals(message.getMessageProperties().getContentType())) {
+            return fallback.fromMessage(message);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(message.getBody());
+        try {
+            byte version = buffer.get();
+            if (version != VERSION) {
+                throw new MessageConversionException("Unsupported binary schema version " + version);
+            }
+            byte type = buffer.get();
+            if (type != TYPE_TRADE) {
+                throw new MessageConversionException("Unexpected binary message type " + type);
+            }
+            return decodeTrade(buffer);
+        } catch (BufferUnderflowException e) {
+            throw new MessageConversionException("Truncated binary message", e);
+        }
+    }
+
+    private static Trade decodeTrade(ByteBuffer buffer) {
+        Trade trade = new Trade();
+        trade.setTradeId(buffer.getLong());
+        trade.setQuantity(buffer.getInt());
+        trade.setPrice(buffer.getLong());
+        trade.setTimestamp(timestamp(buffer.getLong()));
+        trade.setStockSymbol(getString(buffer));
+        trade.setBuyOrderId(getString(buffer));
+        trade.setSellOrderId(getString(buffer));
+        return trade;
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.get() & 0xFF;
+        if (length == NULL_STRING) {
+            return null;
+        }
+        if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.US_ASCII);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    private static LocalDateTime timestamp(long epochNanos) {
+        if (epochNanos == NULL_TIMESTAMP) {
+            return null;
+        }
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(epochNanos, 1_000_000_000L),
+            (int) Math.floorMod(epochNanos, 1_000_000_000L), ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,73 @@
+package com.broker.walletService.config;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+
+/**
+ * Brings a wallet database written before balances were kept in cents up to date, before
+ * Hibernate updates the schema: {@code ddl-auto=update} only adds the new columns, it neither
+ * fills them from the old ones nor drops those.
+ * <p>
+ * The decimal {@code balance} is copied to {@code balance_cents} as {@code round(balance * 100)},
+ * then dropped since it is NOT NULL and no longer written. The NOT NULL columns added since,
+ * {@code reserved_cents} and {@code version}, start at 0 on the existing rows. Runs at every
+ * startup and does nothing on a new or already migrated database.
+ */
+@Configuration
+public class CentsMigration {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CentsMigration(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @Bean
+    public static EntityManagerFactoryDependsOnPostProcessor centsMigrationBeforeHibernate() {
+        return new EntityManagerFactoryDependsOnPostProcessor("centsMigration");
+    }
+
+    @PostConstruct
+    public void migrate() {
+        if (!hasTable("wallet")) {
+            return; // Created by Hibernate
+        }
+        toCents("wallet", "balance", "balance_cents");
+        jdbcTemplate.execute("alter table wallet add column if not exists reserved_cents bigint default 0 not null");
+        jdbcTemplate.execute("alter table wallet add column if not exists version bigint default 0 not null");
+    }
+
+    // Each row is converted and its decimal value cleared in one statement, so that a migration
+    // interrupted before the drop can run again. Added to what the cents column may already hold,
+    // if Hibernate created it before this migration existed
+    private void toCents(String table, String decimalColumn, String centsColumn) {
+        if (!hasColumn(table, decimalColumn)) {
+            return;
+        }
+        System.out.println("Migrating " + table + "." + decimalColumn + " to " + centsColumn);
+        jdbcTemplate.execute("alter table " + table + " add column if not exists " + centsColumn + " bigint");
+        jdbcTemplate.execute("alter table " + table + " alter column " + decimalColumn + " set null");
+        int rows = jdbcTemplate.update("update " + table + " set " + centsColumn + " = coalesce(" + centsColumn + ", 0) + round("
+            + decimalColumn + " * 100), " + decimalColumn + " = null where " + decimalColumn + " is not null");
+        jdbcTemplate.execute("alter table " + table + " drop column " + decimalColumn);
+        System.out.println("Migrated " + rows + " rows of " + table + " to " + centsColumn);
+    }
+
+    private boolean hasTable(String table) {
+        Integer count = jdbcTemplate.queryForObject("select count(*) from information_schema.tables"
+            + " where table_schema = current_schema and upper(table_name) = upper(?)", Integer.class, table);
+        return count != null && count > 0;
+    }
+
+    private boolean hasColumn(String table, String column) {
+        Integer count = jdbcTemplate.queryForObject("select count(*) from information_schema.columns"
+            + " where table_schema = current_schema and upper(table_name) = upper(?) and upper(column_name) = upper(?)",
+            Integer.class, table, column);
+        return count != null && count > 0;
+    }
+}
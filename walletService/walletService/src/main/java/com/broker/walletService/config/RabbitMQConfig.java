@@ -0,0 +1,97 @@
+package com.broker.walletService.config;
+
+import com.broker.walletService.dto.OrderCancellation;
+import com.broker.walletService.dto.Trade;
+import org.springframework.amqp.core.AcknowledgeMode;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.Declarables;
+import org.springframework.amqp.core.DirectExchange;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.QueueBuilder;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.support.converter.ContentTypeDelegatingMessageConverter;
+import org.springframework.amqp.support.converter.DefaultClassMapper;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Map;
+
+@Configuration
+public class RabbitMQConfig {
+    //trades and order cancellations published by the matching service
+    public static final String MATCHING_EVENTS_EXCHANGE = "matchingEvents"; // Must match the exchange name in matchingService
+    public static final String TRADE_ROUTING_KEY = "trade";
+    public static final String CANCELLATION_ROUTING_KEY = "cancel";
+    //settled by walletService, see SettlementConsumer
+    public static final String SETTLEMENT_QUEUE = "walletSettlementQueue";
+    //events SettlementConsumer gave up on, kept for an operator
+    public static final String SETTLEMENT_DEAD_LETTER_QUEUE = "walletSettlementQueue.dlq";
+
+    /**
+     * Durable queue bound to {@value #MATCHING_EVENTS_EXCHANGE} for both trades and
+     * cancellations, so that events published while walletService is down are settled when it
+     * comes back. Both kinds share the queue to keep the order matchingService published them in.
+     * Rejected messages are routed to {@value #SETTLEMENT_DEAD_LETTER_QUEUE}.
+     */
+    @Bean
+    public Declarables settlementQueue() {
+        DirectExchange exchange = new DirectExchange(MATCHING_EVENTS_EXCHANGE, true, false);
+        Queue queue = QueueBuilder.durable(SETTLEMENT_QUEUE)
+            .deadLetterExchange("")
+            .deadLetterRoutingKey(SETTLEMENT_DEAD_LETTER_QUEUE)
+            .build();
+        Queue deadLetters = new Queue(SETTLEMENT_DEAD_LETTER_QUEUE, true);
+        return new Declarables(exchange, queue, deadLetters,
+            BindingBuilder.bind(queue).to(exchange).with(TRADE_ROUTING_KEY),
+            BindingBuilder.bind(queue).to(exchange).with(CANCELLATION_ROUTING_KEY));
+    }
+
+    /**
+     * Reads JSON and binary messages alike, picking the converter from the message content type.
+     * The type ids matchingService writes in JSON messages (its own class names) are mapped to
+     * the classes of walletService.
+     */
+    @Bean
+    public MessageConverter messageConverter() {
+        DefaultClassMapper classMapper = new DefaultClassMapper();
+        classMapper.setIdClassMapping(Map.of(
+            "com.broker.matchingService.dto.Trade", Trade.class,
+            "com.broker.matchingService.dto.OrderCancellation", OrderCancellation.class));
+        Jackson2JsonMessageConverter json = new Jackson2JsonMessageConverter();
+        json.setClassMapper(classMapper);
+        BinaryMessageConverter binary = new BinaryMessageConverter(json);
+        ContentTypeDelegatingMessageConverter converter = new ContentTypeDelegatingMessageConverter(json);
+        converter.addDelegate(MessageProperties.CONTENT_TYPE_JSON, json);
+        converter.addDelegate(BinaryMessageConverter.CONTENT_TYPE, binary);
+        return converter;
+    }
+
+    /**
+     * Hands the listener up to {@code wallet.settlement.batch-size} messages at once, or whatever
+     * arrived within {@code wallet.settlement.receive-timeout-ms}; the listener acknowledges or
+     * rejects each message itself (see SettlementConsumer). A single consumer keeps the events of
+     * an order in order.
+     */
+    @Bean
+    public SimpleRabbitListenerContainerFactory settlementContainerFactory(
+            ConnectionFactory connectionFactory,
+            @Value("${wallet.settlement.batch-size:250}") int batchSize,
+            @Value("${wallet.settlement.receive-timeout-ms:50}") long receiveTimeoutMillis) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        factory.setConnectionFactory(connectionFactory);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(batchSize);
+        factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        factory.setPrefetchCount(batchSize * 2);
+        factory.setReceiveTimeout(receiveTimeoutMillis);
+        factory.setConcurrentConsumers(1);
+        factory.setMaxConcurrentConsumers(1);
+        return factory;
+    }
+}
@@ -0,0 +1,117 @@
+package com.broker.walletService.domain;
+import jakarta.persistence.*;
+
+import java.time.Instant;
+import java.util.UUID;
+
+
+/**
+ * Funds of a wallet set aside for a pending order: reserving moves the amount from the balance
+ * to the wallet's reserved funds, capturing spends (part of) it, and releasing or expiring puts
+ * whatever was not captured back on the balance.
+ */
+@Entity
+@Table(name = "hold", indexes = {
+    @Index(name = "idx_hold_status_expires", columnList = "status, expiresAt"),
+    @Index(name = "idx_hold_reference", columnList = "reference")
+})
+public class Hold {
+
+    @Id
+    private String holdId;
+
+    @Column(nullable = false)
+    private String ownerEmail;
+
+    @Column(name = "amount_cents", nullable = false)
+    private long amount; // in cents, see Money
+
+    @Column(name = "captured_cents", nullable = false)
+    private long captured;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private HoldStatus status;
+
+    @Column(nullable = false)
+    private Instant expiresAt;
+
+    private String reference; // e.g. the order the funds are held for
+
+    @Column(nullable = false)
+    private int quantity; // of the order, 0 if unknown; the hold is released once that much is filled
+
+    @Column(nullable = false)
+    private int filledQuantity;
+
+    public Hold() {}
+
+    public Hold(String ownerEmail, long amount, Instant expiresAt, String reference, int quantity) {
+        this.holdId = UUID.randomUUID().toString();
+        this.ownerEmail = ownerEmail;
+        this.amount = amount;
+        this.expiresAt = expiresAt;
+        this.reference = reference;
+        this.quantity = quantity;
+        this.status = HoldStatus.HELD;
+    }
+
+    /**
+     * Amount still held, i.e. not captured yet.
+     */
+    public long getRemaining() {
+        return amount - captured;
+    }
+
+    public String getHoldId() {
+        return holdId;
+    }
+
+    public String getOwnerEmail() {
+        return ownerEmail;
+    }
+
+    public long getAmount() {
+        return amount;
+    }
+
+    public long getCaptured() {
+        return captured;
+    }
+
+    public void setCaptured(long captured) {
+        this.captured = captured;
+    }
+
+    public HoldStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(HoldStatus status) {
+        this.status = status;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public String getReference() {
+        return reference;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(int quantity) {
+        this.quantity = quantity;
+    }
+
+    public int getFilledQuantity() {
+        return filledQuantity;
+    }
+
+    public void setFilledQuantity(int filledQuantity) {
+        this.filledQuantity = filledQuantity;
+    }
+}
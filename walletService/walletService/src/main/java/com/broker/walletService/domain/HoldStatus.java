@@ -0,0 +1,8 @@
+package com.broker.walletService.domain;
+
+public enum HoldStatus {
+    HELD,     // Funds set aside, can still be captured or released
+    CAPTURED, // Whole amount captured
+    RELEASED, // Remainder returned to the balance
+    EXPIRED   // Remainder returned to the balance when the TTL ran out
+}
@@ -0,0 +1,35 @@
+package com.broker.walletService.domain;
+import jakarta.persistence.*;
+
+
+/**
+ * Last journal generation of a ledger stripe whose movements are in the {@code Movement} table.
+ * It is updated in the transaction that inserts them, so that generations left on disk by a
+ * crash right after that commit are not written a second time (see AccountLedger).
+ */
+@Entity
+@Table(name = "ledger_checkpoint")
+public class LedgerCheckpoint {
+
+    @Id
+    @Column(name = "stripe")
+    private Integer stripe;
+
+    @Column(name = "generation", nullable = false)
+    private long generation;
+
+    public LedgerCheckpoint() {}
+
+    public LedgerCheckpoint(int stripe, long generation) {
+        this.stripe = stripe;
+        this.generation = generation;
+    }
+
+    public Integer getStripe() {
+        return stripe;
+    }
+
+    public long getGeneration() {
+        return generation;
+    }
+}
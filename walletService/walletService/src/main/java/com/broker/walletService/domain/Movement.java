@@ -0,0 +1,76 @@
+package com.broker.walletService.domain;
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+
+/**
+ * One change of a wallet's funds, in the order the changes were applied. Rows are only ever
+ * inserted, in batches (see MovementBatcher and AccountLedger), and carry the balances the
+ * change left so that the history of a wallet reads without recomputing it.
+ */
+@Entity
+@Table(name = "movement", indexes = @Index(name = "idx_movement_owner", columnList = "owner_email, movement_id"))
+public class Movement {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "movement_id")
+    private Long movementId;
+
+    @Column(name = "owner_email", nullable = false)
+    private String ownerEmail;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "type", nullable = false)
+    private MovementType type;
+
+    @Column(name = "amount_cents", nullable = false)
+    private long amount; // in cents, see Money
+
+    @Column(name = "balance_after_cents", nullable = false)
+    private long balanceAfter;
+
+    @Column(name = "reserved_after_cents", nullable = false)
+    private long reservedAfter;
+
+    @Column(name = "reference")
+    private String reference; // e.g. the hold the movement belongs to
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    public Movement() {}
+
+    public Long getMovementId() {
+        return movementId;
+    }
+
+    public String getOwnerEmail() {
+        return ownerEmail;
+    }
+
+    public MovementType getType() {
+        return type;
+    }
+
+    public long getAmount() {
+        return amount;
+    }
+
+    public long getBalanceAfter() {
+        return balanceAfter;
+    }
+
+    public long getReservedAfter() {
+        return reservedAfter;
+    }
+
+    public String getReference() {
+        return reference;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+}
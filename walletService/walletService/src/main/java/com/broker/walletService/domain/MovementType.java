@@ -0,0 +1,9 @@
+package com.broker.walletService.domain;
+
+public enum MovementType {
+    DEPOSIT, // Credited to the balance
+    DEBIT,   // Taken from the balance
+    HOLD,    // Balance moved to the reserved funds
+    CAPTURE, // Reserved funds spent
+    RELEASE  // Reserved funds back on the balance, released or expired
+}
@@ -0,0 +1,80 @@
+package com.broker.walletService.domain;
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+
+/**
+ * A balance change committed by a transaction of walletService but not yet applied by the
+ * ledger, which keeps its balances outside the database (see AccountLedger). The row is written
+ * in the transaction that decided the change and deleted in the one that writes its movement, so
+ * a change whose transaction committed right before a crash is applied at the next start.
+ */
+@Entity
+@Table(name = "pending_instruction")
+public class PendingInstruction {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "sequence")
+    private Long sequence; // Order the changes were committed in
+
+    @Column(name = "instruction_id", nullable = false, unique = true)
+    private String instructionId;
+
+    @Column(name = "owner_email", nullable = false)
+    private String ownerEmail;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "type", nullable = false)
+    private MovementType type;
+
+    @Column(name = "amount_cents", nullable = false)
+    private long amount; // in cents, see Money
+
+    @Column(name = "reference")
+    private String reference;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    public PendingInstruction() {}
+
+    public PendingInstruction(String instructionId, String ownerEmail, MovementType type, long amount, String reference,
+                              Instant createdAt) {
+        this.instructionId = instructionId;
+        this.ownerEmail = ownerEmail;
+        this.type = type;
+        this.amount = amount;
+        this.reference = reference;
+        this.createdAt = createdAt;
+    }
+
+    public Long getSequence() {
+        return sequence;
+    }
+
+    public String getInstructionId() {
+        return instructionId;
+    }
+
+    public String getOwnerEmail() {
+        return ownerEmail;
+    }
+
+    public MovementType getType() {
+        return type;
+    }
+
+    public long getAmount() {
+        return amount;
+    }
+
+    public String getReference() {
+        return reference;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+}
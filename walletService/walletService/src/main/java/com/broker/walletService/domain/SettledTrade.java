@@ -0,0 +1,32 @@
+package com.broker.walletService.domain;
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+
+/**
+ * A trade of matchingService already settled on the wallets. matchingService publishes its
+ * trades at least once; the trade id is recorded in the transaction that settles it, so that a
+ * trade delivered again is recognized and skipped (see TradeSettlement).
+ */
+@Entity
+@Table(name = "settled_trade")
+public class SettledTrade {
+
+    @Id
+    @Column(name = "trade_id")
+    private Long tradeId;
+
+    @Column(name = "settled_at", nullable = false)
+    private Instant settledAt;
+
+    public SettledTrade() {}
+
+    public Long getTradeId() {
+        return tradeId;
+    }
+
+    public Instant getSettledAt() {
+        return settledAt;
+    }
+}
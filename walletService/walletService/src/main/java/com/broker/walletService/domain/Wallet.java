@@ -12,14 +12,20 @@ public class Wallet {
     @Column(unique = true, nullable = false)
     private String ownerEmail; // Email de l'utilisateur (depuis JWT)
 
-    @Column(nullable = false)
-    private Double balance = 0.0;
+    @Column(name = "balance_cents", nullable = false)
+    private long balance = 0; // in cents, see Money; available funds, holds excluded
+
+    @Column(name = "reserved_cents", nullable = false)
+    private long reserved = 0; // in cents, total of the open holds (see Hold)
+
+    @Version
+    private long version; // bumped by every balance change, including the guarded updates of WalletRepository
 
     public Wallet() {}
 
     public Wallet(String ownerEmail) {
         this.ownerEmail = ownerEmail;
-        this.balance = 0.0;
+        this.balance = 0;
     }
 
     // Getters and setters
@@ -39,11 +45,23 @@ public class Wallet {
         this.ownerEmail = ownerEmail;
     }
 
-    public Double getBalance() {
+    public long getBalance() {
         return balance;
     }
 
-    public void setBalance(Double balance) {
+    public void setBalance(long balance) {
         this.balance = balance;
     }
+
+    public long getReserved() {
+        return reserved;
+    }
+
+    public void setReserved(long reserved) {
+        this.reserved = reserved;
+    }
+
+    public long getVersion() {
+        return version;
+    }
 }
@@ -0,0 +1,9 @@
+package com.broker.walletService.dto;
+
+/**
+ * One item of the answer to {@code POST /api/wallet/balances}.
+ *
+ * @param balanceCents available balance in cents (see Money), 0 if the wallet does not exist
+ */
+public record BalanceView(String ownerEmail, boolean found, long balanceCents) {
+}
@@ -0,0 +1,18 @@
+package com.broker.walletService.dto;
+
+import com.broker.walletService.domain.Hold;
+
+import java.time.Instant;
+
+/**
+ * Answer to {@code POST /api/wallet/holds}.
+ *
+ * @param amountCents amount set aside, in cents (see Money)
+ * @param expiresAt when the hold is released if it was neither captured nor released
+ */
+public record HoldReceipt(String holdId, long amountCents, Instant expiresAt) {
+
+    public static HoldReceipt of(Hold hold) {
+        return new HoldReceipt(hold.getHoldId(), hold.getAmount(), hold.getExpiresAt());
+    }
+}
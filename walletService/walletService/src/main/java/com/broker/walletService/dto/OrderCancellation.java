@@ -0,0 +1,17 @@
+package com.broker.walletService.dto;
+
+/**
+ * Published by matchingService when an order leaves the matching engine without being completely
+ * filled (IOC remainder, unfillable FOK order, cancelled order). Trades of the order may still
+ * arrive after it, when their publication was retried; {@code filledQuantity} counts them all.
+ *
+ * @param side BUY or SELL
+ * @param filledQuantity quantity filled before the cancellation
+ * @param cancelledQuantity quantity that will not be filled
+ */
+public record OrderCancellation(String orderId,
+                                String stockSymbol,
+                                String side,
+                                int filledQuantity,
+                                int cancelledQuantity) {
+}
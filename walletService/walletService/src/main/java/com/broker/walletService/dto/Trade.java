@@ -0,0 +1,98 @@
+package com.broker.walletService.dto;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+public class Trade implements Serializable {
+    private long tradeId; // unique sequence assigned by the matching service
+    private String buyOrderId;
+    private String sellOrderId;
+    private String stockSymbol;
+    private int quantity;
+    private long price; // in cents, see Money
+    private LocalDateTime timestamp;
+
+    // Constructors
+    public Trade() {
+    }
+
+    public Trade(long tradeId, String buyOrderId, String sellOrderId, String stockSymbol, int quantity, long price, LocalDateTime timestamp) {
+        this.tradeId = tradeId;
+        this.buyOrderId = buyOrderId;
+        this.sellOrderId = sellOrderId;
+        this.stockSymbol = stockSymbol;
+        this.quantity = quantity;
+        this.price = price;
+        this.timestamp = timestamp;
+    }
+
+    // Getters and Setters
+    public long getTradeId() {
+        return tradeId;
+    }
+
+    public void setTradeId(long tradeId) {
+        this.tradeId = tradeId;
+    }
+
+    public String getBuyOrderId() {
+        return buyOrderId;
+    }
+
+    public void setBuyOrderId(String buyOrderId) {
+        this.buyOrderId = buyOrderId;
+    }
+
+    public String getSellOrderId() {
+        return sellOrderId;
+    }
+
+    public void setSellOrderId(String sellOrderId) {
+        this.sellOrderId = sellOrderId;
+    }
+
+    public String getStockSymbol() {
+        return stockSymbol;
+    }
+
+    public void setStockSymbol(String stockSymbol) {
+        this.stockSymbol = stockSymbol;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(int quantity) {
+        this.quantity = quantity;
+    }
+
+    public long getPrice() {
+        return price;
+    }
+
+    public void setPrice(long price) {
+        this.price = price;
+    }
+
+    public LocalDateTime getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(LocalDateTime timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    @Override
+    public String toString() {
+        return "Trade{"
+               + "tradeId=" + tradeId
+               + ", buyOrderId='" + buyOrderId + "'"
+               + ", sellOrderId='" + sellOrderId + "'"
+               + ", stockSymbol='" + stockSymbol + "'"
+               + ", quantity=" + quantity
+               + ", price=" + price
+               + ", timestamp=" + timestamp
+               + "}";
+    }
+}
@@ -0,0 +1,11 @@
+package com.broker.walletService.dto;
+
+/**
+ * One item of {@code POST /api/wallet/transactions/batch}.
+ *
+ * @param amountCents amount to move, in cents (see Money)
+ * @param type {@code "DEBIT"} or {@code "CREDIT"}, as for {@code POST /api/wallet/transaction}
+ * @param reference optional, stored with the movement (e.g. a trade id)
+ */
+public record TransactionInstruction(String ownerEmail, long amountCents, String type, String reference) {
+}
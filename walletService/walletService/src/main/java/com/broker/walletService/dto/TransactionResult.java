@@ -0,0 +1,21 @@
+package com.broker.walletService.dto;
+
+/**
+ * Outcome of one {@link TransactionInstruction}, at the same position as the instruction.
+ *
+ * @param balanceCents balance right after the instruction, or {@code null} if it was not applied
+ */
+public record TransactionResult(String ownerEmail, String type, long amountCents, Status status, Long balanceCents) {
+
+    public enum Status {
+        APPLIED,
+        INSUFFICIENT_FUNDS,
+        NOT_FOUND, // Debit of a wallet that does not exist
+        INVALID    // Missing email, amount not positive or unknown type
+    }
+
+    public static TransactionResult of(TransactionInstruction instruction, Status status, Long balanceCents) {
+        return new TransactionResult(instruction.ownerEmail(), instruction.type(), instruction.amountCents(), status,
+            balanceCents);
+    }
+}
@@ -0,0 +1,119 @@
+package com.broker.walletService.infrastructure;
+
+import com.broker.walletService.Application.TradeSettlement;
+import com.broker.walletService.config.RabbitMQConfig;
+import com.broker.walletService.dto.OrderCancellation;
+import com.broker.walletService.dto.Trade;
+import com.rabbitmq.client.Channel;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Receives the trades and order cancellations of matchingService in batches and has them
+ * settled by {@link TradeSettlement}, acknowledging each message once settled.
+ * <p>
+ * A batch that fails is retried up to {@code wallet.settlement.max-attempts} times, waiting
+ * {@code wallet.settlement.retry-backoff-ms} longer each time; if it still fails, its events are
+ * settled one at a time and those that fail again are rejected, which moves them to
+ * {@value RabbitMQConfig#SETTLEMENT_DEAD_LETTER_QUEUE} instead of blocking the queue. Unreadable
+ * messages go there as well.
+ */
+@Component
+public class SettlementConsumer {
+
+    private final TradeSettlement tradeSettlement;
+    private final MessageConverter messageConverter;
+    private final int maxAttempts;
+    private final long retryBackoffMillis;
+
+    public SettlementConsumer(TradeSettlement tradeSettlement,
+                              MessageConverter messageConverter,
+                              @Value("${wallet.settlement.max-attempts:3}") int maxAttempts,
+                              @Value("${wallet.settlement.retry-backoff-ms:1000}") long retryBackoffMillis) {
+        this.tradeSettlement = tradeSettlement;
+        this.messageConverter = messageConverter;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoffMillis = retryBackoffMillis;
+    }
+
+    @RabbitListener(queues = RabbitMQConfig.SETTLEMENT_QUEUE, containerFactory = "settlementContainerFactory")
+    public void onEvents(List<Message> messages, Channel channel) throws IOException {
+        List<Message> settleable = new ArrayList<>(messages.size());
+        List<Object> events = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            Object event = read(message);
+            if (event != null) {
+                settleable.add(message);
+                events.add(event);
+            } else {
+                deadLetter(channel, message);
+            }
+        }
+        if (events.isEmpty()) {
+            return;
+        }
+        if (settle(events, maxAttempts)) {
+            channel.basicAck(deliveryTag(settleable.get(settleable.size() - 1)), true);
+            return;
+        }
+        // One event at a time, so that only those that keep failing are set aside
+        for (int i = 0; i < events.size(); i++) {
+            if (settle(List.of(events.get(i)), 1)) {
+                channel.basicAck(deliveryTag(settleable.get(i)), false);
+            } else {
+                deadLetter(channel, settleable.get(i));
+            }
+        }
+    }
+
+    private boolean settle(List<Object> events, int attempts) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                tradeSettlement.settle(events);
+                return true;
+            } catch (RuntimeException e) {
+                System.err.println("Settlement of " + events.size() + " events failed (attempt " + attempt + "/"
+                    + attempts + "): " + e.getMessage());
+                if (attempt >= attempts) {
+                    return false;
+                }
+            }
+            try {
+                Thread.sleep(retryBackoffMillis * attempt);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+    }
+
+    // The event, or null if the message is not a trade or cancellation
+    private Object read(Message message) {
+        try {
+            Object event = messageConverter.fromMessage(message);
+            if (event instanceof Trade || event instanceof OrderCancellation) {
+                return event;
+            }
+            System.err.println("Unexpected settlement message: " + event);
+        } catch (MessageConversionException e) {
+            System.err.println("Unreadable settlement message: " + e.getMessage());
+        }
+        return null;
+    }
+
+    private static void deadLetter(Channel channel, Message message) throws IOException {
+        channel.basicNack(deliveryTag(message), false, false);
+    }
+
+    private static long deliveryTag(Message message) {
+        return message.getMessageProperties().getDeliveryTag();
+    }
+}
@@ -2,23 +2,39 @@
 package com.broker.walletService.infrastructure;
 
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 
 import com.broker.walletService.Application.WalletService;
+import com.broker.walletService.domain.Hold;
+import com.broker.walletService.domain.Money;
+import com.broker.walletService.dto.BalanceView;
+import com.broker.walletService.dto.HoldReceipt;
+import com.broker.walletService.dto.TransactionInstruction;
+import com.broker.walletService.dto.TransactionResult;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/wallet")
 public class WalletController {
 
     private final WalletService walletService;
+    private final int maxBatchItems;
 
-    public WalletController(WalletService walletService) {
+    public WalletController(WalletService walletService,
+                            @Value("${wallet.batch.max-items:5000}") int maxBatchItems) {
         this.walletService = walletService;
+        this.maxBatchItems = maxBatchItems;
     }
 
     @PostMapping("/deposit")
@@ -35,9 +51,10 @@ public class WalletController {
         }
         
         try {
-            boolean success = walletService.deposit(ownerEmail, amount);
+            long amountCents = Money.toCents(amount);
+            boolean success = amountCents > 0 && walletService.deposit(ownerEmail, amountCents);
             if (success) {
-                return ResponseEntity.ok("Deposit of " + amount + "$ successful.");
+                return ResponseEntity.ok("Deposit of " + Money.format(amountCents) + "$ successful.");
             } else {
                 return ResponseEntity.badRequest().body("Deposit failed. Please try again.");
             }
@@ -56,11 +73,11 @@ public class WalletController {
         }
     }
 
-    // Internal service endpoints (no authentication required)
+    // Internal service endpoints (no authentication required), amounts in cents
     @PostMapping("/transaction")
     public ResponseEntity<String> transaction(
             @RequestParam("ownerEmail") String ownerEmail,
-            @RequestParam("amount") double amount,
+            @RequestParam("amountCents") long amount,
             @RequestParam("type") String type) { // "DEBIT" ou "CREDIT"
         System.out.println("transaction endpoint called with ownerEmail: " + ownerEmail + ", amount: " + amount + ", type: " + type);
         
@@ -87,7 +104,7 @@ public class WalletController {
             }
             
             if (success) {
-                return ResponseEntity.ok(operation + " of " + amount + "$ successful.");
+                return ResponseEntity.ok(operation + " of " + Money.format(amount) + "$ successful.");
             } else {
                 return ResponseEntity.badRequest().body(operation + " failed. Check balance or try again.");
             }
@@ -96,6 +113,113 @@ public class WalletController {
         }
     }
 
+    // Lot de débits/crédits (règlement, rapprochement) : appliqués dans l'ordre, un résultat par instruction
+    @PostMapping("/transactions/batch")
+    public ResponseEntity<List<TransactionResult>> transactions(
+            @RequestHeader(value = "X-Authenticated-User", required = false) String authenticatedUser,
+            @RequestBody List<TransactionInstruction> instructions) {
+        if (!isServiceCall(authenticatedUser)) {
+            return ResponseEntity.status(403).build();
+        }
+        if (instructions == null || instructions.isEmpty() || instructions.size() > maxBatchItems) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(walletService.applyAll(instructions));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    // Soldes de plusieurs portefeuilles en une requête, dans l'ordre des emails demandés
+    @PostMapping("/balances")
+    public ResponseEntity<List<BalanceView>> getBalances(
+            @RequestHeader(value = "X-Authenticated-User", required = false) String authenticatedUser,
+            @RequestBody List<String> ownerEmails) {
+        if (!isServiceCall(authenticatedUser)) {
+            return ResponseEntity.status(403).build();
+        }
+        if (ownerEmails == null || ownerEmails.isEmpty() || ownerEmails.size() > maxBatchItems) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            Map<String, Long> balances = walletService.getBalances(ownerEmails);
+            return ResponseEntity.ok(ownerEmails.stream()
+                .map(ownerEmail -> new BalanceView(ownerEmail, balances.containsKey(ownerEmail),
+                    balances.getOrDefault(ownerEmail, 0L)))
+                .toList());
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    // Réservation de fonds pour un ordre (appel de service), en un seul aller-retour : 409 si le solde est insuffisant
+    @PostMapping("/holds")
+    public ResponseEntity<HoldReceipt> reserve(
+            @RequestHeader(value = "X-Authenticated-User", required = false) String authenticatedUser,
+            @RequestParam("ownerEmail") String ownerEmail,
+            @RequestParam("amountCents") long amount,
+            @RequestParam(value = "ttlSeconds", defaultValue = "900") long ttlSeconds,
+            @RequestParam(value = "reference", required = false) String reference,
+            @RequestParam(value = "quantity", defaultValue = "0") int quantity) { // de l'ordre, pour le règlement des exécutions
+        if (!isServiceCall(authenticatedUser)) {
+            return ResponseEntity.status(403).build();
+        }
+        if (ownerEmail == null || ownerEmail.isEmpty() || amount <= 0 || ttlSeconds <= 0 || quantity < 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        Hold hold = walletService.reserve(ownerEmail, amount, Duration.ofSeconds(ttlSeconds), reference, quantity);
+        return hold != null ? ResponseEntity.ok(HoldReceipt.of(hold)) : ResponseEntity.status(409).build();
+    }
+
+    // Débit d'une partie (ou de la totalité) des fonds réservés, p. ex. à chaque exécution de l'ordre
+    @PostMapping("/holds/{holdId}/capture")
+    public ResponseEntity<String> capture(
+            @RequestHeader(value = "X-Authenticated-User", required = false) String authenticatedUser,
+            @PathVariable String holdId,
+            @RequestParam("amountCents") long amount) {
+        if (!isServiceCall(authenticatedUser)) {
+            return ResponseEntity.status(403).build();
+        }
+        try {
+            if (walletService.capture(holdId, amount)) {
+                return ResponseEntity.ok("Capture of " + Money.format(amount) + "$ successful.");
+            }
+        } catch (IllegalStateException e) { // Reserved funds of the wallet short, the capture was rolled back
+            return ResponseEntity.status(409).body("Capture failed: " + e.getMessage());
+        }
+        return ResponseEntity.status(409).body("Capture failed: hold closed or insufficient.");
+    }
+
+    // Remise sur le solde de ce qui n'a pas été capturé (ordre annulé ou terminé) ; sans effet si déjà libérée
+    @PostMapping("/holds/{holdId}/release")
+    public ResponseEntity<String> release(
+            @RequestHeader(value = "X-Authenticated-User", required = false) String authenticatedUser,
+            @PathVariable String holdId) {
+        if (!isServiceCall(authenticatedUser)) {
+            return ResponseEntity.status(403).build();
+        }
+        if (walletService.release(holdId)) {
+            return ResponseEntity.ok("Hold " + holdId + " released.");
+        }
+        return ResponseEntity.notFound().build();
+    }
+
+    // Libération par référence (p. ex. "order-<id>") quand l'appelant n'a pas reçu l'id de la réservation
+    @PostMapping(value = "/holds/release", params = "reference")
+    public ResponseEntity<String> releaseByReference(
+            @RequestHeader(value = "X-Authenticated-User", required = false) String authenticatedUser,
+            @RequestParam("reference") String reference) {
+        if (!isServiceCall(authenticatedUser)) {
+            return ResponseEntity.status(403).build();
+        }
+        if (reference == null || reference.isEmpty()) {
+            return ResponseEntity.badRequest().body("Reference is required");
+        }
+        int released = walletService.releaseByReference(reference);
+        return ResponseEntity.ok(released + " hold(s) released for " + reference + ".");
+    }
+
     // Unified balance endpoint that handles both user and service calls
     @GetMapping("/balance")
     public ResponseEntity<Double> getBalance(
@@ -110,8 +234,8 @@ public class WalletController {
         // Vérifier si c'est un appel de service (via Gateway avec X-Service-Call)
         if (authenticatedUser != null && authenticatedUser.startsWith("service-")) {
             try {
-                Double balance = walletService.getBalance(ownerEmail);
-                return ResponseEntity.ok(balance);
+                long balance = walletService.getBalance(ownerEmail);
+                return ResponseEntity.ok(Money.toDecimal(balance));
             } catch (Exception e) {
                 return ResponseEntity.internalServerError().body(0.0);
             }
@@ -120,8 +244,8 @@ public class WalletController {
         // Pour les appels utilisateur normaux via Gateway
         if (authenticatedUser != null && authenticatedUser.equals(ownerEmail)) {
             try {
-                Double balance = walletService.getBalance(ownerEmail);
-                return ResponseEntity.ok(balance);
+                long balance = walletService.getBalance(ownerEmail);
+                return ResponseEntity.ok(Money.toDecimal(balance));
             } catch (Exception e) {
                 return ResponseEntity.internalServerError().body(0.0);
             }
@@ -130,4 +254,9 @@ public class WalletController {
         // Si aucune authentification valide
         return ResponseEntity.status(403).body(0.0);
     }
+
+    // Lots et réservations concernent n'importe quel client : appels internes directs ou appels de service via le Gateway
+    private static boolean isServiceCall(String authenticatedUser) {
+        return authenticatedUser == null || authenticatedUser.startsWith("service-");
+    }
 }
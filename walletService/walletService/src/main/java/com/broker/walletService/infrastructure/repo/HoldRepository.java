@@ -0,0 +1,28 @@
+package com.broker.walletService.infrastructure.repo;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import com.broker.walletService.domain.Hold;
+import com.broker.walletService.domain.HoldStatus;
+import jakarta.persistence.LockModeType;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface HoldRepository extends JpaRepository<Hold, String> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select h from Hold h where h.holdId = :holdId")
+    Hold findByIdForUpdate(@Param("holdId") String holdId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select h from Hold h where h.reference in :references")
+    List<Hold> findByReferenceInForUpdate(@Param("references") Collection<String> references);
+
+    // Holds of live orders (quantity > 0) are left to the settlement, see WalletService.expiredHolds
+    List<Hold> findByStatusAndExpiresAtBeforeAndQuantity(HoldStatus status, Instant now, int quantity);
+}
@@ -0,0 +1,8 @@
+package com.broker.walletService.infrastructure.repo;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import com.broker.walletService.domain.LedgerCheckpoint;
+
+@Repository
+public interface LedgerCheckpointRepository extends JpaRepository<LedgerCheckpoint, Integer> {
+}
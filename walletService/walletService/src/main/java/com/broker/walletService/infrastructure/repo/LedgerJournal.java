@@ -0,0 +1,287 @@
+package com.broker.walletService.infrastructure.repo;
+
+import com.broker.walletService.domain.MovementType;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Journal of the balance changes of one ledger stripe (see AccountLedger), appended by the
+ * thread holding the stripe lock.
+ * <p>
+ * Each record holds the state of an account <em>after</em> the change, so replaying a journal
+ * over the database is idempotent: the last record of an account wins. It also holds the change
+ * itself, from which the {@code Movement} row is written. The journal is split in generations,
+ * files named {@code stripe-<stripe>-<generation>.ledger} starting with
+ * {@code [int magic][int formatVersion]}, followed by records laid out as
+ * {@code [int payloadLength][int crc32][long balance][long reserved][long amount][long createdAtMillis]
+ * [byte type][short emailLength][email][short referenceLength, -1 if none][reference]
+ * [short instructionIdLength, -1 if none][instructionId]}; the length
+ * is written last so that a record torn by a crash reads as the end of the file. A generation
+ * can be deleted once the database holds its movements and balances at least as recent as its
+ * records. Records of format 1 only hold {@code [long balance][long reserved][email]}.
+ */
+public class LedgerJournal implements Closeable {
+
+    private static final int MAGIC = 0x42584c47; // "BXLG"
+    private static final int FORMAT_VERSION = 2;
+    private static final int HEADER_SIZE = 8;
+    private static final int MAX_EMAIL = 320;
+    private static final int MAX_REFERENCE = 255;
+    private static final int MAX_INSTRUCTION_ID = 64;
+    private static final int FIXED_SIZE = 8 + 8 + 8 + 8 + 1 + 2 + 2 + 2;
+    private static final MovementType[] TYPES = MovementType.values(); // Written as their ordinal
+    private static final String SUFFIX = ".ledger";
+
+    private final Path directory;
+    private final int stripe;
+    private final boolean fsync;
+    private final CRC32 crc = new CRC32();
+    private final ByteBuffer record = ByteBuffer.allocate(4 + 4 + FIXED_SIZE + MAX_EMAIL + MAX_REFERENCE + MAX_INSTRUCTION_ID);
+    private final ByteBuffer recordLength = ByteBuffer.allocate(4);
+
+    private FileChannel channel;
+    private long generation;
+
+    private LedgerJournal(Path directory, int stripe, boolean fsync) {
+        this.directory = directory;
+        this.stripe = stripe;
+        this.fsync = fsync;
+    }
+
+    public static LedgerJournal open(Path directory, int stripe, boolean fsync) {
+        return open(directory, stripe, fsync, 0);
+    }
+
+    /**
+     * Opens a new generation of the journal of {@code stripe}, after the ones already in
+     * {@code directory} (see {@link #replay}) and after {@code lastGeneration}, the last one
+     * known to have existed even if its file was deleted since.
+     */
+    public static LedgerJournal open(Path directory, int stripe, boolean fsync, long lastGeneration) {
+        LedgerJournal journal = new LedgerJournal(directory, stripe, fsync);
+        try {
+            Files.createDirectories(directory);
+            List<Path> files = journal.generations();
+            long last = files.isEmpty() ? 0 : generationOf(files.get(files.size() - 1));
+            journal.openGeneration(Math.max(last, lastGeneration) + 1);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open ledger journal in " + directory, e);
+        }
+        return journal;
+    }
+
+    public void append(Entry entry) {
+        byte[] email = entry.ownerEmail().getBytes(StandardCharsets.UTF_8);
+        if (email.length > MAX_EMAIL) {
+            throw new IllegalArgumentException("Owner email too long for the ledger journal: " + entry.ownerEmail());
+        }
+        byte[] reference = entry.reference() != null ? entry.reference().getBytes(StandardCharsets.UTF_8) : null;
+        if (reference != null && reference.length > MAX_REFERENCE) {
+            throw new IllegalArgumentException("Reference too long for the ledger journal: " + entry.reference());
+        }
+        byte[] instructionId = entry.instructionId() != null ? entry.instructionId().getBytes(StandardCharsets.UTF_8) : null;
+        if (instructionId != null && instructionId.length > MAX_INSTRUCTION_ID) {
+            throw new IllegalArgumentException("Instruction id too long for the ledger journal: " + entry.instructionId());
+        }
+        record.clear();
+        record.position(8);
+        record.putLong(entry.balance());
+        record.putLong(entry.reserved());
+        record.putLong(entry.amount());
+        record.putLong(entry.createdAt().toEpochMilli());
+        record.put((byte) entry.type().ordinal());
+        record.putShort((short) email.length);
+        record.put(email);
+        record.putShort((short) (reference != null ? reference.length : -1));
+        if (reference != null) {
+            record.put(reference);
+        }
+        record.putShort((short) (instructionId != null ? instructionId.length : -1));
+        if (instructionId != null) {
+            record.put(instructionId);
+        }
+        int length = record.position() - 8;
+        crc.reset();
+        crc.update(record.array(), 8, length);
+        record.putInt(4, (int) crc.getValue());
+        record.flip().position(4);
+        try {
+            long start = channel.position();
+            channel.write(record, start + 4);
+            // Publish the record by writing its length last
+            channel.write(recordLength.putInt(0, length).clear(), start);
+            channel.position(start + 8 + length);
+            if (fsync) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot append to ledger journal " + fileName(generation), e);
+        }
+    }
+
+    /**
+     * Starts the next generation; the records written from now on are not in the previous ones.
+     *
+     * @return the generation that was just closed
+     */
+    public long rotate() {
+        long closed = generation;
+        FileChannel previous = channel;
+        try {
+            openGeneration(closed + 1);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot rotate ledger journal in " + directory, e); // Still appending to the current one
+        }
+        try {
+            previous.force(false);
+            previous.close();
+        } catch (IOException e) {
+            System.err.println("Failed to close ledger journal " + fileName(closed) + ": " + e.getMessage());
+        }
+        return closed;
+    }
+
+    /**
+     * Deletes the generations up to {@code generation}; the current one is never deleted.
+     */
+    public void deleteUpTo(long generation) {
+        try {
+            for (Path file : generations()) {
+                long fileGeneration = generationOf(file);
+                if (fileGeneration <= generation && fileGeneration < this.generation) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot delete ledger journal generations in " + directory, e);
+        }
+    }
+
+    /**
+     * Reads the intact records of the generations before the current one, oldest first.
+     */
+    public void replay(Visitor visitor) {
+        replay(0, generation - 1, visitor);
+    }
+
+    /**
+     * Reads the intact records of the generations after {@code afterGeneration} up to
+     * {@code toGeneration}, oldest first; the current one is never read.
+     */
+    public void replay(long afterGeneration, long toGeneration, Visitor visitor) {
+        try {
+            for (Path file : generations()) {
+                long fileGeneration = generationOf(file);
+                if (fileGeneration > afterGeneration && fileGeneration <= toGeneration && fileGeneration < generation) {
+                    read(file, visitor);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read ledger journal in " + directory, e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.force(false);
+        channel.close();
+    }
+
+    @FunctionalInterface
+    public interface Visitor {
+        void accept(Entry entry);
+    }
+
+    /**
+     * A change of an account and the balances it left, in cents; {@code instructionId} is the id
+     * of the instruction it applied, if any. {@code type} is {@code null} in the records of
+     * format 1, which did not hold the change.
+     */
+    public record Entry(String ownerEmail, long balance, long reserved, MovementType type, long amount,
+                        String reference, String instructionId, Instant createdAt) {}
+
+    private void openGeneration(long generation) throws IOException {
+        FileChannel next = FileChannel.open(directory.resolve(fileName(generation)),
+            StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        next.write(ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(FORMAT_VERSION).flip());
+        this.channel = next;
+        this.generation = generation;
+    }
+
+    private void read(Path file, Visitor visitor) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        int version = buffer.remaining() >= HEADER_SIZE && buffer.getInt() == MAGIC ? buffer.getInt() : 0;
+        if (version != 1 && version != FORMAT_VERSION) {
+            throw new IllegalStateException("Ledger journal " + file + " has an unsupported format");
+        }
+        int minLength = version == 1 ? 16 : FIXED_SIZE;
+        int maxLength = version == 1 ? 16 + MAX_EMAIL : FIXED_SIZE + MAX_EMAIL + MAX_REFERENCE + MAX_INSTRUCTION_ID;
+        while (buffer.remaining() >= 8) {
+            int start = buffer.position();
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+            if (length < minLength || length > maxLength || buffer.remaining() < length) {
+                break; // End of the journal, or a record torn by a crash
+            }
+            crc.reset();
+            crc.update(buffer.array(), start + 8, length);
+            if ((int) crc.getValue() != checksum) {
+                System.err.println("Ledger journal " + file + " is corrupted at offset " + start + ", ignoring the rest");
+                break;
+            }
+            long balance = buffer.getLong();
+            long reserved = buffer.getLong();
+            if (version == 1) {
+                String email = string(buffer, length - 16);
+                visitor.accept(new Entry(email, balance, reserved, null, 0, null, null, null));
+                continue;
+            }
+            long amount = buffer.getLong();
+            Instant createdAt = Instant.ofEpochMilli(buffer.getLong());
+            MovementType type = TYPES[buffer.get()];
+            String email = string(buffer, buffer.getShort());
+            short referenceLength = buffer.getShort();
+            String reference = referenceLength >= 0 ? string(buffer, referenceLength) : null;
+            short instructionIdLength = buffer.getShort();
+            String instructionId = instructionIdLength >= 0 ? string(buffer, instructionIdLength) : null;
+            visitor.accept(new Entry(email, balance, reserved, type, amount, reference, instructionId, createdAt));
+        }
+    }
+
+    private static String string(ByteBuffer buffer, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private List<Path> generations() throws IOException {
+        String prefix = "stripe-" + stripe + "-";
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith(prefix)
+                    && file.getFileName().toString().endsWith(SUFFIX))
+                .sorted((a, b) -> Long.compare(generationOf(a), generationOf(b)))
+                .toList();
+        }
+    }
+
+    private String fileName(long generation) {
+        return "stripe-" + stripe + "-" + generation + SUFFIX;
+    }
+
+    private static long generationOf(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(name.lastIndexOf('-') + 1, name.length() - SUFFIX.length()));
+    }
+}
@@ -0,0 +1,12 @@
+package com.broker.walletService.infrastructure.repo;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import com.broker.walletService.domain.PendingInstruction;
+
+import java.util.List;
+
+@Repository
+public interface PendingInstructionRepository extends JpaRepository<PendingInstruction, Long> {
+
+    List<PendingInstruction> findAllByOrderBySequenceAsc();
+}
@@ -0,0 +1,17 @@
+package com.broker.walletService.infrastructure.repo;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import com.broker.walletService.domain.SettledTrade;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface SettledTradeRepository extends JpaRepository<SettledTrade, Long> {
+
+    // Ids among tradeIds that were already settled, checked for a whole batch in one query
+    @Query("select s.tradeId from SettledTrade s where s.tradeId in :tradeIds")
+    List<Long> findSettledIds(@Param("tradeIds") Collection<Long> tradeIds);
+}
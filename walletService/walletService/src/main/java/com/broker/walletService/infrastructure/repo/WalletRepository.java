@@ -1,11 +1,76 @@
 package com.broker.walletService.infrastructure.repo;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.stereotype.Repository;   
 import com.broker.walletService.domain.Wallet;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface WalletRepository extends JpaRepository<Wallet, Long> {
     
     Wallet findByOwnerEmail(String ownerEmail);
-    
+
+    List<Wallet> findByOwnerEmailIn(Collection<String> ownerEmails);
+
+    boolean existsByOwnerEmail(String ownerEmail);
+
+    @Query("select w.balance from Wallet w where w.ownerEmail = :ownerEmail")
+    Long findBalanceByOwnerEmail(@Param("ownerEmail") String ownerEmail);
+
+    // Guarded balance changes: one UPDATE each, checked and applied by the database under the row
+    // lock, so concurrent changes are never lost; they return the rows changed, 0 when the wallet
+    // does not cover them, so that DatabaseBalances can queue them as they are (MovementBatcher)
+
+    /**
+     * Guarded {@link #debit}, then the balance it left, read in the same transaction while the
+     * update still holds the row lock; {@code null} if the wallet does not cover the debit.
+     */
+    @Transactional
+    default Long debitAndGetBalance(String ownerEmail, long amount) {
+        return debit(ownerEmail, amount) == 0 ? null : findBalanceByOwnerEmail(ownerEmail);
+    }
+
+    /**
+     * Guarded {@link #credit}, then the balance it left, like {@link #debitAndGetBalance};
+     * {@code null} if the wallet does not exist.
+     */
+    @Transactional
+    default Long creditAndGetBalance(String ownerEmail, long amount) {
+        return credit(ownerEmail, amount) == 0 ? null : findBalanceByOwnerEmail(ownerEmail);
+    }
+
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query("update Wallet w set w.balance = w.balance + :amount, w.version = w.version + 1"
+        + " where w.ownerEmail = :ownerEmail")
+    int credit(@Param("ownerEmail") String ownerEmail, @Param("amount") long amount);
+
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query("update Wallet w set w.balance = w.balance - :amount, w.version = w.version + 1"
+        + " where w.ownerEmail = :ownerEmail and w.balance >= :amount")
+    int debit(@Param("ownerEmail") String ownerEmail, @Param("amount") long amount);
+
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query("update Wallet w set w.balance = w.balance - :amount, w.reserved = w.reserved + :amount, w.version = w.version + 1"
+        + " where w.ownerEmail = :ownerEmail and w.balance >= :amount")
+    int reserve(@Param("ownerEmail") String ownerEmail, @Param("amount") long amount);
+
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query("update Wallet w set w.reserved = w.reserved - :amount, w.version = w.version + 1"
+        + " where w.ownerEmail = :ownerEmail and w.reserved >= :amount")
+    int capture(@Param("ownerEmail") String ownerEmail, @Param("amount") long amount);
+
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query("update Wallet w set w.reserved = w.reserved - :amount, w.balance = w.balance + :amount, w.version = w.version + 1"
+        + " where w.ownerEmail = :ownerEmail and w.reserved >= :amount")
+    int release(@Param("ownerEmail") String ownerEmail, @Param("amount") long amount);
 }
@@ -0,0 +1,154 @@
+package com.broker.walletService.Application;
+
+import com.broker.walletService.domain.MovementType;
+import com.broker.walletService.domain.PendingInstruction;
+import com.broker.walletService.domain.Wallet;
+import com.broker.walletService.infrastructure.repo.LedgerCheckpointRepository;
+import com.broker.walletService.infrastructure.repo.PendingInstructionRepository;
+import com.broker.walletService.infrastructure.repo.WalletRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AccountLedgerTest {
+
+    @TempDir
+    Path directory;
+
+    private final WalletRepository walletRepository = mock(WalletRepository.class);
+    private final LedgerCheckpointRepository checkpointRepository = mock(LedgerCheckpointRepository.class);
+    private final PendingInstructionRepository pendingInstructionRepository = mock(PendingInstructionRepository.class);
+    private final List<Object[]> movements = new ArrayList<>();
+    private final List<Object[]> pendingRows = new ArrayList<>();
+    private boolean databaseDown;
+    private AccountLedger ledger;
+
+    @AfterEach
+    void stop() throws Exception {
+        databaseDown = false;
+        ledger.shutdown();
+    }
+
+    @Test
+    void movements_ShouldBeWrittenOnceFromTheJournal_WhenTheDatabaseComesBack() {
+        Wallet wallet = wallet();
+        ledger = ledger();
+
+        databaseDown = true;
+        assertTrue(ledger.reserve("alice@example.com", 2_500, "h1"));
+        assertTrue(ledger.capture("alice@example.com", 2_500, "h1"));
+        assertThrows(DataAccessResourceFailureException.class, ledger::flush);
+        assertTrue(movements.isEmpty());
+
+        databaseDown = false;
+        assertEquals(7_600, ledger.credit("alice@example.com", 100, null));
+        ledger.flush();
+        ledger.flush();
+
+        assertEquals(List.of("HOLD 2500 7500/2500", "CAPTURE 2500 7500/0", "DEPOSIT 100 7600/0"),
+            movements.stream().map(row -> row[1] + " " + row[2] + " " + row[3] + "/" + row[4]).toList());
+        assertEquals(7_600, wallet.getBalance());
+    }
+
+    @Test
+    void instructionsCommittedBeforeACrash_ShouldBeAppliedOnceAtTheNextStart() {
+        Wallet wallet = wallet();
+        AccountLedger crashed = ledger();
+
+        assertThrows(IllegalStateException.class, () -> commit(crashed, false, debit("trade-1", 20_000)));
+        assertTrue(pendingRows.isEmpty());
+        commit(crashed, true, debit("trade-2", 2_000));
+        assertEquals(8_000, crashed.balance("alice@example.com"));
+        // The process stops after this commit, before applying it, and before any flush
+        commit(crashed, false, debit("trade-3", 3_000));
+        assertEquals(8_000, crashed.balance("alice@example.com"));
+
+        ledger = ledger();
+
+        assertEquals(5_000, ledger.balance("alice@example.com"));
+        assertEquals(5_000, wallet.getBalance());
+        assertEquals(List.of("DEBIT 2000 8000/0", "DEBIT 3000 5000/0"),
+            movements.stream().map(row -> row[1] + " " + row[2] + " " + row[3] + "/" + row[4]).toList());
+        assertTrue(pendingRows.isEmpty());
+    }
+
+    private Wallet wallet() {
+        Wallet wallet = new Wallet("alice@example.com");
+        wallet.setBalance(10_000);
+        when(walletRepository.findAll()).thenReturn(List.of(wallet));
+        when(walletRepository.findByOwnerEmailIn(any())).thenReturn(List.of(wallet));
+        when(pendingInstructionRepository.findAllByOrderBySequenceAsc()).thenAnswer(invocation -> pendingRows.stream()
+            .map(row -> new PendingInstruction((String) row[0], (String) row[1], MovementType.valueOf((String) row[2]),
+                (Long) row[3], (String) row[4], ((Timestamp) row[5]).toInstant()))
+            .toList());
+        return wallet;
+    }
+
+    private AccountLedger ledger() {
+        return new AccountLedger(walletRepository, checkpointRepository, pendingInstructionRepository, jdbcTemplate(),
+            transactionTemplate(), new SimpleMeterRegistry(), directory.toString(), 4, false, 60_000);
+    }
+
+    private static AccountBalances.Instruction debit(String id, long amount) {
+        return new AccountBalances.Instruction("alice@example.com", MovementType.DEBIT, amount, null, id);
+    }
+
+    // Runs applyInTransaction like a transaction that commits, calling afterCommit only if asked
+    private static void commit(AccountLedger ledger, boolean afterCommit, AccountBalances.Instruction instruction) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            ledger.applyInTransaction(List.of(instruction));
+            if (afterCommit) {
+                TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    // Records the movements and pending instructions written, or fails like an unreachable database
+    private JdbcTemplate jdbcTemplate() {
+        return new JdbcTemplate() {
+            @Override
+            public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+                if (databaseDown) {
+                    throw new DataAccessResourceFailureException("walletdb unreachable");
+                }
+                if (sql.startsWith("insert into movement")) {
+                    movements.addAll(batchArgs);
+                } else if (sql.startsWith("insert into pending_instruction")) {
+                    pendingRows.addAll(batchArgs);
+                } else if (sql.startsWith("delete from pending_instruction")) {
+                    batchArgs.forEach(args -> pendingRows.removeIf(row -> row[0].equals(args[0])));
+                }
+                return new int[batchArgs.size()];
+            }
+        };
+    }
+
+    private static TransactionTemplate transactionTemplate() {
+        return new TransactionTemplate() {
+            @Override
+            public <T> T execute(TransactionCallback<T> action) {
+                return action.doInTransaction(null);
+            }
+        };
+    }
+}
@@ -0,0 +1,60 @@
+package com.broker.walletService.Application;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BalanceCacheTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    void put_ShouldNotReplaceANewerVersionAndEntriesShouldExpire() {
+        BalanceCache cache = new BalanceCache(100, Duration.ofSeconds(2), new SimpleMeterRegistry(), now::get);
+        assertNull(cache.get("alice@example.com"));
+
+        cache.put("alice@example.com", 5_000, 3);
+        // A read that started before the change finishes after it
+        cache.put("alice@example.com", 7_000, 2);
+        assertEquals(Long.valueOf(5_000), cache.get("alice@example.com"));
+
+        now.addAndGet(Duration.ofMillis(1_999).toNanos());
+        assertEquals(Long.valueOf(5_000), cache.get("alice@example.com"));
+        now.addAndGet(Duration.ofMillis(1).toNanos());
+        assertNull(cache.get("alice@example.com"));
+
+        cache.put("alice@example.com", 4_000, 4);
+        cache.invalidate("alice@example.com");
+        assertNull(cache.get("alice@example.com"));
+    }
+
+    @Test
+    void put_BeyondMaxSize_ShouldDropExpiredEntriesFirst() {
+        BalanceCache cache = new BalanceCache(10, Duration.ofSeconds(2), new SimpleMeterRegistry(), now::get);
+        for (int i = 0; i < 5; i++) {
+            cache.put("old" + i + "@example.com", i, 0);
+        }
+        now.addAndGet(Duration.ofSeconds(3).toNanos());
+        for (int i = 0; i < 6; i++) {
+            cache.put("new" + i + "@example.com", i, 0);
+        }
+        for (int i = 0; i < 6; i++) {
+            assertEquals(Long.valueOf(i), cache.get("new" + i + "@example.com"));
+        }
+
+        for (int i = 6; i < 20; i++) {
+            cache.put("new" + i + "@example.com", i, 0);
+        }
+        int cached = 0;
+        for (int i = 0; i < 20; i++) {
+            if (cache.get("new" + i + "@example.com") != null) {
+                cached++;
+            }
+        }
+        assertTrue(cached <= 10 && cached >= 9, "cached: " + cached);
+    }
+}
@@ -0,0 +1,117 @@
+package com.broker.walletService.Application;
+
+import com.broker.walletService.domain.MovementType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MovementBatcherTest {
+
+    // Rows of the committed transactions, and the number of commits
+    private final List<Object[]> committed = new ArrayList<>();
+    private final List<Object[]> staged = new ArrayList<>();
+    private int commits;
+    private MovementBatcher batcher;
+
+    @AfterEach
+    void stop() throws InterruptedException {
+        batcher.shutdown();
+    }
+
+    @Test
+    void changesQueuedDuringACommit_ShouldShareTheNextOne() throws Exception {
+        batcher = new MovementBatcher(jdbcTemplate(), transactionTemplate(), new SimpleMeterRegistry(), 500, 100);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch blocked = new CountDownLatch(1);
+        CompletableFuture<long[]> first = batcher.submit(MovementType.DEPOSIT, "alice@example.com", 100, null, () -> {
+            started.countDown();
+            await(blocked);
+            return new long[] {100, 0};
+        });
+        started.await();
+        List<CompletableFuture<long[]>> others = new ArrayList<>();
+        for (int i = 1; i <= 20; i++) {
+            long balance = 100 + i;
+            others.add(batcher.submit(MovementType.DEPOSIT, "alice@example.com", 1, null, () -> new long[] {balance, 0}));
+        }
+        blocked.countDown();
+
+        assertEquals(100, first.get()[0]);
+        for (CompletableFuture<long[]> other : others) {
+            other.get();
+        }
+        assertEquals(2, commits);
+        assertEquals(21, committed.size());
+        // Inserted in the order the changes were submitted
+        assertEquals(120L, committed.get(20)[3]);
+    }
+
+    @Test
+    void failingChange_ShouldOnlyFailItsOwnCaller() throws Exception {
+        batcher = new MovementBatcher(jdbcTemplate(), transactionTemplate(), new SimpleMeterRegistry(), 500, 100);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch blocked = new CountDownLatch(1);
+        batcher.submit(MovementType.DEBIT, "bob@example.com", 5, null, () -> {
+            started.countDown();
+            await(blocked);
+            return new long[] {95, 0};
+        });
+        started.await();
+        CompletableFuture<long[]> rejected = batcher.submit(MovementType.DEBIT, "bob@example.com", 500, null, () -> null);
+        CompletableFuture<long[]> failing = batcher.submit(MovementType.HOLD, "bob@example.com", 10, "h1", () -> {
+            throw new IllegalStateException("row locked");
+        });
+        CompletableFuture<long[]> applied = batcher.submit(MovementType.HOLD, "bob@example.com", 10, "h2", () -> new long[] {85, 10});
+        blocked.countDown();
+
+        assertNull(rejected.get());
+        assertArrayEquals(new long[] {85, 10}, applied.get());
+        CompletionException error = assertThrows(CompletionException.class, failing::join);
+        assertEquals("row locked", error.getCause().getMessage());
+        // The rejected change leaves no movement
+        assertEquals(List.of("DEBIT", "HOLD"), committed.stream().map(row -> (String) row[1]).toList());
+        assertEquals("h2", committed.get(1)[5]);
+    }
+
+    private JdbcTemplate jdbcTemplate() {
+        return new JdbcTemplate() {
+            @Override
+            public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+                staged.addAll(batchArgs);
+                return new int[batchArgs.size()];
+            }
+        };
+    }
+
+    private TransactionTemplate transactionTemplate() {
+        return new TransactionTemplate() {
+            @Override
+            public <T> T execute(TransactionCallback<T> action) {
+                staged.clear();
+                T result = action.doInTransaction(null); // Rolled back if it throws
+                committed.addAll(staged);
+                commits++;
+                return result;
+            }
+        };
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
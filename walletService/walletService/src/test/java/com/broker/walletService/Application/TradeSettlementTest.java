@@ -0,0 +1,179 @@
+package com.broker.walletService.Application;
+
+import com.broker.walletService.domain.Hold;
+import com.broker.walletService.domain.HoldStatus;
+import com.broker.walletService.domain.MovementType;
+import com.broker.walletService.domain.Wallet;
+import com.broker.walletService.dto.OrderCancellation;
+import com.broker.walletService.dto.Trade;
+import com.broker.walletService.infrastructure.repo.HoldRepository;
+import com.broker.walletService.infrastructure.repo.SettledTradeRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TradeSettlementTest {
+
+    private final HoldRepository holdRepository = mock(HoldRepository.class);
+    private final SettledTradeRepository settledTradeRepository = mock(SettledTradeRepository.class);
+    private final List<Object[]> settledRows = new ArrayList<>();
+    private final List<String> applied = new ArrayList<>();
+    private long available = Long.MAX_VALUE; // Funds covering the balance changes
+    private final TradeSettlement settlement = new TradeSettlement(holdRepository, settledTradeRepository,
+        jdbcTemplate(), transactionTemplate(), accountBalances(), new SimpleMeterRegistry());
+
+    @Test
+    void trades_ShouldBeCapturedOnceAndTheRestReleasedWhenTheOrderIsFilled() {
+        // 10 shares held at a limit of 10.00$, filled at 9.50$ then 9.00$
+        Hold hold = new Hold("alice@example.com", 10_000, Instant.now().plusSeconds(900), "order-1", 10);
+        when(holdRepository.findByReferenceInForUpdate(any())).thenReturn(List.of(hold));
+        when(settledTradeRepository.findSettledIds(any())).thenReturn(List.of(1L));
+
+        settlement.settle(List.of(trade(1, "1", 4, 950), trade(2, "1", 4, 950), trade(2, "1", 4, 950),
+            trade(3, "1", 6, 900)));
+
+        assertEquals(List.of("CAPTURE 3800", "CAPTURE 5400", "RELEASE 800"), applied);
+        assertEquals(HoldStatus.RELEASED, hold.getStatus());
+        assertEquals(10, hold.getFilledQuantity());
+        // Trade 1 was settled by an earlier batch, trade 2 was delivered twice
+        assertEquals(List.of(2L, 3L), settledRows.stream().map(row -> (Long) row[0]).toList());
+    }
+
+    @Test
+    void cancellation_ShouldWaitForTheTradesOfTheOrderItFollows() {
+        Hold partlyFilled = new Hold("alice@example.com", 10_000, Instant.now().plusSeconds(900), "order-1", 10);
+        Hold unfilled = new Hold("bob@example.com", 5_000, Instant.now().plusSeconds(900), "order-2", 5);
+        when(holdRepository.findByReferenceInForUpdate(any())).thenReturn(List.of(partlyFilled, unfilled));
+
+        // The trade was republished after a missing broker confirm, behind the cancellation
+        settlement.settle(List.of(new OrderCancellation("1", "SPY", "BUY", 3, 7),
+            new OrderCancellation("2", "SPY", "BUY", 0, 5)));
+        assertEquals(HoldStatus.HELD, partlyFilled.getStatus());
+        assertEquals(HoldStatus.RELEASED, unfilled.getStatus());
+
+        settlement.settle(List.of(trade(7, "1", 3, 1000)));
+        assertEquals(List.of("RELEASE 5000", "CAPTURE 3000", "RELEASE 7000"), applied);
+        assertEquals(HoldStatus.RELEASED, partlyFilled.getStatus());
+    }
+
+    @Test
+    void trade_ShouldBeDebitedFromTheBalance_WhenTheHoldWasClosed() {
+        Hold released = new Hold("alice@example.com", 10_000, Instant.now().plusSeconds(900), "order-1", 10);
+        released.setStatus(HoldStatus.RELEASED);
+        when(holdRepository.findByReferenceInForUpdate(any())).thenReturn(List.of(released));
+
+        settlement.settle(List.of(trade(4, "1", 2, 1000)));
+
+        assertEquals(List.of("DEBIT 2000 trade-4"), applied);
+        assertEquals(List.of(4L), settledRows.stream().map(row -> (Long) row[0]).toList());
+    }
+
+    @Test
+    void settle_ShouldFail_WhenTheFundsDoNotCoverABalanceChange() {
+        Hold released = new Hold("alice@example.com", 10_000, Instant.now().plusSeconds(900), "order-1", 10);
+        released.setStatus(HoldStatus.RELEASED);
+        when(holdRepository.findByReferenceInForUpdate(any())).thenReturn(List.of(released));
+        available = 1_000;
+
+        // The transaction rolls back, and the batch is retried or dead-lettered by SettlementConsumer
+        assertThrows(IllegalStateException.class, () -> settlement.settle(List.of(trade(5, "1", 2, 1000))));
+        assertTrue(applied.isEmpty());
+    }
+
+    private static Trade trade(long tradeId, String buyOrderId, int quantity, long price) {
+        return new Trade(tradeId, buyOrderId, "s" + tradeId, "SPY", quantity, price, LocalDateTime.now());
+    }
+
+    private JdbcTemplate jdbcTemplate() {
+        return new JdbcTemplate() {
+            @Override
+            public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+                settledRows.addAll(batchArgs);
+                return new int[batchArgs.size()];
+            }
+        };
+    }
+
+    private static TransactionTemplate transactionTemplate() {
+        return new TransactionTemplate() {
+            @Override
+            public <T> T execute(TransactionCallback<T> action) {
+                return action.doInTransaction(null);
+            }
+        };
+    }
+
+    // Records the balance changes handed to applyInTransaction, refusing those beyond the available funds
+    private AccountBalances accountBalances() {
+        return new AccountBalances() {
+            @Override
+            public void applyInTransaction(List<Instruction> instructions) {
+                for (Instruction instruction : instructions) {
+                    if (instruction.amount() > available) {
+                        throw new IllegalStateException("Not covered: " + instruction);
+                    }
+                }
+                instructions.forEach(instruction -> applied.add(instruction.type() + " " + instruction.amount()
+                    + (instruction.type() == MovementType.DEBIT ? " " + instruction.id() : "")));
+            }
+
+            @Override
+            public long balance(String ownerEmail) {
+                return 0;
+            }
+
+            @Override
+            public Map<String, Long> balances(Collection<String> ownerEmails) {
+                return Map.of();
+            }
+
+            @Override
+            public boolean exists(String ownerEmail) {
+                return true;
+            }
+
+            @Override
+            public void register(Wallet wallet) {
+            }
+
+            @Override
+            public long credit(String ownerEmail, long amount, String reference) {
+                return REJECTED;
+            }
+
+            @Override
+            public long debit(String ownerEmail, long amount, String reference) {
+                return REJECTED;
+            }
+
+            @Override
+            public boolean reserve(String ownerEmail, long amount, String reference) {
+                return false;
+            }
+
+            @Override
+            public boolean capture(String ownerEmail, long amount, String reference) {
+                return false;
+            }
+
+            @Override
+            public boolean release(String ownerEmail, long amount, String reference) {
+                return false;
+            }
+        };
+    }
+}
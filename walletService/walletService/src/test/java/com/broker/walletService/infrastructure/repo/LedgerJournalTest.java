@@ -0,0 +1,72 @@
+package com.broker.walletService.infrastructure.repo;
+
+import com.broker.walletService.domain.MovementType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LedgerJournalTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void reopen_ShouldReplayPreviousGenerationsInOrderAndStopAtATornRecord() throws IOException {
+        LedgerJournal journal = LedgerJournal.open(directory, 3, false);
+        journal.append(entry("alice@example.com", 10_000, 0));
+        long closed = journal.rotate();
+        journal.append(entry("alice@example.com", 7_500, 2_500));
+        journal.append(entry("bob@example.com", 300, 0));
+        journal.close();
+        // A crash while writing the next record leaves a body without its length
+        try (FileChannel channel = FileChannel.open(directory.resolve("stripe-3-" + (closed + 1) + ".ledger"), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {0, 0, 0, 0, 1, 2, 3, 4, 5}), channel.size());
+        }
+
+        LedgerJournal reopened = LedgerJournal.open(directory, 3, false);
+        List<String> replayed = new ArrayList<>();
+        reopened.replay(entry -> replayed.add(entry.ownerEmail() + "=" + entry.balance() + "/" + entry.reserved()));
+        assertEquals(List.of("alice@example.com=10000/0", "alice@example.com=7500/2500", "bob@example.com=300/0"), replayed);
+
+        // Records of the current generation are not replayed, and only older generations are deleted
+        reopened.append(entry("bob@example.com", 200, 0));
+        reopened.deleteUpTo(Long.MAX_VALUE);
+        try (var files = Files.list(directory)) {
+            assertEquals(1, files.count());
+        }
+        reopened.close();
+    }
+
+    @Test
+    void replay_ShouldReadTheChangesOfTheGenerationsInTheRange() {
+        LedgerJournal journal = LedgerJournal.open(directory, 0, false, 41);
+        journal.append(new LedgerJournal.Entry("alice@example.com", 7_500, 2_500, MovementType.HOLD, 2_500, "order-7",
+            null, Instant.ofEpochMilli(1_000)));
+        long first = journal.rotate();
+        LedgerJournal.Entry capture = new LedgerJournal.Entry("alice@example.com", 7_500, 0, MovementType.CAPTURE, 2_500,
+            null, "trade-9", Instant.ofEpochMilli(2_000));
+        journal.append(capture);
+        long second = journal.rotate();
+
+        // Generations start after the last one known, even when its file is gone
+        assertEquals(42, first);
+        List<LedgerJournal.Entry> read = new ArrayList<>();
+        journal.replay(first, second, read::add);
+        assertEquals(List.of(capture), read);
+    }
+
+    private static LedgerJournal.Entry entry(String ownerEmail, long balance, long reserved) {
+        return new LedgerJournal.Entry(ownerEmail, balance, reserved, MovementType.DEPOSIT, 100, null, null, Instant.now());
+    }
+}
@@ -0,0 +1,88 @@
+package com.broker.walletService.infrastructure.repo;
+
+import com.broker.walletService.domain.Wallet;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Each guarded update commits on its own, as in production: no test-managed transaction
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class WalletRepositoryConcurrencyTest {
+
+    private static final int THREADS = 32;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Test
+    void concurrentDebitsAndCredits_ShouldNotLoseAnyUpdate() throws Exception {
+        Wallet wallet = new Wallet("stress@example.com");
+        wallet.setBalance(1_000_000);
+        walletRepository.save(wallet);
+        int iterations = 200;
+
+        run(() -> {
+            for (int i = 0; i < iterations; i++) {
+                assertEquals(1, walletRepository.debit("stress@example.com", 3));
+                assertEquals(1, walletRepository.credit("stress@example.com", 1));
+            }
+        });
+
+        Wallet after = walletRepository.findByOwnerEmail("stress@example.com");
+        assertEquals(1_000_000 - THREADS * iterations * 2, after.getBalance());
+        assertEquals(wallet.getVersion() + THREADS * iterations * 2, after.getVersion());
+    }
+
+    @Test
+    void concurrentDebits_ShouldNeverOverdraw() throws Exception {
+        Wallet wallet = new Wallet("overdraw@example.com");
+        wallet.setBalance(10_000);
+        walletRepository.save(wallet);
+        Set<Long> balances = ConcurrentHashMap.newKeySet();
+
+        run(() -> {
+            Long balance = walletRepository.debitAndGetBalance("overdraw@example.com", 1_000);
+            if (balance != null) {
+                balances.add(balance);
+            }
+        });
+
+        // Ten debits accepted, each seeing the balance it left
+        assertEquals(LongStream.rangeClosed(0, 9).map(i -> i * 1_000).boxed().collect(Collectors.toSet()), balances);
+        assertEquals(0L, walletRepository.findBalanceByOwnerEmail("overdraw@example.com").longValue());
+    }
+
+    private static void run(Runnable task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                task.run();
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+    }
+}